@@ -48,6 +48,11 @@ implements NamedData<D>, SelectableData
     private final SelectableDataSupport selectableDataSupport =
         new SelectableDataSupport(this);
 
+    /**
+     * @see #getNumericColumn()
+     */
+    private volatile NumericColumn numericColumn = null;
+    
     /**
      * Constructor.
      * @param nameOfData    the name given to this data
@@ -103,6 +108,40 @@ implements NamedData<D>, SelectableData
         return this.nameOfData;
     }
 
+    /**
+     * Get a primitive copy of our data. This is built the first time it's
+     * asked for and cached after that since our data doesn't change.
+     * @return
+     *          the numeric column
+     * @throws IllegalArgumentException
+     *          if our data isn't numeric
+     * @see NumericColumn#forData(NamedData)
+     */
+    NumericColumn getNumericColumn() throws IllegalArgumentException
+    {
+        // it's harmless if two threads race to build this
+        NumericColumn column = this.numericColumn;
+        if(column == null)
+        {
+            column = NumericColumn.buildColumn(this);
+            this.numericColumn = column;
+        }
+        
+        return column;
+    }
+    
+    /**
+     * Getter for the support object that implements our selection
+     * behavior. This is how you configure things like the
+     * {@link SelectableDataSupport.ListenerDispatchPolicy}.
+     * @return
+     *          the selectable data support
+     */
+    public SelectableDataSupport getSelectableDataSupport()
+    {
+        return this.selectableDataSupport;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -186,6 +225,18 @@ implements NamedData<D>, SelectableData
         this.selectableDataSupport.setSelectedIndices(selectedIndicies);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void selectIndicesMatching(
+            RowPredicate predicate,
+            SelectionMode selectionMode)
+    {
+        this.selectableDataSupport.selectIndicesMatching(
+                predicate,
+                selectionMode);
+    }
+    
     /**
      * {@inheritDoc}
      */
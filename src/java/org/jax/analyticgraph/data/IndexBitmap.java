@@ -0,0 +1,739 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.data;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.SortedSet;
+
+/**
+ * A growable bitmap of non-negative data indices. This is similar to
+ * {@link java.util.BitSet} except that it gives the rest of this package
+ * word level access, which is what lets us do things like writing into
+ * disjoint ranges from several threads at once and computing the
+ * cardinality of set operations without building the result. Like
+ * {@link java.util.BitSet} this class is not thread safe.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class IndexBitmap
+{
+    /**
+     * the number of bits we shift by to go from a bit index to a word index
+     */
+    static final int ADDRESS_BITS_PER_WORD = 6;
+    
+    /**
+     * the number of bits in each word
+     */
+    static final int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+    
+    private static final long[] EMPTY_WORDS = new long[0];
+    
+    /**
+     * the bits. any words beyond what's needed are zero
+     */
+    private long[] words;
+    
+    /**
+     * Constructor for an empty bitmap
+     */
+    public IndexBitmap()
+    {
+        this.words = EMPTY_WORDS;
+    }
+    
+    /**
+     * Constructor for an empty bitmap that can hold the given number
+     * of indices without growing
+     * @param indexCapacity
+     *          the initial capacity
+     */
+    public IndexBitmap(int indexCapacity)
+    {
+        this.words = new long[IndexBitmap.wordCount(indexCapacity)];
+    }
+    
+    /**
+     * Copy constructor
+     * @param bitmapToCopy
+     *          the bitmap to copy
+     */
+    public IndexBitmap(IndexBitmap bitmapToCopy)
+    {
+        int usedWords = bitmapToCopy.usedWordCount();
+        this.words = usedWords == 0 ?
+                     EMPTY_WORDS :
+                     Arrays.copyOf(bitmapToCopy.words, usedWords);
+    }
+    
+    /**
+     * Build a bitmap that uses the given words directly
+     * @param words
+     *          the words. the caller must not touch these afterwards
+     * @return
+     *          the bitmap
+     */
+    static IndexBitmap wrapWords(long[] words)
+    {
+        IndexBitmap bitmap = new IndexBitmap();
+        bitmap.words = words;
+        return bitmap;
+    }
+    
+    /**
+     * Get the number of words needed to hold the given number of bits
+     * @param bitCount
+     *          the bit count
+     * @return
+     *          the word count
+     */
+    static int wordCount(int bitCount)
+    {
+        return (bitCount + BITS_PER_WORD - 1) >>> ADDRESS_BITS_PER_WORD;
+    }
+    
+    /**
+     * Make sure that we can hold the given index without growing
+     * @param indexCapacity
+     *          the number of indices we need to be able to hold
+     */
+    public void ensureCapacity(int indexCapacity)
+    {
+        this.ensureWordCapacity(IndexBitmap.wordCount(indexCapacity));
+    }
+    
+    /**
+     * Make sure that we have at least the given number of words
+     * @param wordCapacity
+     *          the word count
+     */
+    private void ensureWordCapacity(int wordCapacity)
+    {
+        if(this.words.length < wordCapacity)
+        {
+            int newLength = Math.max(wordCapacity, this.words.length * 2);
+            this.words = Arrays.copyOf(this.words, newLength);
+        }
+    }
+    
+    /**
+     * Determine if the given index is set
+     * @param index
+     *          the index to check
+     * @return
+     *          true iff the index is set
+     */
+    public boolean get(int index)
+    {
+        if(index < 0)
+        {
+            return false;
+        }
+        
+        int wordIndex = index >>> ADDRESS_BITS_PER_WORD;
+        return wordIndex < this.words.length &&
+               (this.words[wordIndex] & (1L << index)) != 0L;
+    }
+    
+    /**
+     * Set the given index
+     * @param index
+     *          the index to set
+     * @return
+     *          true if this changed the bitmap
+     * @throws IndexOutOfBoundsException
+     *          if the index is negative
+     */
+    public boolean set(int index) throws IndexOutOfBoundsException
+    {
+        if(index < 0)
+        {
+            throw new IndexOutOfBoundsException(
+                    "index cannot be negative: " + index);
+        }
+        
+        int wordIndex = index >>> ADDRESS_BITS_PER_WORD;
+        this.ensureWordCapacity(wordIndex + 1);
+        long oldWord = this.words[wordIndex];
+        long newWord = oldWord | (1L << index);
+        this.words[wordIndex] = newWord;
+        
+        return oldWord != newWord;
+    }
+    
+    /**
+     * Set every index in the given range
+     * @param fromIndex
+     *          the first index to set
+     * @param toIndex
+     *          one past the last index to set
+     */
+    public void set(int fromIndex, int toIndex)
+    {
+        if(fromIndex < 0 || toIndex < fromIndex)
+        {
+            throw new IndexOutOfBoundsException(
+                    "bad range: " + fromIndex + " to " + toIndex);
+        }
+        
+        if(fromIndex == toIndex)
+        {
+            return;
+        }
+        
+        int startWordIndex = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        int endWordIndex = (toIndex - 1) >>> ADDRESS_BITS_PER_WORD;
+        this.ensureWordCapacity(endWordIndex + 1);
+        
+        long firstWordMask = -1L << fromIndex;
+        long lastWordMask = -1L >>> -toIndex;
+        if(startWordIndex == endWordIndex)
+        {
+            this.words[startWordIndex] |= firstWordMask & lastWordMask;
+        }
+        else
+        {
+            this.words[startWordIndex] |= firstWordMask;
+            for(int i = startWordIndex + 1; i < endWordIndex; i++)
+            {
+                this.words[i] = -1L;
+            }
+            this.words[endWordIndex] |= lastWordMask;
+        }
+    }
+    
+    /**
+     * Clear the given index
+     * @param index
+     *          the index to clear
+     * @return
+     *          true if this changed the bitmap
+     */
+    public boolean clear(int index)
+    {
+        if(index < 0)
+        {
+            return false;
+        }
+        
+        int wordIndex = index >>> ADDRESS_BITS_PER_WORD;
+        if(wordIndex < this.words.length)
+        {
+            long oldWord = this.words[wordIndex];
+            long newWord = oldWord & ~(1L << index);
+            this.words[wordIndex] = newWord;
+            
+            return oldWord != newWord;
+        }
+        else
+        {
+            return false;
+        }
+    }
+    
+    /**
+     * Clear all indices
+     */
+    public void clear()
+    {
+        Arrays.fill(this.words, 0L);
+    }
+    
+    /**
+     * Determine if no indices are set
+     * @return
+     *          true if we're empty
+     */
+    public boolean isEmpty()
+    {
+        return this.usedWordCount() == 0;
+    }
+    
+    /**
+     * Get the number of set indices
+     * @return
+     *          the cardinality
+     */
+    public int cardinality()
+    {
+        int cardinality = 0;
+        for(int i = 0; i < this.words.length; i++)
+        {
+            cardinality += Long.bitCount(this.words[i]);
+        }
+        
+        return cardinality;
+    }
+    
+    /**
+     * Get the number of set indices in the given range
+     * @param fromIndex
+     *          the start of the range (inclusive)
+     * @param toIndex
+     *          the end of the range (exclusive)
+     * @return
+     *          the count
+     */
+    public int cardinality(int fromIndex, int toIndex)
+    {
+        fromIndex = Math.max(fromIndex, 0);
+        toIndex = Math.min(toIndex, this.words.length * BITS_PER_WORD);
+        if(fromIndex >= toIndex)
+        {
+            return 0;
+        }
+        
+        int startWordIndex = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        int endWordIndex = (toIndex - 1) >>> ADDRESS_BITS_PER_WORD;
+        long firstWordMask = -1L << fromIndex;
+        long lastWordMask = -1L >>> -toIndex;
+        if(startWordIndex == endWordIndex)
+        {
+            return Long.bitCount(
+                    this.words[startWordIndex] & firstWordMask & lastWordMask);
+        }
+        else
+        {
+            int cardinality =
+                Long.bitCount(this.words[startWordIndex] & firstWordMask);
+            for(int i = startWordIndex + 1; i < endWordIndex; i++)
+            {
+                cardinality += Long.bitCount(this.words[i]);
+            }
+            cardinality += Long.bitCount(this.words[endWordIndex] & lastWordMask);
+            
+            return cardinality;
+        }
+    }
+    
+    /**
+     * Get one past the highest set index
+     * @return
+     *          the length (0 if we're empty)
+     */
+    public int length()
+    {
+        int usedWords = this.usedWordCount();
+        if(usedWords == 0)
+        {
+            return 0;
+        }
+        else
+        {
+            return BITS_PER_WORD * (usedWords - 1) +
+                   (BITS_PER_WORD - Long.numberOfLeadingZeros(this.words[usedWords - 1]));
+        }
+    }
+    
+    /**
+     * Get the first set index that is >= the given index
+     * @param fromIndex
+     *          where to start looking
+     * @return
+     *          the index or -1 if there isn't one
+     */
+    public int nextSetBit(int fromIndex)
+    {
+        if(fromIndex < 0)
+        {
+            fromIndex = 0;
+        }
+        
+        int wordIndex = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        if(wordIndex >= this.words.length)
+        {
+            return -1;
+        }
+        
+        long word = this.words[wordIndex] & (-1L << fromIndex);
+        while(true)
+        {
+            if(word != 0L)
+            {
+                return wordIndex * BITS_PER_WORD + Long.numberOfTrailingZeros(word);
+            }
+            
+            wordIndex++;
+            if(wordIndex == this.words.length)
+            {
+                return -1;
+            }
+            word = this.words[wordIndex];
+        }
+    }
+    
+    /**
+     * Get the last set index that is <= the given index
+     * @param fromIndex
+     *          where to start looking (backwards)
+     * @return
+     *          the index or -1 if there isn't one
+     */
+    public int previousSetBit(int fromIndex)
+    {
+        if(fromIndex < 0)
+        {
+            return -1;
+        }
+        
+        int wordIndex = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        if(wordIndex >= this.words.length)
+        {
+            wordIndex = this.words.length - 1;
+            fromIndex = -1;
+        }
+        
+        if(wordIndex < 0)
+        {
+            return -1;
+        }
+        
+        long word = this.words[wordIndex] & (-1L >>> -(fromIndex + 1));
+        while(true)
+        {
+            if(word != 0L)
+            {
+                return (wordIndex + 1) * BITS_PER_WORD - 1 -
+                       Long.numberOfLeadingZeros(word);
+            }
+            
+            wordIndex--;
+            if(wordIndex < 0)
+            {
+                return -1;
+            }
+            word = this.words[wordIndex];
+        }
+    }
+    
+    /**
+     * Set this bitmap to be the union of itself and the other bitmap
+     * @param otherBitmap
+     *          the other bitmap
+     */
+    public void or(IndexBitmap otherBitmap)
+    {
+        int otherUsedWords = otherBitmap.usedWordCount();
+        this.ensureWordCapacity(otherUsedWords);
+        for(int i = 0; i < otherUsedWords; i++)
+        {
+            this.words[i] |= otherBitmap.words[i];
+        }
+    }
+    
+    /**
+     * Set this bitmap to be the intersection of itself and the other bitmap
+     * @param otherBitmap
+     *          the other bitmap
+     */
+    public void and(IndexBitmap otherBitmap)
+    {
+        int commonWords = Math.min(this.words.length, otherBitmap.words.length);
+        for(int i = 0; i < commonWords; i++)
+        {
+            this.words[i] &= otherBitmap.words[i];
+        }
+        Arrays.fill(this.words, commonWords, this.words.length, 0L);
+    }
+    
+    /**
+     * Clear every index in this bitmap that is set in the other bitmap
+     * @param otherBitmap
+     *          the other bitmap
+     */
+    public void andNot(IndexBitmap otherBitmap)
+    {
+        int commonWords = Math.min(this.words.length, otherBitmap.words.length);
+        for(int i = 0; i < commonWords; i++)
+        {
+            this.words[i] &= ~otherBitmap.words[i];
+        }
+    }
+    
+    /**
+     * Set this bitmap to be the symmetric difference of itself and the
+     * other bitmap
+     * @param otherBitmap
+     *          the other bitmap
+     */
+    public void xor(IndexBitmap otherBitmap)
+    {
+        int otherUsedWords = otherBitmap.usedWordCount();
+        this.ensureWordCapacity(otherUsedWords);
+        for(int i = 0; i < otherUsedWords; i++)
+        {
+            this.words[i] ^= otherBitmap.words[i];
+        }
+    }
+    
+    /**
+     * Make this bitmap an exact copy of the other bitmap
+     * @param otherBitmap
+     *          the bitmap to copy
+     */
+    public void copyFrom(IndexBitmap otherBitmap)
+    {
+        int otherUsedWords = otherBitmap.usedWordCount();
+        this.ensureWordCapacity(otherUsedWords);
+        System.arraycopy(otherBitmap.words, 0, this.words, 0, otherUsedWords);
+        Arrays.fill(this.words, otherUsedWords, this.words.length, 0L);
+    }
+    
+    /**
+     * The number of words up to and including the last non-zero word
+     * @return
+     *          the used word count
+     */
+    int usedWordCount()
+    {
+        int usedWords = this.words.length;
+        while(usedWords > 0 && this.words[usedWords - 1] == 0L)
+        {
+            usedWords--;
+        }
+        
+        return usedWords;
+    }
+    
+    /**
+     * Direct access to our words. Callers must not grow the bitmap
+     * while holding on to the returned array.
+     * @return
+     *          the words backing this bitmap
+     */
+    long[] getWords()
+    {
+        return this.words;
+    }
+    
+    /**
+     * OR the given words into our words starting at the given word offset
+     * @param otherWords
+     *          the words to OR in
+     * @param wordOffset
+     *          the word index that the first of the given words lines
+     *          up with
+     */
+    void orWords(long[] otherWords, int wordOffset)
+    {
+        this.ensureWordCapacity(wordOffset + otherWords.length);
+        for(int i = 0; i < otherWords.length; i++)
+        {
+            this.words[wordOffset + i] |= otherWords[i];
+        }
+    }
+    
+    /**
+     * Clear any of our bits that are set in the given words
+     * @param otherWords
+     *          the words to clear
+     * @param wordOffset
+     *          the word index that the first of the given words lines
+     *          up with
+     */
+    void andNotWords(long[] otherWords, int wordOffset)
+    {
+        int stop = Math.min(otherWords.length, this.words.length - wordOffset);
+        for(int i = 0; i < stop; i++)
+        {
+            this.words[wordOffset + i] &= ~otherWords[i];
+        }
+    }
+    
+    /**
+     * Get the cardinality of the intersection of the two bitmaps without
+     * building the intersection
+     * @param bitmap1
+     *          the 1st bitmap
+     * @param bitmap2
+     *          the 2nd bitmap
+     * @return
+     *          the cardinality
+     */
+    public static int andCardinality(IndexBitmap bitmap1, IndexBitmap bitmap2)
+    {
+        int commonWords = Math.min(bitmap1.words.length, bitmap2.words.length);
+        int cardinality = 0;
+        for(int i = 0; i < commonWords; i++)
+        {
+            cardinality += Long.bitCount(bitmap1.words[i] & bitmap2.words[i]);
+        }
+        
+        return cardinality;
+    }
+    
+    /**
+     * Get the cardinality of the union of the two bitmaps without
+     * building the union
+     * @param bitmap1
+     *          the 1st bitmap
+     * @param bitmap2
+     *          the 2nd bitmap
+     * @return
+     *          the cardinality
+     */
+    public static int orCardinality(IndexBitmap bitmap1, IndexBitmap bitmap2)
+    {
+        return bitmap1.cardinality() + bitmap2.cardinality() -
+               IndexBitmap.andCardinality(bitmap1, bitmap2);
+    }
+    
+    /**
+     * Get the cardinality of bitmap1 minus bitmap2 without
+     * building the difference
+     * @param bitmap1
+     *          the 1st bitmap
+     * @param bitmap2
+     *          the 2nd bitmap
+     * @return
+     *          the cardinality
+     */
+    public static int andNotCardinality(IndexBitmap bitmap1, IndexBitmap bitmap2)
+    {
+        return bitmap1.cardinality() - IndexBitmap.andCardinality(bitmap1, bitmap2);
+    }
+    
+    /**
+     * Get the cardinality of the symmetric difference of the two bitmaps
+     * without building the difference
+     * @param bitmap1
+     *          the 1st bitmap
+     * @param bitmap2
+     *          the 2nd bitmap
+     * @return
+     *          the cardinality
+     */
+    public static int xorCardinality(IndexBitmap bitmap1, IndexBitmap bitmap2)
+    {
+        return bitmap1.cardinality() + bitmap2.cardinality() -
+               2 * IndexBitmap.andCardinality(bitmap1, bitmap2);
+    }
+    
+    /**
+     * Get an unmodifiable {@link SortedSet} view of this bitmap. The view
+     * synchronizes on this bitmap. Passing the view to
+     * {@link SelectableData#setSelectedIndices(SortedSet)} or
+     * {@link SelectableData#selectAllIndices(java.util.Collection)} lets
+     * the selection copy words rather than individual indices.
+     * @return
+     *          the view
+     */
+    public SortedSet<Integer> asSortedSet()
+    {
+        return new IndexBitmapSortedSet(this, this);
+    }
+    
+    /**
+     * Build a bitmap holding the given indices
+     * @param indices
+     *          the indices
+     * @return
+     *          a new bitmap
+     */
+    public static IndexBitmap fromIndices(Collection<Integer> indices)
+    {
+        if(indices instanceof IndexBitmapSortedSet)
+        {
+            // we can skip the boxing and just copy words
+            return ((IndexBitmapSortedSet)indices).toIndexBitmap();
+        }
+        else
+        {
+            IndexBitmap bitmap = new IndexBitmap();
+            for(Integer currIndex: indices)
+            {
+                bitmap.set(currIndex);
+            }
+            
+            return bitmap;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object otherObject)
+    {
+        if(this == otherObject)
+        {
+            return true;
+        }
+        else if(otherObject instanceof IndexBitmap)
+        {
+            IndexBitmap otherBitmap = (IndexBitmap)otherObject;
+            int usedWords = this.usedWordCount();
+            if(usedWords != otherBitmap.usedWordCount())
+            {
+                return false;
+            }
+            
+            for(int i = 0; i < usedWords; i++)
+            {
+                if(this.words[i] != otherBitmap.words[i])
+                {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        long hash = 1234L;
+        for(int i = this.usedWordCount() - 1; i >= 0; i--)
+        {
+            hash ^= this.words[i] * (i + 1);
+        }
+        
+        return (int)((hash >> 32) ^ hash);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("{");
+        for(int i = this.nextSetBit(0); i >= 0; i = this.nextSetBit(i + 1))
+        {
+            if(sb.length() > 1)
+            {
+                sb.append(", ");
+            }
+            sb.append(i);
+        }
+        sb.append('}');
+        
+        return sb.toString();
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.data;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * An unmodifiable {@link SortedSet} view of an {@link IndexBitmap}. All
+ * access to the bitmap is synchronized on the lock object that we're
+ * given. Just like {@link java.util.Collections#synchronizedSortedSet(SortedSet)}
+ * callers need to hold the lock themselves while iterating if they want
+ * a consistent iteration.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class IndexBitmapSortedSet extends AbstractSet<Integer> implements SortedSet<Integer>
+{
+    /**
+     * the bitmap that we're a view of
+     */
+    private final IndexBitmap bitmap;
+    
+    /**
+     * the lock that guards the bitmap
+     */
+    private final Object lock;
+    
+    /**
+     * the lowest index in this view (inclusive)
+     */
+    private final int fromIndex;
+    
+    /**
+     * the highest index in this view (exclusive)
+     */
+    private final int toIndex;
+    
+    /**
+     * Constructor for a view of the full bitmap
+     * @param bitmap
+     *          the bitmap
+     * @param lock
+     *          the lock to synchronize on
+     */
+    public IndexBitmapSortedSet(IndexBitmap bitmap, Object lock)
+    {
+        this(bitmap, lock, 0, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Constructor for a view of the given range of the bitmap
+     * @param bitmap
+     *          the bitmap
+     * @param lock
+     *          the lock to synchronize on
+     * @param fromIndex
+     *          the lowest index in the view (inclusive)
+     * @param toIndex
+     *          the highest index in the view (exclusive)
+     */
+    private IndexBitmapSortedSet(
+            IndexBitmap bitmap,
+            Object lock,
+            int fromIndex,
+            int toIndex)
+    {
+        this.bitmap = bitmap;
+        this.lock = lock;
+        this.fromIndex = Math.max(0, fromIndex);
+        this.toIndex = Math.max(this.fromIndex, toIndex);
+    }
+    
+    /**
+     * Get a copy of the indices in this view as a bitmap
+     * @return
+     *          the copy
+     */
+    public IndexBitmap toIndexBitmap()
+    {
+        synchronized(this.lock)
+        {
+            IndexBitmap copy = new IndexBitmap(this.bitmap);
+            if(this.fromIndex > 0 || this.toIndex < Integer.MAX_VALUE)
+            {
+                IndexBitmap range = new IndexBitmap();
+                range.set(this.fromIndex, Math.min(this.toIndex, copy.length()));
+                copy.and(range);
+            }
+            
+            return copy;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        synchronized(this.lock)
+        {
+            return this.bitmap.cardinality(this.fromIndex, this.toIndex);
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        synchronized(this.lock)
+        {
+            int next = this.bitmap.nextSetBit(this.fromIndex);
+            return next < 0 || next >= this.toIndex;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(Object object)
+    {
+        if(object instanceof Integer)
+        {
+            int index = ((Integer)object).intValue();
+            if(index >= this.fromIndex && index < this.toIndex)
+            {
+                synchronized(this.lock)
+                {
+                    return this.bitmap.get(index);
+                }
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Integer> iterator()
+    {
+        return new Iterator<Integer>()
+        {
+            private int nextIndex = IndexBitmapSortedSet.this.nextIndexInView(
+                    IndexBitmapSortedSet.this.fromIndex);
+            
+            public boolean hasNext()
+            {
+                return this.nextIndex >= 0;
+            }
+            
+            public Integer next()
+            {
+                if(this.nextIndex < 0)
+                {
+                    throw new NoSuchElementException();
+                }
+                
+                int currIndex = this.nextIndex;
+                this.nextIndex = IndexBitmapSortedSet.this.nextIndexInView(
+                        currIndex + 1);
+                return currIndex;
+            }
+            
+            public void remove()
+            {
+                throw new UnsupportedOperationException(
+                        "the selected indices can't be modified through this view");
+            }
+        };
+    }
+    
+    /**
+     * Find the next set index in this view
+     * @param startIndex
+     *          the index to start from
+     * @return
+     *          the index or -1 if there isn't one
+     */
+    private int nextIndexInView(int startIndex)
+    {
+        if(startIndex < 0 || startIndex >= this.toIndex)
+        {
+            return -1;
+        }
+        
+        synchronized(this.lock)
+        {
+            int next = this.bitmap.nextSetBit(startIndex);
+            return next < this.toIndex ? next : -1;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public Comparator<? super Integer> comparator()
+    {
+        // natural ordering
+        return null;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public Integer first()
+    {
+        int first = this.nextIndexInView(this.fromIndex);
+        if(first < 0)
+        {
+            throw new NoSuchElementException();
+        }
+        
+        return first;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public Integer last()
+    {
+        int last;
+        synchronized(this.lock)
+        {
+            last = this.bitmap.previousSetBit(this.toIndex - 1);
+        }
+        
+        if(last < this.fromIndex)
+        {
+            throw new NoSuchElementException();
+        }
+        
+        return last;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public SortedSet<Integer> headSet(Integer toElement)
+    {
+        return this.subSet(this.fromIndex, toElement.intValue());
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public SortedSet<Integer> tailSet(Integer fromElement)
+    {
+        return this.subSet(fromElement.intValue(), this.toIndex);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public SortedSet<Integer> subSet(Integer fromElement, Integer toElement)
+    {
+        return this.subSet(fromElement.intValue(), toElement.intValue());
+    }
+    
+    /**
+     * Get a sub-view of this view
+     * @param subFromIndex
+     *          the lowest index (inclusive)
+     * @param subToIndex
+     *          the highest index (exclusive)
+     * @return
+     *          the view
+     */
+    private SortedSet<Integer> subSet(int subFromIndex, int subToIndex)
+    {
+        if(subFromIndex > subToIndex)
+        {
+            throw new IllegalArgumentException(
+                    "fromElement > toElement: " + subFromIndex + " > " +
+                    subToIndex);
+        }
+        
+        return new IndexBitmapSortedSet(
+                this.bitmap,
+                this.lock,
+                Math.max(this.fromIndex, subFromIndex),
+                Math.min(this.toIndex, subToIndex));
+    }
+}
@@ -19,11 +19,15 @@
  */
 package org.jax.analyticgraph.data;
 
+import java.lang.ref.WeakReference;
+
 import org.jax.util.datastructure.ImmutableReorderedList;
 
 
 /**
- * Holds a subset of data.
+ * Holds a subset of data. If the superset is {@link SelectableData} then
+ * selections are kept in sync in both directions: selecting in the subset
+ * selects the matching superset indices and vice versa.
  * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
  */
 class NamedDataSubset<D> extends AbstractSelectableNamedData<D>
@@ -37,7 +41,31 @@ class NamedDataSubset<D> extends AbstractSelectableNamedData<D>
      * holds the data we return in {@link #getData()}
      */
     private final ImmutableReorderedList<D> subsetData;
-
+    
+    /**
+     * @see #getIndexMapping()
+     */
+    private final SubsetIndexMapping indexMapping;
+    
+    /**
+     * guards {@link #syncedSelection} and
+     * {@link #applyingSupersetSelection}
+     */
+    private final Object selectionSyncLock = new Object();
+    
+    /**
+     * our selection as of the last time that it was pulled from or pushed
+     * to the superset. if our selection still matches this when a push
+     * comes along there's nothing of ours to push (it's just the echo of
+     * a pull, possibly dispatched late on another thread)
+     */
+    private IndexBitmap syncedSelection;
+    
+    /**
+     * true while we're applying the superset's selection to ourselves
+     */
+    private boolean applyingSupersetSelection = false;
+    
     /**
      * Construct a subset of the given superset data.
      * @param filter
@@ -57,8 +85,150 @@ class NamedDataSubset<D> extends AbstractSelectableNamedData<D>
         this.subsetData = new ImmutableReorderedList<D>(
                 superset.getData(),
                 filter);
+        this.indexMapping = new SubsetIndexMapping(filter);
+        
+        if(superset instanceof SelectableData)
+        {
+            final SelectableData selectableSuperset = (SelectableData)superset;
+            this.pullSelectionFromSuperset(selectableSuperset);
+            
+            // the superset only holds on to us weakly so that it doesn't
+            // keep every subset ever made alive
+            selectableSuperset.addSelectableDataListener(
+                    new SupersetSelectionListener(this));
+            this.addSelectableDataListener(new SelectableDataListener()
+            {
+                public void selectionChanged(SelectableData selectableData)
+                {
+                    NamedDataSubset.this.pushSelectionToSuperset(
+                            selectableSuperset);
+                }
+            });
+        }
     }
-
+    
+    /**
+     * Getter for the mapping between our indices and the superset's
+     * indices
+     * @return
+     *          the index mapping
+     */
+    public SubsetIndexMapping getIndexMapping()
+    {
+        return this.indexMapping;
+    }
+    
+    /**
+     * Make our selection match the superset's selection
+     * @param selectableSuperset
+     *          the superset
+     */
+    private void pullSelectionFromSuperset(SelectableData selectableSuperset)
+    {
+        synchronized(this.selectionSyncLock)
+        {
+            IndexBitmap supersetSelection = IndexBitmap.fromIndices(
+                    selectableSuperset.getSelectedIndices());
+            IndexBitmap subsetSelection = this.indexMapping.toSubsetIndices(
+                    supersetSelection);
+            this.syncedSelection = subsetSelection;
+            
+            // the change we make here came from the superset so there's no
+            // point in pushing it back up
+            this.applyingSupersetSelection = true;
+            try
+            {
+                this.setSelectedIndices(new IndexBitmapSortedSet(
+                        subsetSelection,
+                        subsetSelection));
+            }
+            finally
+            {
+                this.applyingSupersetSelection = false;
+            }
+        }
+    }
+    
+    /**
+     * Make the superset's selection match our selection. Superset indices
+     * that we filtered out are left alone.
+     * @param selectableSuperset
+     *          the superset
+     */
+    private void pushSelectionToSuperset(SelectableData selectableSuperset)
+    {
+        IndexBitmap subsetSelection;
+        synchronized(this.selectionSyncLock)
+        {
+            if(this.applyingSupersetSelection)
+            {
+                return;
+            }
+            
+            subsetSelection = new IndexBitmap(
+                    IndexBitmap.fromIndices(this.getSelectedIndices()));
+            if(subsetSelection.equals(this.syncedSelection))
+            {
+                return;
+            }
+            this.syncedSelection = subsetSelection;
+        }
+        
+        // we let go of our lock first since the superset calls its other
+        // subsets back
+        IndexBitmap keptIndices = this.indexMapping.getKeptIndices();
+        IndexBitmap supersetSelection =
+            this.indexMapping.toSupersetIndices(subsetSelection);
+        SelectableDataSupport supersetSupport =
+            NamedDataSubset.getSelectableDataSupport(selectableSuperset);
+        if(supersetSupport != null)
+        {
+            // the merge happens under the superset's lock so that changes
+            // to the superset outside of our indices can't get lost
+            supersetSupport.setSelectedIndicesWithin(
+                    keptIndices,
+                    supersetSelection);
+        }
+        else
+        {
+            // we can't lock other implementations so the best we can do
+            // is a read-modify-write
+            IndexBitmap newSupersetSelection = new IndexBitmap(
+                    IndexBitmap.fromIndices(
+                            selectableSuperset.getSelectedIndices()));
+            newSupersetSelection.andNot(keptIndices);
+            newSupersetSelection.or(supersetSelection);
+            selectableSuperset.setSelectedIndices(new IndexBitmapSortedSet(
+                    newSupersetSelection,
+                    newSupersetSelection));
+        }
+    }
+    
+    /**
+     * Get the support behind one of this package's selectable data
+     * implementations
+     * @param selectableData
+     *          the selectable data
+     * @return
+     *          the support or null if the data isn't one of ours
+     */
+    private static SelectableDataSupport getSelectableDataSupport(
+            SelectableData selectableData)
+    {
+        if(selectableData instanceof AbstractSelectableNamedData<?>)
+        {
+            return ((AbstractSelectableNamedData<?>)selectableData).getSelectableDataSupport();
+        }
+        else if(selectableData instanceof SimpleSelectableNamedDataMatrix<?>)
+        {
+            return ((SimpleSelectableNamedDataMatrix<?>)selectableData).getSelectableDataSupport();
+        }
+        else
+        {
+            return null;
+        }
+    }
+    
     /**
      * getter for the superset
      * @return the superset
@@ -67,7 +237,7 @@ class NamedDataSubset<D> extends AbstractSelectableNamedData<D>
     {
         return this.superset;
     }
-
+    
     /**
      * {@inheritDoc}
      */
@@ -75,4 +245,45 @@ class NamedDataSubset<D> extends AbstractSelectableNamedData<D>
     {
         return this.subsetData;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Listens to the superset on behalf of a subset without keeping the
+     * subset from being garbage collected
+     */
+    private static class SupersetSelectionListener
+    implements SelectableDataListener
+    {
+        /**
+         * the subset that we're listening for
+         */
+        private final WeakReference<NamedDataSubset<?>> subsetReference;
+        
+        /**
+         * Constructor
+         * @param subset
+         *          the subset that we're listening for
+         */
+        public SupersetSelectionListener(NamedDataSubset<?> subset)
+        {
+            this.subsetReference = new WeakReference<NamedDataSubset<?>>(
+                    subset);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void selectionChanged(SelectableData selectableData)
+        {
+            NamedDataSubset<?> subset = this.subsetReference.get();
+            if(subset == null)
+            {
+                // the subset is gone so we can stop listening
+                selectableData.removeSelectableDataListener(this);
+            }
+            else
+            {
+                subset.pullSelectionFromSuperset(selectableData);
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.data;
+
+import java.util.List;
+
+/**
+ * A primitive <code>double</code> copy of a numeric {@link NamedData}
+ * along with some summary statistics. Missing (null) values are stored
+ * as {@link Double#NaN}. For categorical data the values are the
+ * category codes. Since named data doesn't change once it's built,
+ * {@link #forData(NamedData)} hands back a cached instance whenever it
+ * can.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class NumericColumn
+{
+    /**
+     * @see #getValues()
+     */
+    private final double[] values;
+    
+    /**
+     * @see #getMissingCount()
+     */
+    private final int missingCount;
+    
+    /**
+     * @see #getMinimum()
+     */
+    private final double minimum;
+    
+    /**
+     * @see #getMaximum()
+     */
+    private final double maximum;
+    
+    /**
+     * @see #getMean()
+     */
+    private final double mean;
+    
+    /**
+     * Constructor
+     * @param values
+     *          the values. we hold on to this array rather than copying it
+     *          so don't modify it after this
+     */
+    public NumericColumn(double[] values)
+    {
+        this.values = values;
+        
+        int missing = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0.0;
+        for(int i = 0; i < values.length; i++)
+        {
+            double currValue = values[i];
+            if(Double.isNaN(currValue))
+            {
+                missing++;
+            }
+            else
+            {
+                if(currValue < min)
+                {
+                    min = currValue;
+                }
+                if(currValue > max)
+                {
+                    max = currValue;
+                }
+                sum += currValue;
+            }
+        }
+        
+        int presentCount = values.length - missing;
+        this.missingCount = missing;
+        this.minimum = presentCount == 0 ? Double.NaN : min;
+        this.maximum = presentCount == 0 ? Double.NaN : max;
+        this.mean = presentCount == 0 ? Double.NaN : sum / presentCount;
+    }
+    
+    /**
+     * Get the numeric column for the given data. This is cached for
+     * {@link AbstractSelectableNamedData} so it's cheap to call repeatedly.
+     * @param data
+     *          the data. its values should all be {@link Number}s or null
+     * @return
+     *          the column
+     * @throws IllegalArgumentException
+     *          if the data holds something that isn't a number
+     */
+    public static NumericColumn forData(NamedData<?> data)
+    throws IllegalArgumentException
+    {
+        if(data instanceof AbstractSelectableNamedData)
+        {
+            return ((AbstractSelectableNamedData<?>)data).getNumericColumn();
+        }
+        else
+        {
+            return NumericColumn.buildColumn(data);
+        }
+    }
+    
+    /**
+     * Build a new column for the given data
+     * @param data
+     *          the data
+     * @return
+     *          the column
+     * @throws IllegalArgumentException
+     *          if the data holds something that isn't a number
+     */
+    static NumericColumn buildColumn(NamedData<?> data)
+    throws IllegalArgumentException
+    {
+        double[] values;
+        if(data instanceof NamedIntegerData)
+        {
+            int[] integerData = ((NamedIntegerData)data).getIntegerData();
+            values = new double[integerData.length];
+            for(int i = 0; i < integerData.length; i++)
+            {
+                values[i] = integerData[i];
+            }
+        }
+        else if(data instanceof NamedRealData)
+        {
+            values = NumericColumn.toDoubles(
+                    ((NamedRealData)data).getRealNumericalData());
+        }
+        else if(data instanceof NamedCategoricalData)
+        {
+            values = NumericColumn.toDoubles(
+                    ((NamedCategoricalData)data).getCategoricalNumericalData());
+        }
+        else
+        {
+            // the slow path through the data list
+            List<?> dataList = data.getData();
+            values = new double[dataList.size()];
+            for(int i = 0; i < values.length; i++)
+            {
+                Object currDatum = dataList.get(i);
+                if(currDatum == null)
+                {
+                    values[i] = Double.NaN;
+                }
+                else if(currDatum instanceof Number)
+                {
+                    values[i] = ((Number)currDatum).doubleValue();
+                }
+                else
+                {
+                    throw new IllegalArgumentException(
+                            "\"" + data.getNameOfData() + "\" contains a " +
+                            "non-numeric value at index " + i);
+                }
+            }
+        }
+        
+        return new NumericColumn(values);
+    }
+    
+    /**
+     * Unbox the given numbers
+     * @param numbers
+     *          the numbers
+     * @return
+     *          the doubles (NaN where the number was null)
+     */
+    private static double[] toDoubles(Number[] numbers)
+    {
+        double[] values = new double[numbers.length];
+        for(int i = 0; i < numbers.length; i++)
+        {
+            Number currNumber = numbers[i];
+            values[i] = currNumber == null ?
+                        Double.NaN :
+                        currNumber.doubleValue();
+        }
+        
+        return values;
+    }
+    
+    /**
+     * Getter for the number of values including missing values
+     * @return
+     *          the size
+     */
+    public int getSize()
+    {
+        return this.values.length;
+    }
+    
+    /**
+     * Getter for the values. Missing values are NaN. This is the array
+     * that we hold on to, so don't modify it.
+     * @return
+     *          the values
+     */
+    public double[] getValues()
+    {
+        return this.values;
+    }
+    
+    /**
+     * Get the value at the given index
+     * @param index
+     *          the index
+     * @return
+     *          the value (NaN if missing)
+     */
+    public double getValue(int index)
+    {
+        return this.values[index];
+    }
+    
+    /**
+     * Determine if the value at the given index is missing
+     * @param index
+     *          the index
+     * @return
+     *          true if it's missing
+     */
+    public boolean isMissing(int index)
+    {
+        return Double.isNaN(this.values[index]);
+    }
+    
+    /**
+     * Getter for the number of missing values
+     * @return
+     *          the missing count
+     */
+    public int getMissingCount()
+    {
+        return this.missingCount;
+    }
+    
+    /**
+     * Getter for the smallest value that isn't missing
+     * @return
+     *          the minimum or NaN if every value is missing
+     */
+    public double getMinimum()
+    {
+        return this.minimum;
+    }
+    
+    /**
+     * Getter for the largest value that isn't missing
+     * @return
+     *          the maximum or NaN if every value is missing
+     */
+    public double getMaximum()
+    {
+        return this.maximum;
+    }
+    
+    /**
+     * Getter for the mean of the values that aren't missing
+     * @return
+     *          the mean or NaN if every value is missing
+     */
+    public double getMean()
+    {
+        return this.mean;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Splits a range of work up into contiguous chunks and runs them on a
+ * shared pool of daemon threads. The calling thread works on one of the
+ * chunks itself and we only return once every chunk is done. Chunks
+ * never overlap, so tasks that write to disjoint parts of an array
+ * (like the words of an {@link IndexBitmap}) don't need any locking.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public final class ParallelChunkExecutor
+{
+    /**
+     * A task that processes one chunk of a range
+     */
+    public interface ChunkTask
+    {
+        /**
+         * Process the given chunk
+         * @param fromIndex
+         *          the start of the chunk (inclusive)
+         * @param toIndex
+         *          the end of the chunk (exclusive)
+         */
+        public void processChunk(int fromIndex, int toIndex);
+    }
+    
+    /**
+     * how many chunks we try to give each thread. having a few more chunks
+     * than threads evens things out when some chunks are slower than others
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    /**
+     * @see #getParallelism()
+     */
+    private static final int PARALLELISM =
+        Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * the shared pool. lazily created
+     */
+    private static ExecutorService chunkExecutor = null;
+    
+    /**
+     * private constructor. everything here is static
+     */
+    private ParallelChunkExecutor()
+    {
+    }
+    
+    /**
+     * Getter for the number of threads that can work on chunks at once
+     * @return
+     *          the parallelism
+     */
+    public static int getParallelism()
+    {
+        return PARALLELISM;
+    }
+    
+    /**
+     * Run the given task over the range [0, itemCount) and wait for it
+     * to finish. If the range is small, if there's only one processor or
+     * if we're already running on one of the pool threads the whole range
+     * is processed on the calling thread.
+     * @param itemCount
+     *          the number of items in the range
+     * @param minimumChunkSize
+     *          the smallest chunk that is worth handing to another thread
+     * @param task
+     *          the task to run on each chunk
+     */
+    public static void execute(
+            int itemCount,
+            int minimumChunkSize,
+            final ChunkTask task)
+    {
+        int chunkCount = Math.min(
+                PARALLELISM * CHUNKS_PER_THREAD,
+                itemCount / Math.max(1, minimumChunkSize));
+        if(chunkCount <= 1 ||
+           PARALLELISM <= 1 ||
+           Thread.currentThread() instanceof ChunkWorkerThread)
+        {
+            if(itemCount > 0)
+            {
+                task.processChunk(0, itemCount);
+            }
+        }
+        else
+        {
+            ExecutorService executor = ParallelChunkExecutor.getChunkExecutor();
+            int chunkSize = (itemCount + chunkCount - 1) / chunkCount;
+            List<Future<?>> futures = new ArrayList<Future<?>>(chunkCount);
+            try
+            {
+                // hand off all but the first chunk
+                for(int start = chunkSize; start < itemCount; start += chunkSize)
+                {
+                    final int fromIndex = start;
+                    final int toIndex = Math.min(itemCount, start + chunkSize);
+                    futures.add(executor.submit(new Runnable()
+                    {
+                        public void run()
+                        {
+                            task.processChunk(fromIndex, toIndex);
+                        }
+                    }));
+                }
+                
+                // the first chunk is ours
+                task.processChunk(0, chunkSize);
+                
+                for(Future<?> currFuture: futures)
+                {
+                    currFuture.get();
+                }
+            }
+            catch(InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(
+                        "interrupted while waiting for chunks to finish",
+                        ex);
+            }
+            catch(ExecutionException ex)
+            {
+                Throwable cause = ex.getCause();
+                if(cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException)cause;
+                }
+                else if(cause instanceof Error)
+                {
+                    throw (Error)cause;
+                }
+                else
+                {
+                    throw new IllegalStateException(cause);
+                }
+            }
+            finally
+            {
+                // this only does anything if we're bailing out early
+                for(Future<?> currFuture: futures)
+                {
+                    currFuture.cancel(false);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Get the shared pool, creating it if we need to
+     * @return
+     *          the pool
+     */
+    private static synchronized ExecutorService getChunkExecutor()
+    {
+        if(chunkExecutor == null)
+        {
+            chunkExecutor = Executors.newFixedThreadPool(
+                    PARALLELISM,
+                    new ThreadFactory()
+                    {
+                        public Thread newThread(Runnable runnable)
+                        {
+                            Thread thread = new ChunkWorkerThread(runnable);
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        
+        return chunkExecutor;
+    }
+    
+    /**
+     * The thread type used by the pool. We check for it so that a chunk
+     * task that itself calls {@link ParallelChunkExecutor#execute} can't
+     * tie up the pool waiting on itself
+     */
+    private static class ChunkWorkerThread extends Thread
+    {
+        /**
+         * Constructor
+         * @param runnable
+         *          what to run
+         */
+        public ChunkWorkerThread(Runnable runnable)
+        {
+            super(runnable, "parallel-chunk-worker");
+        }
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.data;
+
+/**
+ * A condition on the rows of one or more numeric columns. Predicates are
+ * built with the static factory methods here and are evaluated 64 rows at
+ * a time straight into the words of an {@link IndexBitmap}, so no indices
+ * ever get boxed. Missing values never match a comparison.
+ * @see SelectableData#selectIndicesMatching(RowPredicate, SelectionMode)
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public abstract class RowPredicate
+{
+    /**
+     * the smallest number of words that's worth handing off to another
+     * thread (64K rows)
+     */
+    private static final int MINIMUM_CHUNK_WORDS = 1024;
+    
+    /**
+     * package-private constructor. use the factory methods
+     */
+    RowPredicate()
+    {
+    }
+    
+    /**
+     * Getter for the number of rows that this predicate covers
+     * @return
+     *          the row count
+     */
+    public abstract int getRowCount();
+    
+    /**
+     * Evaluate the 64 rows that fall in the given bitmap word. Bits past
+     * the last row must come back as zero.
+     * @param wordIndex
+     *          the word index
+     * @return
+     *          the word with a bit set for every matching row
+     */
+    abstract long evaluateWord(int wordIndex);
+    
+    /**
+     * Evaluate this predicate against every row. Large row counts are
+     * split up into chunks and evaluated in parallel.
+     * @return
+     *          a bitmap with the index of every matching row set
+     */
+    public IndexBitmap evaluate()
+    {
+        final long[] words = new long[IndexBitmap.wordCount(this.getRowCount())];
+        ParallelChunkExecutor.execute(
+                words.length,
+                MINIMUM_CHUNK_WORDS,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromWord, int toWord)
+                    {
+                        for(int i = fromWord; i < toWord; i++)
+                        {
+                            words[i] = RowPredicate.this.evaluateWord(i);
+                        }
+                    }
+                });
+        
+        return IndexBitmap.wrapWords(words);
+    }
+    
+    /**
+     * Rows where the column value is greater than the threshold
+     * @param column
+     *          the column (must be numeric)
+     * @param threshold
+     *          the threshold
+     * @return
+     *          the predicate
+     */
+    public static RowPredicate greaterThan(
+            NamedData<?> column,
+            final double threshold)
+    {
+        return new ColumnPredicate(column)
+        {
+            @Override
+            long evaluateWord(int wordIndex)
+            {
+                double[] values = this.values;
+                int start = wordIndex << IndexBitmap.ADDRESS_BITS_PER_WORD;
+                int stop = Math.min(values.length, start + IndexBitmap.BITS_PER_WORD);
+                long word = 0L;
+                for(int i = start; i < stop; i++)
+                {
+                    // long shifts only use the low 6 bits of i so this
+                    // lands on the right bit of the word. keeping this
+                    // branch free matters a lot when matches are random
+                    word |= (values[i] > threshold ? 1L : 0L) << i;
+                }
+                return word;
+            }
+        };
+    }
+    
+    /**
+     * Rows where the column value is less than the threshold
+     * @param column
+     *          the column (must be numeric)
+     * @param threshold
+     *          the threshold
+     * @return
+     *          the predicate
+     */
+    public static RowPredicate lessThan(
+            NamedData<?> column,
+            final double threshold)
+    {
+        return new ColumnPredicate(column)
+        {
+            @Override
+            long evaluateWord(int wordIndex)
+            {
+                double[] values = this.values;
+                int start = wordIndex << IndexBitmap.ADDRESS_BITS_PER_WORD;
+                int stop = Math.min(values.length, start + IndexBitmap.BITS_PER_WORD);
+                long word = 0L;
+                for(int i = start; i < stop; i++)
+                {
+                    word |= (values[i] < threshold ? 1L : 0L) << i;
+                }
+                return word;
+            }
+        };
+    }
+    
+    /**
+     * Rows where the column value falls in the given range
+     * @param column
+     *          the column (must be numeric)
+     * @param lowerBound
+     *          the lower bound (inclusive)
+     * @param upperBound
+     *          the upper bound (inclusive)
+     * @return
+     *          the predicate
+     */
+    public static RowPredicate between(
+            NamedData<?> column,
+            final double lowerBound,
+            final double upperBound)
+    {
+        return new ColumnPredicate(column)
+        {
+            @Override
+            long evaluateWord(int wordIndex)
+            {
+                double[] values = this.values;
+                int start = wordIndex << IndexBitmap.ADDRESS_BITS_PER_WORD;
+                int stop = Math.min(values.length, start + IndexBitmap.BITS_PER_WORD);
+                long word = 0L;
+                for(int i = start; i < stop; i++)
+                {
+                    double currValue = values[i];
+                    word |= (currValue >= lowerBound & currValue <= upperBound ?
+                             1L : 0L) << i;
+                }
+                return word;
+            }
+        };
+    }
+    
+    /**
+     * Rows where the column value is missing
+     * @param column
+     *          the column (must be numeric)
+     * @return
+     *          the predicate
+     */
+    public static RowPredicate isMissing(NamedData<?> column)
+    {
+        return new ColumnPredicate(column)
+        {
+            @Override
+            long evaluateWord(int wordIndex)
+            {
+                double[] values = this.values;
+                int start = wordIndex << IndexBitmap.ADDRESS_BITS_PER_WORD;
+                int stop = Math.min(values.length, start + IndexBitmap.BITS_PER_WORD);
+                long word = 0L;
+                for(int i = start; i < stop; i++)
+                {
+                    word |= (Double.isNaN(values[i]) ? 1L : 0L) << i;
+                }
+                return word;
+            }
+        };
+    }
+    
+    /**
+     * Rows whose category is one of the given categories
+     * @param column
+     *          the column. normally this is a {@link NamedCategoricalData}
+     *          but any numeric column with integral values works
+     * @param categories
+     *          the category codes (indices into
+     *          {@link NamedCategoricalData#getCategoryNames()})
+     * @return
+     *          the predicate
+     */
+    public static RowPredicate inCategories(
+            NamedData<?> column,
+            int... categories)
+    {
+        int maxCategory = -1;
+        for(int currCategory: categories)
+        {
+            maxCategory = Math.max(maxCategory, currCategory);
+        }
+        
+        // a lookup table is a lot cheaper than searching the categories
+        // for every row
+        final boolean[] categoryMatches = new boolean[Math.max(1, maxCategory + 1)];
+        for(int currCategory: categories)
+        {
+            if(currCategory >= 0)
+            {
+                categoryMatches[currCategory] = true;
+            }
+        }
+        
+        return new ColumnPredicate(column)
+        {
+            @Override
+            long evaluateWord(int wordIndex)
+            {
+                double[] values = this.values;
+                int start = wordIndex << IndexBitmap.ADDRESS_BITS_PER_WORD;
+                int stop = Math.min(values.length, start + IndexBitmap.BITS_PER_WORD);
+                long word = 0L;
+                for(int i = start; i < stop; i++)
+                {
+                    // NaN and out of range values look up slot zero but
+                    // the range test keeps them from matching
+                    double currValue = values[i];
+                    boolean inRange =
+                        currValue >= 0.0 & currValue < categoryMatches.length;
+                    int category = inRange ? (int)currValue : 0;
+                    word |= (inRange & categoryMatches[category] ? 1L : 0L) << i;
+                }
+                return word;
+            }
+        };
+    }
+    
+    /**
+     * Rows that match all of the given predicates
+     * @param predicates
+     *          the predicates. these must all have the same row count
+     * @return
+     *          the predicate
+     * @throws IllegalArgumentException
+     *          if the row counts don't match
+     */
+    public static RowPredicate and(final RowPredicate... predicates)
+    throws IllegalArgumentException
+    {
+        final int rowCount = RowPredicate.commonRowCount(predicates);
+        return new RowPredicate()
+        {
+            @Override
+            public int getRowCount()
+            {
+                return rowCount;
+            }
+            
+            @Override
+            long evaluateWord(int wordIndex)
+            {
+                long word = RowPredicate.validRowMask(rowCount, wordIndex);
+                for(int i = 0; i < predicates.length && word != 0L; i++)
+                {
+                    word &= predicates[i].evaluateWord(wordIndex);
+                }
+                return word;
+            }
+        };
+    }
+    
+    /**
+     * Rows that match any of the given predicates
+     * @param predicates
+     *          the predicates. these must all have the same row count
+     * @return
+     *          the predicate
+     * @throws IllegalArgumentException
+     *          if the row counts don't match
+     */
+    public static RowPredicate or(final RowPredicate... predicates)
+    throws IllegalArgumentException
+    {
+        final int rowCount = RowPredicate.commonRowCount(predicates);
+        return new RowPredicate()
+        {
+            @Override
+            public int getRowCount()
+            {
+                return rowCount;
+            }
+            
+            @Override
+            long evaluateWord(int wordIndex)
+            {
+                long validRows = RowPredicate.validRowMask(rowCount, wordIndex);
+                long word = 0L;
+                for(int i = 0; i < predicates.length && word != validRows; i++)
+                {
+                    word |= predicates[i].evaluateWord(wordIndex);
+                }
+                return word;
+            }
+        };
+    }
+    
+    /**
+     * Rows that don't match the given predicate
+     * @param predicate
+     *          the predicate to negate
+     * @return
+     *          the predicate
+     */
+    public static RowPredicate not(final RowPredicate predicate)
+    {
+        final int rowCount = predicate.getRowCount();
+        return new RowPredicate()
+        {
+            @Override
+            public int getRowCount()
+            {
+                return rowCount;
+            }
+            
+            @Override
+            long evaluateWord(int wordIndex)
+            {
+                return ~predicate.evaluateWord(wordIndex) &
+                       RowPredicate.validRowMask(rowCount, wordIndex);
+            }
+        };
+    }
+    
+    /**
+     * Get a mask with a bit set for every row in the given word that is
+     * less than the row count
+     * @param rowCount
+     *          the row count
+     * @param wordIndex
+     *          the word index
+     * @return
+     *          the mask
+     */
+    private static long validRowMask(int rowCount, int wordIndex)
+    {
+        int rowsLeft = rowCount - (wordIndex << IndexBitmap.ADDRESS_BITS_PER_WORD);
+        if(rowsLeft >= IndexBitmap.BITS_PER_WORD)
+        {
+            return -1L;
+        }
+        else if(rowsLeft <= 0)
+        {
+            return 0L;
+        }
+        else
+        {
+            return (1L << rowsLeft) - 1L;
+        }
+    }
+    
+    /**
+     * Get the row count shared by all of the given predicates
+     * @param predicates
+     *          the predicates
+     * @return
+     *          the row count
+     * @throws IllegalArgumentException
+     *          if there are no predicates or the row counts don't match
+     */
+    private static int commonRowCount(RowPredicate[] predicates)
+    throws IllegalArgumentException
+    {
+        if(predicates.length == 0)
+        {
+            throw new IllegalArgumentException(
+                    "at least one predicate is required");
+        }
+        
+        int rowCount = predicates[0].getRowCount();
+        for(int i = 1; i < predicates.length; i++)
+        {
+            if(predicates[i].getRowCount() != rowCount)
+            {
+                throw new IllegalArgumentException(
+                        "all predicates must cover the same number of rows: " +
+                        rowCount + " != " + predicates[i].getRowCount());
+            }
+        }
+        
+        return rowCount;
+    }
+    
+    /**
+     * Base class for predicates that test the values of a single column
+     */
+    private abstract static class ColumnPredicate extends RowPredicate
+    {
+        /**
+         * the column values (NaN means missing)
+         */
+        protected final double[] values;
+        
+        /**
+         * Constructor
+         * @param column
+         *          the column
+         */
+        public ColumnPredicate(NamedData<?> column)
+        {
+            this.values = NumericColumn.forData(column).getValues();
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getRowCount()
+        {
+            return this.values.length;
+        }
+    }
+}
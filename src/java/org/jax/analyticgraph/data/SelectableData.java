@@ -74,6 +74,21 @@ public interface SelectableData
      */
     public void deselectAllIndices(Collection<Integer> indicesToDeselect);
     
+    /**
+     * Select the indices of every row matching the given predicate. The
+     * predicate is evaluated in parallel chunks straight into a bitmap
+     * which is a lot cheaper than building up a collection of indices
+     * for {@link #selectAllIndices(Collection)}.
+     * @param predicate
+     *          the predicate to evaluate
+     * @param selectionMode
+     *          how the matching rows are combined with the current
+     *          selection
+     */
+    public void selectIndicesMatching(
+            RowPredicate predicate,
+            SelectionMode selectionMode);
+    
     /**
      * Set the selected indices. Do nothing if the set returned by
      * {@link #getSelectedIndices()} matches the given indices
@@ -21,12 +21,26 @@
 package org.jax.analyticgraph.data;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
 
 /**
  * A support class that contains a reusable implementation of the
@@ -35,6 +49,51 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  */
 public class SelectableDataSupport implements SelectableData
 {
+    /**
+     * The policies that we can use to deliver selection events to our
+     * listeners. With the asynchronous policies a single listener never
+     * sees two of our events at the same time and it always sees them in
+     * the order that they were fired. Since every event carries the same
+     * information (the event source) the asynchronous policies coalesce
+     * events that pile up while a listener is still busy.
+     */
+    public enum ListenerDispatchPolicy
+    {
+        /**
+         * listeners are called on the thread that changed the selection
+         * before the change method returns. this is the default
+         */
+        SYNCHRONOUS,
+        
+        /**
+         * listeners are called later on the AWT event dispatch thread
+         */
+        EVENT_DISPATCH_THREAD,
+        
+        /**
+         * listeners are called using the executor given to
+         * {@link SelectableDataSupport#setDispatchExecutor(Executor)}
+         */
+        EXECUTOR
+    }
+    
+    /**
+     * our logger
+     */
+    private static final Logger LOG = Logger.getLogger(
+            SelectableDataSupport.class.getName());
+    
+    /**
+     * the executor that we fall back on for
+     * {@link ListenerDispatchPolicy#EXECUTOR} if no executor was set
+     */
+    private static ExecutorService defaultDispatchExecutor = null;
+    
+    /**
+     * an empty index array
+     */
+    private static final int[] NO_INDICES = new int[0];
+    
     /**
      * the event source to use
      */
@@ -43,7 +102,18 @@ public class SelectableDataSupport implements SelectableData
     /**
      * listeners
      */
-    private final ConcurrentLinkedQueue<SelectableDataListener> listenerList;
+    private final ConcurrentLinkedQueue<ListenerDispatcher> listenerList;
+    
+    /**
+     * @see #getDispatchPolicy()
+     */
+    private volatile ListenerDispatchPolicy dispatchPolicy =
+        ListenerDispatchPolicy.SYNCHRONOUS;
+    
+    /**
+     * @see #getDispatchExecutor()
+     */
+    private volatile Executor dispatchExecutor = null;
     
     /**
      * slaves
@@ -51,15 +121,28 @@ public class SelectableDataSupport implements SelectableData
     private final ConcurrentLinkedQueue<WeakReference<SelectableData>> slaveList;
     
     /**
-     * the set of selected indices
+     * the set of selected indices. this also acts as the lock for any
+     * access to the selection
      */
-    private final SortedSet<Integer> selectedIndices;
+    private final IndexBitmap selectedIndices;
     
     /**
      * so that no one can touch our indices but us
      */
     private final SortedSet<Integer> immutableSelectedIndices;
     
+    /**
+     * @see #getSelectionHistory()
+     */
+    private volatile SelectionHistory selectionHistory = null;
+    
+    /**
+     * the saved selections by name. guarded by the
+     * {@link #selectedIndices} lock
+     */
+    private final Map<String, IndexBitmap> savedSelections =
+        new HashMap<String, IndexBitmap>();
+    
     /**
      * Constructor
      * @param sourceSelectableData
@@ -70,11 +153,11 @@ public class SelectableDataSupport implements SelectableData
         this.sourceSelectableData = sourceSelectableData;
         
         // initialize all of the structures
-        this.listenerList = new ConcurrentLinkedQueue<SelectableDataListener>();
+        this.listenerList = new ConcurrentLinkedQueue<ListenerDispatcher>();
         this.slaveList = new ConcurrentLinkedQueue<WeakReference<SelectableData>>();
-        this.selectedIndices = Collections.synchronizedSortedSet(
-                new TreeSet<Integer>());
-        this.immutableSelectedIndices = Collections.unmodifiableSortedSet(
+        this.selectedIndices = new IndexBitmap();
+        this.immutableSelectedIndices = new IndexBitmapSortedSet(
+                this.selectedIndices,
                 this.selectedIndices);
     }
 
@@ -83,9 +166,27 @@ public class SelectableDataSupport implements SelectableData
      */
     public void clearSelections()
     {
-        if(!this.selectedIndices.isEmpty())
+        boolean selectionModified = false;
+        synchronized(this.selectedIndices)
+        {
+            if(!this.selectedIndices.isEmpty())
+            {
+                SelectionHistory history = this.selectionHistory;
+                if(history != null)
+                {
+                    history.recordChange(
+                            new IndexBitmap(),
+                            new IndexBitmap(this.selectedIndices),
+                            this.selectedIndices);
+                }
+                
+                this.selectedIndices.clear();
+                selectionModified = true;
+            }
+        }
+        
+        if(selectionModified)
         {
-            this.selectedIndices.clear();
             this.fireSelectionChanged();
         }
     }
@@ -95,8 +196,24 @@ public class SelectableDataSupport implements SelectableData
      */
     public void deselectIndex(int indexToDeselect)
     {
-        boolean selectionModified =
-            this.selectedIndices.remove(indexToDeselect);
+        boolean selectionModified = false;
+        synchronized(this.selectedIndices)
+        {
+            if(this.selectedIndices.get(indexToDeselect))
+            {
+                SelectionHistory history = this.selectionHistory;
+                if(history != null)
+                {
+                    history.recordChange(
+                            NO_INDICES, 0,
+                            new int[] {indexToDeselect}, 1,
+                            this.selectedIndices);
+                }
+                
+                selectionModified =
+                    this.selectedIndices.clear(indexToDeselect);
+            }
+        }
         
         if(selectionModified)
         {
@@ -109,7 +226,10 @@ public class SelectableDataSupport implements SelectableData
      */
     public boolean isIndexSelected(int indexToCheck)
     {
-        return this.selectedIndices.contains(indexToCheck);
+        synchronized(this.selectedIndices)
+        {
+            return this.selectedIndices.get(indexToCheck);
+        }
     }
 
     /**
@@ -117,8 +237,24 @@ public class SelectableDataSupport implements SelectableData
      */
     public void selectIndex(int indexToSelect)
     {
-        boolean selectionModified =
-            this.selectedIndices.add(indexToSelect);
+        boolean selectionModified = false;
+        synchronized(this.selectedIndices)
+        {
+            if(!this.selectedIndices.get(indexToSelect))
+            {
+                SelectionHistory history = this.selectionHistory;
+                if(history != null)
+                {
+                    history.recordChange(
+                            new int[] {indexToSelect}, 1,
+                            NO_INDICES, 0,
+                            this.selectedIndices);
+                }
+                
+                selectionModified =
+                    this.selectedIndices.set(indexToSelect);
+            }
+        }
         
         if(selectionModified)
         {
@@ -131,27 +267,88 @@ public class SelectableDataSupport implements SelectableData
      */
     public void setSelectedIndices(SortedSet<Integer> selectedIndicies)
     {
-        boolean selectionsModified = false;
+        // this is cheap when we're being updated as a slave since
+        // the indices will be another bitmap view
+        IndexBitmap newSelection = IndexBitmap.fromIndices(selectedIndicies);
+        
+        // notify listeners if the set changed
+        if(this.replaceSelection(newSelection))
+        {
+            this.fireSelectionChanged();
+        }
+    }
+    
+    /**
+     * Replace the part of our selection that falls inside of the mask
+     * while leaving the rest of it alone. This happens under our lock so
+     * a concurrent change outside of the mask can't get lost. It's how
+     * {@link NamedDataSubset} pushes its selection up to its superset
+     * @param mask
+     *          the indices whose selection we're replacing
+     * @param selection
+     *          the new selection (indices outside of the mask are ignored)
+     */
+    void setSelectedIndicesWithin(IndexBitmap mask, IndexBitmap selection)
+    {
+        // do the copying before we take the lock
+        IndexBitmap maskedSelection = new IndexBitmap(selection);
+        maskedSelection.and(mask);
+        
+        boolean selectionModified;
         synchronized(this.selectedIndices)
         {
-            if(!this.selectedIndices.equals(selectedIndicies))
-            {
-                selectionsModified = true;
-                
-                // the sets are not 100% equal, so we'll go forward with the
-                // operation
-                this.selectedIndices.clear();
-                this.selectedIndices.addAll(selectedIndicies);
-            }
+            IndexBitmap newSelection = new IndexBitmap(this.selectedIndices);
+            newSelection.andNot(mask);
+            newSelection.or(maskedSelection);
+            selectionModified = this.replaceSelection(newSelection);
         }
         
-        // notify listeners if the set changed
-        if(selectionsModified)
+        if(selectionModified)
         {
             this.fireSelectionChanged();
         }
     }
     
+    /**
+     * Replace our selection with the given selection. This does not fire
+     * any events.
+     * @param newSelection
+     *          the new selection (we take a copy of it)
+     * @return
+     *          true if this changed the selection
+     */
+    private boolean replaceSelection(IndexBitmap newSelection)
+    {
+        synchronized(this.selectedIndices)
+        {
+            if(this.selectedIndices.equals(newSelection))
+            {
+                return false;
+            }
+            else
+            {
+                // the sets are not 100% equal, so we'll go forward with the
+                // operation
+                SelectionHistory history = this.selectionHistory;
+                if(history != null)
+                {
+                    IndexBitmap addedIndices = new IndexBitmap(newSelection);
+                    addedIndices.andNot(this.selectedIndices);
+                    IndexBitmap removedIndices =
+                        new IndexBitmap(this.selectedIndices);
+                    removedIndices.andNot(newSelection);
+                    history.recordChange(
+                            addedIndices,
+                            removedIndices,
+                            this.selectedIndices);
+                }
+                
+                this.selectedIndices.copyFrom(newSelection);
+                return true;
+            }
+        }
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -165,8 +362,58 @@ public class SelectableDataSupport implements SelectableData
      */
     public void selectAllIndices(Collection<Integer> indicesToSelect)
     {
-        boolean selectionModified =
-            this.selectedIndices.addAll(indicesToSelect);
+        if(indicesToSelect instanceof IndexBitmapSortedSet)
+        {
+            // no need to go one index at a time
+            this.combineSelection(
+                    ((IndexBitmapSortedSet)indicesToSelect).toIndexBitmap(),
+                    SelectionMode.UNION);
+            return;
+        }
+        
+        boolean selectionModified = false;
+        synchronized(this.selectedIndices)
+        {
+            SelectionHistory history = this.selectionHistory;
+            int[] addedIndices = history == null ? null : NO_INDICES;
+            int addedCount = 0;
+            for(Integer currIndex: indicesToSelect)
+            {
+                if(this.selectedIndices.set(currIndex))
+                {
+                    selectionModified = true;
+                    if(addedIndices != null)
+                    {
+                        addedIndices = SelectableDataSupport.appendIndex(
+                                addedIndices,
+                                addedCount++,
+                                currIndex);
+                    }
+                }
+            }
+            
+            if(history != null && selectionModified)
+            {
+                // the checkpoint (if any) has to reflect the selection as
+                // it was before we touched it. rebuilding that means
+                // copying the whole selection so only do it when the
+                // history is going to take a checkpoint
+                IndexBitmap selectionBeforeChange = null;
+                if(history.isCheckpointDue())
+                {
+                    selectionBeforeChange = new IndexBitmap(this.selectedIndices);
+                    for(int i = 0; i < addedCount; i++)
+                    {
+                        selectionBeforeChange.clear(addedIndices[i]);
+                    }
+                }
+                
+                history.recordChange(
+                        addedIndices, addedCount,
+                        NO_INDICES, 0,
+                        selectionBeforeChange);
+            }
+        }
         
         if(selectionModified)
         {
@@ -179,13 +426,417 @@ public class SelectableDataSupport implements SelectableData
      */
     public void deselectAllIndices(Collection<Integer> indicesToDeselect)
     {
-        boolean selectionModified =
-            this.selectedIndices.removeAll(indicesToDeselect);
+        if(indicesToDeselect instanceof IndexBitmapSortedSet)
+        {
+            // no need to go one index at a time
+            this.combineSelection(
+                    ((IndexBitmapSortedSet)indicesToDeselect).toIndexBitmap(),
+                    SelectionMode.SUBTRACT);
+            return;
+        }
+        
+        boolean selectionModified = false;
+        synchronized(this.selectedIndices)
+        {
+            SelectionHistory history = this.selectionHistory;
+            int[] removedIndices = history == null ? null : NO_INDICES;
+            int removedCount = 0;
+            for(Integer currIndex: indicesToDeselect)
+            {
+                if(this.selectedIndices.clear(currIndex))
+                {
+                    selectionModified = true;
+                    if(removedIndices != null)
+                    {
+                        removedIndices = SelectableDataSupport.appendIndex(
+                                removedIndices,
+                                removedCount++,
+                                currIndex);
+                    }
+                }
+            }
+            
+            if(history != null && selectionModified)
+            {
+                IndexBitmap selectionBeforeChange = null;
+                if(history.isCheckpointDue())
+                {
+                    selectionBeforeChange = new IndexBitmap(this.selectedIndices);
+                    for(int i = 0; i < removedCount; i++)
+                    {
+                        selectionBeforeChange.set(removedIndices[i]);
+                    }
+                }
+                
+                history.recordChange(
+                        NO_INDICES, 0,
+                        removedIndices, removedCount,
+                        selectionBeforeChange);
+            }
+        }
+        
+        if(selectionModified)
+        {
+            this.fireSelectionChanged();
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void selectIndicesMatching(
+            RowPredicate predicate,
+            SelectionMode selectionMode)
+    {
+        // do the expensive part before we take the lock
+        this.combineSelection(predicate.evaluate(), selectionMode);
+    }
+    
+    /**
+     * Combine the given indices with our selection, firing an event if
+     * that changes anything
+     * @param indices
+     *          the indices
+     * @param selectionMode
+     *          how to combine them with the selection
+     */
+    private void combineSelection(
+            IndexBitmap indices,
+            SelectionMode selectionMode)
+    {
+        boolean selectionModified;
+        synchronized(this.selectedIndices)
+        {
+            selectionModified = this.replaceSelection(
+                    selectionMode.combine(this.selectedIndices, indices));
+        }
+        
+        if(selectionModified)
+        {
+            this.fireSelectionChanged();
+        }
+    }
+    
+    /**
+     * Save a copy of the current selection under the given name. This
+     * replaces any selection that was already saved with that name.
+     * @param name
+     *          the name to save the selection as
+     */
+    public void saveSelection(String name)
+    {
+        synchronized(this.selectedIndices)
+        {
+            this.savedSelections.put(
+                    name,
+                    new IndexBitmap(this.selectedIndices));
+        }
+    }
+    
+    /**
+     * Save the result of combining two selections under the given name
+     * without touching the current selection
+     * @param name
+     *          the name to save the result as
+     * @param firstName
+     *          the saved selection to start with (null means the current
+     *          selection)
+     * @param secondName
+     *          the saved selection to combine with the first (null means
+     *          the current selection)
+     * @param selectionMode
+     *          how the two are combined
+     * @throws IllegalArgumentException
+     *          if there's no saved selection with one of the given names
+     */
+    public void saveCombinedSelection(
+            String name,
+            String firstName,
+            String secondName,
+            SelectionMode selectionMode)
+    throws IllegalArgumentException
+    {
+        synchronized(this.selectedIndices)
+        {
+            IndexBitmap combined = selectionMode.combine(
+                    this.getSelectionBitmap(firstName),
+                    this.getSelectionBitmap(secondName));
+            this.savedSelections.put(name, new IndexBitmap(combined));
+        }
+    }
+    
+    /**
+     * Combine the saved selection with the current selection
+     * @param name
+     *          the name of the saved selection
+     * @param selectionMode
+     *          how the saved selection is combined with the current
+     *          selection. {@link SelectionMode#REPLACE} switches to the
+     *          saved selection
+     * @throws IllegalArgumentException
+     *          if there's no saved selection with the given name
+     */
+    public void applySavedSelection(String name, SelectionMode selectionMode)
+    throws IllegalArgumentException
+    {
+        boolean selectionModified;
+        synchronized(this.selectedIndices)
+        {
+            selectionModified = this.replaceSelection(selectionMode.combine(
+                    this.selectedIndices,
+                    this.getSelectionBitmap(name)));
+        }
+        
+        if(selectionModified)
+        {
+            this.fireSelectionChanged();
+        }
+    }
+    
+    /**
+     * Get the size of the combination of two selections without building
+     * the combination
+     * @param firstName
+     *          the saved selection to start with (null means the current
+     *          selection)
+     * @param secondName
+     *          the saved selection to combine with the first (null means
+     *          the current selection)
+     * @param selectionMode
+     *          how the two are combined
+     * @return
+     *          the number of indices in the combination
+     * @throws IllegalArgumentException
+     *          if there's no saved selection with one of the given names
+     */
+    public int getCombinedCardinality(
+            String firstName,
+            String secondName,
+            SelectionMode selectionMode)
+    throws IllegalArgumentException
+    {
+        synchronized(this.selectedIndices)
+        {
+            return selectionMode.combinedCardinality(
+                    this.getSelectionBitmap(firstName),
+                    this.getSelectionBitmap(secondName));
+        }
+    }
+    
+    /**
+     * Get a saved selection
+     * @param name
+     *          the name of the saved selection
+     * @return
+     *          an immutable copy of the saved selection or null if there
+     *          isn't one by that name
+     */
+    public SortedSet<Integer> getSavedSelection(String name)
+    {
+        synchronized(this.selectedIndices)
+        {
+            IndexBitmap savedSelection = this.savedSelections.get(name);
+            if(savedSelection == null)
+            {
+                return null;
+            }
+            else
+            {
+                // saved selections are never modified in place, so the
+                // bitmap can act as its own lock
+                return new IndexBitmapSortedSet(savedSelection, savedSelection);
+            }
+        }
+    }
+    
+    /**
+     * Remove a saved selection
+     * @param name
+     *          the name of the saved selection
+     * @return
+     *          true if there was a saved selection by that name
+     */
+    public boolean removeSavedSelection(String name)
+    {
+        synchronized(this.selectedIndices)
+        {
+            return this.savedSelections.remove(name) != null;
+        }
+    }
+    
+    /**
+     * Get the names of all of the saved selections
+     * @return
+     *          a sorted copy of the names
+     */
+    public SortedSet<String> getSavedSelectionNames()
+    {
+        synchronized(this.selectedIndices)
+        {
+            return new TreeSet<String>(this.savedSelections.keySet());
+        }
+    }
+    
+    /**
+     * Get the bitmap for the saved selection with the given name. The
+     * caller must hold the {@link #selectedIndices} lock and must not
+     * modify the result.
+     * @param name
+     *          the name of the saved selection (null means the current
+     *          selection)
+     * @return
+     *          the bitmap
+     * @throws IllegalArgumentException
+     *          if there's no saved selection with the given name
+     */
+    private IndexBitmap getSelectionBitmap(String name)
+    throws IllegalArgumentException
+    {
+        if(name == null)
+        {
+            return this.selectedIndices;
+        }
+        else
+        {
+            IndexBitmap savedSelection = this.savedSelections.get(name);
+            if(savedSelection == null)
+            {
+                throw new IllegalArgumentException(
+                        "there is no saved selection named \"" + name + "\"");
+            }
+            
+            return savedSelection;
+        }
+    }
+    
+    /**
+     * Store the given index at the given position, growing the array if
+     * we need to
+     * @param indices
+     *          the array
+     * @param position
+     *          the position to store the index at
+     * @param index
+     *          the index to store
+     * @return
+     *          the array (which is a new instance if we had to grow it)
+     */
+    private static int[] appendIndex(int[] indices, int position, int index)
+    {
+        if(position >= indices.length)
+        {
+            indices = Arrays.copyOf(
+                    indices,
+                    Math.max(16, indices.length * 2));
+        }
+        indices[position] = index;
+        
+        return indices;
+    }
+    
+    /**
+     * Getter for the selection history. If this is null (the default)
+     * we don't keep track of any history.
+     * @return
+     *          the history or null
+     */
+    public SelectionHistory getSelectionHistory()
+    {
+        return this.selectionHistory;
+    }
+    
+    /**
+     * Setter for the selection history
+     * @see #getSelectionHistory()
+     * @param selectionHistory
+     *          the history to record into (null turns history off)
+     */
+    public void setSelectionHistory(SelectionHistory selectionHistory)
+    {
+        synchronized(this.selectedIndices)
+        {
+            this.selectionHistory = selectionHistory;
+        }
+    }
+    
+    /**
+     * Undo the most recent selection change
+     * @return
+     *          true if there was something to undo
+     * @see #getSelectionHistory()
+     */
+    public boolean undoSelectionChange()
+    {
+        boolean selectionModified = false;
+        synchronized(this.selectedIndices)
+        {
+            SelectionHistory history = this.selectionHistory;
+            if(history != null)
+            {
+                selectionModified = history.undo(this.selectedIndices);
+            }
+        }
+        
+        if(selectionModified)
+        {
+            this.fireSelectionChanged();
+        }
+        
+        return selectionModified;
+    }
+    
+    /**
+     * Redo the most recently undone selection change
+     * @return
+     *          true if there was something to redo
+     * @see #getSelectionHistory()
+     */
+    public boolean redoSelectionChange()
+    {
+        boolean selectionModified = false;
+        synchronized(this.selectedIndices)
+        {
+            SelectionHistory history = this.selectionHistory;
+            if(history != null)
+            {
+                selectionModified = history.redo(this.selectedIndices);
+            }
+        }
+        
+        if(selectionModified)
+        {
+            this.fireSelectionChanged();
+        }
+        
+        return selectionModified;
+    }
+    
+    /**
+     * Undo all selection changes back to the most recent checkpoint
+     * in one step
+     * @return
+     *          true if there was a checkpoint to go back to
+     * @see SelectionHistory#getCheckpointInterval()
+     */
+    public boolean undoSelectionChangesToCheckpoint()
+    {
+        boolean selectionModified = false;
+        synchronized(this.selectedIndices)
+        {
+            SelectionHistory history = this.selectionHistory;
+            if(history != null)
+            {
+                selectionModified = history.undoToCheckpoint(
+                        this.selectedIndices);
+            }
+        }
         
         if(selectionModified)
         {
             this.fireSelectionChanged();
         }
+        
+        return selectionModified;
     }
 
     /**
@@ -193,7 +844,7 @@ public class SelectableDataSupport implements SelectableData
      */
     public void addSelectableDataListener(SelectableDataListener listenerToAdd)
     {
-        this.listenerList.add(listenerToAdd);
+        this.listenerList.add(new ListenerDispatcher(listenerToAdd));
     }
 
     /**
@@ -202,7 +853,98 @@ public class SelectableDataSupport implements SelectableData
     public void removeSelectableDataListener(
             SelectableDataListener listenerToRemove)
     {
-        this.listenerList.remove(listenerToRemove);
+        Iterator<ListenerDispatcher> dispatcherIter =
+            this.listenerList.iterator();
+        while(dispatcherIter.hasNext())
+        {
+            if(dispatcherIter.next().getListener().equals(listenerToRemove))
+            {
+                dispatcherIter.remove();
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Getter for the policy used to deliver selection events to our
+     * listeners. Slaves are always updated synchronously no matter what
+     * this policy is.
+     * @return
+     *          the dispatch policy
+     */
+    public ListenerDispatchPolicy getDispatchPolicy()
+    {
+        return this.dispatchPolicy;
+    }
+    
+    /**
+     * Setter for the dispatch policy
+     * @see #getDispatchPolicy()
+     * @param dispatchPolicy
+     *          the dispatch policy to use for all future events
+     */
+    public void setDispatchPolicy(ListenerDispatchPolicy dispatchPolicy)
+    {
+        if(dispatchPolicy == null)
+        {
+            throw new NullPointerException(
+                    "the dispatch policy cannot be null");
+        }
+        this.dispatchPolicy = dispatchPolicy;
+    }
+    
+    /**
+     * Getter for the executor used by
+     * {@link ListenerDispatchPolicy#EXECUTOR}. If this is null we use
+     * a shared pool of daemon threads. A virtual thread per task executor
+     * works well here since listeners mostly sit waiting on the GUI.
+     * @return
+     *          the executor or null
+     */
+    public Executor getDispatchExecutor()
+    {
+        return this.dispatchExecutor;
+    }
+    
+    /**
+     * Setter for the dispatch executor
+     * @see #getDispatchExecutor()
+     * @param dispatchExecutor
+     *          the executor to use (null means use the shared default)
+     */
+    public void setDispatchExecutor(Executor dispatchExecutor)
+    {
+        this.dispatchExecutor = dispatchExecutor;
+    }
+    
+    /**
+     * Get a snapshot of how much time each of our listeners has spent
+     * processing selection events. The timings are also logged at
+     * {@link Level#FINE} as they happen.
+     * @return
+     *          the timings in listener registration order
+     */
+    public List<ListenerTiming> getListenerTimings()
+    {
+        List<ListenerTiming> timings = new ArrayList<ListenerTiming>();
+        for(ListenerDispatcher currDispatcher: this.listenerList)
+        {
+            timings.add(currDispatcher.getTiming());
+        }
+        
+        return timings;
+    }
+    
+    /**
+     * Clear the timing statistics for all of our listeners
+     * @see #getListenerTimings()
+     */
+    public void resetListenerTimings()
+    {
+        for(ListenerDispatcher currDispatcher: this.listenerList)
+        {
+            currDispatcher.resetTiming();
+        }
     }
 
     /**
@@ -249,9 +991,10 @@ public class SelectableDataSupport implements SelectableData
      */
     private void fireSelectionChanged()
     {
-        for(SelectableDataListener currListener: this.listenerList)
+        ListenerDispatchPolicy policy = this.dispatchPolicy;
+        for(ListenerDispatcher currDispatcher: this.listenerList)
         {
-            currListener.selectionChanged(this.sourceSelectableData);
+            currDispatcher.selectionChanged(policy);
         }
         
         Iterator<WeakReference<SelectableData>> slaveRefIter =
@@ -271,4 +1014,335 @@ public class SelectableDataSupport implements SelectableData
             }
         }
     }
+    
+    /**
+     * Get the executor to use for {@link ListenerDispatchPolicy#EXECUTOR}
+     * @return
+     *          the executor
+     */
+    private Executor getEffectiveDispatchExecutor()
+    {
+        Executor executor = this.dispatchExecutor;
+        if(executor == null)
+        {
+            executor = SelectableDataSupport.getDefaultDispatchExecutor();
+        }
+        
+        return executor;
+    }
+    
+    /**
+     * Lazily create the shared default dispatch executor
+     * @return
+     *          the default executor
+     */
+    private static synchronized ExecutorService getDefaultDispatchExecutor()
+    {
+        if(defaultDispatchExecutor == null)
+        {
+            defaultDispatchExecutor = Executors.newCachedThreadPool(
+                    new ThreadFactory()
+                    {
+                        public Thread newThread(Runnable runnable)
+                        {
+                            Thread thread = new Thread(
+                                    runnable,
+                                    "selection-event-dispatch");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        
+        return defaultDispatchExecutor;
+    }
+    
+    /**
+     * An immutable snapshot of the time that a listener has spent
+     * processing our selection events
+     */
+    public static class ListenerTiming
+    {
+        private final SelectableDataListener listener;
+        
+        private final long eventCount;
+        
+        private final long coalescedEventCount;
+        
+        private final long totalNanos;
+        
+        private final long maxNanos;
+        
+        /**
+         * Constructor
+         * @param listener
+         *          see {@link #getListener()}
+         * @param eventCount
+         *          see {@link #getEventCount()}
+         * @param coalescedEventCount
+         *          see {@link #getCoalescedEventCount()}
+         * @param totalNanos
+         *          see {@link #getTotalNanos()}
+         * @param maxNanos
+         *          see {@link #getMaxNanos()}
+         */
+        public ListenerTiming(
+                SelectableDataListener listener,
+                long eventCount,
+                long coalescedEventCount,
+                long totalNanos,
+                long maxNanos)
+        {
+            this.listener = listener;
+            this.eventCount = eventCount;
+            this.coalescedEventCount = coalescedEventCount;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+        
+        /**
+         * the listener that these timings are for
+         * @return the listener
+         */
+        public SelectableDataListener getListener()
+        {
+            return this.listener;
+        }
+        
+        /**
+         * the number of times that the listener was actually called
+         * @return the event count
+         */
+        public long getEventCount()
+        {
+            return this.eventCount;
+        }
+        
+        /**
+         * the number of events that were folded into another event
+         * because the listener hadn't caught up yet
+         * @return the coalesced event count
+         */
+        public long getCoalescedEventCount()
+        {
+            return this.coalescedEventCount;
+        }
+        
+        /**
+         * the total time spent in the listener
+         * @return the total in nanoseconds
+         */
+        public long getTotalNanos()
+        {
+            return this.totalNanos;
+        }
+        
+        /**
+         * the longest time spent processing a single event
+         * @return the max in nanoseconds
+         */
+        public long getMaxNanos()
+        {
+            return this.maxNanos;
+        }
+        
+        /**
+         * the mean time spent processing an event
+         * @return the mean in nanoseconds (0 if there are no events)
+         */
+        public double getMeanNanos()
+        {
+            return this.eventCount == 0L ?
+                   0.0 :
+                   this.totalNanos / (double)this.eventCount;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString()
+        {
+            return this.listener + ": events=" + this.eventCount +
+                   ", coalesced=" + this.coalescedEventCount +
+                   ", meanNanos=" + (long)this.getMeanNanos() +
+                   ", maxNanos=" + this.maxNanos;
+        }
+    }
+    
+    /**
+     * Wraps a single listener so that we can dispatch to it under any
+     * policy while guaranteeing per-listener ordering and keeping
+     * timing statistics
+     */
+    private class ListenerDispatcher implements Runnable
+    {
+        private final SelectableDataListener listener;
+        
+        /**
+         * true when there's an event that the listener hasn't seen yet
+         */
+        private final AtomicBoolean eventPending = new AtomicBoolean(false);
+        
+        /**
+         * true while a {@link #run()} is queued or running. we use this
+         * so that there is never more than one asynchronous call to the
+         * listener in flight
+         */
+        private final AtomicBoolean dispatchScheduled = new AtomicBoolean(false);
+        
+        private final AtomicLong eventCount = new AtomicLong();
+        
+        private final AtomicLong coalescedEventCount = new AtomicLong();
+        
+        private final AtomicLong totalNanos = new AtomicLong();
+        
+        private final AtomicLong maxNanos = new AtomicLong();
+        
+        /**
+         * Constructor
+         * @param listener
+         *          the listener that we dispatch to
+         */
+        public ListenerDispatcher(SelectableDataListener listener)
+        {
+            this.listener = listener;
+        }
+        
+        /**
+         * Getter for the listener
+         * @return
+         *          the listener
+         */
+        public SelectableDataListener getListener()
+        {
+            return this.listener;
+        }
+        
+        /**
+         * Dispatch a selection changed event using the given policy
+         * @param policy
+         *          the policy to use
+         */
+        public void selectionChanged(ListenerDispatchPolicy policy)
+        {
+            if(policy == ListenerDispatchPolicy.SYNCHRONOUS &&
+               !this.dispatchScheduled.get())
+            {
+                this.invokeListener();
+            }
+            else
+            {
+                if(this.eventPending.getAndSet(true))
+                {
+                    this.coalescedEventCount.incrementAndGet();
+                }
+                
+                if(this.dispatchScheduled.compareAndSet(false, true))
+                {
+                    if(policy == ListenerDispatchPolicy.EXECUTOR)
+                    {
+                        SelectableDataSupport.this.getEffectiveDispatchExecutor().execute(
+                                this);
+                    }
+                    else
+                    {
+                        // we also end up here if the policy was switched to
+                        // synchronous while an asynchronous dispatch was
+                        // still queued (to preserve ordering)
+                        SwingUtilities.invokeLater(this);
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Drains pending events. Only one thread can be in here at a time
+         * for any given dispatcher
+         */
+        public void run()
+        {
+            do
+            {
+                this.eventPending.set(false);
+                try
+                {
+                    this.invokeListener();
+                }
+                catch(RuntimeException ex)
+                {
+                    LOG.log(Level.SEVERE,
+                            "selection listener failed: " + this.listener,
+                            ex);
+                }
+                
+                this.dispatchScheduled.set(false);
+                
+                // if an event came in after we cleared the pending flag
+                // we're responsible for it unless someone else already
+                // scheduled a new dispatch
+            } while(this.eventPending.get() &&
+                    this.dispatchScheduled.compareAndSet(false, true));
+        }
+        
+        /**
+         * Call the listener and record how long it took
+         */
+        private void invokeListener()
+        {
+            long startNanos = System.nanoTime();
+            try
+            {
+                this.listener.selectionChanged(
+                        SelectableDataSupport.this.sourceSelectableData);
+            }
+            finally
+            {
+                long elapsedNanos = System.nanoTime() - startNanos;
+                this.eventCount.incrementAndGet();
+                this.totalNanos.addAndGet(elapsedNanos);
+                
+                long currMax = this.maxNanos.get();
+                while(elapsedNanos > currMax &&
+                      !this.maxNanos.compareAndSet(currMax, elapsedNanos))
+                {
+                    currMax = this.maxNanos.get();
+                }
+                
+                if(LOG.isLoggable(Level.FINE))
+                {
+                    LOG.fine(
+                            "selection listener " + this.listener +
+                            " took " + elapsedNanos + "ns on thread " +
+                            Thread.currentThread().getName());
+                }
+            }
+        }
+        
+        /**
+         * Get a snapshot of our timing
+         * @return
+         *          the timing
+         */
+        public ListenerTiming getTiming()
+        {
+            return new ListenerTiming(
+                    this.listener,
+                    this.eventCount.get(),
+                    this.coalescedEventCount.get(),
+                    this.totalNanos.get(),
+                    this.maxNanos.get());
+        }
+        
+        /**
+         * Zero out our timing statistics
+         */
+        public void resetTiming()
+        {
+            this.eventCount.set(0L);
+            this.coalescedEventCount.set(0L);
+            this.totalNanos.set(0L);
+            this.maxNanos.set(0L);
+        }
+    }
 }
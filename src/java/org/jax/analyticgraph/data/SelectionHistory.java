@@ -0,0 +1,704 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.data;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+
+/**
+ * An undo/redo journal for selection changes. Rather than holding on to
+ * a copy of the selection for every step we only keep the indices that
+ * were added and removed by each change, stored either as a sorted index
+ * array or as a trimmed run of bitmap words (whichever is smaller). This
+ * makes undo and redo proportional to the size of the change rather than
+ * the size of the selection.
+ * <p>
+ * Every {@link #getCheckpointInterval()} changes we also keep a full
+ * (compact) snapshot of the selection as a checkpoint which
+ * {@link #undoToCheckpoint(IndexBitmap)} can jump straight back to.
+ * Once the journal grows past its memory budget the oldest entries are
+ * thrown out.
+ * </p>
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class SelectionHistory
+{
+    /**
+     * the default memory budget
+     */
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = 16L * 1024L * 1024L;
+    
+    /**
+     * the default number of changes between checkpoints
+     */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 32;
+    
+    /**
+     * rough per-entry bookkeeping overhead that we charge to the budget
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+    
+    /**
+     * @see #getMemoryBudgetBytes()
+     */
+    private final long memoryBudgetBytes;
+    
+    /**
+     * @see #getCheckpointInterval()
+     */
+    private final int checkpointInterval;
+    
+    /**
+     * the changes that can be undone. the most recent change is last
+     */
+    private final LinkedList<HistoryEntry> undoEntries =
+        new LinkedList<HistoryEntry>();
+    
+    /**
+     * the changes that can be redone. the next change to redo is last
+     */
+    private final LinkedList<HistoryEntry> redoEntries =
+        new LinkedList<HistoryEntry>();
+    
+    /**
+     * @see #getMemoryUsageBytes()
+     */
+    private long memoryUsageBytes = 0L;
+    
+    /**
+     * Constructor that uses the default budget and checkpoint interval
+     */
+    public SelectionHistory()
+    {
+        this(DEFAULT_MEMORY_BUDGET_BYTES, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+    
+    /**
+     * Constructor
+     * @param memoryBudgetBytes
+     *          see {@link #getMemoryBudgetBytes()}
+     * @param checkpointInterval
+     *          see {@link #getCheckpointInterval()}
+     * @throws IllegalArgumentException
+     *          if the checkpoint interval is not positive
+     */
+    public SelectionHistory(long memoryBudgetBytes, int checkpointInterval)
+            throws IllegalArgumentException
+    {
+        if(checkpointInterval < 1)
+        {
+            throw new IllegalArgumentException(
+                    "the checkpoint interval must be positive: " +
+                    checkpointInterval);
+        }
+        
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.checkpointInterval = checkpointInterval;
+    }
+    
+    /**
+     * Getter for the approximate number of bytes that we're allowed to
+     * use before we start throwing out the oldest changes
+     * @return
+     *          the budget
+     */
+    public long getMemoryBudgetBytes()
+    {
+        return this.memoryBudgetBytes;
+    }
+    
+    /**
+     * Getter for the number of changes between checkpoints
+     * @return
+     *          the checkpoint interval
+     */
+    public int getCheckpointInterval()
+    {
+        return this.checkpointInterval;
+    }
+    
+    /**
+     * Getter for the approximate number of bytes used by this history
+     * @return
+     *          the memory usage
+     */
+    public synchronized long getMemoryUsageBytes()
+    {
+        return this.memoryUsageBytes;
+    }
+    
+    /**
+     * Determine if there is anything to undo
+     * @return
+     *          true if we can undo
+     */
+    public synchronized boolean canUndo()
+    {
+        return !this.undoEntries.isEmpty();
+    }
+    
+    /**
+     * Determine if there is anything to redo
+     * @return
+     *          true if we can redo
+     */
+    public synchronized boolean canRedo()
+    {
+        return !this.redoEntries.isEmpty();
+    }
+    
+    /**
+     * Get the number of changes that can be undone
+     * @return
+     *          the undo depth
+     */
+    public synchronized int getUndoDepth()
+    {
+        return this.undoEntries.size();
+    }
+    
+    /**
+     * Get the number of changes that can be redone
+     * @return
+     *          the redo depth
+     */
+    public synchronized int getRedoDepth()
+    {
+        return this.redoEntries.size();
+    }
+    
+    /**
+     * Throw out all of the history
+     */
+    public synchronized void clear()
+    {
+        this.undoEntries.clear();
+        this.redoEntries.clear();
+        this.memoryUsageBytes = 0L;
+    }
+    
+    /**
+     * Record a change. This throws out anything that could have been redone.
+     * @param addedIndices
+     *          the indices that the change added to the selection
+     * @param removedIndices
+     *          the indices that the change removed from the selection
+     * @param selectionBeforeChange
+     *          the selection as it was before the change (only read if
+     *          it's time for a checkpoint). this can be null if
+     *          {@link #isCheckpointDue()} is false
+     */
+    synchronized void recordChange(
+            IndexBitmap addedIndices,
+            IndexBitmap removedIndices,
+            IndexBitmap selectionBeforeChange)
+    {
+        this.recordChange(
+                CompactIndices.fromBitmap(addedIndices),
+                CompactIndices.fromBitmap(removedIndices),
+                selectionBeforeChange);
+    }
+    
+    /**
+     * Record a change. This throws out anything that could have been redone.
+     * @param addedIndices
+     *          the indices that the change added to the selection
+     * @param addedCount
+     *          the number of valid entries in addedIndices
+     * @param removedIndices
+     *          the indices that the change removed from the selection
+     * @param removedCount
+     *          the number of valid entries in removedIndices
+     * @param selectionBeforeChange
+     *          the selection as it was before the change (only read if
+     *          it's time for a checkpoint). this can be null if
+     *          {@link #isCheckpointDue()} is false
+     */
+    synchronized void recordChange(
+            int[] addedIndices,
+            int addedCount,
+            int[] removedIndices,
+            int removedCount,
+            IndexBitmap selectionBeforeChange)
+    {
+        this.recordChange(
+                CompactIndices.fromIndices(addedIndices, addedCount),
+                CompactIndices.fromIndices(removedIndices, removedCount),
+                selectionBeforeChange);
+    }
+    
+    /**
+     * Record a change
+     * @param addedIndices
+     *          the added indices
+     * @param removedIndices
+     *          the removed indices
+     * @param selectionBeforeChange
+     *          the selection before the change
+     */
+    private void recordChange(
+            CompactIndices addedIndices,
+            CompactIndices removedIndices,
+            IndexBitmap selectionBeforeChange)
+    {
+        for(HistoryEntry currRedoEntry: this.redoEntries)
+        {
+            this.memoryUsageBytes -= currRedoEntry.getEstimatedBytes();
+        }
+        this.redoEntries.clear();
+        
+        // if the caller skipped building the old selection we'll just
+        // take the checkpoint on the next change
+        CompactIndices checkpoint = null;
+        if(selectionBeforeChange != null && this.isCheckpointDue())
+        {
+            checkpoint = CompactIndices.fromBitmap(selectionBeforeChange);
+        }
+        
+        HistoryEntry entry = new HistoryEntry(
+                addedIndices,
+                removedIndices,
+                checkpoint);
+        this.undoEntries.addLast(entry);
+        this.memoryUsageBytes += entry.getEstimatedBytes();
+        
+        this.enforceMemoryBudget();
+    }
+    
+    /**
+     * Determine if the next change that gets recorded should take a
+     * checkpoint. Callers that have to do work to come up with the
+     * selection before their change can check this first
+     * @return
+     *          true if the next change needs the selection before the
+     *          change
+     */
+    synchronized boolean isCheckpointDue()
+    {
+        return this.getChangesSinceCheckpoint() >= this.checkpointInterval;
+    }
+    
+    /**
+     * Count the changes that the most recent checkpoint covers (the undo
+     * entry holding it and the ones after it).
+     * This is worked out from what's actually left in the undo list since
+     * undoing, throwing out redo entries and evicting old entries can all
+     * move the last checkpoint
+     * @return
+     *          the count or {@link #getCheckpointInterval()} if there's no
+     *          checkpoint close enough (so it's time for a new one)
+     */
+    private int getChangesSinceCheckpoint()
+    {
+        int changeCount = 0;
+        Iterator<HistoryEntry> undoIter = this.undoEntries.descendingIterator();
+        while(changeCount < this.checkpointInterval && undoIter.hasNext())
+        {
+            changeCount++;
+            if(undoIter.next().getCheckpoint() != null)
+            {
+                return changeCount;
+            }
+        }
+        
+        return this.checkpointInterval;
+    }
+    
+    /**
+     * Throw out the oldest entries until we're within budget
+     */
+    private void enforceMemoryBudget()
+    {
+        while(this.memoryUsageBytes > this.memoryBudgetBytes &&
+              !this.undoEntries.isEmpty())
+        {
+            this.memoryUsageBytes -=
+                this.undoEntries.removeFirst().getEstimatedBytes();
+        }
+        
+        while(this.memoryUsageBytes > this.memoryBudgetBytes &&
+              !this.redoEntries.isEmpty())
+        {
+            this.memoryUsageBytes -=
+                this.redoEntries.removeFirst().getEstimatedBytes();
+        }
+    }
+    
+    /**
+     * Undo the most recent change
+     * @param selection
+     *          the selection to undo the change on
+     * @return
+     *          true if there was something to undo
+     */
+    synchronized boolean undo(IndexBitmap selection)
+    {
+        if(this.undoEntries.isEmpty())
+        {
+            return false;
+        }
+        else
+        {
+            HistoryEntry entry = this.undoEntries.removeLast();
+            entry.getAddedIndices().clearIn(selection);
+            entry.getRemovedIndices().setIn(selection);
+            this.redoEntries.addLast(entry);
+            
+            return true;
+        }
+    }
+    
+    /**
+     * Redo the most recently undone change
+     * @param selection
+     *          the selection to redo the change on
+     * @return
+     *          true if there was something to redo
+     */
+    synchronized boolean redo(IndexBitmap selection)
+    {
+        if(this.redoEntries.isEmpty())
+        {
+            return false;
+        }
+        else
+        {
+            HistoryEntry entry = this.redoEntries.removeLast();
+            entry.getRemovedIndices().clearIn(selection);
+            entry.getAddedIndices().setIn(selection);
+            this.undoEntries.addLast(entry);
+            
+            return true;
+        }
+    }
+    
+    /**
+     * Undo back to the most recent checkpoint in a single step. All of the
+     * changes that this skips over can still be redone one at a time.
+     * @param selection
+     *          the selection to restore the checkpoint into
+     * @return
+     *          true if there was a checkpoint to go back to
+     */
+    synchronized boolean undoToCheckpoint(IndexBitmap selection)
+    {
+        // find the most recent entry with a checkpoint
+        int entriesToUndo = 0;
+        HistoryEntry checkpointEntry = null;
+        ListIterator<HistoryEntry> undoIter =
+            this.undoEntries.listIterator(this.undoEntries.size());
+        while(checkpointEntry == null && undoIter.hasPrevious())
+        {
+            HistoryEntry currEntry = undoIter.previous();
+            entriesToUndo++;
+            if(currEntry.getCheckpoint() != null)
+            {
+                checkpointEntry = currEntry;
+            }
+        }
+        
+        if(checkpointEntry == null)
+        {
+            return false;
+        }
+        else
+        {
+            // move everything from the checkpoint on over to the redo list
+            for(int i = 0; i < entriesToUndo; i++)
+            {
+                this.redoEntries.addLast(this.undoEntries.removeLast());
+            }
+            
+            selection.clear();
+            checkpointEntry.getCheckpoint().setIn(selection);
+            
+            return true;
+        }
+    }
+    
+    /**
+     * A single journal entry
+     */
+    private static class HistoryEntry
+    {
+        private final CompactIndices addedIndices;
+        
+        private final CompactIndices removedIndices;
+        
+        private final CompactIndices checkpoint;
+        
+        /**
+         * Constructor
+         * @param addedIndices
+         *          the indices added by the change
+         * @param removedIndices
+         *          the indices removed by the change
+         * @param checkpoint
+         *          the full selection before the change or null if this
+         *          entry isn't a checkpoint
+         */
+        public HistoryEntry(
+                CompactIndices addedIndices,
+                CompactIndices removedIndices,
+                CompactIndices checkpoint)
+        {
+            this.addedIndices = addedIndices;
+            this.removedIndices = removedIndices;
+            this.checkpoint = checkpoint;
+        }
+        
+        /**
+         * @return the added indices
+         */
+        public CompactIndices getAddedIndices()
+        {
+            return this.addedIndices;
+        }
+        
+        /**
+         * @return the removed indices
+         */
+        public CompactIndices getRemovedIndices()
+        {
+            return this.removedIndices;
+        }
+        
+        /**
+         * @return the checkpoint (can be null)
+         */
+        public CompactIndices getCheckpoint()
+        {
+            return this.checkpoint;
+        }
+        
+        /**
+         * @return the approximate size of this entry
+         */
+        public long getEstimatedBytes()
+        {
+            long bytes = ENTRY_OVERHEAD_BYTES +
+                         this.addedIndices.getEstimatedBytes() +
+                         this.removedIndices.getEstimatedBytes();
+            if(this.checkpoint != null)
+            {
+                bytes += this.checkpoint.getEstimatedBytes();
+            }
+            
+            return bytes;
+        }
+    }
+    
+    /**
+     * An immutable set of indices stored as either a sorted index array or
+     * a trimmed range of bitmap words
+     */
+    private static class CompactIndices
+    {
+        private static final CompactIndices EMPTY =
+            new CompactIndices(new int[0], null, 0);
+        
+        /**
+         * the sparse representation (null if we're dense)
+         */
+        private final int[] sparseIndices;
+        
+        /**
+         * the dense representation (null if we're sparse)
+         */
+        private final long[] denseWords;
+        
+        /**
+         * the word index of denseWords[0]
+         */
+        private final int wordOffset;
+        
+        /**
+         * Constructor
+         * @param sparseIndices
+         *          the sparse indices or null
+         * @param denseWords
+         *          the dense words or null
+         * @param wordOffset
+         *          the offset of the dense words
+         */
+        private CompactIndices(
+                int[] sparseIndices,
+                long[] denseWords,
+                int wordOffset)
+        {
+            this.sparseIndices = sparseIndices;
+            this.denseWords = denseWords;
+            this.wordOffset = wordOffset;
+        }
+        
+        /**
+         * Create the smallest representation for the given bitmap
+         * @param bitmap
+         *          the bitmap
+         * @return
+         *          the compact indices
+         */
+        public static CompactIndices fromBitmap(IndexBitmap bitmap)
+        {
+            int cardinality = bitmap.cardinality();
+            if(cardinality == 0)
+            {
+                return EMPTY;
+            }
+            
+            int firstWord = bitmap.nextSetBit(0) >>> IndexBitmap.ADDRESS_BITS_PER_WORD;
+            int lastWord = (bitmap.length() - 1) >>> IndexBitmap.ADDRESS_BITS_PER_WORD;
+            int wordSpan = lastWord - firstWord + 1;
+            
+            if(cardinality * 4L <= wordSpan * 8L)
+            {
+                int[] sparseIndices = new int[cardinality];
+                int i = 0;
+                for(int currIndex = bitmap.nextSetBit(0);
+                    currIndex >= 0;
+                    currIndex = bitmap.nextSetBit(currIndex + 1))
+                {
+                    sparseIndices[i++] = currIndex;
+                }
+                
+                return new CompactIndices(sparseIndices, null, 0);
+            }
+            else
+            {
+                long[] denseWords = new long[wordSpan];
+                System.arraycopy(
+                        bitmap.getWords(), firstWord,
+                        denseWords, 0,
+                        wordSpan);
+                
+                return new CompactIndices(null, denseWords, firstWord);
+            }
+        }
+        
+        /**
+         * Create the smallest representation for the given indices
+         * @param indices
+         *          the indices (these don't need to be sorted but they
+         *          should be unique)
+         * @param count
+         *          the number of valid indices in the array
+         * @return
+         *          the compact indices
+         */
+        public static CompactIndices fromIndices(int[] indices, int count)
+        {
+            if(count == 0)
+            {
+                return EMPTY;
+            }
+            
+            int minIndex = Integer.MAX_VALUE;
+            int maxIndex = Integer.MIN_VALUE;
+            for(int i = 0; i < count; i++)
+            {
+                minIndex = Math.min(minIndex, indices[i]);
+                maxIndex = Math.max(maxIndex, indices[i]);
+            }
+            
+            int firstWord = minIndex >>> IndexBitmap.ADDRESS_BITS_PER_WORD;
+            int lastWord = maxIndex >>> IndexBitmap.ADDRESS_BITS_PER_WORD;
+            int wordSpan = lastWord - firstWord + 1;
+            
+            if(count * 4L <= wordSpan * 8L)
+            {
+                int[] sparseIndices = new int[count];
+                System.arraycopy(indices, 0, sparseIndices, 0, count);
+                Arrays.sort(sparseIndices);
+                
+                return new CompactIndices(sparseIndices, null, 0);
+            }
+            else
+            {
+                long[] denseWords = new long[wordSpan];
+                for(int i = 0; i < count; i++)
+                {
+                    int index = indices[i];
+                    denseWords[(index >>> IndexBitmap.ADDRESS_BITS_PER_WORD) - firstWord] |=
+                        1L << index;
+                }
+                
+                return new CompactIndices(null, denseWords, firstWord);
+            }
+        }
+        
+        /**
+         * Set all of our indices in the given bitmap
+         * @param bitmap
+         *          the bitmap
+         */
+        public void setIn(IndexBitmap bitmap)
+        {
+            if(this.sparseIndices != null)
+            {
+                for(int i = 0; i < this.sparseIndices.length; i++)
+                {
+                    bitmap.set(this.sparseIndices[i]);
+                }
+            }
+            else
+            {
+                bitmap.orWords(this.denseWords, this.wordOffset);
+            }
+        }
+        
+        /**
+         * Clear all of our indices in the given bitmap
+         * @param bitmap
+         *          the bitmap
+         */
+        public void clearIn(IndexBitmap bitmap)
+        {
+            if(this.sparseIndices != null)
+            {
+                for(int i = 0; i < this.sparseIndices.length; i++)
+                {
+                    bitmap.clear(this.sparseIndices[i]);
+                }
+            }
+            else
+            {
+                bitmap.andNotWords(this.denseWords, this.wordOffset);
+            }
+        }
+        
+        /**
+         * @return the approximate number of bytes we use
+         */
+        public long getEstimatedBytes()
+        {
+            if(this.sparseIndices != null)
+            {
+                return 16L + 4L * this.sparseIndices.length;
+            }
+            else
+            {
+                return 16L + 8L * this.denseWords.length;
+            }
+        }
+    }
+}
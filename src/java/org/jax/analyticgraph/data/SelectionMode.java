@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.data;
+
+/**
+ * How a new set of indices is combined with the current selection
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public enum SelectionMode
+{
+    /**
+     * the new indices become the selection
+     */
+    REPLACE,
+    
+    /**
+     * the new indices are added to the selection
+     */
+    UNION,
+    
+    /**
+     * only the selected indices that are also in the new indices stay
+     * selected
+     */
+    INTERSECT,
+    
+    /**
+     * the new indices are removed from the selection
+     */
+    SUBTRACT,
+    
+    /**
+     * the new indices are toggled: selected indices are deselected and
+     * unselected indices are selected
+     */
+    XOR;
+    
+    /**
+     * Combine the given selection with the given indices. Neither of the
+     * arguments is modified.
+     * @param selection
+     *          the selection
+     * @param indices
+     *          the indices to combine with the selection
+     * @return
+     *          the combined bitmap. this can be one of the arguments (in
+     *          the {@link #REPLACE} case) so copy it before modifying it
+     */
+    public IndexBitmap combine(IndexBitmap selection, IndexBitmap indices)
+    {
+        IndexBitmap result;
+        switch(this)
+        {
+            case REPLACE:
+            {
+                result = indices;
+                break;
+            }
+            
+            case UNION:
+            {
+                result = new IndexBitmap(selection);
+                result.or(indices);
+                break;
+            }
+            
+            case INTERSECT:
+            {
+                result = new IndexBitmap(selection);
+                result.and(indices);
+                break;
+            }
+            
+            case SUBTRACT:
+            {
+                result = new IndexBitmap(selection);
+                result.andNot(indices);
+                break;
+            }
+            
+            case XOR:
+            {
+                result = new IndexBitmap(selection);
+                result.xor(indices);
+                break;
+            }
+            
+            default:
+            {
+                throw new IllegalStateException(
+                        "unknown selection mode: " + this);
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Get the cardinality of what {@link #combine(IndexBitmap, IndexBitmap)}
+     * would return without building it
+     * @param selection
+     *          the selection
+     * @param indices
+     *          the indices to combine with the selection
+     * @return
+     *          the cardinality
+     */
+    public int combinedCardinality(IndexBitmap selection, IndexBitmap indices)
+    {
+        switch(this)
+        {
+            case REPLACE: return indices.cardinality();
+            case UNION: return IndexBitmap.orCardinality(selection, indices);
+            case INTERSECT: return IndexBitmap.andCardinality(selection, indices);
+            case SUBTRACT: return IndexBitmap.andNotCardinality(selection, indices);
+            case XOR: return IndexBitmap.xorCardinality(selection, indices);
+            default: throw new IllegalStateException(
+                    "unknown selection mode: " + this);
+        }
+    }
+}
@@ -193,6 +193,18 @@ implements NamedDataMatrix<D>, SelectableData
         }
     }
     
+    /**
+     * Getter for the support object that implements our selection
+     * behavior. This is how you configure things like the
+     * {@link SelectableDataSupport.ListenerDispatchPolicy}.
+     * @return
+     *          the selectable data support
+     */
+    public SelectableDataSupport getSelectableDataSupport()
+    {
+        return this.selectableDataSupport;
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -276,6 +288,18 @@ implements NamedDataMatrix<D>, SelectableData
                 listenerToAdd);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void selectIndicesMatching(
+            RowPredicate predicate,
+            SelectionMode selectionMode)
+    {
+        this.selectableDataSupport.selectIndicesMatching(
+                predicate,
+                selectionMode);
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.data;
+
+/**
+ * Maps indices between a subset and its superset. We keep a bitmap of the
+ * superset indices that made it into the subset along with the number of
+ * kept indices in front of each word. That gives us a constant time rank
+ * (superset to subset) and a binary search select (subset to superset)
+ * for the price of about one bit plus one int per 64 superset indices.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class SubsetIndexMapping
+{
+    /**
+     * the superset indices that are in the subset
+     */
+    private final IndexBitmap keptIndices;
+    
+    /**
+     * the words of {@link #keptIndices} padded out to the superset size
+     */
+    private final long[] keptWords;
+    
+    /**
+     * the number of kept indices in all of the words before each word
+     */
+    private final int[] wordRanks;
+    
+    /**
+     * @see #getSubsetSize()
+     */
+    private final int subsetSize;
+    
+    /**
+     * @see #getSupersetSize()
+     */
+    private final int supersetSize;
+    
+    /**
+     * Constructor
+     * @param filter
+     *          the filter used to build the subset. true means the
+     *          superset index was filtered out
+     */
+    public SubsetIndexMapping(boolean[] filter)
+    {
+        this.supersetSize = filter.length;
+        this.keptIndices = new IndexBitmap(filter.length);
+        for(int i = 0; i < filter.length; i++)
+        {
+            if(!filter[i])
+            {
+                this.keptIndices.set(i);
+            }
+        }
+        
+        this.keptWords = this.keptIndices.getWords();
+        this.wordRanks = new int[this.keptWords.length];
+        int rank = 0;
+        for(int i = 0; i < this.keptWords.length; i++)
+        {
+            this.wordRanks[i] = rank;
+            rank += Long.bitCount(this.keptWords[i]);
+        }
+        this.subsetSize = rank;
+    }
+    
+    /**
+     * Getter for the number of indices in the subset
+     * @return
+     *          the subset size
+     */
+    public int getSubsetSize()
+    {
+        return this.subsetSize;
+    }
+    
+    /**
+     * Getter for the number of indices in the superset
+     * @return
+     *          the superset size
+     */
+    public int getSupersetSize()
+    {
+        return this.supersetSize;
+    }
+    
+    /**
+     * Getter for the superset indices that are in the subset. Don't modify
+     * the returned bitmap.
+     * @return
+     *          the kept indices
+     */
+    public IndexBitmap getKeptIndices()
+    {
+        return this.keptIndices;
+    }
+    
+    /**
+     * Convert a superset index to a subset index
+     * @param supersetIndex
+     *          the superset index
+     * @return
+     *          the subset index or -1 if the superset index was filtered
+     *          out of the subset
+     */
+    public int toSubsetIndex(int supersetIndex)
+    {
+        if(supersetIndex < 0 || supersetIndex >= this.supersetSize)
+        {
+            return -1;
+        }
+        
+        int wordIndex = supersetIndex >>> IndexBitmap.ADDRESS_BITS_PER_WORD;
+        long word = this.keptWords[wordIndex];
+        long bit = 1L << supersetIndex;
+        if((word & bit) == 0L)
+        {
+            return -1;
+        }
+        else
+        {
+            return this.wordRanks[wordIndex] + Long.bitCount(word & (bit - 1L));
+        }
+    }
+    
+    /**
+     * Convert a subset index to a superset index
+     * @param subsetIndex
+     *          the subset index
+     * @return
+     *          the superset index
+     * @throws IndexOutOfBoundsException
+     *          if the subset index is out of range
+     */
+    public int toSupersetIndex(int subsetIndex) throws IndexOutOfBoundsException
+    {
+        if(subsetIndex < 0 || subsetIndex >= this.subsetSize)
+        {
+            throw new IndexOutOfBoundsException(
+                    "subset index out of range: " + subsetIndex);
+        }
+        
+        // find the last word whose rank is <= the subset index
+        int low = 0;
+        int high = this.wordRanks.length - 1;
+        while(low < high)
+        {
+            int mid = (low + high + 1) >>> 1;
+            if(this.wordRanks[mid] <= subsetIndex)
+            {
+                low = mid;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        
+        return (low << IndexBitmap.ADDRESS_BITS_PER_WORD) +
+               SubsetIndexMapping.selectInWord(
+                       this.keptWords[low],
+                       subsetIndex - this.wordRanks[low]);
+    }
+    
+    /**
+     * Convert a bitmap of superset indices to a bitmap of subset indices.
+     * Superset indices that aren't in the subset are dropped.
+     * @param supersetIndices
+     *          the superset indices
+     * @return
+     *          the subset indices
+     */
+    public IndexBitmap toSubsetIndices(IndexBitmap supersetIndices)
+    {
+        IndexBitmap subsetIndices = new IndexBitmap(this.subsetSize);
+        long[] supersetWords = supersetIndices.getWords();
+        int stop = Math.min(supersetWords.length, this.keptWords.length);
+        for(int i = 0; i < stop; i++)
+        {
+            long keptWord = this.keptWords[i];
+            long selectedWord = supersetWords[i] & keptWord;
+            while(selectedWord != 0L)
+            {
+                long lowestBit = Long.lowestOneBit(selectedWord);
+                subsetIndices.set(
+                        this.wordRanks[i] +
+                        Long.bitCount(keptWord & (lowestBit - 1L)));
+                selectedWord ^= lowestBit;
+            }
+        }
+        
+        return subsetIndices;
+    }
+    
+    /**
+     * Convert a bitmap of subset indices to a bitmap of superset indices.
+     * @param subsetIndices
+     *          the subset indices
+     * @return
+     *          the superset indices
+     */
+    public IndexBitmap toSupersetIndices(IndexBitmap subsetIndices)
+    {
+        IndexBitmap supersetIndices = new IndexBitmap(this.supersetSize);
+        
+        // the subset indices come out in order, so rather than doing a
+        // binary search for each one we can just walk forward through
+        // the words
+        int wordIndex = 0;
+        for(int subsetIndex = subsetIndices.nextSetBit(0);
+            subsetIndex >= 0 && subsetIndex < this.subsetSize;
+            subsetIndex = subsetIndices.nextSetBit(subsetIndex + 1))
+        {
+            while(wordIndex + 1 < this.wordRanks.length &&
+                  this.wordRanks[wordIndex + 1] <= subsetIndex)
+            {
+                wordIndex++;
+            }
+            
+            supersetIndices.set(
+                    (wordIndex << IndexBitmap.ADDRESS_BITS_PER_WORD) +
+                    SubsetIndexMapping.selectInWord(
+                            this.keptWords[wordIndex],
+                            subsetIndex - this.wordRanks[wordIndex]));
+        }
+        
+        return supersetIndices;
+    }
+    
+    /**
+     * Find the position of the n'th set bit in the given word
+     * @param word
+     *          the word
+     * @param n
+     *          which set bit we want (zero based)
+     * @return
+     *          the bit position
+     */
+    private static int selectInWord(long word, int n)
+    {
+        for(int i = 0; i < n; i++)
+        {
+            // knock off the lowest set bit
+            word &= word - 1L;
+        }
+        
+        return Long.numberOfTrailingZeros(word);
+    }
+}
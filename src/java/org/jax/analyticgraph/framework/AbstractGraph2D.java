@@ -22,8 +22,8 @@ package org.jax.analyticgraph.framework;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Polygon;
 import java.awt.Rectangle;
-import java.awt.geom.Ellipse2D;
 
 import javax.swing.JComponent;
 
@@ -49,7 +49,7 @@ public abstract class AbstractGraph2D implements Graph2D
     /**
      * @see #getSelectionRectangleColor()
      */
-    private Color selectionRectangleColor =
+    private volatile Color selectionRectangleColor =
         DEFAULT_SELECTION_RECTANGLE_COLOR;
     
     /**
@@ -64,16 +64,16 @@ public abstract class AbstractGraph2D implements Graph2D
     /**
      * @see #getSelectionRectangleFillColor()
      */
-    private Color selectionRectangleFillColor =
+    private volatile Color selectionRectangleFillColor =
         DEFAULT_SELECTION_RECTANGLE_FILL_COLOR;
     
     private static final Color DEFAULT_POINT_COLOR = Color.BLUE;
     
-    private Color pointColor = DEFAULT_POINT_COLOR;
+    private volatile Color pointColor = DEFAULT_POINT_COLOR;
     
     private static final Color DEFAULT_SELECTED_POINT_COLOR = Color.RED;
     
-    private Color selectedPointColor = DEFAULT_SELECTED_POINT_COLOR;
+    private volatile Color selectedPointColor = DEFAULT_SELECTED_POINT_COLOR;
     
     /**
      * The default point width.
@@ -83,7 +83,19 @@ public abstract class AbstractGraph2D implements Graph2D
     /**
      * @see #getPointWidth()
      */
-    private int pointWidth = DEFAULT_POINT_WIDTH;
+    private volatile int pointWidth = DEFAULT_POINT_WIDTH;
+    
+    /**
+     * @see #getPointShape()
+     */
+    private volatile PointShape pointShape = PointShape.CIRCLE;
+    
+    /**
+     * the stamp that we last drew with. points are usually drawn in long
+     * runs of the same color so this saves a cache lookup per point. stamps
+     * are immutable so racing renderers can only cost an extra lookup
+     */
+    private volatile PointStamp lastPointStamp;
     
     /**
      * Constructor
@@ -127,6 +139,23 @@ public abstract class AbstractGraph2D implements Graph2D
         this.containerComponent = containerComponent;
     }
     
+    /**
+     * Render a freeform selection polygon (like a lasso)
+     * @param graphics2D
+     *          the graphics context to render to
+     * @param selectionPolygon
+     *          the polygon to render
+     */
+    protected void renderSelectionPolygon(
+            Graphics2D graphics2D,
+            Polygon selectionPolygon)
+    {
+        graphics2D.setColor(this.getSelectionRectangleFillColor());
+        graphics2D.fill(selectionPolygon);
+        graphics2D.setColor(this.getSelectionRectangleColor());
+        graphics2D.draw(selectionPolygon);
+    }
+    
     /**
      * Render the selection rectangle
      * @param graphics2D
@@ -134,7 +163,7 @@ public abstract class AbstractGraph2D implements Graph2D
      * @param selectionRectangle
      *          the selection rectangle to render
      */
-    protected synchronized void renderSelectionRectangle(
+    protected void renderSelectionRectangle(
             Graphics2D graphics2D,
             Rectangle selectionRectangle)
     {
@@ -236,7 +265,7 @@ public abstract class AbstractGraph2D implements Graph2D
      * @param y
      *          the point's y position
      */
-    protected synchronized void renderPoint(
+    protected void renderPoint(
             Graphics2D graphics2D,
             boolean selected,
             double x,
@@ -268,30 +297,129 @@ public abstract class AbstractGraph2D implements Graph2D
             Graphics2D graphics2D,
             double graphX,
             double graphY)
+    {
+        this.renderPoint(graphics2D, graphX, graphY, null);
+    }
+    
+    /**
+     * Render a single point unless another point has already been drawn
+     * on the same pixel as part of this pass
+     * @param graphics2D
+     *          the graphics context to use
+     * @param graphX
+     *          the graph x location of the point
+     * @param graphY
+     *          the graph y location of the point
+     * @param occupancyMask
+     *          the pixels that have already been drawn on in this pass or
+     *          null to draw the point regardless
+     * @return
+     *          true if the point was drawn
+     */
+    protected boolean renderPoint(
+            Graphics2D graphics2D,
+            double graphX,
+            double graphY,
+            PointOccupancyMask occupancyMask)
     {
         // don't do anything unless we're in bounds
         if(this.getGraphCoordinateConverter().isGraphPointInBounds(graphX, graphY))
         {
-            int pointPixelWidth = this.getPointWidth();
-            double halfPointPixelWidth = pointPixelWidth / 2.0;
-            
             // convert to pixels
             GraphCoordinateConverter coordConverter =
                 this.getGraphCoordinateConverter();
-            double pixelX =
-                coordConverter.convertGraphXCoordinateToJava2DXCoordinate(graphX) -
-                halfPointPixelWidth;
-            double pixelY =
-                coordConverter.convertGraphYCoordinateToJava2DYCoordinate(graphY) -
-                halfPointPixelWidth;
+            double pixelCenterX =
+                coordConverter.convertGraphXCoordinateToJava2DXCoordinate(graphX);
+            double pixelCenterY =
+                coordConverter.convertGraphYCoordinateToJava2DYCoordinate(graphY);
             
-            // render!
-            graphics2D.fill(new Ellipse2D.Double(
-                    pixelX,
-                    pixelY,
-                    pointPixelWidth,
-                    pointPixelWidth));
+            PointStamp pointStamp = this.getPointStamp(
+                    graphics2D.getColor(),
+                    PointStamp.isAntialiased(graphics2D));
+            if(occupancyMask == null ||
+               occupancyMask.occupy(pointStamp, pixelCenterX, pixelCenterY))
+            {
+                pointStamp.draw(graphics2D, pixelCenterX, pixelCenterY);
+                return true;
+            }
         }
+        
+        return false;
+    }
+    
+    /**
+     * Render a single point straight into a raster. This is the fastest
+     * way to draw a lot of points since it doesn't go through
+     * {@link Graphics2D} at all
+     * @param pointRaster
+     *          the raster to draw into
+     * @param pointStamp
+     *          the glyph to draw (see
+     *          {@link #getPointStamp(Color, boolean)})
+     * @param graphX
+     *          the graph x location of the point
+     * @param graphY
+     *          the graph y location of the point
+     * @param occupancyMask
+     *          the pixels that have already been drawn on in this pass or
+     *          null to draw the point regardless
+     * @return
+     *          true if the point was drawn
+     */
+    protected boolean renderPoint(
+            PointRaster pointRaster,
+            PointStamp pointStamp,
+            double graphX,
+            double graphY,
+            PointOccupancyMask occupancyMask)
+    {
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        if(coordConverter.isGraphPointInBounds(graphX, graphY))
+        {
+            double pixelCenterX =
+                coordConverter.convertGraphXCoordinateToJava2DXCoordinate(graphX);
+            double pixelCenterY =
+                coordConverter.convertGraphYCoordinateToJava2DYCoordinate(graphY);
+            
+            if(occupancyMask == null ||
+               occupancyMask.occupy(pointStamp, pixelCenterX, pixelCenterY))
+            {
+                pointRaster.stamp(pointStamp, pixelCenterX, pixelCenterY);
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Get the stamp for drawing points with our current shape and width
+     * @param color
+     *          the point color
+     * @param antialiased
+     *          whether the point edges should be antialiased
+     * @return
+     *          the stamp
+     */
+    protected PointStamp getPointStamp(
+            Color color,
+            boolean antialiased)
+    {
+        PointShape pointShape = this.pointShape;
+        int pointWidth = this.pointWidth;
+        PointStamp pointStamp = this.lastPointStamp;
+        if(pointStamp == null ||
+           !pointStamp.matches(pointShape, pointWidth, color, antialiased))
+        {
+            pointStamp = PointStamp.getInstance(
+                    pointShape,
+                    pointWidth,
+                    color,
+                    antialiased);
+            this.lastPointStamp = pointStamp;
+        }
+        return pointStamp;
     }
 
     /**
@@ -340,7 +468,7 @@ public abstract class AbstractGraph2D implements Graph2D
      * @return
      *          the point width
      */
-    public synchronized int getPointWidth()
+    public int getPointWidth()
     {
         return this.pointWidth;
     }
@@ -351,8 +479,29 @@ public abstract class AbstractGraph2D implements Graph2D
      * @param pointWidth
      *          the pointWidth to set
      */
-    public synchronized void setPointWidth(int pointWidth)
+    public void setPointWidth(int pointWidth)
     {
         this.pointWidth = pointWidth;
     }
+
+    /**
+     * Getter for the glyph that points are drawn with
+     * @return
+     *          the point shape
+     */
+    public PointShape getPointShape()
+    {
+        return this.pointShape;
+    }
+
+    /**
+     * Setter for the point shape
+     * @see #getPointShape()
+     * @param pointShape
+     *          the point shape to set
+     */
+    public void setPointShape(PointShape pointShape)
+    {
+        this.pointShape = pointShape;
+    }
 }
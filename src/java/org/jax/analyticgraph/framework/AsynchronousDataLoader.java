@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.framework;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Loads new data into a graph off of the calling thread. A load has two
+ * steps: the expensive preparation step builds a new model without
+ * touching the graph, then the install step swaps the model into the
+ * graph on the event dispatch thread while holding the graph's lock.
+ * Installing on the EDT means that the graph's coordinate system and axes
+ * only ever change on the thread that draws them. Until then the graph
+ * keeps drawing its old data. Starting a new load (or calling
+ * {@link #supersede()}) cancels any load that's still in progress, so
+ * only the newest data ever gets installed.
+ * <p>
+ * A load's future only completes once the EDT has installed the model,
+ * so the EDT must never block on it. Doing that would deadlock.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class AsynchronousDataLoader
+{
+    /**
+     * The two steps of a data load
+     * @param <M>
+     *          the type of model that the load prepares
+     */
+    public interface DataLoad<M>
+    {
+        /**
+         * Build the new model. This runs on a background thread and must
+         * not change the graph
+         * @param monitor
+         *          for reporting progress and checking for cancellation
+         * @return
+         *          the model
+         * @throws Exception
+         *          if the data can't be loaded
+         */
+        public M prepare(DataLoadMonitor monitor) throws Exception;
+        
+        /**
+         * Swap the model into the graph. This is called on the event
+         * dispatch thread while holding the graph's lock
+         * @param model
+         *          the model from {@link #prepare(DataLoadMonitor)}
+         */
+        public void install(M model);
+    }
+    
+    /**
+     * the threads that prepare data for all graphs
+     */
+    private static final ExecutorService LOAD_EXECUTOR =
+        Executors.newCachedThreadPool(new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "graph-data-loader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    
+    /**
+     * the lock that installs happen under
+     */
+    private final Object installLock;
+    
+    /**
+     * bumped every time a load is started or superseded
+     */
+    private final AtomicLong generation = new AtomicLong();
+    
+    /**
+     * the newest load or null
+     */
+    private Future<?> currentLoad = null;
+    
+    /**
+     * Constructor
+     * @param installLock
+     *          the lock that models are installed under. this should be
+     *          the graph itself
+     */
+    public AsynchronousDataLoader(Object installLock)
+    {
+        this.installLock = installLock;
+    }
+    
+    /**
+     * Getter for the current generation
+     * @return
+     *          the generation
+     */
+    long getGeneration()
+    {
+        return this.generation.get();
+    }
+    
+    /**
+     * Start loading data in the background. Any load that's still in
+     * progress is cancelled
+     * @param <M>
+     *          the model type
+     * @param load
+     *          the load
+     * @param progressListener
+     *          the listener to tell about progress or null
+     * @return
+     *          the future for the load. it completes once the new model is
+     *          installed, and getting it throws an exception if the
+     *          preparation failed or a cancellation exception if the load
+     *          was cancelled. the install happens on the EDT so blocking
+     *          on this from the EDT deadlocks
+     */
+    public synchronized <M> Future<Void> load(
+            final DataLoad<M> load,
+            DataLoadProgressListener progressListener)
+    {
+        final DataLoadMonitor monitor = new DataLoadMonitor(
+                this,
+                this.generation.incrementAndGet(),
+                progressListener);
+        final LoadFuture future = new LoadFuture();
+        Runnable preparation = new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    monitor.setProgress(0.0);
+                    final M model = load.prepare(monitor);
+                    monitor.checkCancelled();
+                    
+                    // we don't wait for the install. a caller on the EDT
+                    // may be blocked on the future, and waiting for the
+                    // EDT from here would deadlock with it
+                    SwingUtilities.invokeLater(new Runnable()
+                    {
+                        public void run()
+                        {
+                            try
+                            {
+                                synchronized(AsynchronousDataLoader.this.installLock)
+                                {
+                                    // checking under the lock means that a
+                                    // load can't be superseded between the
+                                    // check and the install
+                                    monitor.checkCancelled();
+                                    load.install(model);
+                                }
+                                monitor.setProgress(1.0);
+                                future.complete();
+                            }
+                            catch(Throwable ex)
+                            {
+                                future.fail(ex);
+                            }
+                        }
+                    });
+                }
+                catch(Throwable ex)
+                {
+                    future.fail(ex);
+                }
+            }
+        };
+        monitor.setFuture(future);
+        
+        if(this.currentLoad != null)
+        {
+            this.currentLoad.cancel(false);
+        }
+        this.currentLoad = future;
+        LOAD_EXECUTOR.execute(preparation);
+        
+        return future;
+    }
+    
+    /**
+     * Cancel any load that's in progress. Graphs call this when they're
+     * given data synchronously so that an older asynchronous load can't
+     * replace it
+     */
+    public synchronized void supersede()
+    {
+        this.generation.incrementAndGet();
+        if(this.currentLoad != null)
+        {
+            this.currentLoad.cancel(false);
+            this.currentLoad = null;
+        }
+    }
+    
+    /**
+     * The future for a load. The load completes it from whichever thread
+     * finishes it rather than by running it
+     */
+    private static final class LoadFuture extends FutureTask<Void>
+    {
+        /**
+         * Constructor
+         */
+        public LoadFuture()
+        {
+            super(new Runnable()
+            {
+                public void run()
+                {
+                    // never run
+                }
+            },
+            null);
+        }
+        
+        /**
+         * Complete the load successfully. This does nothing if the load
+         * was already cancelled
+         */
+        public void complete()
+        {
+            this.set(null);
+        }
+        
+        /**
+         * Complete the load with a failure. This does nothing if the load
+         * was already cancelled
+         * @param cause
+         *          what went wrong
+         */
+        public void fail(Throwable cause)
+        {
+            this.setException(cause);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.framework;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Handed to the preparation step of an asynchronous data load so that it
+ * can report how far along it is and find out if it's been cancelled.
+ * A load is cancelled when its future is cancelled or when newer data
+ * comes along for the same graph.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public final class DataLoadMonitor
+{
+    /**
+     * a monitor that never gets cancelled and doesn't report progress to
+     * anyone. for doing the preparation step synchronously
+     */
+    public static final DataLoadMonitor NONE =
+        new DataLoadMonitor(null, 0L, null);
+    
+    /**
+     * the loader that started the load or null
+     */
+    private final AsynchronousDataLoader loader;
+    
+    /**
+     * the loader generation that the load belongs to
+     */
+    private final long generation;
+    
+    /**
+     * the listener or null
+     */
+    private final DataLoadProgressListener listener;
+    
+    /**
+     * the load's future (set once it's been created)
+     */
+    private volatile Future<?> future;
+    
+    /**
+     * the last progress that we passed on in percent
+     */
+    private volatile int reportedPercent = -1;
+    
+    /**
+     * Constructor
+     * @param loader
+     *          the loader that started the load or null
+     * @param generation
+     *          the loader generation that the load belongs to
+     * @param listener
+     *          the listener or null
+     */
+    DataLoadMonitor(
+            AsynchronousDataLoader loader,
+            long generation,
+            DataLoadProgressListener listener)
+    {
+        this.loader = loader;
+        this.generation = generation;
+        this.listener = listener;
+    }
+    
+    /**
+     * Setter for the future that belongs to the load
+     * @param future
+     *          the future
+     */
+    void setFuture(Future<?> future)
+    {
+        this.future = future;
+    }
+    
+    /**
+     * Determine if the load has been cancelled
+     * @return
+     *          true if it has
+     */
+    public boolean isCancelled()
+    {
+        Future<?> future = this.future;
+        return
+                (this.loader != null &&
+                 this.loader.getGeneration() != this.generation) ||
+                (future != null && future.isCancelled());
+    }
+    
+    /**
+     * Bail out if the load has been cancelled. Loads should call this
+     * every so often so that superseded loads don't hold things up
+     * @throws CancellationException
+     *          if the load has been cancelled
+     */
+    public void checkCancelled() throws CancellationException
+    {
+        if(this.isCancelled())
+        {
+            throw new CancellationException("the data load was cancelled");
+        }
+    }
+    
+    /**
+     * Report progress to the listener. The listener only hears about
+     * whole percent changes so this is cheap to call often
+     * @param fractionDone
+     *          how much of the load is done, between 0 and 1
+     */
+    public void setProgress(final double fractionDone)
+    {
+        int percent = (int)(100.0 * fractionDone);
+        if(this.listener != null && percent != this.reportedPercent)
+        {
+            this.reportedPercent = percent;
+            SwingUtilities.invokeLater(new Runnable()
+            {
+                public void run()
+                {
+                    DataLoadMonitor.this.listener.progressChanged(fractionDone);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.framework;
+
+/**
+ * Tracks which pixels have already had a point drawn centered on them.
+ * Pixels are those of the snapped {@link PointStamp} position, so two
+ * points share a pixel exactly when they would draw the same image.
+ * At high point densities most points land on a pixel that has already
+ * been painted, and since drawing the same marker at the same spot again
+ * doesn't change anything we can skip those draws. A mask should only be
+ * used for a single pass where every point is drawn in the same color.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class PointOccupancyMask
+{
+    /**
+     * the Java2D x position of the left edge of the mask
+     */
+    private final int xOffset;
+    
+    /**
+     * the Java2D y position of the top edge of the mask
+     */
+    private final int yOffset;
+    
+    /**
+     * the mask width in pixels
+     */
+    private final int width;
+    
+    /**
+     * the mask height in pixels
+     */
+    private final int height;
+    
+    /**
+     * one bit per pixel in row major order
+     */
+    private final long[] occupiedPixels;
+    
+    /**
+     * @see #getSkippedCount()
+     */
+    private int skippedCount = 0;
+    
+    /**
+     * Constructor for a mask that covers the area that the given converter
+     * maps the graph onto
+     * @param coordConverter
+     *          the converter
+     */
+    public PointOccupancyMask(GraphCoordinateConverter coordConverter)
+    {
+        this.xOffset = (int)Math.floor(coordConverter.getAbsoluteXOffsetInPixels());
+        this.yOffset = (int)Math.floor(coordConverter.getAbsoluteYOffsetInPixels());
+        this.width = Math.max(0, (int)Math.ceil(coordConverter.getAbsoluteWidthInPixels()) + 1);
+        this.height = Math.max(0, (int)Math.ceil(coordConverter.getAbsoluteHeightInPixels()) + 1);
+        this.occupiedPixels = new long[((this.width * this.height) + 63) >>> 6];
+    }
+    
+    /**
+     * Constructor for a mask that covers the given Java2D area
+     * @param xOffset
+     *          the Java2D x position of the left edge
+     * @param yOffset
+     *          the Java2D y position of the top edge
+     * @param width
+     *          the width in pixels
+     * @param height
+     *          the height in pixels
+     */
+    public PointOccupancyMask(int xOffset, int yOffset, int width, int height)
+    {
+        this.xOffset = xOffset;
+        this.yOffset = yOffset;
+        this.width = Math.max(0, width);
+        this.height = Math.max(0, height);
+        this.occupiedPixels = new long[((this.width * this.height) + 63) >>> 6];
+    }
+    
+    /**
+     * Mark the pixel that the given stamp snaps the point onto as occupied
+     * @param pointStamp
+     *          the stamp that the point will be drawn with
+     * @param java2DX
+     *          the Java2D x coordinate of the point center
+     * @param java2DY
+     *          the Java2D y coordinate of the point center
+     * @return
+     *          true if the point should be drawn. false means that the
+     *          pixel was already occupied and the draw was skipped
+     */
+    public boolean occupy(
+            PointStamp pointStamp,
+            double java2DX,
+            double java2DY)
+    {
+        int column = pointStamp.getSnappedCenter(java2DX) - this.xOffset;
+        int row = pointStamp.getSnappedCenter(java2DY) - this.yOffset;
+        if(column < 0 || column >= this.width || row < 0 || row >= this.height)
+        {
+            // we don't track anything outside of the mask
+            return true;
+        }
+        
+        int pixel = row * this.width + column;
+        long pixelBit = 1L << pixel;
+        int wordIndex = pixel >>> 6;
+        if((this.occupiedPixels[wordIndex] & pixelBit) != 0L)
+        {
+            this.skippedCount++;
+            return false;
+        }
+        else
+        {
+            this.occupiedPixels[wordIndex] |= pixelBit;
+            return true;
+        }
+    }
+    
+    /**
+     * Getter for the number of draws that {@link #occupy(PointStamp, double, double)}
+     * told the caller to skip
+     * @return
+     *          the skipped draw count
+     */
+    public int getSkippedCount()
+    {
+        return this.skippedCount;
+    }
+}
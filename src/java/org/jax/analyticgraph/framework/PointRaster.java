@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.framework;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * An offscreen image that {@link PointStamp}s can be written into
+ * directly, bypassing {@link java.awt.Graphics2D} entirely. The raster
+ * sits at a fixed Java2D offset so points can be placed using normal
+ * Java2D coordinates.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class PointRaster
+{
+    /**
+     * @see #getXOffset()
+     */
+    private final int xOffset;
+    
+    /**
+     * @see #getYOffset()
+     */
+    private final int yOffset;
+    
+    /**
+     * @see #getImage()
+     */
+    private final BufferedImage image;
+    
+    /**
+     * @see #getPixels()
+     */
+    private final int[] pixels;
+    
+    /**
+     * Constructor
+     * @param xOffset
+     *          the Java2D x position of the raster's left edge
+     * @param yOffset
+     *          the Java2D y position of the raster's top edge
+     * @param width
+     *          the raster width in pixels (must be positive)
+     * @param height
+     *          the raster height in pixels (must be positive)
+     */
+    public PointRaster(int xOffset, int yOffset, int width, int height)
+    {
+        this.xOffset = xOffset;
+        this.yOffset = yOffset;
+        this.image = new BufferedImage(
+                width,
+                height,
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        this.pixels =
+            ((DataBufferInt)this.image.getRaster().getDataBuffer()).getData();
+    }
+    
+    /**
+     * Getter for the Java2D x position of the raster's left edge
+     * @return
+     *          the x offset
+     */
+    public int getXOffset()
+    {
+        return this.xOffset;
+    }
+    
+    /**
+     * Getter for the Java2D y position of the raster's top edge
+     * @return
+     *          the y offset
+     */
+    public int getYOffset()
+    {
+        return this.yOffset;
+    }
+    
+    /**
+     * Getter for the raster width
+     * @return
+     *          the width in pixels
+     */
+    public int getWidth()
+    {
+        return this.image.getWidth();
+    }
+    
+    /**
+     * Getter for the raster height
+     * @return
+     *          the height in pixels
+     */
+    public int getHeight()
+    {
+        return this.image.getHeight();
+    }
+    
+    /**
+     * Getter for the image backing this raster
+     * @return
+     *          the image
+     */
+    public BufferedImage getImage()
+    {
+        return this.image;
+    }
+    
+    /**
+     * Getter for the premultiplied ARGB pixels backing {@link #getImage()}
+     * in row major order
+     * @return
+     *          the pixels
+     */
+    int[] getPixels()
+    {
+        return this.pixels;
+    }
+    
+    /**
+     * Make a copy of this raster. This is useful for handing a snapshot
+     * of a raster that's still being drawn to off to another thread
+     * @return
+     *          the copy
+     */
+    public PointRaster copy()
+    {
+        PointRaster copy = new PointRaster(
+                this.xOffset,
+                this.yOffset,
+                this.getWidth(),
+                this.getHeight());
+        System.arraycopy(this.pixels, 0, copy.pixels, 0, this.pixels.length);
+        return copy;
+    }
+    
+    /**
+     * Stamp a glyph centered on the given Java2D point
+     * @param stamp
+     *          the glyph
+     * @param java2DCenterX
+     *          the Java2D x coordinate
+     * @param java2DCenterY
+     *          the Java2D y coordinate
+     */
+    public void stamp(PointStamp stamp, double java2DCenterX, double java2DCenterY)
+    {
+        stamp.stamp(
+                this,
+                java2DCenterX - this.xOffset,
+                java2DCenterY - this.yOffset);
+    }
+    
+    /**
+     * Stamp the part of a glyph centered on the given Java2D point that
+     * falls inside of the clip
+     * @param stamp
+     *          the glyph
+     * @param java2DCenterX
+     *          the Java2D x coordinate
+     * @param java2DCenterY
+     *          the Java2D y coordinate
+     * @param java2DClip
+     *          the Java2D area that can be drawn to
+     */
+    public void stamp(
+            PointStamp stamp,
+            double java2DCenterX,
+            double java2DCenterY,
+            Rectangle java2DClip)
+    {
+        int clipLeft = java2DClip.x - this.xOffset;
+        int clipTop = java2DClip.y - this.yOffset;
+        stamp.stamp(
+                this,
+                java2DCenterX - this.xOffset,
+                java2DCenterY - this.yOffset,
+                clipLeft,
+                clipTop,
+                clipLeft + java2DClip.width,
+                clipTop + java2DClip.height);
+    }
+    
+    /**
+     * Make the given area fully transparent
+     * @param java2DArea
+     *          the Java2D area to clear
+     */
+    public void clear(Rectangle java2DArea)
+    {
+        int width = this.getWidth();
+        int fromColumn = Math.max(0, java2DArea.x - this.xOffset);
+        int toColumn = Math.min(
+                width,
+                java2DArea.x + java2DArea.width - this.xOffset);
+        int fromRow = Math.max(0, java2DArea.y - this.yOffset);
+        int toRow = Math.min(
+                this.getHeight(),
+                java2DArea.y + java2DArea.height - this.yOffset);
+        if(fromColumn < toColumn)
+        {
+            for(int row = fromRow; row < toRow; row++)
+            {
+                Arrays.fill(
+                        this.pixels,
+                        row * width + fromColumn,
+                        row * width + toColumn,
+                        0);
+            }
+        }
+    }
+}
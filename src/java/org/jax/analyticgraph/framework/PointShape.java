@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.framework;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * The glyphs that points can be drawn with
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public enum PointShape
+{
+    /**
+     * a filled circle
+     */
+    CIRCLE,
+    
+    /**
+     * a filled square
+     */
+    SQUARE,
+    
+    /**
+     * a plus sign
+     */
+    CROSS,
+    
+    /**
+     * a filled triangle pointing up
+     */
+    TRIANGLE;
+    
+    /**
+     * Create this shape inside the given square
+     * @param x
+     *          the left edge of the square
+     * @param y
+     *          the top edge of the square
+     * @param width
+     *          the width (and height) of the square
+     * @return
+     *          the shape
+     */
+    public Shape createShape(double x, double y, double width)
+    {
+        switch(this)
+        {
+            case CIRCLE:
+            {
+                return new Ellipse2D.Double(x, y, width, width);
+            }
+            
+            case SQUARE:
+            {
+                return new Rectangle2D.Double(x, y, width, width);
+            }
+            
+            case CROSS:
+            {
+                double thickness = Math.max(1.0, width / 3.0);
+                double armOffset = (width - thickness) / 2.0;
+                Area cross = new Area(new Rectangle2D.Double(
+                        x,
+                        y + armOffset,
+                        width,
+                        thickness));
+                cross.add(new Area(new Rectangle2D.Double(
+                        x + armOffset,
+                        y,
+                        thickness,
+                        width)));
+                return cross;
+            }
+            
+            case TRIANGLE:
+            {
+                GeneralPath triangle = new GeneralPath();
+                triangle.moveTo((float)(x + width / 2.0), (float)y);
+                triangle.lineTo((float)(x + width), (float)(y + width));
+                triangle.lineTo((float)x, (float)(y + width));
+                triangle.closePath();
+                return triangle;
+            }
+            
+            default:
+            {
+                throw new IllegalStateException(
+                        "unknown point shape: " + this);
+            }
+        }
+    }
+}
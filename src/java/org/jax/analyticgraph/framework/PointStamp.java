@@ -0,0 +1,540 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.framework;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A point glyph that has been rasterized once so that it can be blitted
+ * for every point instead of running each point through the Java2D shape
+ * pipeline. Stamps are immutable and shared through
+ * {@link #getInstance(PointShape, int, Color, boolean)}.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class PointStamp
+{
+    /**
+     * the most stamps we hold on to
+     */
+    private static final int MAX_CACHED_STAMPS = 256;
+    
+    /**
+     * for scaling 8 bit channels down to 0-1
+     */
+    private static final float ONE_OVER_255 = 1.0F / 255.0F;
+    
+    /**
+     * the shared stamps (least recently used first)
+     */
+    private static final Map<StampKey, PointStamp> STAMP_CACHE =
+        new LinkedHashMap<StampKey, PointStamp>(16, 0.75F, true)
+        {
+            /**
+             * every {@link java.io.Serializable} should have one of these
+             */
+            private static final long serialVersionUID = 5318427164409873561L;
+            
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<StampKey, PointStamp> eldest)
+            {
+                return this.size() > MAX_CACHED_STAMPS;
+            }
+        };
+    
+    /**
+     * the attributes this stamp was rasterized from
+     */
+    private final StampKey key;
+    
+    /**
+     * the glyph with a one pixel border so that antialiasing isn't
+     * clipped
+     */
+    private final BufferedImage image;
+    
+    /**
+     * the premultiplied ARGB pixels of {@link #image}
+     */
+    private final int[] pixels;
+    
+    /**
+     * the alpha and premultiplied red, green and blue of every pixel
+     * scaled to 0-1 for {@link #accumulate(float[], int, int, int, double, double)}
+     */
+    private final float[] channels;
+    
+    /**
+     * the image width and height
+     */
+    private final int size;
+    
+    /**
+     * the distance from the glyph center to the image's left and top edge
+     */
+    private final double centerOffset;
+    
+    /**
+     * Constructor
+     * @param shape
+     *          the glyph shape
+     * @param width
+     *          the glyph width in pixels
+     * @param color
+     *          the glyph color
+     * @param antialiased
+     *          whether the glyph edges are antialiased
+     */
+    private PointStamp(
+            PointShape shape,
+            int width,
+            Color color,
+            boolean antialiased)
+    {
+        this.key = new StampKey(shape, width, color, antialiased);
+        this.size = width + 2;
+        this.centerOffset = this.size / 2.0;
+        this.image = new BufferedImage(
+                this.size,
+                this.size,
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        
+        Graphics2D graphics2D = this.image.createGraphics();
+        try
+        {
+            graphics2D.setRenderingHint(
+                    RenderingHints.KEY_ANTIALIASING,
+                    antialiased ?
+                    RenderingHints.VALUE_ANTIALIAS_ON :
+                    RenderingHints.VALUE_ANTIALIAS_OFF);
+            graphics2D.setColor(color);
+            graphics2D.fill(shape.createShape(1.0, 1.0, width));
+        }
+        finally
+        {
+            graphics2D.dispose();
+        }
+        
+        this.pixels =
+            ((DataBufferInt)this.image.getRaster().getDataBuffer()).getData();
+        this.channels = new float[this.pixels.length * 4];
+        for(int i = 0; i < this.pixels.length; i++)
+        {
+            int pixel = this.pixels[i];
+            this.channels[i * 4] = (pixel >>> 24) * ONE_OVER_255;
+            this.channels[i * 4 + 1] = ((pixel >> 16) & 0xFF) * ONE_OVER_255;
+            this.channels[i * 4 + 2] = ((pixel >> 8) & 0xFF) * ONE_OVER_255;
+            this.channels[i * 4 + 3] = (pixel & 0xFF) * ONE_OVER_255;
+        }
+    }
+    
+    /**
+     * Get the stamp for the given glyph
+     * @param shape
+     *          the glyph shape
+     * @param width
+     *          the glyph width in pixels
+     * @param color
+     *          the glyph color
+     * @param antialiased
+     *          whether the glyph edges are antialiased
+     * @return
+     *          the stamp
+     */
+    public static PointStamp getInstance(
+            PointShape shape,
+            int width,
+            Color color,
+            boolean antialiased)
+    {
+        StampKey key = new StampKey(shape, width, color, antialiased);
+        synchronized(STAMP_CACHE)
+        {
+            PointStamp stamp = STAMP_CACHE.get(key);
+            if(stamp == null)
+            {
+                stamp = new PointStamp(shape, width, color, antialiased);
+                STAMP_CACHE.put(key, stamp);
+            }
+            return stamp;
+        }
+    }
+    
+    /**
+     * Determine whether this stamp was rasterized from the given attributes
+     * @param shape
+     *          the glyph shape
+     * @param width
+     *          the glyph width in pixels
+     * @param color
+     *          the glyph color
+     * @param antialiased
+     *          whether the glyph edges are antialiased
+     * @return
+     *          true if it was
+     */
+    public boolean matches(
+            PointShape shape,
+            int width,
+            Color color,
+            boolean antialiased)
+    {
+        StampKey key = this.key;
+        return
+                key.shape == shape &&
+                key.width == width &&
+                key.antialiased == antialiased &&
+                key.color.equals(color);
+    }
+    
+    /**
+     * Getter for the width and height of the stamp image. This is a bit
+     * bigger than the glyph so that antialiased edges fit
+     * @return
+     *          the size in pixels
+     */
+    public int getSize()
+    {
+        return this.size;
+    }
+    
+    /**
+     * Get the image position that a glyph centered on the given coordinate
+     * gets snapped to. The same goes for x and y since the stamp is square
+     * @param center
+     *          the x or y coordinate of the glyph center
+     * @return
+     *          the left or top edge of the stamp image in whole pixels
+     */
+    public int getSnappedOrigin(double center)
+    {
+        return (int)Math.round(center - this.centerOffset);
+    }
+    
+    /**
+     * Get the pixel that the glyph center lands on once the stamp is
+     * snapped to the pixel grid. Two points that snap to the same pixel
+     * draw exactly the same image
+     * @param center
+     *          the x or y coordinate of the glyph center
+     * @return
+     *          the snapped center pixel
+     */
+    public int getSnappedCenter(double center)
+    {
+        return this.getSnappedOrigin(center) + (this.size >> 1);
+    }
+    
+    /**
+     * Determine whether the given graphics context antialiases shapes
+     * @param graphics2D
+     *          the graphics context
+     * @return
+     *          true if it does
+     */
+    public static boolean isAntialiased(Graphics2D graphics2D)
+    {
+        return RenderingHints.VALUE_ANTIALIAS_ON.equals(
+                graphics2D.getRenderingHint(RenderingHints.KEY_ANTIALIASING));
+    }
+    
+    /**
+     * Draw this stamp centered (to the nearest pixel) on the given point
+     * @param graphics2D
+     *          the graphics context to draw to
+     * @param java2DCenterX
+     *          the Java2D x coordinate of the glyph center
+     * @param java2DCenterY
+     *          the Java2D y coordinate of the glyph center
+     */
+    public void draw(
+            Graphics2D graphics2D,
+            double java2DCenterX,
+            double java2DCenterY)
+    {
+        graphics2D.drawImage(
+                this.image,
+                this.getSnappedOrigin(java2DCenterX),
+                this.getSnappedOrigin(java2DCenterY),
+                null);
+    }
+    
+    /**
+     * Composite this stamp straight into a premultiplied ARGB raster
+     * @param raster
+     *          the raster to draw into
+     * @param rasterCenterX
+     *          the glyph center x position relative to the raster
+     * @param rasterCenterY
+     *          the glyph center y position relative to the raster
+     */
+    public void stamp(
+            PointRaster raster,
+            double rasterCenterX,
+            double rasterCenterY)
+    {
+        this.stamp(
+                raster,
+                rasterCenterX,
+                rasterCenterY,
+                0,
+                0,
+                raster.getWidth(),
+                raster.getHeight());
+    }
+    
+    /**
+     * Composite the part of this stamp that falls inside the given clip
+     * straight into a premultiplied ARGB raster. This lets an area of the
+     * raster be cleared and redrawn without touching the pixels around it
+     * @param raster
+     *          the raster to draw into
+     * @param rasterCenterX
+     *          the glyph center x position relative to the raster
+     * @param rasterCenterY
+     *          the glyph center y position relative to the raster
+     * @param clipLeft
+     *          the first raster column we can draw to
+     * @param clipTop
+     *          the first raster row we can draw to
+     * @param clipRight
+     *          the column after the last one we can draw to
+     * @param clipBottom
+     *          the row after the last one we can draw to
+     */
+    public void stamp(
+            PointRaster raster,
+            double rasterCenterX,
+            double rasterCenterY,
+            int clipLeft,
+            int clipTop,
+            int clipRight,
+            int clipBottom)
+    {
+        int[] rasterPixels = raster.getPixels();
+        int rasterWidth = raster.getWidth();
+        int left = this.getSnappedOrigin(rasterCenterX);
+        int top = this.getSnappedOrigin(rasterCenterY);
+        
+        // clip the stamp to the raster and the clip
+        int fromColumn = Math.max(0, Math.max(clipLeft, 0) - left);
+        int toColumn = Math.min(
+                this.size,
+                Math.min(clipRight, rasterWidth) - left);
+        int fromRow = Math.max(0, Math.max(clipTop, 0) - top);
+        int toRow = Math.min(
+                this.size,
+                Math.min(clipBottom, raster.getHeight()) - top);
+        
+        int size = this.size;
+        int[] stampPixels = this.pixels;
+        for(int row = fromRow; row < toRow; row++)
+        {
+            int stampIndex = row * size + fromColumn;
+            int rasterIndex = (top + row) * rasterWidth + left + fromColumn;
+            for(int column = fromColumn; column < toColumn; column++)
+            {
+                int source = stampPixels[stampIndex++];
+                int sourceAlpha = source >>> 24;
+                if(sourceAlpha == 0xFF)
+                {
+                    rasterPixels[rasterIndex] = source;
+                }
+                else if(sourceAlpha != 0)
+                {
+                    rasterPixels[rasterIndex] = PointStamp.sourceOver(
+                            source,
+                            rasterPixels[rasterIndex],
+                            sourceAlpha);
+                }
+                rasterIndex++;
+            }
+        }
+    }
+    
+    /**
+     * Add this stamp's coverage (and optionally its premultiplied color)
+     * into an accumulation buffer rather than compositing it. With four
+     * channels each pixel of the buffer is the summed alpha followed by
+     * the summed premultiplied red, green and blue (all scaled to 0-1).
+     * With one channel only the alpha is summed. Unlike compositing, the
+     * sums don't depend on the order that points are added in
+     * @param accumulation
+     *          the buffer to add into (channelCount * width * height floats)
+     * @param channelCount
+     *          1 to only accumulate coverage or 4 to accumulate color too
+     * @param width
+     *          the buffer width in pixels
+     * @param height
+     *          the buffer height in pixels
+     * @param centerX
+     *          the glyph center x position relative to the buffer
+     * @param centerY
+     *          the glyph center y position relative to the buffer
+     */
+    public void accumulate(
+            float[] accumulation,
+            int channelCount,
+            int width,
+            int height,
+            double centerX,
+            double centerY)
+    {
+        int left = this.getSnappedOrigin(centerX);
+        int top = this.getSnappedOrigin(centerY);
+        int fromColumn = Math.max(0, -left);
+        int toColumn = Math.min(this.size, width - left);
+        int fromRow = Math.max(0, -top);
+        int toRow = Math.min(this.size, height - top);
+        if(fromColumn >= toColumn)
+        {
+            return;
+        }
+        
+        int size = this.size;
+        float[] channels = this.channels;
+        int rowLength = (toColumn - fromColumn) * channelCount;
+        for(int row = fromRow; row < toRow; row++)
+        {
+            int channelIndex = (row * size + fromColumn) * 4;
+            int bufferIndex = ((top + row) * width + left + fromColumn) * channelCount;
+            int bufferStop = bufferIndex + rowLength;
+            if(channelCount == 4)
+            {
+                while(bufferIndex < bufferStop)
+                {
+                    accumulation[bufferIndex++] += channels[channelIndex++];
+                }
+            }
+            else
+            {
+                while(bufferIndex < bufferStop)
+                {
+                    accumulation[bufferIndex++] += channels[channelIndex];
+                    channelIndex += 4;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Composite a premultiplied source pixel over a premultiplied
+     * destination pixel
+     * @param source
+     *          the source pixel
+     * @param destination
+     *          the destination pixel
+     * @param sourceAlpha
+     *          the source alpha
+     * @return
+     *          the composited pixel
+     */
+    private static int sourceOver(int source, int destination, int sourceAlpha)
+    {
+        // scale the destination by (255 - alpha) / 255 two channels at a
+        // time. since both pixels are premultiplied the sum can't overflow
+        int inverseAlpha = 0xFF - sourceAlpha;
+        int redBlue = (destination & 0x00FF00FF) * inverseAlpha + 0x00800080;
+        redBlue = ((redBlue + ((redBlue >>> 8) & 0x00FF00FF)) >>> 8) & 0x00FF00FF;
+        int alphaGreen = ((destination >>> 8) & 0x00FF00FF) * inverseAlpha + 0x00800080;
+        alphaGreen = (alphaGreen + ((alphaGreen >>> 8) & 0x00FF00FF)) & 0xFF00FF00;
+        return source + (alphaGreen | redBlue);
+    }
+    
+    /**
+     * The attributes that a stamp is rasterized from
+     */
+    private static final class StampKey
+    {
+        private final PointShape shape;
+        
+        private final int width;
+        
+        private final Color color;
+        
+        private final boolean antialiased;
+        
+        /**
+         * Constructor
+         * @param shape
+         *          the glyph shape
+         * @param width
+         *          the glyph width
+         * @param color
+         *          the glyph color
+         * @param antialiased
+         *          whether edges are antialiased
+         */
+        public StampKey(
+                PointShape shape,
+                int width,
+                Color color,
+                boolean antialiased)
+        {
+            this.shape = shape;
+            this.width = width;
+            this.color = color;
+            this.antialiased = antialiased;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object otherObject)
+        {
+            if(otherObject instanceof StampKey)
+            {
+                StampKey otherKey = (StampKey)otherObject;
+                return
+                        this.shape == otherKey.shape &&
+                        this.width == otherKey.width &&
+                        this.antialiased == otherKey.antialiased &&
+                        this.color.equals(otherKey.color);
+            }
+            else
+            {
+                return false;
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode()
+        {
+            int hash = this.shape.hashCode();
+            hash = 31 * hash + this.width;
+            hash = 31 * hash + this.color.hashCode();
+            return 31 * hash + (this.antialiased ? 1 : 0);
+        }
+    }
+}
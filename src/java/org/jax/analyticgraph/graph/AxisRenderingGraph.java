@@ -59,7 +59,7 @@ public class AxisRenderingGraph extends AbstractGraph2D
      * This flag is read by the render method to see if we need to update
      * our interior graph's dimensions.
      */
-    private boolean interiorDimensionsUpdateNeededFlag = false;
+    private volatile boolean interiorDimensionsUpdateNeededFlag = false;
     
     private static final int MINIMUM_AXIS_INSET_PIXELS = 5;
     
@@ -94,7 +94,7 @@ public class AxisRenderingGraph extends AbstractGraph2D
     /**
      * @see #getInteriorGraph()
      */
-    private Graph2DWithAxes interiorGraph;
+    private volatile Graph2DWithAxes interiorGraph;
     
     /**
      * the default buffer to use for the axis label
@@ -166,7 +166,7 @@ public class AxisRenderingGraph extends AbstractGraph2D
      * @return
      *          the total height in pixel units
      */
-    private synchronized double getTotalAxisSpacePixels(
+    private double getTotalAxisSpacePixels(
             Graphics2D graphics2D,
             AxisDescription axisDescription,
             List<Tick> ticks)
@@ -232,7 +232,7 @@ public class AxisRenderingGraph extends AbstractGraph2D
      * @return
      *          the total label width in pixels
      */
-    private synchronized double getAxisLabelSpacePixels(
+    private double getAxisLabelSpacePixels(
             Graphics2D graphics2D,
             AxisDescription axisDescription)
     {
@@ -254,15 +254,17 @@ public class AxisRenderingGraph extends AbstractGraph2D
     
     /**
      * Determine if the contained graph has a title
+     * @param interiorGraph
+     *          the interior graph that we're rendering
      * @return
      *          true if the contained graph has a title
      */
-    private synchronized boolean getHaveGraphTitleLabel()
+    private boolean getHaveGraphTitleLabel(Graph2DWithAxes interiorGraph)
     {
         // see if we have a string that's more than just white space
-        if(this.interiorGraph != null)
+        if(interiorGraph != null)
         {
-            String graphTitle = this.interiorGraph.getGraphTitle();
+            String graphTitle = interiorGraph.getGraphTitle();
             
             return graphTitle != null && graphTitle.trim().length() > 0;
         }
@@ -274,16 +276,18 @@ public class AxisRenderingGraph extends AbstractGraph2D
 
     /**
      * Determines if we should render a label for the y axis.
+     * @param interiorGraph
+     *          the interior graph that we're rendering
      * @return
      *          true if we should render a y axis label
      */
-    private synchronized boolean getHaveYAxisLabel()
+    private boolean getHaveYAxisLabel(Graph2DWithAxes interiorGraph)
     {
         // see if we have a string that's more than just white space
-        if(this.interiorGraph != null)
+        if(interiorGraph != null)
         {
             AxisDescription yAxisDescription =
-                this.interiorGraph.getYAxisDescription();
+                interiorGraph.getYAxisDescription();
             
             if(yAxisDescription != null)
             {
@@ -312,7 +316,7 @@ public class AxisRenderingGraph extends AbstractGraph2D
      * @return
      *          the shape of the string given the graphics context
      */
-    private synchronized Shape stringToShape(
+    private Shape stringToShape(
             String labelString,
             Graphics2D graphics2D,
             Font font)
@@ -328,16 +332,18 @@ public class AxisRenderingGraph extends AbstractGraph2D
     
     /**
      * Determine if we have an X axis label to render.
+     * @param interiorGraph
+     *          the interior graph that we're rendering
      * @return
      *          true if there's a label to 
      */
-    private synchronized boolean getHaveXAxisLabel()
+    private boolean getHaveXAxisLabel(Graph2DWithAxes interiorGraph)
     {
         // see if we have a string that's more than just white space
-        if(this.interiorGraph != null)
+        if(interiorGraph != null)
         {
             AxisDescription xAxisDescription =
-                this.interiorGraph.getXAxisDescription();
+                interiorGraph.getXAxisDescription();
             
             if(xAxisDescription != null)
             {
@@ -363,14 +369,17 @@ public class AxisRenderingGraph extends AbstractGraph2D
      */
     public void renderGraph(Graphics2D graphics2D)
     {
+        // rendering doesn't lock the graph, so read the interior graph once
+        // and stick with it even if it's swapped out while we're painting
+        Graph2DWithAxes interiorGraph = this.interiorGraph;
         GraphCoordinateConverter innerGraphCoordinateConverter =
-            this.interiorGraph.getGraphCoordinateConverter();
+            interiorGraph.getGraphCoordinateConverter();
         AxisDescription xAxisDescription =
-            this.interiorGraph.getXAxisDescription();
+            interiorGraph.getXAxisDescription();
         Font xAxisLabelFont = this.getAxisLabelFont(xAxisDescription);
         Font xAxisTickFont = this.getTickLabelFont(xAxisDescription);
         AxisDescription yAxisDescription =
-            this.interiorGraph.getYAxisDescription();
+            interiorGraph.getYAxisDescription();
         Font yAxisLabelFont = this.getAxisLabelFont(yAxisDescription);
         Font yAxisTickFont = this.getTickLabelFont(yAxisDescription);
         
@@ -380,19 +389,21 @@ public class AxisRenderingGraph extends AbstractGraph2D
             List<Tick> yTicks = yAxisDescription.getTicks();
             
             // check to see if we should update our dimensions before rendering
+            // (the flag is cleared first so that a request arriving while
+            // we update isn't lost)
             if(this.interiorDimensionsUpdateNeededFlag)
             {
+                this.interiorDimensionsUpdateNeededFlag = false;
                 this.updateInteriorGraphsDimensions(
                         graphics2D,
                         xTicks,
                         yTicks);
-                this.interiorDimensionsUpdateNeededFlag = false;
             }
             
             // render the inner graph
-            if(this.interiorGraph != null)
+            if(interiorGraph != null)
             {
-                this.interiorGraph.renderGraph(graphics2D);
+                interiorGraph.renderGraph(graphics2D);
             }
             
             // now take care of the axes
@@ -537,7 +548,7 @@ public class AxisRenderingGraph extends AbstractGraph2D
             }
             
             // now render the axis labels
-            if(this.getHaveXAxisLabel())
+            if(this.getHaveXAxisLabel(interiorGraph))
             {
                 Shape xAxisLabelShape = this.stringToShape(
                         xAxisDescription.getAxisName(),
@@ -556,7 +567,7 @@ public class AxisRenderingGraph extends AbstractGraph2D
                 graphics2D.fill(xAxisLabelShape);
             }
             
-            if(this.getHaveYAxisLabel())
+            if(this.getHaveYAxisLabel(interiorGraph))
             {
                 Shape yAxisLabelShape =
                     this.stringToShape(
@@ -576,13 +587,13 @@ public class AxisRenderingGraph extends AbstractGraph2D
                 graphics2D.fill(yAxisLabelShape);
             }
             
-            if(this.getHaveGraphTitleLabel())
+            if(this.getHaveGraphTitleLabel(interiorGraph))
             {
                 Shape graphHeaderShape =
                     this.stringToShape(
-                            this.interiorGraph.getGraphTitle(),
+                            interiorGraph.getGraphTitle(),
                             graphics2D,
-                            this.getGraphTitleLabelFont(this.interiorGraph));
+                            this.getGraphTitleLabelFont(interiorGraph));
                 Rectangle2D labelBounds = graphHeaderShape.getBounds2D();
                 AffineTransform at = new AffineTransform();
                 at.translate(
@@ -601,7 +612,7 @@ public class AxisRenderingGraph extends AbstractGraph2D
      * Getter for the interior graph (graph inside of the axes).
      * @return the interiorGraph
      */
-    public synchronized Graph2DWithAxes getInteriorGraph()
+    public Graph2DWithAxes getInteriorGraph()
     {
         return this.interiorGraph;
     }
@@ -669,7 +680,7 @@ public class AxisRenderingGraph extends AbstractGraph2D
      * Set's {@link #interiorDimensionsUpdateNeededFlag} to true
      * and forces a repaint if we have a container component.
      */
-    private synchronized void updateInteriorGraphsDimensions()
+    private void updateInteriorGraphsDimensions()
     {
         this.interiorDimensionsUpdateNeededFlag = true;
         
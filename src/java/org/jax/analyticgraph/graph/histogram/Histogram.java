@@ -28,12 +28,14 @@ import java.awt.event.MouseListener;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.concurrent.Future;
 
 import javax.swing.JComponent;
 
@@ -41,6 +43,9 @@ import org.jax.analyticgraph.data.NamedData;
 import org.jax.analyticgraph.data.SelectableData;
 import org.jax.analyticgraph.data.SelectableDataListener;
 import org.jax.analyticgraph.framework.AbstractGraph2DWithAxes;
+import org.jax.analyticgraph.framework.AsynchronousDataLoader;
+import org.jax.analyticgraph.framework.DataLoadMonitor;
+import org.jax.analyticgraph.framework.DataLoadProgressListener;
 import org.jax.analyticgraph.framework.GraphCoordinateConverter;
 import org.jax.analyticgraph.graph.AxisDescription;
 import org.jax.analyticgraph.graph.RegularIntegerIntervalAxisDescription;
@@ -90,11 +95,31 @@ public class Histogram extends AbstractGraph2DWithAxes
     private final SortedMap<BigDecimal, Bin> binMap =
         new TreeMap<BigDecimal, Bin>();
     
+    /**
+     * the bins as {@link #renderGraph(Graphics2D)} should draw them. this
+     * is rebuilt whenever the bins or their selection counts change and
+     * swapped in all at once so that rendering never needs to lock the
+     * histogram
+     */
+    private volatile BinRenderModel binRenderModel = BinRenderModel.EMPTY;
+    
     /**
      * the width of each bin in graph units
      */
     private BigDecimal binWidth;
     
+    /**
+     * how many data points we bin between progress reports and
+     * cancellation checks
+     */
+    private static final int BINNING_PROGRESS_INTERVAL = 1 << 16;
+    
+    /**
+     * for binning data in the background
+     */
+    private final AsynchronousDataLoader dataLoader =
+        new AsynchronousDataLoader(this);
+    
     /**
      * the default outline color
      */
@@ -103,7 +128,7 @@ public class Histogram extends AbstractGraph2DWithAxes
     /**
      * @see #getOutlineColor()
      */
-    private Color outlineColor = DEFAULT_OUTLINE_COLOR;
+    private volatile Color outlineColor = DEFAULT_OUTLINE_COLOR;
     
     /**
      * the default fill color
@@ -113,7 +138,7 @@ public class Histogram extends AbstractGraph2DWithAxes
     /**
      * @see #getFillColor()
      */
-    private Color fillColor = DEFAULT_FILL_COLOR;
+    private volatile Color fillColor = DEFAULT_FILL_COLOR;
     
     /**
      * the default selection color
@@ -123,7 +148,7 @@ public class Histogram extends AbstractGraph2DWithAxes
     /**
      * @see #getSelectionColor()
      */
-    private Color selectionColor = DEFAULT_SELECTION_COLOR;
+    private volatile Color selectionColor = DEFAULT_SELECTION_COLOR;
 
     /**
      * our mouse listener
@@ -309,8 +334,9 @@ public class Histogram extends AbstractGraph2DWithAxes
     private synchronized Bin getBinAtGraphXCoordinate(double graphXCoordinate)
     {
         BigDecimal minInclusiveBinPosition =
-            this.graphXCoordinateToMinInclusiveBinPosition(
-                    BigDecimal.valueOf(graphXCoordinate));
+            Histogram.graphXCoordinateToMinInclusiveBinPosition(
+                    BigDecimal.valueOf(graphXCoordinate),
+                    this.binWidth);
         
         return this.binMap.get(minInclusiveBinPosition);
     }
@@ -318,68 +344,70 @@ public class Histogram extends AbstractGraph2DWithAxes
     /**
      * {@inheritDoc}
      */
-    public synchronized void renderGraph(Graphics2D graphics2D)
+    public void renderGraph(Graphics2D graphics2D)
     {
         // grab graphics state
         Color color = graphics2D.getColor();
         
-        // render one bin at a time
-        for(Bin currBin: this.binMap.values())
-        {
-            this.renderBin(graphics2D, currBin);
-        }
+        // everything comes from one snapshot so that we draw a consistent
+        // histogram even if new bins are being installed while we paint
+        BinRenderModel renderModel = this.binRenderModel;
+        Color fillColor = this.getFillColor();
+        Color selectionColor = this.getSelectionColor();
+        Color outlineColor = this.getOutlineColor();
         
-        // restore graphics state
-        graphics2D.setColor(color);
-    }
-
-    /**
-     * render the given bin
-     * @param graphics2D
-     *          the graphics context to render to
-     * @param binToRender
-     *          the bin to render
-     */
-    private synchronized void renderBin(
-            Graphics2D graphics2D,
-            Bin binToRender)
-    {
-        // render the normal bin followed by the selection bin (if needed)
-        this.renderBin(
-                graphics2D,
-                binToRender,
-                binToRender.getContainedIndices().size(),
-                this.getFillColor());
-        if(binToRender.getSelectionCount() > 0)
+        // render one bin at a time. the normal bin is followed by the
+        // selection bin (if needed)
+        for(int i = 0; i < renderModel.binLefts.length; i++)
         {
             this.renderBin(
                     graphics2D,
-                    binToRender,
-                    binToRender.getSelectionCount(),
-                    this.getSelectionColor());
+                    renderModel.binLefts[i],
+                    renderModel.binWidth,
+                    renderModel.binCounts[i],
+                    fillColor,
+                    outlineColor);
+            if(renderModel.selectionCounts[i] > 0)
+            {
+                this.renderBin(
+                        graphics2D,
+                        renderModel.binLefts[i],
+                        renderModel.binWidth,
+                        renderModel.selectionCounts[i],
+                        selectionColor,
+                        outlineColor);
+            }
         }
+        
+        // restore graphics state
+        graphics2D.setColor(color);
     }
 
     /**
      * render the given bin
      * @param graphics2D
      *          the graphics context to render to
-     * @param binToRender
-     *          the bin to render
+     * @param binLeft
+     *          the bin's left edge in graph units
+     * @param binWidth
+     *          the bin's width in graph units
      * @param binHeight
      *          the bin's height
      * @param binColor
      *          the bin's fill color
+     * @param outlineColor
+     *          the bin's outline color
      */
-    private synchronized void renderBin(
+    private void renderBin(
             Graphics2D graphics2D,
-            Bin binToRender,
+            double binLeft,
+            double binWidth,
             double binHeight,
-            Color binColor)
+            Color binColor,
+            Color outlineColor)
     {
         // get graph coordinate space dimensions
-        double binLeft = binToRender.getMinInclusivePosition().doubleValue();
-        double binRight = binLeft + this.binWidth.doubleValue();
+        double binRight = binLeft + binWidth;
         double binBottom = 0.0;
         double binTop = binBottom + binHeight;
         
@@ -429,7 +457,7 @@ public class Histogram extends AbstractGraph2DWithAxes
             // render the bin
             graphics2D.setColor(binColor);
             graphics2D.fill(binRect);
-            graphics2D.setColor(this.getOutlineColor());
+            graphics2D.setColor(outlineColor);
             graphics2D.draw(binRect);
         }
     }
@@ -438,7 +466,7 @@ public class Histogram extends AbstractGraph2DWithAxes
      * getter for the outline color
      * @return the outlineColor
      */
-    public synchronized Color getOutlineColor()
+    public Color getOutlineColor()
     {
         return this.outlineColor;
     }
@@ -447,7 +475,7 @@ public class Histogram extends AbstractGraph2DWithAxes
      * setter for the outline color
      * @param outlineColor the outlineColor to set
      */
-    public synchronized void setOutlineColor(Color outlineColor)
+    public void setOutlineColor(Color outlineColor)
     {
         this.outlineColor = outlineColor;
     }
@@ -455,7 +483,7 @@ public class Histogram extends AbstractGraph2DWithAxes
     /**
      * @return the fillColor
      */
-    public synchronized Color getFillColor()
+    public Color getFillColor()
     {
         return this.fillColor;
     }
@@ -463,7 +491,7 @@ public class Histogram extends AbstractGraph2DWithAxes
     /**
      * @param fillColor the fillColor to set
      */
-    public synchronized void setFillColor(Color fillColor)
+    public void setFillColor(Color fillColor)
     {
         this.fillColor = fillColor;
     }
@@ -502,7 +530,6 @@ public class Histogram extends AbstractGraph2DWithAxes
     {
         this.binWidth = binWidth;
         this.placeDataInBins();
-        this.xAxisDescription.setMajorTickInterval(binWidth.doubleValue());
     }
 
     /**
@@ -597,6 +624,102 @@ public class Histogram extends AbstractGraph2DWithAxes
     public synchronized void setGraphData(
             NamedData<Number> graphData,
             BigDecimal binWidth)
+    {
+        // anything still loading in the background is out of date now
+        this.dataLoader.supersede();
+        this.installData(new BinnedData(
+                graphData,
+                binWidth,
+                Histogram.binData(graphData, binWidth, DataLoadMonitor.NONE)));
+    }
+    
+    /**
+     * Plot the given data like {@link #setGraphData(NamedData)} but work
+     * out the bin width and bin the data on a background thread. The
+     * current histogram stays on screen until the new bins are ready, and
+     * then they're swapped in all at once on the event dispatch thread.
+     * Setting newer data before this finishes cancels it. Don't block on
+     * the returned future from the EDT since it can't complete until the
+     * EDT installs the bins
+     * @param graphData
+     *          the data to plot
+     * @param progressListener
+     *          the listener to tell about progress or null
+     * @return
+     *          the future for the load. getting it throws a
+     *          {@link java.util.concurrent.CancellationException} if the
+     *          load was cancelled
+     */
+    public Future<Void> setGraphDataAsynchronously(
+            NamedData<Number> graphData,
+            DataLoadProgressListener progressListener)
+    {
+        return this.setGraphDataAsynchronously(
+                graphData,
+                null,
+                progressListener);
+    }
+    
+    /**
+     * Plot the given data like {@link #setGraphData(NamedData, BigDecimal)}
+     * but bin it on a background thread
+     * @see #setGraphDataAsynchronously(NamedData, DataLoadProgressListener)
+     * @param graphData
+     *          the data to plot
+     * @param binWidth
+     *          the (exact) bin width to use or null to work out a good one
+     * @param progressListener
+     *          the listener to tell about progress or null
+     * @return
+     *          the future for the load
+     */
+    public Future<Void> setGraphDataAsynchronously(
+            final NamedData<Number> graphData,
+            final BigDecimal binWidth,
+            DataLoadProgressListener progressListener)
+    {
+        return this.dataLoader.load(
+                new AsynchronousDataLoader.DataLoad<BinnedData>()
+                {
+                    public BinnedData prepare(DataLoadMonitor monitor)
+                    {
+                        BigDecimal loadBinWidth = binWidth;
+                        if(loadBinWidth == null)
+                        {
+                            loadBinWidth =
+                                NumericUtilities.roundToSignificantDigitsBigDecimal(
+                                        Histogram.calculateOptimalBinWidth(graphData),
+                                        DEFAULT_HISTOGRAM_BIN_SIGNIFICANT_DIG);
+                        }
+                        return new BinnedData(
+                                graphData,
+                                loadBinWidth,
+                                Histogram.binData(
+                                        graphData,
+                                        loadBinWidth,
+                                        monitor));
+                    }
+                    
+                    public void install(BinnedData model)
+                    {
+                        Histogram.this.installData(model);
+                        JComponent containerComponent =
+                            Histogram.this.getContainerComponent();
+                        if(containerComponent != null)
+                        {
+                            containerComponent.repaint();
+                        }
+                    }
+                },
+                progressListener);
+    }
+    
+    /**
+     * Swap newly binned data in as the plotted data
+     * @param binnedData
+     *          the binned data
+     */
+    private synchronized void installData(BinnedData binnedData)
     {
         // remove any pre-existing selection listener
         SelectableData selectableGraphData = this.getSelectableGraphData();
@@ -606,8 +729,10 @@ public class Histogram extends AbstractGraph2DWithAxes
                     this.graphDataSelectionListener);
         }
         
-        this.binWidth = binWidth;
-        this.graphData = graphData;
+        this.binWidth = binnedData.binWidth;
+        this.graphData = binnedData.graphData;
+        this.binMap.clear();
+        this.binMap.putAll(binnedData.bins);
         
         // register with the new graph data if it's selectable
         selectableGraphData = this.getSelectableGraphData();
@@ -617,15 +742,17 @@ public class Histogram extends AbstractGraph2DWithAxes
                     this.graphDataSelectionListener);
         }
         
-        this.placeDataInBins();
+        // the bins are only published once the coordinate system and
+        // axes are ready for them
         this.updateGraphDimensions();
+        this.recalculateBinSelections();
     }
     
     /**
      * update the selection count for all of the bins
      * @see Bin#getSelectionCount()
      */
-    private void recalculateBinSelections()
+    private synchronized void recalculateBinSelections()
     {
         SelectableData selectableGraphData = this.getSelectableGraphData();
         if(selectableGraphData == null)
@@ -651,6 +778,10 @@ public class Histogram extends AbstractGraph2DWithAxes
             }
         }
         
+        this.binRenderModel = new BinRenderModel(
+                this.binMap.values(),
+                this.binWidth);
+        
         // refresh the display
         JComponent containerComponent = this.getContainerComponent();
         if(containerComponent != null)
@@ -717,22 +848,25 @@ public class Histogram extends AbstractGraph2DWithAxes
                 newWidth.doubleValue(),
                 newHeight);
         
-        // update the axes
+        // update the axes. they're fully set up before we publish them
+        // since rendering doesn't lock
+        RegularIntegerIntervalAxisDescription newYAxisDescription =
+            new RegularIntegerIntervalAxisDescription(
+                    this.getGraphCoordinateConverter(),
+                    AxisType.Y_AXIS,
+                    true);
+        newYAxisDescription.setAxisName(DEFAULT_Y_AXIS_NAME);
+        newYAxisDescription.setAxisOrigin(0);
+        newYAxisDescription.setAxisExtent(newHeight);
+        newYAxisDescription.updateMajorTickInterval(
+                DEFAULT_NUM_Y_AXIS_MAJOR_TICKS);
         this.xAxisDescription = new RegularIntervalAxisDescription(
                 this.getGraphCoordinateConverter(),
                 AxisType.X_AXIS,
                 this.graphData.getNameOfData(),
                 this.binWidth.doubleValue(),
                 false);
-        this.yAxisDescription = new RegularIntegerIntervalAxisDescription(
-                this.getGraphCoordinateConverter(),
-                AxisType.Y_AXIS,
-                true);
-        this.yAxisDescription.setAxisName(DEFAULT_Y_AXIS_NAME);
-        this.yAxisDescription.setAxisOrigin(0);
-        this.yAxisDescription.setAxisExtent(newHeight);
-        this.yAxisDescription.updateMajorTickInterval(
-                DEFAULT_NUM_Y_AXIS_MAJOR_TICKS);
+        this.yAxisDescription = newYAxisDescription;
     }
 
     /**
@@ -750,22 +884,57 @@ public class Histogram extends AbstractGraph2DWithAxes
      */
     private synchronized void placeDataInBins()
     {
-        int currIndex = 0;
+        SortedMap<BigDecimal, Bin> bins = Histogram.binData(
+                this.graphData,
+                this.binWidth,
+                DataLoadMonitor.NONE);
         this.binMap.clear();
-        for(Number currDatum: this.graphData.getData())
+        this.binMap.putAll(bins);
+        this.updateGraphDimensions();
+        this.recalculateBinSelections();
+    }
+    
+    /**
+     * Place all of the given data in the correct bins. This doesn't touch
+     * the histogram so it's safe to call from any thread
+     * @param graphData
+     *          the data to bin
+     * @param binWidth
+     *          the bin width
+     * @param monitor
+     *          for reporting progress and checking for cancellation
+     * @return
+     *          the bins keyed by their min inclusive position
+     */
+    private static SortedMap<BigDecimal, Bin> binData(
+            NamedData<Number> graphData,
+            BigDecimal binWidth,
+            DataLoadMonitor monitor)
+    {
+        SortedMap<BigDecimal, Bin> bins = new TreeMap<BigDecimal, Bin>();
+        int dataSize = graphData.getSize();
+        int currIndex = 0;
+        for(Number currDatum: graphData.getData())
         {
+            if(currIndex % BINNING_PROGRESS_INTERVAL == 0)
+            {
+                monitor.checkCancelled();
+                monitor.setProgress(currIndex / (double)dataSize);
+            }
+            
             if(currDatum != null)
             {
                 // find the bin position that the current datum falls into
                 BigDecimal big_binValue =
-                    this.graphXCoordinateToMinInclusiveBinPosition(
-                            BigDecimal.valueOf(currDatum.doubleValue()));
+                    Histogram.graphXCoordinateToMinInclusiveBinPosition(
+                            BigDecimal.valueOf(currDatum.doubleValue()),
+                            binWidth);
                 
-                Bin bin = this.binMap.get(big_binValue);
+                Bin bin = bins.get(big_binValue);
                 if(bin == null)
                 {
                     bin = new Bin(big_binValue);
-                    this.binMap.put(big_binValue, bin);
+                    bins.put(big_binValue, bin);
                 }
                 bin.getContainedIndices().add(currIndex);
             }
@@ -774,9 +943,11 @@ public class Histogram extends AbstractGraph2DWithAxes
         }
         
         // empty bins are currently nulls in our mapping... fill them in with
-        // non-null, then recalculate selections
-        this.fillInEmptyBins();
-        this.recalculateBinSelections();
+        // non-null
+        monitor.checkCancelled();
+        Histogram.fillInEmptyBins(bins, binWidth);
+        
+        return bins;
     }
     
     /**
@@ -784,12 +955,15 @@ public class Histogram extends AbstractGraph2DWithAxes
      * X coordinate falls in.
      * @param graphXCoordinate
      *          the graph x coordinate
+     * @param binWidth
+     *          the bin width
      * @return
      *          the min inclusive bin position that the given coordinate
      *          falls into (this should always be <= the given position)
      */
-    private BigDecimal graphXCoordinateToMinInclusiveBinPosition(
-            BigDecimal graphXCoordinate)
+    private static BigDecimal graphXCoordinateToMinInclusiveBinPosition(
+            BigDecimal graphXCoordinate,
+            BigDecimal binWidth)
     {
         // get the bin value
         BigDecimal big_binMultiple;
@@ -799,7 +973,7 @@ public class Histogram extends AbstractGraph2DWithAxes
             // to keep the properties that we want (eg the min
             // inclusive bin border)
             BigDecimal[] divAndRemainder = graphXCoordinate.divideAndRemainder(
-                    this.binWidth);
+                    binWidth);
             if(divAndRemainder[1].signum() == 0)
             {
                 big_binMultiple = divAndRemainder[0];
@@ -813,36 +987,42 @@ public class Histogram extends AbstractGraph2DWithAxes
         {
             // it's positive
             big_binMultiple = graphXCoordinate.divideToIntegralValue(
-                    this.binWidth);
+                    binWidth);
         }
-        BigDecimal big_binValue = big_binMultiple.multiply(this.binWidth);
+        BigDecimal big_binValue = big_binMultiple.multiply(binWidth);
         
         return big_binValue;
     }
     
     /**
      * Fill in empty bins so that they are non-null
+     * @param bins
+     *          the bins to fill in
+     * @param binWidth
+     *          the bin width
      */
-    private synchronized void fillInEmptyBins()
+    private static void fillInEmptyBins(
+            SortedMap<BigDecimal, Bin> bins,
+            BigDecimal binWidth)
     {
-        BigDecimal[] existingBinValues = this.binMap.keySet().toArray(
-                new BigDecimal[this.binMap.size()]);
+        BigDecimal[] existingBinValues = bins.keySet().toArray(
+                new BigDecimal[bins.size()]);
         for(int i = 0; i < existingBinValues.length - 1; i++)
         {
             BigDecimal currBinValue = existingBinValues[i];
             BigDecimal nextBinValue = existingBinValues[i + 1];
             
             // while there are still more holes to fill
-            BigDecimal currBinHoleValue = currBinValue.add(this.binWidth);
+            BigDecimal currBinHoleValue = currBinValue.add(binWidth);
             while(currBinHoleValue.compareTo(nextBinValue) < 0)
             {
                 // fill in the hole with an empty set
-                this.binMap.put(
+                bins.put(
                         currBinHoleValue,
                         new Bin(currBinHoleValue));
                 
                 // "increment" the bin hole
-                currBinHoleValue = currBinHoleValue.add(this.binWidth);
+                currBinHoleValue = currBinHoleValue.add(binWidth);
             }
         }
     }
@@ -912,6 +1092,98 @@ public class Histogram extends AbstractGraph2DWithAxes
         return 3.49 * Matlab.std(dataToBin) * Math.pow(dataToBin.length, -1.0/3.0);
     }
     
+    /**
+     * An immutable copy of the bins holding only what's needed to draw them
+     */
+    private static final class BinRenderModel
+    {
+        /**
+         * a model with no bins
+         */
+        public static final BinRenderModel EMPTY = new BinRenderModel(
+                new HashSet<Bin>(),
+                BigDecimal.ZERO);
+        
+        /**
+         * the bin width in graph units
+         */
+        private final double binWidth;
+        
+        /**
+         * the left edge of each bin in graph units
+         */
+        private final double[] binLefts;
+        
+        /**
+         * the number of data points in each bin
+         */
+        private final int[] binCounts;
+        
+        /**
+         * the number of selected data points in each bin
+         */
+        private final int[] selectionCounts;
+        
+        /**
+         * Constructor
+         * @param bins
+         *          the bins to copy
+         * @param binWidth
+         *          the bin width
+         */
+        public BinRenderModel(Collection<Bin> bins, BigDecimal binWidth)
+        {
+            int binCount = bins.size();
+            this.binWidth = binWidth.doubleValue();
+            this.binLefts = new double[binCount];
+            this.binCounts = new int[binCount];
+            this.selectionCounts = new int[binCount];
+            
+            int binIndex = 0;
+            for(Bin currBin: bins)
+            {
+                this.binLefts[binIndex] =
+                    currBin.getMinInclusivePosition().doubleValue();
+                this.binCounts[binIndex] =
+                    currBin.getContainedIndices().size();
+                this.selectionCounts[binIndex] =
+                    currBin.getSelectionCount();
+                binIndex++;
+            }
+        }
+    }
+    
+    /**
+     * Data that has been binned but not plotted yet
+     */
+    private static class BinnedData
+    {
+        private final NamedData<Number> graphData;
+        
+        private final BigDecimal binWidth;
+        
+        private final SortedMap<BigDecimal, Bin> bins;
+        
+        /**
+         * Constructor
+         * @param graphData
+         *          the data
+         * @param binWidth
+         *          the bin width
+         * @param bins
+         *          the bins
+         */
+        public BinnedData(
+                NamedData<Number> graphData,
+                BigDecimal binWidth,
+                SortedMap<BigDecimal, Bin> bins)
+        {
+            this.graphData = graphData;
+            this.binWidth = binWidth;
+            this.bins = bins;
+        }
+    }
+    
     /**
      * A type for representing histogram bins
      * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Color;
+
+import org.jax.analyticgraph.framework.GraphCoordinateConverter;
+import org.jax.analyticgraph.framework.PointShape;
+import org.jax.util.ObjectUtil;
+
+/**
+ * Identifies everything that the cached base layer of a {@link ScatterPlot}
+ * depends on: the data version, the viewport and the point style. The
+ * selection is deliberately left out since it gets drawn as an overlay.
+ * If two keys are equal the cached image can be reused as-is. The cached
+ * selection overlay is keyed the same way using the selected point color.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class BaseLayerKey
+{
+    private final long dataVersion;
+    
+    private final double absoluteXOffset;
+    
+    private final double absoluteYOffset;
+    
+    private final double absoluteWidth;
+    
+    private final double absoluteHeight;
+    
+    private final double graphOriginX;
+    
+    private final double graphOriginY;
+    
+    private final double graphWidth;
+    
+    private final double graphHeight;
+    
+    private final ScatterPlotRenderMode renderMode;
+    
+    private final Color pointColor;
+    
+    private final int pointWidth;
+    
+    private final PointShape pointShape;
+    
+    private final boolean antialiased;
+    
+    private final PointPyramid pointPyramid;
+    
+    private final int pointBudget;
+    
+    private final DensityColorRamp densityColorRamp;
+    
+    private final PointStyleMapping pointStyleMapping;
+    
+    private final int hexBinRadius;
+    
+    private final double accumulationOpacity;
+    
+    /**
+     * Constructor
+     * @param dataVersion
+     *          incremented every time that the plotted data changes
+     * @param coordConverter
+     *          the converter that defines the viewport. the values are
+     *          copied so later changes to the converter aren't reflected
+     *          in this key
+     * @param renderMode
+     *          the render mode
+     * @param pointColor
+     *          the unselected point color
+     * @param pointWidth
+     *          the point width
+     * @param pointShape
+     *          the point shape
+     * @param antialiased
+     *          whether points are antialiased
+     * @param pointPyramid
+     *          the level of detail pyramid or null if there isn't one yet
+     * @param pointBudget
+     *          the most points we want to draw
+     * @param densityColorRamp
+     *          the density color ramp
+     * @param pointStyleMapping
+     *          the color-by and size-by mapping or null if there isn't one
+     * @param hexBinRadius
+     *          the hexagon radius for hexagonal binning (0 if we're not
+     *          binning)
+     * @param accumulationOpacity
+     *          the single point opacity for accumulation rendering (0 if
+     *          we're not accumulating)
+     */
+    public BaseLayerKey(
+            long dataVersion,
+            GraphCoordinateConverter coordConverter,
+            ScatterPlotRenderMode renderMode,
+            Color pointColor,
+            int pointWidth,
+            PointShape pointShape,
+            boolean antialiased,
+            PointPyramid pointPyramid,
+            int pointBudget,
+            DensityColorRamp densityColorRamp,
+            PointStyleMapping pointStyleMapping,
+            int hexBinRadius,
+            double accumulationOpacity)
+    {
+        this.dataVersion = dataVersion;
+        this.absoluteXOffset = coordConverter.getAbsoluteXOffsetInPixels();
+        this.absoluteYOffset = coordConverter.getAbsoluteYOffsetInPixels();
+        this.absoluteWidth = coordConverter.getAbsoluteWidthInPixels();
+        this.absoluteHeight = coordConverter.getAbsoluteHeightInPixels();
+        this.graphOriginX = coordConverter.getGraphOriginX();
+        this.graphOriginY = coordConverter.getGraphOriginY();
+        this.graphWidth = coordConverter.getGraphWidth();
+        this.graphHeight = coordConverter.getGraphHeight();
+        this.renderMode = renderMode;
+        this.pointColor = pointColor;
+        this.pointWidth = pointWidth;
+        this.pointShape = pointShape;
+        this.antialiased = antialiased;
+        this.pointPyramid = pointPyramid;
+        this.pointBudget = pointBudget;
+        this.densityColorRamp = densityColorRamp;
+        this.pointStyleMapping = pointStyleMapping;
+        this.hexBinRadius = hexBinRadius;
+        this.accumulationOpacity = accumulationOpacity;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object otherObject)
+    {
+        if(otherObject == this)
+        {
+            return true;
+        }
+        else if(otherObject instanceof BaseLayerKey)
+        {
+            BaseLayerKey otherKey = (BaseLayerKey)otherObject;
+            return
+                    this.dataVersion == otherKey.dataVersion &&
+                    this.absoluteXOffset == otherKey.absoluteXOffset &&
+                    this.absoluteYOffset == otherKey.absoluteYOffset &&
+                    this.absoluteWidth == otherKey.absoluteWidth &&
+                    this.absoluteHeight == otherKey.absoluteHeight &&
+                    this.graphOriginX == otherKey.graphOriginX &&
+                    this.graphOriginY == otherKey.graphOriginY &&
+                    this.graphWidth == otherKey.graphWidth &&
+                    this.graphHeight == otherKey.graphHeight &&
+                    this.renderMode == otherKey.renderMode &&
+                    this.pointWidth == otherKey.pointWidth &&
+                    this.pointShape == otherKey.pointShape &&
+                    this.antialiased == otherKey.antialiased &&
+                    this.pointPyramid == otherKey.pointPyramid &&
+                    this.pointBudget == otherKey.pointBudget &&
+                    ObjectUtil.areEqual(this.pointColor, otherKey.pointColor) &&
+                    this.densityColorRamp == otherKey.densityColorRamp &&
+                    this.pointStyleMapping == otherKey.pointStyleMapping &&
+                    this.hexBinRadius == otherKey.hexBinRadius &&
+                    this.accumulationOpacity == otherKey.accumulationOpacity;
+        }
+        else
+        {
+            return false;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        long bits = this.dataVersion;
+        bits = 31 * bits + Double.doubleToLongBits(this.absoluteWidth);
+        bits = 31 * bits + Double.doubleToLongBits(this.absoluteHeight);
+        bits = 31 * bits + Double.doubleToLongBits(this.graphOriginX);
+        bits = 31 * bits + Double.doubleToLongBits(this.graphOriginY);
+        bits = 31 * bits + Double.doubleToLongBits(this.graphWidth);
+        bits = 31 * bits + Double.doubleToLongBits(this.graphHeight);
+        bits = 31 * bits + this.pointWidth;
+        return (int)(bits ^ (bits >>> 32));
+    }
+}
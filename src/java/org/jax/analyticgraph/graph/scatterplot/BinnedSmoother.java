@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+/**
+ * A LOESS style smoother over a fixed grid of x bins. Points are reduced
+ * to a count and sums per bin as they stream in (so more points can be
+ * added later) and the smooth curve is a tricube weighted local linear
+ * fit through the bin means, evaluated at each bin center. The cost of
+ * smoothing only depends on the number of bins.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class BinnedSmoother
+{
+    /**
+     * the left edge of the grid
+     */
+    private final double minX;
+    
+    /**
+     * the right edge of the grid
+     */
+    private final double maxX;
+    
+    /**
+     * the number of points in each bin
+     */
+    private final long[] counts;
+    
+    /**
+     * the sum of x in each bin
+     */
+    private final double[] sumsX;
+    
+    /**
+     * the sum of y in each bin
+     */
+    private final double[] sumsY;
+    
+    /**
+     * the span that {@link #curve} was smoothed with
+     */
+    private double curveSpan = Double.NaN;
+    
+    /**
+     * the cached smooth curve or null if points have been added since it
+     * was worked out
+     */
+    private double[] curve;
+    
+    /**
+     * Constructor
+     * @param minX
+     *          the left edge of the grid
+     * @param maxX
+     *          the right edge of the grid
+     * @param binCount
+     *          the number of bins
+     */
+    public BinnedSmoother(double minX, double maxX, int binCount)
+    {
+        this.minX = minX;
+        this.maxX = maxX;
+        this.counts = new long[binCount];
+        this.sumsX = new double[binCount];
+        this.sumsY = new double[binCount];
+    }
+    
+    /**
+     * Add points to the bins. Points with a missing coordinate are skipped
+     * @param xValues
+     *          the x values
+     * @param yValues
+     *          the y values
+     * @param fromIndex
+     *          the first point to add
+     * @param toIndex
+     *          the index after the last point to add
+     * @return
+     *          false if a point fell outside of the grid. the bins are
+     *          left in a partial state in that case and a new smoother
+     *          with a wider grid is needed
+     */
+    public boolean accumulate(
+            double[] xValues,
+            double[] yValues,
+            int fromIndex,
+            int toIndex)
+    {
+        this.curve = null;
+        
+        long[] counts = this.counts;
+        double[] sumsX = this.sumsX;
+        double[] sumsY = this.sumsY;
+        int binCount = counts.length;
+        double minX = this.minX;
+        double range = this.maxX - minX;
+        double scale = range > 0.0 ? binCount / range : 0.0;
+        for(int i = fromIndex; i < toIndex; i++)
+        {
+            double x = xValues[i];
+            double y = yValues[i];
+            if(Double.isNaN(x) || Double.isNaN(y))
+            {
+                continue;
+            }
+            
+            if(x < minX || x > this.maxX)
+            {
+                return false;
+            }
+            
+            // the right edge is inclusive so it goes in the last bin
+            int bin = Math.min((int)((x - minX) * scale), binCount - 1);
+            counts[bin]++;
+            sumsX[bin] += x;
+            sumsY[bin] += y;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Getter for the number of bins
+     * @return
+     *          the bin count
+     */
+    public int getBinCount()
+    {
+        return this.counts.length;
+    }
+    
+    /**
+     * Get the x value at the center of a bin
+     * @param bin
+     *          the bin
+     * @return
+     *          the x value
+     */
+    public double getBinCenter(int bin)
+    {
+        return this.minX + (bin + 0.5) * (this.maxX - this.minX) / this.counts.length;
+    }
+    
+    /**
+     * Get the smooth curve
+     * @param span
+     *          the fraction of the x range that each local fit looks at
+     * @return
+     *          the smoothed y value at each bin center or NaN where there
+     *          isn't enough nearby data. don't modify this
+     */
+    public double[] smooth(double span)
+    {
+        if(this.curve != null && this.curveSpan == span)
+        {
+            return this.curve;
+        }
+        
+        // if every point has the same x there's no range to scale the
+        // span by. any positive bandwidth works since all of the bins
+        // are centered on the same x
+        int binCount = this.counts.length;
+        double range = this.maxX > this.minX ? this.maxX - this.minX : 1.0;
+        double bandwidth = Math.max(span, 1.0 / binCount) * range;
+        double[] curve = new double[binCount];
+        for(int target = 0; target < binCount; target++)
+        {
+            double center = this.getBinCenter(target);
+            
+            // weighted local linear fit through the bin means (weighted
+            // by how many points are in each bin)
+            double sumW = 0.0;
+            double sumWX = 0.0;
+            double sumWY = 0.0;
+            double sumWXX = 0.0;
+            double sumWXY = 0.0;
+            for(int bin = 0; bin < binCount; bin++)
+            {
+                long count = this.counts[bin];
+                if(count == 0L)
+                {
+                    continue;
+                }
+                
+                double meanX = this.sumsX[bin] / count;
+                double distance = Math.abs(meanX - center) / bandwidth;
+                if(distance >= 1.0)
+                {
+                    continue;
+                }
+                
+                double tricube = 1.0 - distance * distance * distance;
+                double weight = count * tricube * tricube * tricube;
+                double dx = meanX - center;
+                double meanY = this.sumsY[bin] / count;
+                sumW += weight;
+                sumWX += weight * dx;
+                sumWY += weight * meanY;
+                sumWXX += weight * dx * dx;
+                sumWXY += weight * dx * meanY;
+            }
+            
+            if(sumW == 0.0)
+            {
+                curve[target] = Double.NaN;
+            }
+            else
+            {
+                // since x is centered on the target the fitted value is
+                // the intercept. fall back on the weighted mean if the
+                // neighborhood is too narrow for a slope
+                double denominator = sumW * sumWXX - sumWX * sumWX;
+                curve[target] = denominator > 1e-12 * sumW * sumWXX ?
+                        (sumWXX * sumWY - sumWX * sumWXY) / denominator :
+                        sumWY / sumW;
+            }
+        }
+        
+        this.curve = curve;
+        this.curveSpan = span;
+        return curve;
+    }
+}
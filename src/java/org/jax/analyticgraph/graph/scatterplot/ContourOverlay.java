@@ -0,0 +1,574 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jax.analyticgraph.data.NamedData;
+import org.jax.analyticgraph.data.NumericColumn;
+import org.jax.analyticgraph.framework.GraphCoordinateConverter;
+
+/**
+ * Draws density contours over a {@link ScatterPlot}. Contours are built
+ * in the background the first time that they're needed and cached by
+ * their settings along with the values that they were built for, so
+ * turning contours off and on (or going back to earlier settings) doesn't
+ * redo them. The cache is thrown out when the plotted values change.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class ContourOverlay
+{
+    /**
+     * our logger
+     */
+    private static final Logger LOG =
+        Logger.getLogger(ContourOverlay.class.getName());
+    
+    /**
+     * the default for {@link #getGridSize()}
+     */
+    private static final int DEFAULT_GRID_SIZE = 200;
+    
+    /**
+     * the default for {@link #getBandwidth()}
+     */
+    private static final double DEFAULT_BANDWIDTH = 0.02;
+    
+    /**
+     * the default for {@link #getLevelCount()}
+     */
+    private static final int DEFAULT_LEVEL_COUNT = 6;
+    
+    /**
+     * the stroke for the contours
+     */
+    private static final Stroke CONTOUR_STROKE = new BasicStroke(1.0F);
+    
+    /**
+     * the executor that builds the contours
+     */
+    private final Executor buildExecutor;
+    
+    /**
+     * run once newly built contours are ready to be drawn
+     */
+    private final Runnable contoursReadyCallback;
+    
+    /**
+     * @see #isVisible()
+     */
+    private volatile boolean visible = false;
+    
+    /**
+     * @see #getGridSize()
+     */
+    private volatile int gridSize = DEFAULT_GRID_SIZE;
+    
+    /**
+     * @see #getBandwidth()
+     */
+    private volatile double bandwidth = DEFAULT_BANDWIDTH;
+    
+    /**
+     * @see #getLevelCount()
+     */
+    private volatile int levelCount = DEFAULT_LEVEL_COUNT;
+    
+    /**
+     * @see #getColor()
+     */
+    private volatile Color color = Color.BLACK;
+    
+    /**
+     * the x values that the cached contours belong to or null
+     */
+    private double[] xValues;
+    
+    /**
+     * the y values that the cached contours belong to or null
+     */
+    private double[] yValues;
+    
+    /**
+     * the contours we've built for the current values keyed by their
+     * settings
+     */
+    private final Map<ContourKey, DensityContours> contours =
+        new HashMap<ContourKey, DensityContours>();
+    
+    /**
+     * the contours that are being built in the background
+     */
+    private final Set<ContourKey> pendingContours = new HashSet<ContourKey>();
+    
+    /**
+     * the contours that we failed to build for the current values. we
+     * don't try these again until the values or settings change, so a
+     * build that fails doesn't get resubmitted on every paint
+     */
+    private final Set<ContourKey> failedContours = new HashSet<ContourKey>();
+    
+    /**
+     * Constructor
+     * @param buildExecutor
+     *          the executor to build contours on
+     * @param contoursReadyCallback
+     *          run (from the build thread) whenever newly built contours
+     *          are ready to be drawn
+     */
+    public ContourOverlay(
+            Executor buildExecutor,
+            Runnable contoursReadyCallback)
+    {
+        this.buildExecutor = buildExecutor;
+        this.contoursReadyCallback = contoursReadyCallback;
+    }
+    
+    /**
+     * Determine if we draw the contours
+     * @return
+     *          true if the contours are drawn
+     */
+    public boolean isVisible()
+    {
+        return this.visible;
+    }
+    
+    /**
+     * Turn the contours on or off
+     * @param visible
+     *          true to draw the contours
+     */
+    public void setVisible(boolean visible)
+    {
+        this.visible = visible;
+    }
+    
+    /**
+     * Getter for the number of rows and columns in the grid that the
+     * density is estimated on
+     * @return
+     *          the grid size
+     */
+    public int getGridSize()
+    {
+        return this.gridSize;
+    }
+    
+    /**
+     * Setter for the grid size
+     * @param gridSize
+     *          the grid size
+     * @throws IllegalArgumentException
+     *          if the size is less than 2 or more than
+     *          {@link DensityContours#MAX_GRID_SIZE}
+     */
+    public void setGridSize(int gridSize) throws IllegalArgumentException
+    {
+        if(gridSize < 2 || gridSize > DensityContours.MAX_GRID_SIZE)
+        {
+            throw new IllegalArgumentException(
+                    "the contour grid needs between 2 and " +
+                    DensityContours.MAX_GRID_SIZE + " rows and columns: " +
+                    gridSize);
+        }
+        
+        this.gridSize = gridSize;
+        this.forgetFailures();
+    }
+    
+    /**
+     * Getter for the standard deviation of the smoothing kernel as a
+     * fraction of the x and y data ranges
+     * @return
+     *          the bandwidth
+     */
+    public double getBandwidth()
+    {
+        return this.bandwidth;
+    }
+    
+    /**
+     * Setter for the bandwidth
+     * @param bandwidth
+     *          the bandwidth
+     * @throws IllegalArgumentException
+     *          if the bandwidth isn't positive
+     */
+    public void setBandwidth(double bandwidth) throws IllegalArgumentException
+    {
+        if(!(bandwidth > 0.0))
+        {
+            throw new IllegalArgumentException(
+                    "the contour bandwidth must be positive: " + bandwidth);
+        }
+        
+        this.bandwidth = bandwidth;
+        this.forgetFailures();
+    }
+    
+    /**
+     * Getter for the number of contour levels
+     * @return
+     *          the level count
+     */
+    public int getLevelCount()
+    {
+        return this.levelCount;
+    }
+    
+    /**
+     * Setter for the number of contour levels
+     * @param levelCount
+     *          the level count
+     * @throws IllegalArgumentException
+     *          if the count is less than 1
+     */
+    public void setLevelCount(int levelCount) throws IllegalArgumentException
+    {
+        if(levelCount < 1)
+        {
+            throw new IllegalArgumentException(
+                    "we need at least one contour level: " + levelCount);
+        }
+        
+        this.levelCount = levelCount;
+        this.forgetFailures();
+    }
+    
+    /**
+     * Getter for the contour line color
+     * @return
+     *          the color
+     */
+    public Color getColor()
+    {
+        return this.color;
+    }
+    
+    /**
+     * Setter for the contour line color
+     * @param color
+     *          the color
+     */
+    public void setColor(Color color)
+    {
+        this.color = color;
+    }
+    
+    /**
+     * Give builds that failed another chance
+     */
+    private synchronized void forgetFailures()
+    {
+        this.failedContours.clear();
+    }
+    
+    /**
+     * Draw the contours if they're turned on. If the contours for the
+     * current settings aren't ready we start building them in the
+     * background and draw them when they're done
+     * @param graphics2D
+     *          the graphics context to draw to
+     * @param coordConverter
+     *          the plot's coordinate converter
+     * @param xAxisData
+     *          the x data or null if nothing is plotted
+     * @param yAxisData
+     *          the y data or null if nothing is plotted
+     */
+    public synchronized void render(
+            Graphics2D graphics2D,
+            GraphCoordinateConverter coordConverter,
+            NamedData<Number> xAxisData,
+            NamedData<Number> yAxisData)
+    {
+        if(!this.visible || xAxisData == null)
+        {
+            return;
+        }
+        
+        NumericColumn xColumn = NumericColumn.forData(xAxisData);
+        NumericColumn yColumn = NumericColumn.forData(yAxisData);
+        if(xColumn.getValues() != this.xValues ||
+           yColumn.getValues() != this.yValues)
+        {
+            this.contours.clear();
+            this.pendingContours.clear();
+            this.failedContours.clear();
+            this.xValues = xColumn.getValues();
+            this.yValues = yColumn.getValues();
+        }
+        
+        ContourKey key = new ContourKey(
+                this.gridSize,
+                this.bandwidth,
+                this.levelCount);
+        DensityContours contours = this.contours.get(key);
+        if(contours == null)
+        {
+            if(!this.failedContours.contains(key) &&
+               this.pendingContours.add(key))
+            {
+                this.buildContours(xColumn, yColumn, key);
+            }
+            return;
+        }
+        
+        Shape pushClip = graphics2D.getClip();
+        Stroke pushStroke = graphics2D.getStroke();
+        graphics2D.clip(new Rectangle2D.Double(
+                coordConverter.getAbsoluteXOffsetInPixels(),
+                coordConverter.getAbsoluteYOffsetInPixels(),
+                coordConverter.getAbsoluteWidthInPixels(),
+                coordConverter.getAbsoluteHeightInPixels()));
+        graphics2D.setStroke(CONTOUR_STROKE);
+        graphics2D.setColor(this.color);
+        
+        Path2D.Double path = new Path2D.Double();
+        for(int level = 0; level < contours.getLevelCount(); level++)
+        {
+            for(double[] polyline: contours.getContours(level))
+            {
+                for(int i = 0; i < polyline.length; i += 2)
+                {
+                    double java2DX = coordConverter.convertGraphXCoordinateToJava2DXCoordinate(
+                            polyline[i]);
+                    double java2DY = coordConverter.convertGraphYCoordinateToJava2DYCoordinate(
+                            polyline[i + 1]);
+                    if(i == 0)
+                    {
+                        path.moveTo(java2DX, java2DY);
+                    }
+                    else
+                    {
+                        path.lineTo(java2DX, java2DY);
+                    }
+                }
+            }
+        }
+        graphics2D.draw(path);
+        
+        graphics2D.setStroke(pushStroke);
+        graphics2D.setClip(pushClip);
+    }
+    
+    /**
+     * Build contours for the given columns in the background and cache
+     * them once they're done
+     * @param xColumn
+     *          the x column
+     * @param yColumn
+     *          the y column
+     * @param key
+     *          the contour settings
+     */
+    private void buildContours(
+            NumericColumn xColumn,
+            NumericColumn yColumn,
+            final ContourKey key)
+    {
+        final double[] xValues = xColumn.getValues();
+        final double[] yValues = yColumn.getValues();
+        final double minX = xColumn.getMinimum();
+        final double maxX = xColumn.getMaximum();
+        final double minY = yColumn.getMinimum();
+        final double maxY = yColumn.getMaximum();
+        this.buildExecutor.execute(new Runnable()
+        {
+            public void run()
+            {
+                DensityContours contours = null;
+                boolean failed = false;
+                try
+                {
+                    // don't tie up the build thread with contours for
+                    // values that have already been replaced
+                    if(!this.isCurrent())
+                    {
+                        return;
+                    }
+                    
+                    long startNanos = System.nanoTime();
+                    contours = new DensityContours(
+                            xValues,
+                            yValues,
+                            minX,
+                            maxX,
+                            minY,
+                            maxY,
+                            key.gridSize,
+                            key.bandwidth,
+                            key.levelCount);
+                    
+                    if(LOG.isLoggable(Level.FINE))
+                    {
+                        LOG.fine(
+                                "Built " + key.levelCount + " density " +
+                                "contour levels on a " + key.gridSize +
+                                " grid in " +
+                                ((System.nanoTime() - startNanos) / 1000000L) +
+                                " ms");
+                    }
+                }
+                catch(RuntimeException ex)
+                {
+                    failed = true;
+                    LOG.log(Level.SEVERE,
+                            "failed to build density contours on a " +
+                            key.gridSize + " grid",
+                            ex);
+                }
+                catch(OutOfMemoryError ex)
+                {
+                    // the grids are the big allocation here. the plot is
+                    // fine without its contours so we carry on
+                    failed = true;
+                    LOG.log(Level.SEVERE,
+                            "ran out of memory building density contours " +
+                            "on a " + key.gridSize + " grid",
+                            ex);
+                }
+                finally
+                {
+                    synchronized(ContourOverlay.this)
+                    {
+                        // if the values changed while we were building
+                        // then the pending set was already cleared and
+                        // may now be tracking a build for the new values
+                        if(this.isCurrent())
+                        {
+                            if(contours != null)
+                            {
+                                ContourOverlay.this.contours.put(
+                                        key,
+                                        contours);
+                            }
+                            else if(failed)
+                            {
+                                ContourOverlay.this.failedContours.add(key);
+                            }
+                            ContourOverlay.this.pendingContours.remove(key);
+                        }
+                        else
+                        {
+                            contours = null;
+                        }
+                    }
+                }
+                
+                if(contours != null)
+                {
+                    ContourOverlay.this.contoursReadyCallback.run();
+                }
+            }
+            
+            /**
+             * Determine if the contours we're building are still for the
+             * current values
+             * @return
+             *          true if they are
+             */
+            private boolean isCurrent()
+            {
+                synchronized(ContourOverlay.this)
+                {
+                    return ContourOverlay.this.xValues == xValues &&
+                           ContourOverlay.this.yValues == yValues;
+                }
+            }
+        });
+    }
+    
+    /**
+     * The settings that a set of density contours was built with
+     */
+    private static final class ContourKey
+    {
+        private final int gridSize;
+        
+        private final double bandwidth;
+        
+        private final int levelCount;
+        
+        /**
+         * Constructor
+         * @param gridSize
+         *          the grid size
+         * @param bandwidth
+         *          the smoothing bandwidth
+         * @param levelCount
+         *          the number of levels
+         */
+        public ContourKey(int gridSize, double bandwidth, int levelCount)
+        {
+            this.gridSize = gridSize;
+            this.bandwidth = bandwidth;
+            this.levelCount = levelCount;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object otherObject)
+        {
+            if(otherObject instanceof ContourKey)
+            {
+                ContourKey otherKey = (ContourKey)otherObject;
+                return
+                        this.gridSize == otherKey.gridSize &&
+                        this.bandwidth == otherKey.bandwidth &&
+                        this.levelCount == otherKey.levelCount;
+            }
+            else
+            {
+                return false;
+            }
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode()
+        {
+            long bits = Double.doubleToLongBits(this.bandwidth);
+            bits = 31 * bits + this.gridSize;
+            bits = 31 * bits + this.levelCount;
+            return (int)(bits ^ (bits >>> 32));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Color;
+
+/**
+ * Maps per-pixel point counts to colors. Empty pixels are transparent and
+ * every other pixel gets a color between the low and high colors
+ * depending on how its count compares to the other counts. This class is
+ * immutable.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class DensityColorRamp
+{
+    /**
+     * How counts are scaled before they're mapped onto the ramp
+     */
+    public enum Scaling
+    {
+        /**
+         * the ramp position is proportional to the count
+         */
+        LINEAR,
+        
+        /**
+         * the ramp position is proportional to the log of the count. this
+         * keeps sparse areas visible next to very dense areas
+         */
+        LOG,
+        
+        /**
+         * the ramp position is the fraction of non-empty pixels with a
+         * lower or equal count, which spreads the colors evenly over
+         * whatever counts are actually present
+         */
+        HISTOGRAM_EQUALIZED
+    }
+    
+    /**
+     * @see #getLowColor()
+     */
+    private final Color lowColor;
+    
+    /**
+     * @see #getHighColor()
+     */
+    private final Color highColor;
+    
+    /**
+     * @see #getScaling()
+     */
+    private final Scaling scaling;
+    
+    /**
+     * Constructor
+     * @param lowColor
+     *          the color for the smallest non-zero count
+     * @param highColor
+     *          the color for the largest count
+     * @param scaling
+     *          how counts are scaled
+     */
+    public DensityColorRamp(Color lowColor, Color highColor, Scaling scaling)
+    {
+        this.lowColor = lowColor;
+        this.highColor = highColor;
+        this.scaling = scaling;
+    }
+    
+    /**
+     * Getter for the color used for the smallest non-zero count
+     * @return
+     *          the low color
+     */
+    public Color getLowColor()
+    {
+        return this.lowColor;
+    }
+    
+    /**
+     * Getter for the color used for the largest count
+     * @return
+     *          the high color
+     */
+    public Color getHighColor()
+    {
+        return this.highColor;
+    }
+    
+    /**
+     * Getter for the count scaling
+     * @return
+     *          the scaling
+     */
+    public Scaling getScaling()
+    {
+        return this.scaling;
+    }
+    
+    /**
+     * Convert the given counts to ARGB pixels
+     * @param counts
+     *          the counts
+     * @return
+     *          the ARGB pixels (the same length as the counts)
+     */
+    public int[] toARGB(int[] counts)
+    {
+        int maxCount = 0;
+        for(int currCount: counts)
+        {
+            if(currCount > maxCount)
+            {
+                maxCount = currCount;
+            }
+        }
+        
+        int[] argb = new int[counts.length];
+        if(maxCount == 0)
+        {
+            return argb;
+        }
+        
+        // histogram equalization needs to see all of the counts before it
+        // can place any of them
+        double[] levels = this.scaling == Scaling.HISTOGRAM_EQUALIZED ?
+                          DensityColorRamp.equalizedLevels(counts, maxCount) :
+                          null;
+        for(int i = 0; i < counts.length; i++)
+        {
+            int currCount = counts[i];
+            if(currCount > 0)
+            {
+                double level = levels == null ?
+                               this.scaledLevel(currCount, maxCount) :
+                               levels[currCount];
+                argb[i] = this.interpolate(level);
+            }
+        }
+        
+        return argb;
+    }
+    
+    /**
+     * Get the ramp position for the given count using linear or log
+     * scaling
+     * @param count
+     *          the count (> 0)
+     * @param maxCount
+     *          the largest count
+     * @return
+     *          the position in [0, 1]
+     */
+    private double scaledLevel(int count, int maxCount)
+    {
+        if(maxCount <= 1)
+        {
+            return 1.0;
+        }
+        else if(this.scaling == Scaling.LOG)
+        {
+            return Math.log(count) / Math.log(maxCount);
+        }
+        else
+        {
+            return (count - 1) / (double)(maxCount - 1);
+        }
+    }
+    
+    /**
+     * Work out the histogram equalized level for every count up to the
+     * max count
+     * @param counts
+     *          the counts
+     * @param maxCount
+     *          the largest count
+     * @return
+     *          the levels indexed by count
+     */
+    private static double[] equalizedLevels(int[] counts, int maxCount)
+    {
+        int[] countFrequencies = new int[maxCount + 1];
+        int nonEmptyPixels = 0;
+        for(int currCount: counts)
+        {
+            if(currCount > 0)
+            {
+                countFrequencies[currCount]++;
+                nonEmptyPixels++;
+            }
+        }
+        
+        double[] levels = new double[maxCount + 1];
+        long cumulative = 0;
+        for(int i = 1; i <= maxCount; i++)
+        {
+            cumulative += countFrequencies[i];
+            levels[i] = cumulative / (double)nonEmptyPixels;
+        }
+        
+        return levels;
+    }
+    
+    /**
+     * Get the ARGB color at the given ramp position
+     * @param level
+     *          the position in [0, 1]
+     * @return
+     *          the ARGB color
+     */
+    private int interpolate(double level)
+    {
+        Color low = this.lowColor;
+        Color high = this.highColor;
+        int alpha = DensityColorRamp.mix(low.getAlpha(), high.getAlpha(), level);
+        int red = DensityColorRamp.mix(low.getRed(), high.getRed(), level);
+        int green = DensityColorRamp.mix(low.getGreen(), high.getGreen(), level);
+        int blue = DensityColorRamp.mix(low.getBlue(), high.getBlue(), level);
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+    
+    /**
+     * Mix two color components
+     * @param low
+     *          the low component
+     * @param high
+     *          the high component
+     * @param level
+     *          how far we are from low to high
+     * @return
+     *          the mixed component
+     */
+    private static int mix(int low, int high, double level)
+    {
+        return (int)Math.round(low + (high - low) * level);
+    }
+}
@@ -0,0 +1,712 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jax.analyticgraph.data.ParallelChunkExecutor;
+
+/**
+ * Estimates the 2D point density on a regular grid and traces contour
+ * lines through it. Points are binned into the grid (in parallel, with
+ * each worker counting into its own buffer) and the counts are smoothed
+ * with a separable Gaussian blur, which is about the same as a Gaussian
+ * kernel density estimate but only costs O(n + cells). The contours are
+ * traced with marching squares and joined up into polylines. Everything
+ * is in graph coordinates so the contours don't have to be redone when
+ * the viewport changes. This class is immutable once it's built.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class DensityContours
+{
+    /**
+     * the largest number of grid rows and columns we allow. this keeps
+     * the grid's cell count well clear of overflowing an int
+     */
+    public static final int MAX_GRID_SIZE = 4096;
+    
+    /**
+     * the smallest number of points worth handing to another thread
+     */
+    private static final int MINIMUM_POINTS_PER_STRIPE = 1 << 16;
+    
+    /**
+     * the smallest number of grid rows or columns worth handing to
+     * another thread
+     */
+    private static final int MINIMUM_LINES_PER_CHUNK = 16;
+    
+    /**
+     * how many standard deviations the blur kernel reaches out to
+     */
+    private static final double KERNEL_REACH = 3.0;
+    
+    /**
+     * @see #getGridSize()
+     */
+    private final int gridSize;
+    
+    /**
+     * @see #getBandwidth()
+     */
+    private final double bandwidth;
+    
+    /**
+     * the graph x position of the first grid column
+     */
+    private final double minX;
+    
+    /**
+     * the graph y position of the first grid row
+     */
+    private final double minY;
+    
+    /**
+     * the graph distance between grid columns
+     */
+    private final double cellWidth;
+    
+    /**
+     * the graph distance between grid rows
+     */
+    private final double cellHeight;
+    
+    /**
+     * the smoothed density in row major order
+     */
+    private final double[] density;
+    
+    /**
+     * @see #getLevel(int)
+     */
+    private final double[] levels;
+    
+    /**
+     * the contour polylines for each level
+     */
+    private final List<List<double[]>> contours;
+    
+    /**
+     * Constructor
+     * @param xValues
+     *          the point x values (missing values are skipped)
+     * @param yValues
+     *          the point y values (missing values are skipped)
+     * @param minX
+     *          the smallest x value
+     * @param maxX
+     *          the largest x value
+     * @param minY
+     *          the smallest y value
+     * @param maxY
+     *          the largest y value
+     * @param gridSize
+     *          the number of grid rows and columns
+     * @param bandwidth
+     *          the standard deviation of the smoothing kernel as a
+     *          fraction of the x and y ranges
+     * @param levelCount
+     *          the number of contour levels. these are spread evenly
+     *          between zero and the peak density
+     * @throws IllegalArgumentException
+     *          if the grid size, bandwidth or level count don't make sense
+     *          or the grid size is over {@link #MAX_GRID_SIZE}
+     */
+    public DensityContours(
+            double[] xValues,
+            double[] yValues,
+            double minX,
+            double maxX,
+            double minY,
+            double maxY,
+            int gridSize,
+            double bandwidth,
+            int levelCount)
+    throws IllegalArgumentException
+    {
+        if(gridSize < 2 || gridSize > MAX_GRID_SIZE)
+        {
+            throw new IllegalArgumentException(
+                    "the grid needs between 2 and " + MAX_GRID_SIZE +
+                    " rows and columns: " + gridSize);
+        }
+        if(!(bandwidth > 0.0))
+        {
+            throw new IllegalArgumentException(
+                    "the bandwidth must be positive: " + bandwidth);
+        }
+        if(levelCount < 1)
+        {
+            throw new IllegalArgumentException(
+                    "we need at least one contour level: " + levelCount);
+        }
+        
+        // pad the grid so that contours around the edge points close up
+        double xRange = maxX > minX ? maxX - minX : 1.0;
+        double yRange = maxY > minY ? maxY - minY : 1.0;
+        double xPadding = KERNEL_REACH * bandwidth * xRange;
+        double yPadding = KERNEL_REACH * bandwidth * yRange;
+        this.gridSize = gridSize;
+        this.bandwidth = bandwidth;
+        this.minX = minX - xPadding;
+        this.minY = minY - yPadding;
+        this.cellWidth = (xRange + 2.0 * xPadding) / (gridSize - 1);
+        this.cellHeight = (yRange + 2.0 * yPadding) / (gridSize - 1);
+        
+        double[] counts = this.binPoints(xValues, yValues);
+        this.density = this.blur(
+                counts,
+                bandwidth * xRange / this.cellWidth,
+                bandwidth * yRange / this.cellHeight);
+        
+        double maxDensity = 0.0;
+        for(double cellDensity: this.density)
+        {
+            maxDensity = Math.max(maxDensity, cellDensity);
+        }
+        
+        this.levels = new double[levelCount];
+        List<List<double[]>> contours = new ArrayList<List<double[]>>(levelCount);
+        for(int level = 0; level < levelCount; level++)
+        {
+            this.levels[level] = maxDensity * (level + 1) / (levelCount + 1);
+            contours.add(Collections.unmodifiableList(
+                    this.traceContours(this.levels[level])));
+        }
+        this.contours = Collections.unmodifiableList(contours);
+    }
+    
+    /**
+     * Add up how many points land nearest to each grid node
+     * @param xValues
+     *          the x values
+     * @param yValues
+     *          the y values
+     * @return
+     *          the counts
+     */
+    private double[] binPoints(final double[] xValues, final double[] yValues)
+    {
+        final int cellCount = this.gridSize * this.gridSize;
+        final int pointCount = Math.min(xValues.length, yValues.length);
+        int stripeCount = Math.max(1, Math.min(
+                ParallelChunkExecutor.getParallelism(),
+                pointCount / MINIMUM_POINTS_PER_STRIPE));
+        final int stripeSize = (pointCount + stripeCount - 1) / stripeCount;
+        final double[][] stripeCounts = new double[stripeCount][];
+        ParallelChunkExecutor.execute(
+                stripeCount,
+                1,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromStripe, int toStripe)
+                    {
+                        for(int stripe = fromStripe; stripe < toStripe; stripe++)
+                        {
+                            double[] counts = new double[cellCount];
+                            int start = stripe * stripeSize;
+                            int stop = Math.min(pointCount, start + stripeSize);
+                            DensityContours.this.binStripe(
+                                    xValues,
+                                    yValues,
+                                    start,
+                                    stop,
+                                    counts);
+                            stripeCounts[stripe] = counts;
+                        }
+                    }
+                });
+        
+        // fold the other stripes into the first one. the grid is small
+        // enough that this isn't worth splitting up
+        double[] totals = stripeCounts[0];
+        for(int stripe = 1; stripe < stripeCount; stripe++)
+        {
+            double[] counts = stripeCounts[stripe];
+            for(int i = 0; i < cellCount; i++)
+            {
+                totals[i] += counts[i];
+            }
+        }
+        
+        return totals;
+    }
+    
+    /**
+     * Bin one stripe of points
+     * @param xValues
+     *          the x values
+     * @param yValues
+     *          the y values
+     * @param start
+     *          the first index in the stripe
+     * @param stop
+     *          the index after the last index in the stripe
+     * @param counts
+     *          the buffer to count into
+     */
+    private void binStripe(
+            double[] xValues,
+            double[] yValues,
+            int start,
+            int stop,
+            double[] counts)
+    {
+        int gridSize = this.gridSize;
+        for(int i = start; i < stop; i++)
+        {
+            // NaN fails both range tests so missing values drop out here
+            double column = (xValues[i] - this.minX) / this.cellWidth + 0.5;
+            double row = (yValues[i] - this.minY) / this.cellHeight + 0.5;
+            if(column >= 0.0 && column < gridSize &&
+               row >= 0.0 && row < gridSize)
+            {
+                counts[(int)row * gridSize + (int)column]++;
+            }
+        }
+    }
+    
+    /**
+     * Smooth the counts with a separable Gaussian blur, first along the
+     * rows and then along the columns
+     * @param counts
+     *          the counts
+     * @param xSigma
+     *          the kernel standard deviation along x in cells
+     * @param ySigma
+     *          the kernel standard deviation along y in cells
+     * @return
+     *          the smoothed grid
+     */
+    private double[] blur(final double[] counts, double xSigma, double ySigma)
+    {
+        final int gridSize = this.gridSize;
+        final double[] xKernel = DensityContours.createKernel(xSigma);
+        final double[] yKernel = DensityContours.createKernel(ySigma);
+        final double[] rowBlurred = new double[counts.length];
+        final double[] blurred = new double[counts.length];
+        
+        ParallelChunkExecutor.execute(
+                gridSize,
+                MINIMUM_LINES_PER_CHUNK,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromRow, int toRow)
+                    {
+                        for(int row = fromRow; row < toRow; row++)
+                        {
+                            DensityContours.convolve(
+                                    counts,
+                                    rowBlurred,
+                                    row * gridSize,
+                                    1,
+                                    gridSize,
+                                    xKernel);
+                        }
+                    }
+                });
+        ParallelChunkExecutor.execute(
+                gridSize,
+                MINIMUM_LINES_PER_CHUNK,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromColumn, int toColumn)
+                    {
+                        for(int column = fromColumn; column < toColumn; column++)
+                        {
+                            DensityContours.convolve(
+                                    rowBlurred,
+                                    blurred,
+                                    column,
+                                    gridSize,
+                                    gridSize,
+                                    yKernel);
+                        }
+                    }
+                });
+        
+        return blurred;
+    }
+    
+    /**
+     * Create a normalized Gaussian kernel. The middle of the kernel is
+     * at index (length - 1) / 2
+     * @param sigma
+     *          the standard deviation in cells
+     * @return
+     *          the kernel
+     */
+    private static double[] createKernel(double sigma)
+    {
+        int radius = Math.max(1, (int)Math.ceil(KERNEL_REACH * sigma));
+        double[] kernel = new double[2 * radius + 1];
+        double sum = 0.0;
+        for(int i = -radius; i <= radius; i++)
+        {
+            double weight = Math.exp(-0.5 * (i * i) / (sigma * sigma));
+            kernel[i + radius] = weight;
+            sum += weight;
+        }
+        for(int i = 0; i < kernel.length; i++)
+        {
+            kernel[i] /= sum;
+        }
+        
+        return kernel;
+    }
+    
+    /**
+     * Convolve one line of the grid with the kernel. Anything that would
+     * come from outside the grid is taken to be zero
+     * @param source
+     *          the grid to read from
+     * @param destination
+     *          the grid to write to
+     * @param start
+     *          the index of the first cell in the line
+     * @param step
+     *          the index distance between cells in the line
+     * @param length
+     *          the number of cells in the line
+     * @param kernel
+     *          the kernel
+     */
+    private static void convolve(
+            double[] source,
+            double[] destination,
+            int start,
+            int step,
+            int length,
+            double[] kernel)
+    {
+        int radius = (kernel.length - 1) / 2;
+        for(int i = 0; i < length; i++)
+        {
+            int fromOffset = Math.max(-radius, -i);
+            int toOffset = Math.min(radius, length - 1 - i);
+            double sum = 0.0;
+            for(int offset = fromOffset; offset <= toOffset; offset++)
+            {
+                sum += kernel[offset + radius] * source[start + (i + offset) * step];
+            }
+            destination[start + i * step] = sum;
+        }
+    }
+    
+    /**
+     * Trace the contours at the given level with marching squares and join
+     * the segments up into polylines
+     * @param level
+     *          the level
+     * @return
+     *          the polylines as interleaved graph x, y coordinates
+     */
+    private List<double[]> traceContours(double level)
+    {
+        // every crossing sits on a grid edge. horizontal edges (between a
+        // node and the node to its right) come first, then vertical ones
+        int gridSize = this.gridSize;
+        int horizontalEdgeCount = (gridSize - 1) * gridSize;
+        int edgeCount = 2 * horizontalEdgeCount;
+        
+        // each edge is shared by at most two cells so it can join at most
+        // two segments
+        int[] edgeSegments = new int[2 * edgeCount];
+        Arrays.fill(edgeSegments, -1);
+        int[] segmentEdges = new int[64];
+        int segmentCount = 0;
+        
+        double[] density = this.density;
+        for(int row = 0; row < gridSize - 1; row++)
+        {
+            for(int column = 0; column < gridSize - 1; column++)
+            {
+                int node = row * gridSize + column;
+                double bottomLeft = density[node];
+                double bottomRight = density[node + 1];
+                double topLeft = density[node + gridSize];
+                double topRight = density[node + gridSize + 1];
+                int cellCase =
+                    (bottomLeft >= level ? 1 : 0) |
+                    (bottomRight >= level ? 2 : 0) |
+                    (topRight >= level ? 4 : 0) |
+                    (topLeft >= level ? 8 : 0);
+                if(cellCase == 0 || cellCase == 15)
+                {
+                    continue;
+                }
+                
+                int bottom = row * (gridSize - 1) + column;
+                int top = bottom + gridSize - 1;
+                int left = horizontalEdgeCount + row * gridSize + column;
+                int right = left + 1;
+                
+                // the two ambiguous cases are resolved with the cell
+                // average
+                boolean centerAbove =
+                    (bottomLeft + bottomRight + topLeft + topRight) / 4.0 >= level;
+                int[] cellSegments;
+                switch(cellCase)
+                {
+                    case 1: case 14: cellSegments = new int[] {left, bottom}; break;
+                    case 2: case 13: cellSegments = new int[] {bottom, right}; break;
+                    case 3: case 12: cellSegments = new int[] {left, right}; break;
+                    case 4: case 11: cellSegments = new int[] {right, top}; break;
+                    case 6: case 9: cellSegments = new int[] {bottom, top}; break;
+                    case 7: case 8: cellSegments = new int[] {left, top}; break;
+                    case 5:
+                        cellSegments = centerAbove ?
+                                new int[] {left, top, bottom, right} :
+                                new int[] {left, bottom, right, top};
+                        break;
+                    default:
+                        cellSegments = centerAbove ?
+                                new int[] {left, bottom, right, top} :
+                                new int[] {left, top, bottom, right};
+                        break;
+                }
+                
+                for(int i = 0; i < cellSegments.length; i += 2)
+                {
+                    if(2 * segmentCount + 2 > segmentEdges.length)
+                    {
+                        segmentEdges = Arrays.copyOf(
+                                segmentEdges,
+                                2 * segmentEdges.length);
+                    }
+                    segmentEdges[2 * segmentCount] = cellSegments[i];
+                    segmentEdges[2 * segmentCount + 1] = cellSegments[i + 1];
+                    DensityContours.linkEdge(edgeSegments, cellSegments[i], segmentCount);
+                    DensityContours.linkEdge(edgeSegments, cellSegments[i + 1], segmentCount);
+                    segmentCount++;
+                }
+            }
+        }
+        
+        // walk the segments joining them at their shared edges
+        List<double[]> polylines = new ArrayList<double[]>();
+        boolean[] visited = new boolean[segmentCount];
+        int[] chain = new int[16];
+        for(int segment = 0; segment < segmentCount; segment++)
+        {
+            if(visited[segment])
+            {
+                continue;
+            }
+            
+            // back up to one end of the chain first so that open contours
+            // come out in one piece
+            int start = segment;
+            int startEdge = segmentEdges[2 * segment];
+            for(int step = 0; step < segmentCount; step++)
+            {
+                int previous = DensityContours.otherSegment(edgeSegments, startEdge, start);
+                if(previous < 0 || previous == segment)
+                {
+                    break;
+                }
+                start = previous;
+                startEdge = segmentEdges[2 * previous] == startEdge ?
+                            segmentEdges[2 * previous + 1] :
+                            segmentEdges[2 * previous];
+            }
+            
+            int chainLength = 0;
+            chain[chainLength++] = startEdge;
+            int current = start;
+            int edge = startEdge;
+            while(current >= 0 && !visited[current])
+            {
+                visited[current] = true;
+                edge = segmentEdges[2 * current] == edge ?
+                       segmentEdges[2 * current + 1] :
+                       segmentEdges[2 * current];
+                if(chainLength == chain.length)
+                {
+                    chain = Arrays.copyOf(chain, 2 * chain.length);
+                }
+                chain[chainLength++] = edge;
+                current = DensityContours.otherSegment(edgeSegments, edge, current);
+            }
+            
+            double[] polyline = new double[2 * chainLength];
+            for(int i = 0; i < chainLength; i++)
+            {
+                this.locateCrossing(chain[i], level, polyline, 2 * i);
+            }
+            polylines.add(polyline);
+        }
+        
+        return polylines;
+    }
+    
+    /**
+     * Record that the given segment touches the given edge
+     * @param edgeSegments
+     *          two segment slots per edge
+     * @param edge
+     *          the edge
+     * @param segment
+     *          the segment
+     */
+    private static void linkEdge(int[] edgeSegments, int edge, int segment)
+    {
+        if(edgeSegments[2 * edge] < 0)
+        {
+            edgeSegments[2 * edge] = segment;
+        }
+        else
+        {
+            edgeSegments[2 * edge + 1] = segment;
+        }
+    }
+    
+    /**
+     * Find the segment on the other side of an edge
+     * @param edgeSegments
+     *          two segment slots per edge
+     * @param edge
+     *          the edge
+     * @param segment
+     *          the segment we came from
+     * @return
+     *          the other segment or -1 if there isn't one
+     */
+    private static int otherSegment(int[] edgeSegments, int edge, int segment)
+    {
+        return edgeSegments[2 * edge] == segment ?
+               edgeSegments[2 * edge + 1] :
+               edgeSegments[2 * edge];
+    }
+    
+    /**
+     * Work out where the contour crosses an edge by interpolating between
+     * the densities at its ends
+     * @param edge
+     *          the edge
+     * @param level
+     *          the contour level
+     * @param coordinates
+     *          where to write the graph x and y
+     * @param offset
+     *          the index to write x at (y goes after it)
+     */
+    private void locateCrossing(
+            int edge,
+            double level,
+            double[] coordinates,
+            int offset)
+    {
+        int gridSize = this.gridSize;
+        int horizontalEdgeCount = (gridSize - 1) * gridSize;
+        int fromNode;
+        int toNode;
+        if(edge < horizontalEdgeCount)
+        {
+            int row = edge / (gridSize - 1);
+            fromNode = row * gridSize + edge % (gridSize - 1);
+            toNode = fromNode + 1;
+        }
+        else
+        {
+            fromNode = edge - horizontalEdgeCount;
+            toNode = fromNode + gridSize;
+        }
+        
+        double fromDensity = this.density[fromNode];
+        double toDensity = this.density[toNode];
+        double fraction = (level - fromDensity) / (toDensity - fromDensity);
+        double column = fromNode % gridSize;
+        double row = fromNode / gridSize;
+        if(toNode == fromNode + 1)
+        {
+            column += fraction;
+        }
+        else
+        {
+            row += fraction;
+        }
+        
+        coordinates[offset] = this.minX + column * this.cellWidth;
+        coordinates[offset + 1] = this.minY + row * this.cellHeight;
+    }
+    
+    /**
+     * Getter for the number of grid rows and columns
+     * @return
+     *          the grid size
+     */
+    public int getGridSize()
+    {
+        return this.gridSize;
+    }
+    
+    /**
+     * Getter for the smoothing kernel standard deviation as a fraction of
+     * the data range
+     * @return
+     *          the bandwidth
+     */
+    public double getBandwidth()
+    {
+        return this.bandwidth;
+    }
+    
+    /**
+     * Getter for the number of contour levels
+     * @return
+     *          the level count
+     */
+    public int getLevelCount()
+    {
+        return this.levels.length;
+    }
+    
+    /**
+     * Getter for the density at a contour level. The density is in points
+     * per grid cell
+     * @param level
+     *          the level index (0 is the outermost)
+     * @return
+     *          the density
+     */
+    public double getLevel(int level)
+    {
+        return this.levels[level];
+    }
+    
+    /**
+     * Get the contours at a level
+     * @param level
+     *          the level index (0 is the outermost)
+     * @return
+     *          the polylines as interleaved graph x, y coordinates. closed
+     *          contours end where they started
+     */
+    public List<double[]> getContours(int level)
+    {
+        return this.contours.get(level);
+    }
+}
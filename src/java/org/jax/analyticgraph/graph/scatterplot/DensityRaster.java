@@ -0,0 +1,618 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import org.jax.analyticgraph.data.IndexBitmap;
+import org.jax.analyticgraph.data.ParallelChunkExecutor;
+import org.jax.analyticgraph.framework.GraphCoordinateConverter;
+import org.jax.analyticgraph.framework.PointStamp;
+
+/**
+ * Bins points into a per-pixel count buffer covering a graph's Java2D
+ * area. The binning is done in parallel with each worker counting into
+ * its own buffer, and the buffers are summed at the end, so the cost of
+ * turning the counts into an image only depends on the pixel count.
+ * Points can also be splatted into a per-pixel float accumulation buffer
+ * the same way, which gives order independent, density aware
+ * transparency once it's tone mapped.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class DensityRaster
+{
+    /**
+     * the smallest number of points worth handing to another thread
+     */
+    private static final int MINIMUM_POINTS_PER_STRIPE = 1 << 16;
+    
+    /**
+     * @see #getXOffset()
+     */
+    private final int xOffset;
+    
+    /**
+     * @see #getYOffset()
+     */
+    private final int yOffset;
+    
+    /**
+     * @see #getWidth()
+     */
+    private final int width;
+    
+    /**
+     * @see #getHeight()
+     */
+    private final int height;
+    
+    /**
+     * the graph x origin
+     */
+    private final double graphOriginX;
+    
+    /**
+     * the graph y origin
+     */
+    private final double graphOriginY;
+    
+    /**
+     * pixels per graph unit along x
+     */
+    private final double xScale;
+    
+    /**
+     * pixels per graph unit along y
+     */
+    private final double yScale;
+    
+    /**
+     * Constructor for a raster that covers the area that the given
+     * converter maps the graph onto
+     * @param coordConverter
+     *          the converter
+     */
+    public DensityRaster(GraphCoordinateConverter coordConverter)
+    {
+        this.xOffset = (int)Math.floor(coordConverter.getAbsoluteXOffsetInPixels());
+        this.yOffset = (int)Math.floor(coordConverter.getAbsoluteYOffsetInPixels());
+        this.width = Math.max(0, (int)Math.ceil(coordConverter.getAbsoluteWidthInPixels()));
+        this.height = Math.max(0, (int)Math.ceil(coordConverter.getAbsoluteHeightInPixels()));
+        
+        double graphWidth = coordConverter.getGraphWidth();
+        double graphHeight = coordConverter.getGraphHeight();
+        this.graphOriginX = coordConverter.getGraphOriginX();
+        this.graphOriginY = coordConverter.getGraphOriginY();
+        this.xScale = graphWidth == 0.0 ?
+                      0.0 :
+                      coordConverter.getAbsoluteWidthInPixels() / graphWidth;
+        this.yScale = graphHeight == 0.0 ?
+                      0.0 :
+                      coordConverter.getAbsoluteHeightInPixels() / graphHeight;
+    }
+    
+    /**
+     * Getter for the Java2D x position of the raster's left edge
+     * @return
+     *          the x offset
+     */
+    public int getXOffset()
+    {
+        return this.xOffset;
+    }
+    
+    /**
+     * Getter for the Java2D y position of the raster's top edge
+     * @return
+     *          the y offset
+     */
+    public int getYOffset()
+    {
+        return this.yOffset;
+    }
+    
+    /**
+     * Getter for the raster width in pixels
+     * @return
+     *          the width
+     */
+    public int getWidth()
+    {
+        return this.width;
+    }
+    
+    /**
+     * Getter for the raster height in pixels
+     * @return
+     *          the height
+     */
+    public int getHeight()
+    {
+        return this.height;
+    }
+    
+    /**
+     * Count the points that land in each pixel. Points with a missing
+     * coordinate or that fall outside of the raster are skipped.
+     * @param xValues
+     *          the graph x coordinates
+     * @param yValues
+     *          the graph y coordinates
+     * @param indices
+     *          the indices of the points to count or null to count all
+     *          of them
+     * @return
+     *          the counts in row major order (width * height)
+     */
+    public int[] countPoints(
+            final double[] xValues,
+            final double[] yValues,
+            final IndexBitmap indices)
+    {
+        final int pixelCount = this.width * this.height;
+        if(pixelCount == 0)
+        {
+            return new int[0];
+        }
+        
+        // split the points into one stripe per thread. each stripe gets
+        // its own buffer so that there's no contention on the counts
+        final int pointCount = Math.min(xValues.length, yValues.length);
+        int stripeCount = Math.max(1, Math.min(
+                ParallelChunkExecutor.getParallelism(),
+                pointCount / MINIMUM_POINTS_PER_STRIPE));
+        final int stripeSize = (pointCount + stripeCount - 1) / stripeCount;
+        final int[][] stripeCounts = new int[stripeCount][];
+        ParallelChunkExecutor.execute(
+                stripeCount,
+                1,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromStripe, int toStripe)
+                    {
+                        for(int stripe = fromStripe; stripe < toStripe; stripe++)
+                        {
+                            int[] counts = new int[pixelCount];
+                            int start = stripe * stripeSize;
+                            int stop = Math.min(pointCount, start + stripeSize);
+                            DensityRaster.this.countStripe(
+                                    xValues,
+                                    yValues,
+                                    indices,
+                                    start,
+                                    stop,
+                                    counts);
+                            stripeCounts[stripe] = counts;
+                        }
+                    }
+                });
+        
+        // fold the other stripes into the first one
+        final int[] totals = stripeCounts[0];
+        if(stripeCount > 1)
+        {
+            ParallelChunkExecutor.execute(
+                    pixelCount,
+                    MINIMUM_POINTS_PER_STRIPE,
+                    new ParallelChunkExecutor.ChunkTask()
+                    {
+                        public void processChunk(int fromPixel, int toPixel)
+                        {
+                            for(int stripe = 1; stripe < stripeCounts.length; stripe++)
+                            {
+                                int[] counts = stripeCounts[stripe];
+                                for(int i = fromPixel; i < toPixel; i++)
+                                {
+                                    totals[i] += counts[i];
+                                }
+                            }
+                        }
+                    });
+        }
+        
+        return totals;
+    }
+    
+    /**
+     * Count one stripe of points
+     * @param xValues
+     *          the graph x coordinates
+     * @param yValues
+     *          the graph y coordinates
+     * @param indices
+     *          the points to count or null for all
+     * @param start
+     *          the first index in the stripe
+     * @param stop
+     *          the index after the last index in the stripe
+     * @param counts
+     *          the buffer to count into
+     */
+    private void countStripe(
+            double[] xValues,
+            double[] yValues,
+            IndexBitmap indices,
+            int start,
+            int stop,
+            int[] counts)
+    {
+        if(indices == null)
+        {
+            for(int i = start; i < stop; i++)
+            {
+                this.countPoint(xValues[i], yValues[i], counts);
+            }
+        }
+        else
+        {
+            for(int i = indices.nextSetBit(start);
+                i >= 0 && i < stop;
+                i = indices.nextSetBit(i + 1))
+            {
+                this.countPoint(xValues[i], yValues[i], counts);
+            }
+        }
+    }
+    
+    /**
+     * Count a single point
+     * @param x
+     *          the graph x coordinate
+     * @param y
+     *          the graph y coordinate
+     * @param counts
+     *          the buffer to count into
+     */
+    private void countPoint(double x, double y, int[] counts)
+    {
+        // NaN fails both range tests so missing values drop out here
+        double column = (x - this.graphOriginX) * this.xScale;
+        double row = this.height - (y - this.graphOriginY) * this.yScale;
+        if(column >= 0.0 && column <= this.width &&
+           row >= 0.0 && row <= this.height)
+        {
+            // the far edges are inclusive (like the graph bounds) so
+            // they get folded into the last pixel
+            int pixelColumn = Math.min((int)column, this.width - 1);
+            int pixelRow = Math.min((int)row, this.height - 1);
+            counts[pixelRow * this.width + pixelColumn]++;
+        }
+    }
+    
+    /**
+     * Add up the coverage and color of every point's glyph per pixel.
+     * This is done in stripes like {@link #countPoints(double[], double[], IndexBitmap)}
+     * with each stripe adding into its own buffer. Points with a missing
+     * coordinate or that fall outside of the raster are skipped.
+     * @param xValues
+     *          the graph x coordinates
+     * @param yValues
+     *          the graph y coordinates
+     * @param styleCodes
+     *          the style code for each point or null if every point uses
+     *          the first stamp
+     * @param styleStamps
+     *          the glyph to use for each style code
+     * @return
+     *          the accumulated coverage for each pixel in row major order.
+     *          if there are style codes each pixel has four channels
+     *          (alpha, red, green and blue) since the colors can differ,
+     *          otherwise it only has the one coverage channel. see
+     *          {@link PointStamp#accumulate(float[], int, int, int, double, double)}
+     */
+    public float[] accumulatePoints(
+            final double[] xValues,
+            final double[] yValues,
+            final int[] styleCodes,
+            final PointStamp[] styleStamps)
+    {
+        // a single color only needs a quarter of the memory traffic
+        final int channelCount = styleCodes == null ? 1 : 4;
+        final int bufferLength = channelCount * this.width * this.height;
+        if(bufferLength == 0)
+        {
+            return new float[0];
+        }
+        
+        final int pointCount = Math.min(xValues.length, yValues.length);
+        int stripeCount = Math.max(1, Math.min(
+                ParallelChunkExecutor.getParallelism(),
+                pointCount / MINIMUM_POINTS_PER_STRIPE));
+        final int stripeSize = (pointCount + stripeCount - 1) / stripeCount;
+        final float[][] stripeBuffers = new float[stripeCount][];
+        ParallelChunkExecutor.execute(
+                stripeCount,
+                1,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromStripe, int toStripe)
+                    {
+                        for(int stripe = fromStripe; stripe < toStripe; stripe++)
+                        {
+                            float[] accumulation = new float[bufferLength];
+                            int start = stripe * stripeSize;
+                            int stop = Math.min(pointCount, start + stripeSize);
+                            DensityRaster.this.accumulateStripe(
+                                    xValues,
+                                    yValues,
+                                    styleCodes,
+                                    styleStamps,
+                                    channelCount,
+                                    start,
+                                    stop,
+                                    accumulation);
+                            stripeBuffers[stripe] = accumulation;
+                        }
+                    }
+                });
+        
+        // fold the other stripes into the first one
+        final float[] totals = stripeBuffers[0];
+        if(stripeCount > 1)
+        {
+            ParallelChunkExecutor.execute(
+                    bufferLength,
+                    MINIMUM_POINTS_PER_STRIPE,
+                    new ParallelChunkExecutor.ChunkTask()
+                    {
+                        public void processChunk(int fromIndex, int toIndex)
+                        {
+                            for(int stripe = 1; stripe < stripeBuffers.length; stripe++)
+                            {
+                                float[] accumulation = stripeBuffers[stripe];
+                                for(int i = fromIndex; i < toIndex; i++)
+                                {
+                                    totals[i] += accumulation[i];
+                                }
+                            }
+                        }
+                    });
+        }
+        
+        return totals;
+    }
+    
+    /**
+     * Accumulate one stripe of points
+     * @param xValues
+     *          the graph x coordinates
+     * @param yValues
+     *          the graph y coordinates
+     * @param styleCodes
+     *          the point style codes or null
+     * @param styleStamps
+     *          the glyph for each style code
+     * @param channelCount
+     *          the number of channels per pixel
+     * @param start
+     *          the first index in the stripe
+     * @param stop
+     *          the index after the last index in the stripe
+     * @param accumulation
+     *          the buffer to add into
+     */
+    private void accumulateStripe(
+            double[] xValues,
+            double[] yValues,
+            int[] styleCodes,
+            PointStamp[] styleStamps,
+            int channelCount,
+            int start,
+            int stop,
+            float[] accumulation)
+    {
+        // let glyphs that are centered just off of the raster still
+        // bleed onto it
+        int margin = 0;
+        for(PointStamp stamp: styleStamps)
+        {
+            margin = Math.max(margin, stamp.getSize());
+        }
+        
+        for(int i = start; i < stop; i++)
+        {
+            // NaN fails both range tests so missing values drop out here
+            double column = (xValues[i] - this.graphOriginX) * this.xScale;
+            double row = this.height - (yValues[i] - this.graphOriginY) * this.yScale;
+            if(column >= -margin && column <= this.width + margin &&
+               row >= -margin && row <= this.height + margin)
+            {
+                PointStamp stamp = styleCodes == null ?
+                                   styleStamps[0] :
+                                   styleStamps[styleCodes[i]];
+                stamp.accumulate(
+                        accumulation,
+                        channelCount,
+                        this.width,
+                        this.height,
+                        column,
+                        row);
+            }
+        }
+    }
+    
+    /**
+     * Tone map an accumulation buffer into an image. Each pixel gets the
+     * coverage weighted mean color of the glyphs that landed on it, and
+     * an alpha of 1 - (1 - pointOpacity)^coverage. That's what stacking
+     * that many translucent glyphs would give, so sparse areas stay see
+     * through and dense ones fill in smoothly instead of saturating after
+     * the first few points
+     * @param accumulation
+     *          the buffer from {@link #accumulatePoints(double[], double[], int[], PointStamp[])}
+     * @param pointOpacity
+     *          the opacity of a single point (between 0 and 1)
+     * @param color
+     *          the color of the points for a single channel buffer. this
+     *          is ignored if the buffer has color channels
+     * @return
+     *          the image or null if the raster is empty
+     */
+    public BufferedImage toAccumulationImage(
+            final float[] accumulation,
+            double pointOpacity,
+            Color color)
+    {
+        if(this.width == 0 || this.height == 0)
+        {
+            return null;
+        }
+        
+        // 1 - (1 - opacity)^coverage == 1 - exp(coverage * log(1 - opacity))
+        final double logTransparency = Math.log(
+                1.0 - Math.min(pointOpacity, 1.0 - 1e-6));
+        final BufferedImage image = new BufferedImage(
+                this.width,
+                this.height,
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        final int[] pixels =
+            ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        final boolean colored = accumulation.length != pixels.length;
+        final int red = color.getRed();
+        final int green = color.getGreen();
+        final int blue = color.getBlue();
+        ParallelChunkExecutor.execute(
+                pixels.length,
+                MINIMUM_POINTS_PER_STRIPE,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromPixel, int toPixel)
+                    {
+                        for(int i = fromPixel; i < toPixel; i++)
+                        {
+                            if(colored)
+                            {
+                                int bufferIndex = i * 4;
+                                float coverage = accumulation[bufferIndex];
+                                if(coverage > 0.0F)
+                                {
+                                    double alpha = 1.0 - Math.exp(coverage * logTransparency);
+                                    
+                                    // the mean straight color times the
+                                    // new alpha gives the premultiplied
+                                    // color
+                                    double scale = 255.0 * alpha / coverage;
+                                    pixels[i] =
+                                        ((int)(alpha * 255.0 + 0.5) << 24) |
+                                        (DensityRaster.toChannel(accumulation[bufferIndex + 1] * scale) << 16) |
+                                        (DensityRaster.toChannel(accumulation[bufferIndex + 2] * scale) << 8) |
+                                        DensityRaster.toChannel(accumulation[bufferIndex + 3] * scale);
+                                }
+                            }
+                            else
+                            {
+                                float coverage = accumulation[i];
+                                if(coverage > 0.0F)
+                                {
+                                    double alpha = 1.0 - Math.exp(coverage * logTransparency);
+                                    pixels[i] =
+                                        ((int)(alpha * 255.0 + 0.5) << 24) |
+                                        (DensityRaster.toChannel(red * alpha) << 16) |
+                                        (DensityRaster.toChannel(green * alpha) << 8) |
+                                        DensityRaster.toChannel(blue * alpha);
+                                }
+                            }
+                        }
+                    }
+                });
+        
+        return image;
+    }
+    
+    /**
+     * Round and clamp a channel value to 0-255
+     * @param value
+     *          the value
+     * @return
+     *          the channel
+     */
+    private static int toChannel(double value)
+    {
+        return Math.min(0xFF, (int)(value + 0.5));
+    }
+    
+    /**
+     * Build an image from the given counts
+     * @param counts
+     *          counts from {@link #countPoints(double[], double[], IndexBitmap)}
+     * @param colorRamp
+     *          the color ramp to use
+     * @return
+     *          the image or null if the raster is empty
+     */
+    public BufferedImage toImage(int[] counts, DensityColorRamp colorRamp)
+    {
+        if(this.width == 0 || this.height == 0)
+        {
+            return null;
+        }
+        
+        BufferedImage image = new BufferedImage(
+                this.width,
+                this.height,
+                BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(
+                0,
+                0,
+                this.width,
+                this.height,
+                colorRamp.toARGB(counts),
+                0,
+                this.width);
+        return image;
+    }
+    
+    /**
+     * Build an image where every pixel with at least one point is the
+     * given color
+     * @param counts
+     *          counts from {@link #countPoints(double[], double[], IndexBitmap)}
+     * @param argb
+     *          the color
+     * @return
+     *          the image or null if the raster is empty
+     */
+    public BufferedImage toMaskImage(int[] counts, int argb)
+    {
+        if(this.width == 0 || this.height == 0)
+        {
+            return null;
+        }
+        
+        int[] pixels = new int[counts.length];
+        for(int i = 0; i < counts.length; i++)
+        {
+            if(counts[i] > 0)
+            {
+                pixels[i] = argb;
+            }
+        }
+        
+        BufferedImage image = new BufferedImage(
+                this.width,
+                this.height,
+                BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, this.width, this.height, pixels, 0, this.width);
+        return image;
+    }
+}
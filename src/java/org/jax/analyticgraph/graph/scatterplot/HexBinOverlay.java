@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Point;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jax.analyticgraph.data.IndexBitmap;
+import org.jax.analyticgraph.data.NamedData;
+import org.jax.analyticgraph.data.NumericColumn;
+import org.jax.analyticgraph.framework.GraphCoordinateConverter;
+
+/**
+ * Keeps the hexagonal binnings behind a {@link ScatterPlot} in
+ * {@link ScatterPlotRenderMode#HEXBIN} mode. Binnings are cached by
+ * hexagon radius so flipping between bin sizes doesn't rebin, and the
+ * cache is thrown out once the data, viewport or color-by data change.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class HexBinOverlay
+{
+    /**
+     * our logger
+     */
+    private static final Logger LOG =
+        Logger.getLogger(HexBinOverlay.class.getName());
+    
+    /**
+     * what the cached binnings were built for
+     */
+    private BaseLayerKey binningsKey;
+    
+    /**
+     * the binnings for {@link #binningsKey} keyed by hexagon radius
+     */
+    private final Map<Integer, HexBinning> binnings =
+        new HashMap<Integer, HexBinning>();
+    
+    /**
+     * the binning behind the plot's base layer or null if the base layer
+     * isn't binned
+     */
+    private volatile HexBinning currentBinning;
+    
+    /**
+     * Get the binning for the given data, building it only if we don't
+     * already have it cached. The binning becomes the current one
+     * @param dataVersion
+     *          the version of the data
+     * @param coordConverter
+     *          the plot's coordinate converter
+     * @param hexRadius
+     *          the hexagon radius in pixels
+     * @param xValues
+     *          the x values
+     * @param yValues
+     *          the y values
+     * @param colorByData
+     *          the data to average over each cell or null
+     * @param styleMapping
+     *          the point style mapping that goes with the color-by data
+     * @return
+     *          the binning
+     */
+    public synchronized HexBinning bin(
+            long dataVersion,
+            GraphCoordinateConverter coordConverter,
+            int hexRadius,
+            double[] xValues,
+            double[] yValues,
+            NamedData<Number> colorByData,
+            PointStyleMapping styleMapping)
+    {
+        // binnings stay good until the data, viewport or color-by data
+        // change
+        BaseLayerKey binningsKey = new BaseLayerKey(
+                dataVersion,
+                coordConverter,
+                ScatterPlotRenderMode.HEXBIN,
+                null,
+                0,
+                null,
+                false,
+                null,
+                0,
+                null,
+                colorByData == null ? null : styleMapping,
+                0,
+                0.0);
+        if(!binningsKey.equals(this.binningsKey))
+        {
+            this.binnings.clear();
+            this.binningsKey = binningsKey;
+        }
+        
+        HexBinning binning = this.binnings.get(hexRadius);
+        if(binning == null)
+        {
+            long startNanos = System.nanoTime();
+            binning = new HexBinning(
+                    coordConverter,
+                    hexRadius,
+                    xValues,
+                    yValues,
+                    colorByData == null ?
+                    null :
+                    NumericColumn.forData(colorByData).getValues());
+            this.binnings.put(hexRadius, binning);
+            
+            if(LOG.isLoggable(Level.FINE))
+            {
+                LOG.fine(
+                        "Binned " + xValues.length + " points into " +
+                        binning.getCellCount() + " hexagonal cells in " +
+                        ((System.nanoTime() - startNanos) / 1000000L) + " ms");
+            }
+        }
+        
+        this.currentBinning = binning;
+        return binning;
+    }
+    
+    /**
+     * Forget the current binning. This gets called whenever the plot's
+     * base layer is rebuilt so a base layer that isn't binned doesn't
+     * answer hit tests with stale cells. The cache is kept
+     */
+    public void clearCurrentBinning()
+    {
+        this.currentBinning = null;
+    }
+    
+    /**
+     * Get the points in the cell of the current binning that's under the
+     * given point
+     * @param java2DCoordinate
+     *          the Java2D point
+     * @return
+     *          the points. this is empty if there's no current binning or
+     *          no cell there
+     */
+    public IndexBitmap getPointIndicesAt(Point java2DCoordinate)
+    {
+        IndexBitmap pointIndices = new IndexBitmap();
+        HexBinning binning = this.currentBinning;
+        if(binning != null)
+        {
+            int cell = binning.getCellAt(
+                    java2DCoordinate.x,
+                    java2DCoordinate.y);
+            if(cell >= 0)
+            {
+                for(int point: binning.getPointsInCell(cell))
+                {
+                    pointIndices.set(point);
+                }
+            }
+        }
+        
+        return pointIndices;
+    }
+}
@@ -0,0 +1,545 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.jax.analyticgraph.data.ParallelChunkExecutor;
+import org.jax.analyticgraph.framework.GraphCoordinateConverter;
+
+/**
+ * Aggregates points into a grid of hexagonal cells covering a graph's
+ * Java2D area. The hexagons are regular in pixels (pointy side up) so they
+ * look the same whatever the axis scales are. The binning is done in
+ * parallel with each worker counting into its own buffers, which are
+ * summed at the end. Along the way we record which cell every point lands
+ * in so that we can hand back the rows in any cell. This class is
+ * immutable once it's built.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class HexBinning
+{
+    /**
+     * the smallest number of points worth handing to another thread
+     */
+    private static final int MINIMUM_POINTS_PER_STRIPE = 1 << 16;
+    
+    private static final double SQRT_3 = Math.sqrt(3.0);
+    
+    /**
+     * @see #getXOffset()
+     */
+    private final int xOffset;
+    
+    /**
+     * @see #getYOffset()
+     */
+    private final int yOffset;
+    
+    /**
+     * the area width in pixels
+     */
+    private final int width;
+    
+    /**
+     * the area height in pixels
+     */
+    private final int height;
+    
+    /**
+     * @see #getHexRadius()
+     */
+    private final double hexRadius;
+    
+    /**
+     * the number of cell columns
+     */
+    private final int columnCount;
+    
+    /**
+     * the number of cell rows
+     */
+    private final int rowCount;
+    
+    /**
+     * the number of points in each cell
+     */
+    private final int[] counts;
+    
+    /**
+     * the mean value in each cell or null if we weren't given values
+     */
+    private final double[] means;
+    
+    /**
+     * where each cell's points start in {@link #cellPoints} with an extra
+     * entry for the end of the last cell
+     */
+    private final int[] cellStarts;
+    
+    /**
+     * the point indices grouped by cell
+     */
+    private final int[] cellPoints;
+    
+    /**
+     * Constructor
+     * @param coordConverter
+     *          the converter that maps the graph onto the area we cover
+     * @param hexRadius
+     *          the distance from a cell's center to its corners in pixels
+     * @param xValues
+     *          the graph x coordinates
+     * @param yValues
+     *          the graph y coordinates
+     * @param values
+     *          values to average over each cell or null. NaN values are
+     *          left out of the averages
+     */
+    public HexBinning(
+            GraphCoordinateConverter coordConverter,
+            double hexRadius,
+            final double[] xValues,
+            final double[] yValues,
+            final double[] values)
+    {
+        this.xOffset = (int)Math.floor(coordConverter.getAbsoluteXOffsetInPixels());
+        this.yOffset = (int)Math.floor(coordConverter.getAbsoluteYOffsetInPixels());
+        this.width = Math.max(0, (int)Math.ceil(coordConverter.getAbsoluteWidthInPixels()));
+        this.height = Math.max(0, (int)Math.ceil(coordConverter.getAbsoluteHeightInPixels()));
+        this.hexRadius = hexRadius;
+        
+        // one extra cell on every side for the partial hexagons along the
+        // edges
+        this.columnCount = (int)Math.ceil(this.width / (SQRT_3 * hexRadius)) + 2;
+        this.rowCount = (int)Math.ceil(this.height / (1.5 * hexRadius)) + 2;
+        final int cellCount = this.columnCount * this.rowCount;
+        
+        double graphWidth = coordConverter.getGraphWidth();
+        double graphHeight = coordConverter.getGraphHeight();
+        final double graphOriginX = coordConverter.getGraphOriginX();
+        final double graphOriginY = coordConverter.getGraphOriginY();
+        final double xScale = graphWidth == 0.0 ?
+                              0.0 :
+                              coordConverter.getAbsoluteWidthInPixels() / graphWidth;
+        final double yScale = graphHeight == 0.0 ?
+                              0.0 :
+                              coordConverter.getAbsoluteHeightInPixels() / graphHeight;
+        
+        // split the points into one stripe per thread. each stripe gets its
+        // own buffers so there's no contention. the point cells don't need
+        // that since every point has its own slot
+        final int pointCount = Math.min(xValues.length, yValues.length);
+        final int[] pointCells = new int[pointCount];
+        int stripeCount = Math.max(1, Math.min(
+                ParallelChunkExecutor.getParallelism(),
+                pointCount / MINIMUM_POINTS_PER_STRIPE));
+        final int stripeSize = (pointCount + stripeCount - 1) / stripeCount;
+        final int[][] stripeCounts = new int[stripeCount][];
+        final double[][] stripeSums = new double[stripeCount][];
+        final int[][] stripeValueCounts = new int[stripeCount][];
+        ParallelChunkExecutor.execute(
+                stripeCount,
+                1,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromStripe, int toStripe)
+                    {
+                        for(int stripe = fromStripe; stripe < toStripe; stripe++)
+                        {
+                            int[] counts = new int[cellCount];
+                            double[] sums = values == null ? null : new double[cellCount];
+                            int[] valueCounts = values == null ? null : new int[cellCount];
+                            int start = stripe * stripeSize;
+                            int stop = Math.min(pointCount, start + stripeSize);
+                            for(int i = start; i < stop; i++)
+                            {
+                                // NaN fails the range tests in cellAt so
+                                // missing values drop out there
+                                int cell = HexBinning.this.cellAt(
+                                        (xValues[i] - graphOriginX) * xScale,
+                                        HexBinning.this.height -
+                                        (yValues[i] - graphOriginY) * yScale);
+                                pointCells[i] = cell;
+                                if(cell >= 0)
+                                {
+                                    counts[cell]++;
+                                    if(values != null && !Double.isNaN(values[i]))
+                                    {
+                                        sums[cell] += values[i];
+                                        valueCounts[cell]++;
+                                    }
+                                }
+                            }
+                            stripeCounts[stripe] = counts;
+                            stripeSums[stripe] = sums;
+                            stripeValueCounts[stripe] = valueCounts;
+                        }
+                    }
+                });
+        
+        // fold the other stripes into the first one. there are far fewer
+        // cells than points so this isn't worth splitting up
+        this.counts = stripeCounts[0];
+        double[] sums = stripeSums[0];
+        int[] valueCounts = stripeValueCounts[0];
+        for(int stripe = 1; stripe < stripeCount; stripe++)
+        {
+            for(int cell = 0; cell < cellCount; cell++)
+            {
+                this.counts[cell] += stripeCounts[stripe][cell];
+                if(values != null)
+                {
+                    sums[cell] += stripeSums[stripe][cell];
+                    valueCounts[cell] += stripeValueCounts[stripe][cell];
+                }
+            }
+        }
+        
+        if(values == null)
+        {
+            this.means = null;
+        }
+        else
+        {
+            this.means = new double[cellCount];
+            for(int cell = 0; cell < cellCount; cell++)
+            {
+                this.means[cell] = valueCounts[cell] == 0 ?
+                                   Double.NaN :
+                                   sums[cell] / valueCounts[cell];
+            }
+        }
+        
+        // group the points by cell (a counting sort keeps each cell's
+        // points in index order)
+        this.cellStarts = new int[cellCount + 1];
+        for(int cell = 0; cell < cellCount; cell++)
+        {
+            this.cellStarts[cell + 1] = this.cellStarts[cell] + this.counts[cell];
+        }
+        this.cellPoints = new int[this.cellStarts[cellCount]];
+        int[] nextPositions = Arrays.copyOf(this.cellStarts, cellCount);
+        for(int i = 0; i < pointCount; i++)
+        {
+            int cell = pointCells[i];
+            if(cell >= 0)
+            {
+                this.cellPoints[nextPositions[cell]++] = i;
+            }
+        }
+    }
+    
+    /**
+     * Find the cell containing the given point
+     * @param x
+     *          the x position relative to the left edge of the area
+     * @param y
+     *          the y position relative to the top edge of the area
+     * @return
+     *          the cell or -1 if the point is outside of the area
+     */
+    private int cellAt(double x, double y)
+    {
+        if(!(x >= 0.0 && x <= this.width && y >= 0.0 && y <= this.height))
+        {
+            return -1;
+        }
+        
+        // convert to fractional cube coordinates and round to the nearest
+        // hexagon center
+        double cubeX = (SQRT_3 / 3.0 * x - y / 3.0) / this.hexRadius;
+        double cubeZ = (2.0 / 3.0 * y) / this.hexRadius;
+        double cubeY = -cubeX - cubeZ;
+        long roundedX = Math.round(cubeX);
+        long roundedY = Math.round(cubeY);
+        long roundedZ = Math.round(cubeZ);
+        double xError = Math.abs(roundedX - cubeX);
+        double yError = Math.abs(roundedY - cubeY);
+        double zError = Math.abs(roundedZ - cubeZ);
+        if(xError > yError && xError > zError)
+        {
+            roundedX = -roundedY - roundedZ;
+        }
+        else if(yError <= zError)
+        {
+            roundedZ = -roundedX - roundedY;
+        }
+        
+        // now to offset rows where odd rows are pushed right by half a
+        // cell
+        long row = roundedZ + 1;
+        long column = roundedX + ((roundedZ - (roundedZ & 1)) >> 1) + 1;
+        if(row < 0 || row >= this.rowCount || column < 0 || column >= this.columnCount)
+        {
+            return -1;
+        }
+        
+        return (int)(row * this.columnCount + column);
+    }
+    
+    /**
+     * Get the x position of a cell's center relative to the area
+     * @param cell
+     *          the cell
+     * @return
+     *          the x position
+     */
+    private double getCellCenterX(int cell)
+    {
+        int row = cell / this.columnCount - 1;
+        int column = cell % this.columnCount - 1;
+        return SQRT_3 * this.hexRadius * (column + 0.5 * (row & 1));
+    }
+    
+    /**
+     * Get the y position of a cell's center relative to the area
+     * @param cell
+     *          the cell
+     * @return
+     *          the y position
+     */
+    private double getCellCenterY(int cell)
+    {
+        return 1.5 * this.hexRadius * (cell / this.columnCount - 1);
+    }
+    
+    /**
+     * Getter for the Java2D x position of the area's left edge
+     * @return
+     *          the x offset
+     */
+    public int getXOffset()
+    {
+        return this.xOffset;
+    }
+    
+    /**
+     * Getter for the Java2D y position of the area's top edge
+     * @return
+     *          the y offset
+     */
+    public int getYOffset()
+    {
+        return this.yOffset;
+    }
+    
+    /**
+     * Getter for the hexagon radius
+     * @return
+     *          the distance from a cell's center to its corners in pixels
+     */
+    public double getHexRadius()
+    {
+        return this.hexRadius;
+    }
+    
+    /**
+     * Getter for the number of cells
+     * @return
+     *          the cell count
+     */
+    public int getCellCount()
+    {
+        return this.counts.length;
+    }
+    
+    /**
+     * Get the number of points in a cell
+     * @param cell
+     *          the cell
+     * @return
+     *          the count
+     */
+    public int getCount(int cell)
+    {
+        return this.counts[cell];
+    }
+    
+    /**
+     * Get the mean value in a cell
+     * @param cell
+     *          the cell
+     * @return
+     *          the mean or NaN if the cell has no values (or we weren't
+     *          given any)
+     */
+    public double getMean(int cell)
+    {
+        return this.means == null ? Double.NaN : this.means[cell];
+    }
+    
+    /**
+     * Find the cell under the given Java2D point
+     * @param java2DX
+     *          the Java2D x coordinate
+     * @param java2DY
+     *          the Java2D y coordinate
+     * @return
+     *          the cell or -1 if the point isn't in the area
+     */
+    public int getCellAt(double java2DX, double java2DY)
+    {
+        return this.cellAt(java2DX - this.xOffset, java2DY - this.yOffset);
+    }
+    
+    /**
+     * Get the points in a cell
+     * @param cell
+     *          the cell
+     * @return
+     *          the point indices in ascending order
+     */
+    public int[] getPointsInCell(int cell)
+    {
+        return Arrays.copyOfRange(
+                this.cellPoints,
+                this.cellStarts[cell],
+                this.cellStarts[cell + 1]);
+    }
+    
+    /**
+     * Draw the non-empty cells colored by their point counts
+     * @param colorRamp
+     *          the ramp to color the counts with
+     * @return
+     *          the image or null if the area is empty
+     */
+    public BufferedImage toCountImage(DensityColorRamp colorRamp)
+    {
+        return this.toImage(colorRamp.toARGB(this.counts));
+    }
+    
+    /**
+     * Draw the non-empty cells colored by their mean values. The means are
+     * scaled from the smallest to the largest across the palette and cells
+     * without a mean get the palette's missing color
+     * @param palette
+     *          the palette
+     * @return
+     *          the image or null if the area is empty
+     */
+    public BufferedImage toMeanImage(PointPalette palette)
+    {
+        double minimum = Double.POSITIVE_INFINITY;
+        double maximum = Double.NEGATIVE_INFINITY;
+        for(int cell = 0; cell < this.counts.length; cell++)
+        {
+            double mean = this.getMean(cell);
+            if(this.counts[cell] > 0 && !Double.isNaN(mean))
+            {
+                minimum = Math.min(minimum, mean);
+                maximum = Math.max(maximum, mean);
+            }
+        }
+        
+        double range = maximum - minimum;
+        int colorCount = palette.getColorCount();
+        int[] argb = new int[this.counts.length];
+        for(int cell = 0; cell < this.counts.length; cell++)
+        {
+            if(this.counts[cell] > 0)
+            {
+                double mean = this.getMean(cell);
+                Color color;
+                if(Double.isNaN(mean))
+                {
+                    color = palette.getMissingColor();
+                }
+                else
+                {
+                    color = palette.getColor(range > 0.0 ?
+                            (int)((mean - minimum) / range * (colorCount - 1) + 0.5) :
+                            colorCount / 2);
+                }
+                argb[cell] = color.getRGB();
+            }
+        }
+        
+        return this.toImage(argb);
+    }
+    
+    /**
+     * Draw the non-empty cells
+     * @param cellColors
+     *          the ARGB color of every cell (0 to leave it out)
+     * @return
+     *          the image or null if the area is empty
+     */
+    private BufferedImage toImage(int[] cellColors)
+    {
+        if(this.width == 0 || this.height == 0)
+        {
+            return null;
+        }
+        
+        // the corners of a hexagon centered on the origin
+        double[] cornerXs = new double[6];
+        double[] cornerYs = new double[6];
+        for(int corner = 0; corner < 6; corner++)
+        {
+            double angle = Math.toRadians(60 * corner + 30);
+            cornerXs[corner] = this.hexRadius * Math.cos(angle);
+            cornerYs[corner] = this.hexRadius * Math.sin(angle);
+        }
+        
+        BufferedImage image = new BufferedImage(
+                this.width,
+                this.height,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics2D = image.createGraphics();
+        try
+        {
+            Path2D.Double hexagon = new Path2D.Double();
+            for(int cell = 0; cell < cellColors.length; cell++)
+            {
+                if(cellColors[cell] != 0)
+                {
+                    double centerX = this.getCellCenterX(cell);
+                    double centerY = this.getCellCenterY(cell);
+                    hexagon.reset();
+                    hexagon.moveTo(centerX + cornerXs[0], centerY + cornerYs[0]);
+                    for(int corner = 1; corner < 6; corner++)
+                    {
+                        hexagon.lineTo(
+                                centerX + cornerXs[corner],
+                                centerY + cornerYs[corner]);
+                    }
+                    hexagon.closePath();
+                    
+                    graphics2D.setColor(new Color(cellColors[cell], true));
+                    graphics2D.fill(hexagon);
+                }
+            }
+        }
+        finally
+        {
+            graphics2D.dispose();
+        }
+        
+        return image;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Point;
+import java.awt.Polygon;
+import java.util.Arrays;
+
+import org.jax.analyticgraph.data.IndexBitmap;
+
+/**
+ * A freeform lasso that the user is drawing over a {@link ScatterPlot}.
+ * The preview of what's inside is kept up to date as the lasso grows.
+ * Adding vertex n to a polygon swaps the closing edge (n-1, 0) for the
+ * edges (n-1, n) and (n, 0), and under the even-odd rule that flips
+ * exactly the points inside the triangle (0, n-1, n). So each new vertex
+ * only costs a triangle query instead of testing the whole polygon again.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class LassoSelection extends SelectionPreview
+{
+    /**
+     * new vertices closer than this many pixels to the last one are
+     * ignored so that slow drags don't pile up vertices
+     */
+    private static final int MIN_VERTEX_SPACING = 2;
+    
+    /**
+     * the lasso in Java2D coordinates (for drawing)
+     */
+    private final Polygon outline = new Polygon();
+    
+    /**
+     * the lasso vertex x coordinates in graph coordinates
+     */
+    private double[] xValues = new double[64];
+    
+    /**
+     * the lasso vertex y coordinates in graph coordinates
+     */
+    private double[] yValues = new double[64];
+    
+    /**
+     * the number of vertices
+     */
+    private int vertexCount = 0;
+    
+    /**
+     * Constructor
+     * @param pointIndex
+     *          the index of the points we're lassoing
+     */
+    public LassoSelection(PointSpatialIndex pointIndex)
+    {
+        super(pointIndex);
+    }
+    
+    /**
+     * Add a vertex to the lasso and update the preview
+     * @param java2DPoint
+     *          the vertex in Java2D coordinates
+     * @param graphX
+     *          the vertex x in graph coordinates
+     * @param graphY
+     *          the vertex y in graph coordinates
+     * @return
+     *          true if the vertex was added or false if it was too close
+     *          to the last one
+     */
+    public boolean addVertex(Point java2DPoint, double graphX, double graphY)
+    {
+        int lastVertex = this.vertexCount - 1;
+        if(lastVertex >= 0 &&
+           Math.abs(java2DPoint.x - this.outline.xpoints[lastVertex]) < MIN_VERTEX_SPACING &&
+           Math.abs(java2DPoint.y - this.outline.ypoints[lastVertex]) < MIN_VERTEX_SPACING)
+        {
+            return false;
+        }
+        
+        if(this.vertexCount == this.xValues.length)
+        {
+            this.xValues = Arrays.copyOf(this.xValues, this.vertexCount * 2);
+            this.yValues = Arrays.copyOf(this.yValues, this.vertexCount * 2);
+        }
+        this.xValues[this.vertexCount] = graphX;
+        this.yValues[this.vertexCount] = graphY;
+        this.vertexCount++;
+        this.outline.addPoint(java2DPoint.x, java2DPoint.y);
+        
+        if(this.vertexCount >= 3)
+        {
+            double[] triangleXValues = new double[] {
+                    this.xValues[0],
+                    this.xValues[lastVertex],
+                    graphX};
+            double[] triangleYValues = new double[] {
+                    this.yValues[0],
+                    this.yValues[lastVertex],
+                    graphY};
+            IndexBitmap trianglePoints = this.getPointIndex().findPointsInPolygon(
+                    triangleXValues,
+                    triangleYValues,
+                    3);
+            for(int i = trianglePoints.nextSetBit(0);
+                i >= 0;
+                i = trianglePoints.nextSetBit(i + 1))
+            {
+                this.flip(i);
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Getter for the lasso outline in Java2D coordinates
+     * @return
+     *          the outline. don't modify this
+     */
+    public Polygon getOutline()
+    {
+        return this.outline;
+    }
+    
+    /**
+     * Test every candidate point against the finished lasso
+     * @return
+     *          the points inside the lasso
+     */
+    public IndexBitmap findSelectedPoints()
+    {
+        return this.getPointIndex().findPointsInPolygon(
+                this.xValues,
+                this.yValues,
+                this.vertexCount);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+/**
+ * An ordering of the points to draw that groups together the points that
+ * share a style (see {@link PointStyleMapping}). Each batch of points can
+ * then be drawn with a single glyph rather than working out the color and
+ * size of every point as it's drawn. Within a batch the points stay in
+ * their original order. This class is immutable.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class PointBatches
+{
+    /**
+     * the point indices in drawing order or null if the points are drawn
+     * in index order
+     */
+    private final int[] pointOrder;
+    
+    /**
+     * @see #getPointCount()
+     */
+    private final int pointCount;
+    
+    /**
+     * where each batch starts in the drawing order with one extra entry
+     * for the end of the last batch
+     */
+    private final int[] batchStarts;
+    
+    /**
+     * the style of each batch
+     */
+    private final int[] batchStyles;
+    
+    /**
+     * Constructor for a single batch with style 0
+     * @param pointIndices
+     *          the indices of the points to draw or null to draw all of
+     *          them
+     * @param pointCount
+     *          the total number of points (used if the indices are null)
+     */
+    public PointBatches(int[] pointIndices, int pointCount)
+    {
+        this.pointOrder = pointIndices;
+        this.pointCount = pointIndices == null ? pointCount : pointIndices.length;
+        this.batchStarts = new int[] {0, this.pointCount};
+        this.batchStyles = new int[] {0};
+    }
+    
+    /**
+     * Constructor that groups the points by style using a counting sort
+     * @param pointIndices
+     *          the indices of the points to draw or null to draw all of
+     *          them
+     * @param pointCount
+     *          the total number of points (used if the indices are null)
+     * @param styleCodes
+     *          the style of every point
+     * @param styleCount
+     *          the number of styles
+     */
+    public PointBatches(
+            int[] pointIndices,
+            int pointCount,
+            int[] styleCodes,
+            int styleCount)
+    {
+        this.pointCount = pointIndices == null ? pointCount : pointIndices.length;
+        
+        int[] styleStarts = new int[styleCount + 1];
+        for(int position = 0; position < this.pointCount; position++)
+        {
+            int point = pointIndices == null ? position : pointIndices[position];
+            styleStarts[styleCodes[point] + 1]++;
+        }
+        
+        int batchCount = 0;
+        for(int style = 0; style < styleCount; style++)
+        {
+            if(styleStarts[style + 1] > 0)
+            {
+                batchCount++;
+            }
+            styleStarts[style + 1] += styleStarts[style];
+        }
+        
+        this.batchStarts = new int[batchCount + 1];
+        this.batchStyles = new int[batchCount];
+        int batch = 0;
+        for(int style = 0; style < styleCount; style++)
+        {
+            if(styleStarts[style + 1] > styleStarts[style])
+            {
+                this.batchStarts[batch] = styleStarts[style];
+                this.batchStyles[batch] = style;
+                batch++;
+            }
+        }
+        this.batchStarts[batchCount] = this.pointCount;
+        
+        this.pointOrder = new int[this.pointCount];
+        for(int position = 0; position < this.pointCount; position++)
+        {
+            int point = pointIndices == null ? position : pointIndices[position];
+            this.pointOrder[styleStarts[styleCodes[point]]++] = point;
+        }
+    }
+    
+    /**
+     * Getter for the number of points to draw
+     * @return
+     *          the point count
+     */
+    public int getPointCount()
+    {
+        return this.pointCount;
+    }
+    
+    /**
+     * Get the index of the point at the given drawing position
+     * @param position
+     *          the position
+     * @return
+     *          the point index
+     */
+    public int getPointIndex(int position)
+    {
+        return this.pointOrder == null ? position : this.pointOrder[position];
+    }
+    
+    /**
+     * Getter for the number of batches
+     * @return
+     *          the batch count
+     */
+    public int getBatchCount()
+    {
+        return this.batchStyles.length;
+    }
+    
+    /**
+     * Get the drawing position where the given batch starts
+     * @param batch
+     *          the batch. passing the batch count gives the end of the
+     *          last batch
+     * @return
+     *          the position
+     */
+    public int getBatchStart(int batch)
+    {
+        return this.batchStarts[batch];
+    }
+    
+    /**
+     * Get the style shared by the points in the given batch
+     * @param batch
+     *          the batch
+     * @return
+     *          the style
+     */
+    public int getBatchStyle(int batch)
+    {
+        return this.batchStyles[batch];
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Color;
+
+/**
+ * A lookup table of point colors for coloring a {@link ScatterPlot} by a
+ * data column. Category codes index straight into the table (wrapping
+ * around if there are more categories than colors) and numeric values are
+ * quantized onto it, so the color for every point can be worked out once
+ * up front. This class is immutable.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class PointPalette
+{
+    /**
+     * a palette of easy to tell apart colors for categorical data
+     */
+    public static final PointPalette DEFAULT_CATEGORICAL = new PointPalette(
+            new Color[] {
+                    new Color(0x1F77B4),
+                    new Color(0xFF7F0E),
+                    new Color(0x2CA02C),
+                    new Color(0xD62728),
+                    new Color(0x9467BD),
+                    new Color(0x8C564B),
+                    new Color(0xE377C2),
+                    new Color(0x7F7F7F),
+                    new Color(0xBCBD22),
+                    new Color(0x17BECF)},
+            Color.LIGHT_GRAY);
+    
+    /**
+     * a blue to red ramp for numeric data
+     */
+    public static final PointPalette DEFAULT_NUMERIC = PointPalette.createRamp(
+            new Color(0x2C7BB6),
+            new Color(0xD7191C),
+            64,
+            Color.LIGHT_GRAY);
+    
+    /**
+     * the colors
+     */
+    private final Color[] colors;
+    
+    /**
+     * @see #getMissingColor()
+     */
+    private final Color missingColor;
+    
+    /**
+     * Constructor
+     * @param colors
+     *          the colors (this is copied)
+     * @param missingColor
+     *          the color for points with a missing value
+     * @throws IllegalArgumentException
+     *          if there aren't any colors
+     */
+    public PointPalette(Color[] colors, Color missingColor)
+    throws IllegalArgumentException
+    {
+        if(colors.length == 0)
+        {
+            throw new IllegalArgumentException(
+                    "a palette needs at least one color");
+        }
+        
+        this.colors = colors.clone();
+        this.missingColor = missingColor;
+    }
+    
+    /**
+     * Create a palette that ramps evenly from one color to another
+     * @param lowColor
+     *          the color for the lowest values
+     * @param highColor
+     *          the color for the highest values
+     * @param colorCount
+     *          the number of steps in the ramp
+     * @param missingColor
+     *          the color for points with a missing value
+     * @return
+     *          the palette
+     */
+    public static PointPalette createRamp(
+            Color lowColor,
+            Color highColor,
+            int colorCount,
+            Color missingColor)
+    {
+        Color[] colors = new Color[colorCount];
+        for(int i = 0; i < colorCount; i++)
+        {
+            double level = colorCount == 1 ? 1.0 : i / (double)(colorCount - 1);
+            colors[i] = new Color(
+                    PointPalette.mix(lowColor.getRed(), highColor.getRed(), level),
+                    PointPalette.mix(lowColor.getGreen(), highColor.getGreen(), level),
+                    PointPalette.mix(lowColor.getBlue(), highColor.getBlue(), level),
+                    PointPalette.mix(lowColor.getAlpha(), highColor.getAlpha(), level));
+        }
+        
+        return new PointPalette(colors, missingColor);
+    }
+    
+    /**
+     * Mix two color components
+     * @param low
+     *          the low component
+     * @param high
+     *          the high component
+     * @param level
+     *          how far we are from low to high
+     * @return
+     *          the mixed component
+     */
+    private static int mix(int low, int high, double level)
+    {
+        return (int)Math.round(low + (high - low) * level);
+    }
+    
+    /**
+     * Getter for the number of colors in the palette (not counting the
+     * missing color)
+     * @return
+     *          the color count
+     */
+    public int getColorCount()
+    {
+        return this.colors.length;
+    }
+    
+    /**
+     * Get the color at the given position
+     * @param colorIndex
+     *          the position
+     * @return
+     *          the color
+     */
+    public Color getColor(int colorIndex)
+    {
+        return this.colors[colorIndex];
+    }
+    
+    /**
+     * Getter for the color used for points with a missing value
+     * @return
+     *          the missing color
+     */
+    public Color getMissingColor()
+    {
+        return this.missingColor;
+    }
+}
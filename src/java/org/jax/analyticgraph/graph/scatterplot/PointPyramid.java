@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A multi-resolution sample of the points in a {@link PointSpatialIndex}.
+ * Each grid cell's points are shuffled once so that any prefix of a cell
+ * is a random sample of it. The finer levels keep the first 1/2^k of
+ * every cell (but never less than one point for a cell that has any), so
+ * sparse areas and outliers survive while dense areas get thinned out.
+ * Level 0 is every point. Once every cell is down to one point the
+ * coarser levels keep one point for every non-empty block of 2^m by 2^m
+ * cells, which is what lets a huge grid fit in a small budget. Levels
+ * nest, and since they're bucketed by cell only the visible cells ever
+ * get looked at.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class PointPyramid
+{
+    /**
+     * the seed for shuffling cells. a fixed seed keeps redraws stable
+     */
+    private static final long SHUFFLE_SEED = 0x5CA77E9L;
+    
+    /**
+     * the index that we sample
+     */
+    private final PointSpatialIndex index;
+    
+    /**
+     * the index's cell points with each cell shuffled
+     */
+    private final int[] shuffledCellPoints;
+    
+    /**
+     * the number of levels that thin out each cell. the levels after
+     * these are block levels
+     */
+    private final int cellLevelCount;
+    
+    /**
+     * @see #getLevelCount()
+     */
+    private final int levelCount;
+    
+    /**
+     * Build a pyramid over the given index. This touches every point so
+     * for big indices it should be done off of the EDT
+     * @param index
+     *          the index
+     */
+    public PointPyramid(PointSpatialIndex index)
+    {
+        this.index = index;
+        
+        int[] cellStart = index.getCellStart();
+        int[] cellPoints = Arrays.copyOf(
+                index.getCellPoints(),
+                index.getCellPoints().length);
+        Random random = new Random(SHUFFLE_SEED);
+        int maxCellSize = 0;
+        for(int cell = 0; cell < cellStart.length - 1; cell++)
+        {
+            int start = cellStart[cell];
+            int cellSize = cellStart[cell + 1] - start;
+            maxCellSize = Math.max(maxCellSize, cellSize);
+            
+            // fisher-yates shuffle of this cell
+            for(int i = cellSize - 1; i > 0; i--)
+            {
+                int j = random.nextInt(i + 1);
+                int temp = cellPoints[start + i];
+                cellPoints[start + i] = cellPoints[start + j];
+                cellPoints[start + j] = temp;
+            }
+        }
+        this.shuffledCellPoints = cellPoints;
+        
+        // past this level every non-empty cell is down to one point
+        int cellLevels = 1;
+        while((1 << (cellLevels - 1)) < maxCellSize && cellLevels < 31)
+        {
+            cellLevels++;
+        }
+        this.cellLevelCount = cellLevels;
+        
+        // and past this one the whole grid is a single block
+        int gridSize = Math.max(index.getColumnCount(), index.getRowCount());
+        int blockLevels = 0;
+        while((1 << blockLevels) < gridSize)
+        {
+            blockLevels++;
+        }
+        this.levelCount = cellLevels + blockLevels;
+    }
+    
+    /**
+     * Getter for the index that this pyramid samples
+     * @return
+     *          the index
+     */
+    public PointSpatialIndex getIndex()
+    {
+        return this.index;
+    }
+    
+    /**
+     * Getter for the number of levels. Level 0 has every point and the
+     * last level has at most one point
+     * @return
+     *          the level count
+     */
+    public int getLevelCount()
+    {
+        return this.levelCount;
+    }
+    
+    /**
+     * Pick the most detailed level that keeps the number of points in the
+     * cells overlapping the given rectangle within the budget. Only the
+     * last level can go over and only when the budget is less than one
+     * @param left
+     *          the left edge
+     * @param bottom
+     *          the bottom edge
+     * @param right
+     *          the right edge
+     * @param top
+     *          the top edge
+     * @param pointBudget
+     *          the most points we want to draw
+     * @return
+     *          the level
+     */
+    public int chooseLevel(
+            double left,
+            double bottom,
+            double right,
+            double top,
+            int pointBudget)
+    {
+        if(!this.index.overlapsPoints(left, bottom, right, top))
+        {
+            return 0;
+        }
+        
+        // the cells in a row are contiguous so each row's count is just
+        // the difference of two cell starts. that makes level 0 (the
+        // common case once we're zoomed in) cheap to check
+        PointSpatialIndex index = this.index;
+        int[] cellStart = index.getCellStart();
+        int columnCount = index.getColumnCount();
+        int startColumn = index.columnFor(left);
+        int endColumn = index.columnFor(right);
+        int startRow = index.rowFor(bottom);
+        int endRow = index.rowFor(top);
+        long visibleCount = 0L;
+        for(int row = startRow; row <= endRow; row++)
+        {
+            int rowStart = row * columnCount;
+            visibleCount +=
+                cellStart[rowStart + endColumn + 1] -
+                cellStart[rowStart + startColumn];
+        }
+        
+        // past level 0 we add up what each level really keeps since the
+        // per cell and per block minimums make halving a poor estimate
+        int level = 0;
+        long levelPointCount = visibleCount;
+        while(level < this.levelCount - 1 && levelPointCount > pointBudget)
+        {
+            level++;
+            levelPointCount = this.collectLevelPoints(
+                    startColumn,
+                    endColumn,
+                    startRow,
+                    endRow,
+                    level,
+                    null);
+        }
+        return level;
+    }
+    
+    /**
+     * Get the level's points in the cells that overlap the given
+     * rectangle. Points near the edges can fall just outside of the
+     * rectangle so callers still need to clip
+     * @param left
+     *          the left edge
+     * @param bottom
+     *          the bottom edge
+     * @param right
+     *          the right edge
+     * @param top
+     *          the top edge
+     * @param level
+     *          the level
+     * @return
+     *          the point indices
+     */
+    public int[] getPointsInRectangle(
+            double left,
+            double bottom,
+            double right,
+            double top,
+            int level)
+    {
+        if(!this.index.overlapsPoints(left, bottom, right, top))
+        {
+            return new int[0];
+        }
+        
+        PointSpatialIndex index = this.index;
+        int startColumn = index.columnFor(left);
+        int endColumn = index.columnFor(right);
+        int startRow = index.rowFor(bottom);
+        int endRow = index.rowFor(top);
+        
+        // size the result exactly up front
+        int[] points = new int[this.collectLevelPoints(
+                startColumn,
+                endColumn,
+                startRow,
+                endRow,
+                level,
+                null)];
+        this.collectLevelPoints(
+                startColumn,
+                endColumn,
+                startRow,
+                endRow,
+                level,
+                points);
+        
+        return points;
+    }
+    
+    /**
+     * Count or collect the level's points in the given range of cells
+     * @param startColumn
+     *          the first column
+     * @param endColumn
+     *          the last column (inclusive)
+     * @param startRow
+     *          the first row
+     * @param endRow
+     *          the last row (inclusive)
+     * @param level
+     *          the level
+     * @param points
+     *          the array to collect the points into or null to just count
+     *          them
+     * @return
+     *          the number of points
+     */
+    private int collectLevelPoints(
+            int startColumn,
+            int endColumn,
+            int startRow,
+            int endRow,
+            int level,
+            int[] points)
+    {
+        int[] cellStart = this.index.getCellStart();
+        int columnCount = this.index.getColumnCount();
+        int pointCount = 0;
+        if(level < this.cellLevelCount)
+        {
+            for(int row = startRow; row <= endRow; row++)
+            {
+                for(int column = startColumn; column <= endColumn; column++)
+                {
+                    int cell = row * columnCount + column;
+                    int start = cellStart[cell];
+                    int levelSize = PointPyramid.levelCellSize(
+                            cellStart[cell + 1] - start,
+                            level);
+                    if(points != null)
+                    {
+                        System.arraycopy(
+                                this.shuffledCellPoints,
+                                start,
+                                points,
+                                pointCount,
+                                levelSize);
+                    }
+                    pointCount += levelSize;
+                }
+            }
+        }
+        else
+        {
+            // blocks line up with the whole grid rather than the view so
+            // that panning doesn't reshuffle them. each block is stood in
+            // for by its first point in the visible non-empty cell with
+            // the lowest rank. a block's rank winner always wins one of
+            // its quarters too so the block levels nest
+            int blockShift = level - this.cellLevelCount + 1;
+            int endBlockRow = endRow >> blockShift;
+            int endBlockColumn = endColumn >> blockShift;
+            for(int blockRow = startRow >> blockShift;
+                blockRow <= endBlockRow;
+                blockRow++)
+            {
+                int fromRow = Math.max(startRow, blockRow << blockShift);
+                int toRow = Math.min(endRow, ((blockRow + 1) << blockShift) - 1);
+                for(int blockColumn = startColumn >> blockShift;
+                    blockColumn <= endBlockColumn;
+                    blockColumn++)
+                {
+                    int fromColumn = Math.max(
+                            startColumn,
+                            blockColumn << blockShift);
+                    int toColumn = Math.min(
+                            endColumn,
+                            ((blockColumn + 1) << blockShift) - 1);
+                    int bestCell = -1;
+                    long bestRank = Long.MAX_VALUE;
+                    for(int row = fromRow; row <= toRow; row++)
+                    {
+                        for(int column = fromColumn; column <= toColumn; column++)
+                        {
+                            int cell = row * columnCount + column;
+                            if(cellStart[cell + 1] > cellStart[cell])
+                            {
+                                long rank = PointPyramid.cellRank(cell);
+                                if(rank < bestRank)
+                                {
+                                    bestRank = rank;
+                                    bestCell = cell;
+                                }
+                            }
+                        }
+                    }
+                    
+                    if(bestCell != -1)
+                    {
+                        if(points != null)
+                        {
+                            points[pointCount] =
+                                this.shuffledCellPoints[cellStart[bestCell]];
+                        }
+                        pointCount++;
+                    }
+                }
+            }
+        }
+        
+        return pointCount;
+    }
+    
+    /**
+     * Get a pseudo random but repeatable rank for a cell. Block levels
+     * keep the point from the lowest ranked cell in each block
+     * @param cell
+     *          the cell
+     * @return
+     *          the rank
+     */
+    private static long cellRank(int cell)
+    {
+        // the murmur3 finalizer
+        long hash = cell ^ SHUFFLE_SEED;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+    
+    /**
+     * Get how many of a cell's points a level keeps
+     * @param cellSize
+     *          the number of points in the cell
+     * @param level
+     *          the level
+     * @return
+     *          the number of points kept
+     */
+    private static int levelCellSize(int cellSize, int level)
+    {
+        // round up so that no non-empty cell ever disappears
+        return (int)((cellSize + (1L << level) - 1L) >> level);
+    }
+}
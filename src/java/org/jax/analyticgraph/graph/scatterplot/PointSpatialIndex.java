@@ -0,0 +1,1119 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.util.Arrays;
+
+import org.jax.analyticgraph.data.IndexBitmap;
+import org.jax.analyticgraph.data.ParallelChunkExecutor;
+
+/**
+ * A uniform grid over the (x, y) graph coordinates of a set of points.
+ * The point indices are bucketed by cell with a counting sort so the
+ * whole index is just two int arrays. Points where either coordinate is
+ * NaN (missing) are left out. The index holds on to the coordinate arrays
+ * it was built from, so they must not be modified afterwards.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class PointSpatialIndex
+{
+    /**
+     * the number of points we'd like to see in each cell on average
+     */
+    private static final int TARGET_POINTS_PER_CELL = 4;
+    
+    /**
+     * the most cells we'll use along either axis
+     */
+    private static final int MAX_CELLS_PER_AXIS = 2048;
+    
+    /**
+     * an empty result
+     */
+    private static final int[] NO_POINTS = new int[0];
+    
+    /**
+     * @see #getXValues()
+     */
+    private final double[] xValues;
+    
+    /**
+     * @see #getYValues()
+     */
+    private final double[] yValues;
+    
+    /**
+     * the smallest indexed x value
+     */
+    private final double minX;
+    
+    /**
+     * the smallest indexed y value
+     */
+    private final double minY;
+    
+    /**
+     * the largest indexed x value
+     */
+    private final double maxX;
+    
+    /**
+     * the largest indexed y value
+     */
+    private final double maxY;
+    
+    /**
+     * the number of grid columns (along x)
+     */
+    private final int columnCount;
+    
+    /**
+     * the number of grid rows (along y)
+     */
+    private final int rowCount;
+    
+    /**
+     * multiply by this to go from a graph x offset to a column
+     */
+    private final double columnsPerUnitX;
+    
+    /**
+     * multiply by this to go from a graph y offset to a row
+     */
+    private final double rowsPerUnitY;
+    
+    /**
+     * where each cell's points start in {@link #cellPoints}. this has one
+     * more entry than there are cells so that cell i runs from
+     * cellStart[i] to cellStart[i + 1]
+     */
+    private final int[] cellStart;
+    
+    /**
+     * the point indices ordered by cell
+     */
+    private final int[] cellPoints;
+    
+    /**
+     * Build an index over the given points
+     * @param xValues
+     *          the x graph coordinates
+     * @param yValues
+     *          the y graph coordinates
+     * @throws IllegalArgumentException
+     *          if the arrays aren't the same length
+     */
+    public PointSpatialIndex(double[] xValues, double[] yValues)
+    throws IllegalArgumentException
+    {
+        if(xValues.length != yValues.length)
+        {
+            throw new IllegalArgumentException(
+                    "x and y value counts don't match: " + xValues.length +
+                    " != " + yValues.length);
+        }
+        
+        this.xValues = xValues;
+        this.yValues = yValues;
+        
+        // find the bounds of the points we're going to index
+        double currMinX = Double.POSITIVE_INFINITY;
+        double currMinY = Double.POSITIVE_INFINITY;
+        double currMaxX = Double.NEGATIVE_INFINITY;
+        double currMaxY = Double.NEGATIVE_INFINITY;
+        int pointCount = 0;
+        for(int i = 0; i < xValues.length; i++)
+        {
+            double x = xValues[i];
+            double y = yValues[i];
+            if(!Double.isNaN(x) && !Double.isNaN(y))
+            {
+                currMinX = Math.min(currMinX, x);
+                currMaxX = Math.max(currMaxX, x);
+                currMinY = Math.min(currMinY, y);
+                currMaxY = Math.max(currMaxY, y);
+                pointCount++;
+            }
+        }
+        
+        if(pointCount == 0)
+        {
+            currMinX = currMinY = currMaxX = currMaxY = 0.0;
+        }
+        this.minX = currMinX;
+        this.minY = currMinY;
+        this.maxX = currMaxX;
+        this.maxY = currMaxY;
+        
+        // pick a square-ish grid with a few points per cell
+        int cellsPerAxis = (int)Math.ceil(Math.sqrt(
+                pointCount / (double)TARGET_POINTS_PER_CELL));
+        cellsPerAxis = Math.max(1, Math.min(MAX_CELLS_PER_AXIS, cellsPerAxis));
+        double width = this.maxX - this.minX;
+        double height = this.maxY - this.minY;
+        this.columnCount = width > 0.0 ? cellsPerAxis : 1;
+        this.rowCount = height > 0.0 ? cellsPerAxis : 1;
+        this.columnsPerUnitX = width > 0.0 ? this.columnCount / width : 0.0;
+        this.rowsPerUnitY = height > 0.0 ? this.rowCount / height : 0.0;
+        
+        // counting sort of the point indices by cell. first count...
+        int cellCount = this.columnCount * this.rowCount;
+        int[] pointCells = new int[xValues.length];
+        this.cellStart = new int[cellCount + 1];
+        for(int i = 0; i < xValues.length; i++)
+        {
+            double x = xValues[i];
+            double y = yValues[i];
+            if(Double.isNaN(x) || Double.isNaN(y))
+            {
+                pointCells[i] = -1;
+            }
+            else
+            {
+                int cell = this.rowFor(y) * this.columnCount + this.columnFor(x);
+                pointCells[i] = cell;
+                this.cellStart[cell + 1]++;
+            }
+        }
+        
+        // ... then turn the counts into offsets ...
+        for(int i = 0; i < cellCount; i++)
+        {
+            this.cellStart[i + 1] += this.cellStart[i];
+        }
+        
+        // ... then drop the points into place
+        this.cellPoints = new int[pointCount];
+        int[] cellFill = Arrays.copyOf(this.cellStart, cellCount);
+        for(int i = 0; i < pointCells.length; i++)
+        {
+            int cell = pointCells[i];
+            if(cell >= 0)
+            {
+                this.cellPoints[cellFill[cell]++] = i;
+            }
+        }
+    }
+    
+    /**
+     * Get the number of points in the index (this doesn't count points
+     * with missing coordinates)
+     * @return
+     *          the point count
+     */
+    public int getPointCount()
+    {
+        return this.cellPoints.length;
+    }
+    
+    /**
+     * Getter for the x coordinates that this index was built from
+     * @return
+     *          the x values
+     */
+    public double[] getXValues()
+    {
+        return this.xValues;
+    }
+    
+    /**
+     * Getter for the y coordinates that this index was built from
+     * @return
+     *          the y values
+     */
+    public double[] getYValues()
+    {
+        return this.yValues;
+    }
+    
+    /**
+     * Determine if the given rectangle overlaps the bounds of the indexed
+     * points
+     * @param left
+     *          the left edge
+     * @param bottom
+     *          the bottom edge
+     * @param right
+     *          the right edge
+     * @param top
+     *          the top edge
+     * @return
+     *          true if it does
+     */
+    boolean overlapsPoints(
+            double left,
+            double bottom,
+            double right,
+            double top)
+    {
+        return this.cellPoints.length > 0 &&
+               left <= this.maxX && right >= this.minX &&
+               bottom <= this.maxY && top >= this.minY;
+    }
+    
+    /**
+     * Determine if the given rectangle contains all of the indexed points
+     * @param left
+     *          the left edge
+     * @param bottom
+     *          the bottom edge
+     * @param right
+     *          the right edge
+     * @param top
+     *          the top edge
+     * @return
+     *          true if it does
+     */
+    boolean isCoveredBy(
+            double left,
+            double bottom,
+            double right,
+            double top)
+    {
+        return left <= this.minX && right >= this.maxX &&
+               bottom <= this.minY && top >= this.maxY;
+    }
+    
+    /**
+     * Get the points in every cell that overlaps the given rectangle. This
+     * is a cheap way to cull points that can't be visible. Points in the
+     * edge cells can still fall outside of the rectangle
+     * @param left
+     *          the left edge
+     * @param bottom
+     *          the bottom edge
+     * @param right
+     *          the right edge
+     * @param top
+     *          the top edge
+     * @return
+     *          the point indices ordered by cell
+     */
+    int[] getPointsInOverlappingCells(
+            double left,
+            double bottom,
+            double right,
+            double top)
+    {
+        if(!this.overlapsPoints(left, bottom, right, top))
+        {
+            return new int[0];
+        }
+        
+        // the cells in a row are contiguous so each row is one copy
+        int startColumn = this.columnFor(left);
+        int endColumn = this.columnFor(right);
+        int startRow = this.rowFor(bottom);
+        int endRow = this.rowFor(top);
+        int pointCount = 0;
+        for(int row = startRow; row <= endRow; row++)
+        {
+            int rowStart = row * this.columnCount;
+            pointCount +=
+                this.cellStart[rowStart + endColumn + 1] -
+                this.cellStart[rowStart + startColumn];
+        }
+        
+        int[] points = new int[pointCount];
+        int pointsCopied = 0;
+        for(int row = startRow; row <= endRow; row++)
+        {
+            int rowStart = row * this.columnCount;
+            int start = this.cellStart[rowStart + startColumn];
+            int length = this.cellStart[rowStart + endColumn + 1] - start;
+            System.arraycopy(this.cellPoints, start, points, pointsCopied, length);
+            pointsCopied += length;
+        }
+        
+        return points;
+    }
+    
+    /**
+     * Getter for the number of grid columns
+     * @return
+     *          the column count
+     */
+    int getColumnCount()
+    {
+        return this.columnCount;
+    }
+    
+    /**
+     * Getter for the number of grid rows
+     * @return
+     *          the row count
+     */
+    int getRowCount()
+    {
+        return this.rowCount;
+    }
+    
+    /**
+     * Getter for where each cell starts in {@link #getCellPoints()}. Cell
+     * i runs from cellStart[i] to cellStart[i + 1]. Don't modify this
+     * @return
+     *          the cell starts
+     */
+    int[] getCellStart()
+    {
+        return this.cellStart;
+    }
+    
+    /**
+     * Getter for the point indices ordered by cell. Don't modify this
+     * @return
+     *          the point indices
+     */
+    int[] getCellPoints()
+    {
+        return this.cellPoints;
+    }
+    
+    /**
+     * Find all of the points that fall strictly inside of the given
+     * rectangle
+     * @param left
+     *          the left edge
+     * @param bottom
+     *          the bottom edge
+     * @param right
+     *          the right edge
+     * @param top
+     *          the top edge
+     * @return
+     *          the indices of the points inside the rectangle
+     */
+    public IndexBitmap findPointsInRectangle(
+            double left,
+            double bottom,
+            double right,
+            double top)
+    {
+        if(this.cellPoints.length == 0 ||
+           !(left < this.maxX && right > this.minX &&
+             bottom < this.maxY && top > this.minY))
+        {
+            return new IndexBitmap();
+        }
+        
+        // gather the matches first so that we know how big to make the
+        // bitmap. growing it as we go gets expensive with a lot of points
+        int[] points = new int[64];
+        int pointCount = 0;
+        int maxPoint = -1;
+        int startColumn = this.columnFor(left);
+        int endColumn = this.columnFor(right);
+        int startRow = this.rowFor(bottom);
+        int endRow = this.rowFor(top);
+        for(int row = startRow; row <= endRow; row++)
+        {
+            for(int column = startColumn; column <= endColumn; column++)
+            {
+                int cell = row * this.columnCount + column;
+                int stop = this.cellStart[cell + 1];
+                for(int i = this.cellStart[cell]; i < stop; i++)
+                {
+                    int point = this.cellPoints[i];
+                    double x = this.xValues[point];
+                    double y = this.yValues[point];
+                    if(x > left && x < right && y > bottom && y < top)
+                    {
+                        if(pointCount == points.length)
+                        {
+                            points = Arrays.copyOf(points, pointCount * 2);
+                        }
+                        points[pointCount++] = point;
+                        maxPoint = Math.max(maxPoint, point);
+                    }
+                }
+            }
+        }
+        
+        IndexBitmap pointBitmap = new IndexBitmap(maxPoint + 1);
+        for(int i = 0; i < pointCount; i++)
+        {
+            pointBitmap.set(points[i]);
+        }
+        
+        return pointBitmap;
+    }
+    
+    /**
+     * Find all of the points inside of the given polygon using the
+     * even-odd rule. The grid is walked a row at a time in parallel. For
+     * each row we only look at the cells that the polygon actually spans
+     * within that row, and only test the points in them against the
+     * polygon edges that pass through the row, so big lassos don't cost
+     * a full polygon test for every point in their bounding box.
+     * @param polygonXValues
+     *          the x coordinates of the polygon's vertices
+     * @param polygonYValues
+     *          the y coordinates of the polygon's vertices
+     * @param vertexCount
+     *          the number of vertices to use from the arrays. the polygon
+     *          is closed automatically
+     * @return
+     *          the indices of the points inside the polygon
+     */
+    public IndexBitmap findPointsInPolygon(
+            final double[] polygonXValues,
+            final double[] polygonYValues,
+            final int vertexCount)
+    {
+        if(vertexCount < 3 || this.cellPoints.length == 0)
+        {
+            return new IndexBitmap();
+        }
+        
+        double bottom = Double.POSITIVE_INFINITY;
+        double top = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < vertexCount; i++)
+        {
+            bottom = Math.min(bottom, polygonYValues[i]);
+            top = Math.max(top, polygonYValues[i]);
+        }
+        
+        final int startRow = this.rowFor(bottom);
+        int endRow = this.rowFor(top);
+        final int[][] rowMatches = new int[endRow - startRow + 1][];
+        ParallelChunkExecutor.execute(
+                rowMatches.length,
+                1,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromIndex, int toIndex)
+                    {
+                        PolygonRowScanner scanner = new PolygonRowScanner(
+                                polygonXValues,
+                                polygonYValues,
+                                vertexCount);
+                        for(int i = fromIndex; i < toIndex; i++)
+                        {
+                            rowMatches[i] = scanner.scanRow(startRow + i);
+                        }
+                    }
+                });
+        
+        int maxPoint = -1;
+        for(int[] currMatches: rowMatches)
+        {
+            for(int point: currMatches)
+            {
+                maxPoint = Math.max(maxPoint, point);
+            }
+        }
+        
+        IndexBitmap pointBitmap = new IndexBitmap(maxPoint + 1);
+        for(int[] currMatches: rowMatches)
+        {
+            for(int point: currMatches)
+            {
+                pointBitmap.set(point);
+            }
+        }
+        
+        return pointBitmap;
+    }
+    
+    /**
+     * Tests the points in one grid row at a time against a polygon. Each
+     * instance keeps its own scratch space so use one per thread.
+     */
+    private class PolygonRowScanner
+    {
+        private final double[] polygonXValues;
+        
+        private final double[] polygonYValues;
+        
+        private final int vertexCount;
+        
+        /**
+         * the edges that pass through the current row (start x, start y,
+         * end x, end y)
+         */
+        private final double[] rowEdges;
+        
+        /**
+         * Constructor
+         * @param polygonXValues
+         *          the polygon vertex x coordinates
+         * @param polygonYValues
+         *          the polygon vertex y coordinates
+         * @param vertexCount
+         *          the number of vertices
+         */
+        public PolygonRowScanner(
+                double[] polygonXValues,
+                double[] polygonYValues,
+                int vertexCount)
+        {
+            this.polygonXValues = polygonXValues;
+            this.polygonYValues = polygonYValues;
+            this.vertexCount = vertexCount;
+            this.rowEdges = new double[vertexCount * 4];
+        }
+        
+        /**
+         * Find the points in the given row that fall inside the polygon
+         * @param row
+         *          the row
+         * @return
+         *          the matching point indices
+         */
+        public int[] scanRow(int row)
+        {
+            PointSpatialIndex index = PointSpatialIndex.this;
+            
+            // the y band covered by this row. the outer rows pick up any
+            // points clamped into them
+            double bandBottom = row == 0 ?
+                    Double.NEGATIVE_INFINITY :
+                    index.minY + row / index.rowsPerUnitY;
+            double bandTop = row == index.rowCount - 1 ?
+                    Double.POSITIVE_INFINITY :
+                    index.minY + (row + 1) / index.rowsPerUnitY;
+            
+            // gather the edges passing through the band and the x range
+            // that they cover inside of it
+            double bandLeft = Double.POSITIVE_INFINITY;
+            double bandRight = Double.NEGATIVE_INFINITY;
+            int edgeCount = 0;
+            double previousX = this.polygonXValues[this.vertexCount - 1];
+            double previousY = this.polygonYValues[this.vertexCount - 1];
+            for(int i = 0; i < this.vertexCount; i++)
+            {
+                double currX = this.polygonXValues[i];
+                double currY = this.polygonYValues[i];
+                double edgeBottom = Math.min(previousY, currY);
+                double edgeTop = Math.max(previousY, currY);
+                if(edgeTop >= bandBottom && edgeBottom <= bandTop)
+                {
+                    int edgeOffset = edgeCount * 4;
+                    this.rowEdges[edgeOffset] = previousX;
+                    this.rowEdges[edgeOffset + 1] = previousY;
+                    this.rowEdges[edgeOffset + 2] = currX;
+                    this.rowEdges[edgeOffset + 3] = currY;
+                    edgeCount++;
+                    
+                    // clip the edge to the band to get its x extent
+                    if(edgeTop == edgeBottom)
+                    {
+                        bandLeft = Math.min(bandLeft, Math.min(previousX, currX));
+                        bandRight = Math.max(bandRight, Math.max(previousX, currX));
+                    }
+                    else
+                    {
+                        double clippedBottom = Math.max(edgeBottom, bandBottom);
+                        double clippedTop = Math.min(edgeTop, bandTop);
+                        double slope = (currX - previousX) / (currY - previousY);
+                        double x1 = previousX + (clippedBottom - previousY) * slope;
+                        double x2 = previousX + (clippedTop - previousY) * slope;
+                        bandLeft = Math.min(bandLeft, Math.min(x1, x2));
+                        bandRight = Math.max(bandRight, Math.max(x1, x2));
+                    }
+                }
+                previousX = currX;
+                previousY = currY;
+            }
+            
+            if(edgeCount == 0)
+            {
+                return NO_POINTS;
+            }
+            
+            int[] matches = NO_POINTS;
+            int matchCount = 0;
+            int rowStart = row * index.columnCount;
+            int start = index.cellStart[rowStart + index.columnFor(bandLeft)];
+            int stop = index.cellStart[rowStart + index.columnFor(bandRight) + 1];
+            for(int i = start; i < stop; i++)
+            {
+                int point = index.cellPoints[i];
+                if(this.isInside(index.xValues[point], index.yValues[point], edgeCount))
+                {
+                    if(matchCount == matches.length)
+                    {
+                        matches = Arrays.copyOf(
+                                matches,
+                                Math.max(16, matchCount * 2));
+                    }
+                    matches[matchCount++] = point;
+                }
+            }
+            
+            return matchCount == matches.length ?
+                   matches :
+                   Arrays.copyOf(matches, matchCount);
+        }
+        
+        /**
+         * Even-odd test of a point against the edges in the current row
+         * @param x
+         *          the point x
+         * @param y
+         *          the point y
+         * @param edgeCount
+         *          the number of edges in {@link #rowEdges}
+         * @return
+         *          true if the point is inside
+         */
+        private boolean isInside(double x, double y, int edgeCount)
+        {
+            // edges outside of the row can't cross a ray from a point in
+            // the row so testing these is the same as testing all of them
+            double[] edges = this.rowEdges;
+            boolean inside = false;
+            for(int i = 0; i < edgeCount * 4; i += 4)
+            {
+                double previousX = edges[i];
+                double previousY = edges[i + 1];
+                double currX = edges[i + 2];
+                double currY = edges[i + 3];
+                if((currY > y) != (previousY > y) &&
+                   x < (previousX - currX) * (y - currY) / (previousY - currY) + currX)
+                {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+    }
+    
+    /**
+     * Find all of the points within the ellipse centered on the given
+     * coordinate. Using an ellipse lets callers work with a radius that's
+     * a fixed number of pixels even when the x and y axes have different
+     * scales.
+     * @param x
+     *          the center x coordinate
+     * @param y
+     *          the center y coordinate
+     * @param xRadius
+     *          the radius along the x axis
+     * @param yRadius
+     *          the radius along the y axis
+     * @return
+     *          the point indices in ascending order
+     */
+    public int[] findPointsNear(
+            double x,
+            double y,
+            double xRadius,
+            double yRadius)
+    {
+        if(this.cellPoints.length == 0 || xRadius < 0.0 || yRadius < 0.0)
+        {
+            return new int[0];
+        }
+        
+        int[] points = new int[16];
+        int pointCount = 0;
+        
+        int startColumn = this.columnFor(x - xRadius);
+        int endColumn = this.columnFor(x + xRadius);
+        int startRow = this.rowFor(y - yRadius);
+        int endRow = this.rowFor(y + yRadius);
+        for(int row = startRow; row <= endRow; row++)
+        {
+            for(int column = startColumn; column <= endColumn; column++)
+            {
+                int cell = row * this.columnCount + column;
+                int stop = this.cellStart[cell + 1];
+                for(int i = this.cellStart[cell]; i < stop; i++)
+                {
+                    int point = this.cellPoints[i];
+                    if(PointSpatialIndex.normalizedDistanceSq(
+                            this.xValues[point] - x,
+                            this.yValues[point] - y,
+                            xRadius,
+                            yRadius) <= 1.0)
+                    {
+                        if(pointCount == points.length)
+                        {
+                            points = Arrays.copyOf(points, pointCount * 2);
+                        }
+                        points[pointCount++] = point;
+                    }
+                }
+            }
+        }
+        
+        points = Arrays.copyOf(points, pointCount);
+        Arrays.sort(points);
+        return points;
+    }
+    
+    /**
+     * Find the point nearest to the given coordinate ignoring anything
+     * further away than the given distance. Unlike
+     * {@link #findNearestPoints(double, double, int, double, double)} we
+     * only ever look at the cells within reach so this stays cheap when
+     * there's nothing nearby, which makes it a good fit for hovering.
+     * @param x
+     *          the x coordinate
+     * @param y
+     *          the y coordinate
+     * @param maxDistance
+     *          the furthest away (in scaled units) a point can be
+     * @param xScale
+     *          the scale for x offsets (eg: pixels per graph unit)
+     * @param yScale
+     *          the scale for y offsets
+     * @return
+     *          the nearest point index or -1 if nothing is within reach
+     */
+    public int findNearestPointWithin(
+            double x,
+            double y,
+            double maxDistance,
+            double xScale,
+            double yScale)
+    {
+        double xReach = maxDistance / Math.abs(xScale);
+        double yReach = maxDistance / Math.abs(yScale);
+        if(!(maxDistance >= 0.0) ||
+           !this.overlapsPoints(x - xReach, y - yReach, x + xReach, y + yReach))
+        {
+            return -1;
+        }
+        
+        int nearestPoint = -1;
+        double nearestDistance = maxDistance * maxDistance;
+        int startColumn = this.columnFor(x - xReach);
+        int endColumn = this.columnFor(x + xReach);
+        int startRow = this.rowFor(y - yReach);
+        int endRow = this.rowFor(y + yReach);
+        
+        // how far (in scaled units) one ring of cells reaches at least
+        double cellReach = Math.min(
+                this.columnsPerUnitX == 0.0 ?
+                        Double.POSITIVE_INFINITY :
+                        Math.abs(xScale) / this.columnsPerUnitX,
+                this.rowsPerUnitY == 0.0 ?
+                        Double.POSITIVE_INFINITY :
+                        Math.abs(yScale) / this.rowsPerUnitY);
+        
+        // search outward a ring of cells at a time so that in dense areas
+        // we can stop long before we get to the edge of the reach
+        int centerColumn = this.columnFor(x);
+        int centerRow = this.rowFor(y);
+        int maxRing = Math.max(
+                Math.max(centerColumn - startColumn, endColumn - centerColumn),
+                Math.max(centerRow - startRow, endRow - centerRow));
+        for(int ring = 0; ring <= maxRing; ring++)
+        {
+            int ringStartRow = Math.max(startRow, centerRow - ring);
+            int ringEndRow = Math.min(endRow, centerRow + ring);
+            for(int row = ringStartRow; row <= ringEndRow; row++)
+            {
+                boolean edgeRow =
+                    row == centerRow - ring || row == centerRow + ring;
+                int columnStep = edgeRow ? 1 : 2 * ring;
+                for(int column = centerColumn - ring;
+                    column <= centerColumn + ring;
+                    column += Math.max(1, columnStep))
+                {
+                    if(column < startColumn || column > endColumn)
+                    {
+                        continue;
+                    }
+                    
+                    int cell = row * this.columnCount + column;
+                    int stop = this.cellStart[cell + 1];
+                    for(int i = this.cellStart[cell]; i < stop; i++)
+                    {
+                        int point = this.cellPoints[i];
+                        double dx = (this.xValues[point] - x) * xScale;
+                        double dy = (this.yValues[point] - y) * yScale;
+                        double distance = dx * dx + dy * dy;
+                        
+                        // break ties toward the lower index so that the
+                        // answer doesn't depend on the search order
+                        if(distance < nearestDistance ||
+                           (distance == nearestDistance &&
+                            (nearestPoint == -1 || point < nearestPoint)))
+                        {
+                            nearestPoint = point;
+                            nearestDistance = distance;
+                        }
+                    }
+                }
+            }
+            
+            // anything outside of the rings we've searched is at least
+            // this far away
+            double searchedReach = ring * cellReach;
+            if(nearestPoint != -1 &&
+               nearestDistance < searchedReach * searchedReach)
+            {
+                break;
+            }
+        }
+        
+        return nearestPoint;
+    }
+    
+    /**
+     * Find the k points nearest to the given coordinate. Distances are
+     * measured after multiplying x and y offsets by the given scales
+     * which lets the caller measure in pixels rather than graph units.
+     * @param x
+     *          the x coordinate
+     * @param y
+     *          the y coordinate
+     * @param k
+     *          the number of points we want
+     * @param xScale
+     *          the scale for x offsets (eg: pixels per graph unit)
+     * @param yScale
+     *          the scale for y offsets
+     * @return
+     *          up to k point indices, nearest first
+     */
+    public int[] findNearestPoints(
+            double x,
+            double y,
+            int k,
+            double xScale,
+            double yScale)
+    {
+        k = Math.min(k, this.cellPoints.length);
+        if(k <= 0)
+        {
+            return new int[0];
+        }
+        
+        // a max-heap on distance holding the best k we've seen so far
+        int[] heapPoints = new int[k];
+        double[] heapDistances = new double[k];
+        int heapSize = 0;
+        
+        // how far (in scaled units) one ring of cells reaches at least
+        double cellReach = Math.min(
+                this.columnsPerUnitX == 0.0 ?
+                        Double.POSITIVE_INFINITY :
+                        Math.abs(xScale) / this.columnsPerUnitX,
+                this.rowsPerUnitY == 0.0 ?
+                        Double.POSITIVE_INFINITY :
+                        Math.abs(yScale) / this.rowsPerUnitY);
+        
+        // search outward one ring of cells at a time from the cell that
+        // holds the query point
+        int centerColumn = this.columnFor(x);
+        int centerRow = this.rowFor(y);
+        int maxRing = Math.max(
+                Math.max(centerColumn, this.columnCount - 1 - centerColumn),
+                Math.max(centerRow, this.rowCount - 1 - centerRow));
+        for(int ring = 0; ring <= maxRing; ring++)
+        {
+            int startRow = Math.max(0, centerRow - ring);
+            int endRow = Math.min(this.rowCount - 1, centerRow + ring);
+            for(int row = startRow; row <= endRow; row++)
+            {
+                boolean edgeRow =
+                    row == centerRow - ring || row == centerRow + ring;
+                int columnStep = edgeRow ? 1 : 2 * ring;
+                for(int column = centerColumn - ring;
+                    column <= centerColumn + ring;
+                    column += Math.max(1, columnStep))
+                {
+                    if(column < 0 || column >= this.columnCount)
+                    {
+                        continue;
+                    }
+                    
+                    int cell = row * this.columnCount + column;
+                    int stop = this.cellStart[cell + 1];
+                    for(int i = this.cellStart[cell]; i < stop; i++)
+                    {
+                        int point = this.cellPoints[i];
+                        double dx = (this.xValues[point] - x) * xScale;
+                        double dy = (this.yValues[point] - y) * yScale;
+                        double distance = dx * dx + dy * dy;
+                        if(heapSize < k)
+                        {
+                            heapPoints[heapSize] = point;
+                            heapDistances[heapSize] = distance;
+                            PointSpatialIndex.siftUp(
+                                    heapPoints,
+                                    heapDistances,
+                                    heapSize);
+                            heapSize++;
+                        }
+                        else if(distance < heapDistances[0])
+                        {
+                            heapPoints[0] = point;
+                            heapDistances[0] = distance;
+                            PointSpatialIndex.siftDown(
+                                    heapPoints,
+                                    heapDistances,
+                                    heapSize);
+                        }
+                    }
+                }
+            }
+            
+            // anything outside of the rings we've searched is at least
+            // this far away, so once our worst match is closer we're done
+            if(heapSize == k)
+            {
+                double searchedReach = ring * cellReach;
+                if(heapDistances[0] <= searchedReach * searchedReach)
+                {
+                    break;
+                }
+            }
+        }
+        
+        // pull the heap apart from worst to best
+        int[] nearestPoints = new int[heapSize];
+        for(int i = heapSize - 1; i >= 0; i--)
+        {
+            nearestPoints[i] = heapPoints[0];
+            heapPoints[0] = heapPoints[i];
+            heapDistances[0] = heapDistances[i];
+            PointSpatialIndex.siftDown(heapPoints, heapDistances, i);
+        }
+        
+        return nearestPoints;
+    }
+    
+    /**
+     * Get the grid column for the given x coordinate (clamped to the grid)
+     * @param x
+     *          the x coordinate
+     * @return
+     *          the column
+     */
+    int columnFor(double x)
+    {
+        int column = (int)((x - this.minX) * this.columnsPerUnitX);
+        return Math.max(0, Math.min(this.columnCount - 1, column));
+    }
+    
+    /**
+     * Get the grid row for the given y coordinate (clamped to the grid)
+     * @param y
+     *          the y coordinate
+     * @return
+     *          the row
+     */
+    int rowFor(double y)
+    {
+        int row = (int)((y - this.minY) * this.rowsPerUnitY);
+        return Math.max(0, Math.min(this.rowCount - 1, row));
+    }
+    
+    /**
+     * Get the squared distance of an offset after normalizing by the
+     * radii
+     * @param dx
+     *          the x offset
+     * @param dy
+     *          the y offset
+     * @param xRadius
+     *          the x radius
+     * @param yRadius
+     *          the y radius
+     * @return
+     *          the squared distance. 1 or less is inside the ellipse
+     */
+    private static double normalizedDistanceSq(
+            double dx,
+            double dy,
+            double xRadius,
+            double yRadius)
+    {
+        // a zero radius only admits points right on the center line
+        double nx = xRadius == 0.0 ?
+                    (dx == 0.0 ? 0.0 : Double.POSITIVE_INFINITY) :
+                    dx / xRadius;
+        double ny = yRadius == 0.0 ?
+                    (dy == 0.0 ? 0.0 : Double.POSITIVE_INFINITY) :
+                    dy / yRadius;
+        return nx * nx + ny * ny;
+    }
+    
+    /**
+     * Restore the max-heap property after adding an element at the end
+     * @param points
+     *          the heap points
+     * @param distances
+     *          the heap distances
+     * @param index
+     *          the index of the new element
+     */
+    private static void siftUp(int[] points, double[] distances, int index)
+    {
+        int point = points[index];
+        double distance = distances[index];
+        while(index > 0)
+        {
+            int parent = (index - 1) >>> 1;
+            if(distances[parent] >= distance)
+            {
+                break;
+            }
+            points[index] = points[parent];
+            distances[index] = distances[parent];
+            index = parent;
+        }
+        points[index] = point;
+        distances[index] = distance;
+    }
+    
+    /**
+     * Restore the max-heap property after replacing the root
+     * @param points
+     *          the heap points
+     * @param distances
+     *          the heap distances
+     * @param heapSize
+     *          the number of elements in the heap
+     */
+    private static void siftDown(int[] points, double[] distances, int heapSize)
+    {
+        int point = points[0];
+        double distance = distances[0];
+        int index = 0;
+        while(true)
+        {
+            int child = 2 * index + 1;
+            if(child >= heapSize)
+            {
+                break;
+            }
+            if(child + 1 < heapSize && distances[child + 1] > distances[child])
+            {
+                child++;
+            }
+            if(distances[child] <= distance)
+            {
+                break;
+            }
+            points[index] = points[child];
+            distances[index] = distances[child];
+            index = child;
+        }
+        points[index] = point;
+        distances[index] = distance;
+    }
+}
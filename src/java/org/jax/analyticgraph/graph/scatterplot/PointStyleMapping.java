@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Color;
+
+import org.jax.analyticgraph.data.NamedCategoricalData;
+import org.jax.analyticgraph.data.NamedData;
+import org.jax.analyticgraph.data.NumericColumn;
+import org.jax.analyticgraph.data.ParallelChunkExecutor;
+
+/**
+ * Maps every point of a {@link ScatterPlot} to a style code, which is a
+ * color code from a {@link PointPalette} combined with a size code. The
+ * codes are worked out once (in parallel) when the mapping is built so
+ * drawing never has to look at the color-by or size-by data. Points with
+ * the same code can be drawn together (see {@link PointBatches}). This
+ * class is immutable apart from lazily caching the batches for drawing
+ * every point.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class PointStyleMapping
+{
+    /**
+     * the smallest number of points worth handing to another thread
+     */
+    private static final int MINIMUM_CHUNK_SIZE = 1 << 16;
+    
+    /**
+     * the palette or null if we aren't coloring by data
+     */
+    private final PointPalette palette;
+    
+    /**
+     * the number of color codes (including one for missing values)
+     */
+    private final int colorCodeCount;
+    
+    /**
+     * the smallest point width when we're sizing by data
+     */
+    private final int minPointWidth;
+    
+    /**
+     * @see #getSizeCodeCount()
+     */
+    private final int sizeCodeCount;
+    
+    /**
+     * true if we're sizing by data
+     */
+    private final boolean sizedByData;
+    
+    /**
+     * @see #getStyleCodes()
+     */
+    private final int[] styleCodes;
+    
+    /**
+     * the batches for drawing every point or null if we haven't needed
+     * them yet
+     */
+    private PointBatches allPointBatches;
+    
+    /**
+     * Constructor
+     * @param pointCount
+     *          the number of points in the plot
+     * @param colorByData
+     *          the data to color by or null to leave the color alone
+     * @param palette
+     *          the palette to color with (ignored if the color-by data is
+     *          null). {@link NamedCategoricalData} category codes index
+     *          into the palette while other data is scaled between its
+     *          minimum and maximum onto the palette
+     * @param sizeByData
+     *          the data to size by or null to leave the size alone
+     * @param minPointWidth
+     *          the width for the smallest size-by value
+     * @param maxPointWidth
+     *          the width for the largest size-by value
+     * @throws IllegalArgumentException
+     *          if the data doesn't have one value per point or the widths
+     *          don't make sense
+     */
+    public PointStyleMapping(
+            int pointCount,
+            NamedData<Number> colorByData,
+            PointPalette palette,
+            NamedData<Number> sizeByData,
+            int minPointWidth,
+            int maxPointWidth)
+    throws IllegalArgumentException
+    {
+        if(colorByData != null && colorByData.getSize() != pointCount)
+        {
+            throw new IllegalArgumentException(
+                    "the color-by data has " + colorByData.getSize() +
+                    " values but there are " + pointCount + " points");
+        }
+        if(sizeByData != null && sizeByData.getSize() != pointCount)
+        {
+            throw new IllegalArgumentException(
+                    "the size-by data has " + sizeByData.getSize() +
+                    " values but there are " + pointCount + " points");
+        }
+        if(sizeByData != null && (minPointWidth < 1 || maxPointWidth < minPointWidth))
+        {
+            throw new IllegalArgumentException(
+                    "bad point width range: " + minPointWidth + " to " +
+                    maxPointWidth);
+        }
+        
+        this.palette = colorByData == null ? null : palette;
+        this.colorCodeCount = this.palette == null ?
+                              1 :
+                              this.palette.getColorCount() + 1;
+        this.sizedByData = sizeByData != null;
+        this.minPointWidth = minPointWidth;
+        this.sizeCodeCount = this.sizedByData ?
+                             maxPointWidth - minPointWidth + 1 :
+                             1;
+        this.styleCodes = new int[pointCount];
+        
+        if(this.palette != null)
+        {
+            this.computeColorCodes(colorByData);
+        }
+        if(this.sizedByData)
+        {
+            this.computeSizeCodes(sizeByData);
+        }
+    }
+    
+    /**
+     * Fill in the color codes
+     * @param colorByData
+     *          the data to color by
+     */
+    private void computeColorCodes(NamedData<Number> colorByData)
+    {
+        final int[] styleCodes = this.styleCodes;
+        final int sizeCodeCount = this.sizeCodeCount;
+        final int colorCount = this.palette.getColorCount();
+        if(colorByData instanceof NamedCategoricalData)
+        {
+            // category codes index straight into the palette
+            final Integer[] categories =
+                ((NamedCategoricalData)colorByData).getCategoricalNumericalData();
+            ParallelChunkExecutor.execute(
+                    styleCodes.length,
+                    MINIMUM_CHUNK_SIZE,
+                    new ParallelChunkExecutor.ChunkTask()
+                    {
+                        public void processChunk(int fromIndex, int toIndex)
+                        {
+                            for(int i = fromIndex; i < toIndex; i++)
+                            {
+                                Integer category = categories[i];
+                                int colorCode = category == null ?
+                                        colorCount :
+                                        ((category % colorCount) + colorCount) % colorCount;
+                                styleCodes[i] = colorCode * sizeCodeCount;
+                            }
+                        }
+                    });
+        }
+        else
+        {
+            // quantize the values onto the palette
+            NumericColumn column = NumericColumn.forData(colorByData);
+            final double[] values = column.getValues();
+            final double minimum = column.getMinimum();
+            double range = column.getMaximum() - minimum;
+            final double scale = range > 0.0 ? (colorCount - 1) / range : 0.0;
+            ParallelChunkExecutor.execute(
+                    styleCodes.length,
+                    MINIMUM_CHUNK_SIZE,
+                    new ParallelChunkExecutor.ChunkTask()
+                    {
+                        public void processChunk(int fromIndex, int toIndex)
+                        {
+                            for(int i = fromIndex; i < toIndex; i++)
+                            {
+                                double value = values[i];
+                                int colorCode = Double.isNaN(value) ?
+                                        colorCount :
+                                        (int)((value - minimum) * scale + 0.5);
+                                styleCodes[i] = colorCode * sizeCodeCount;
+                            }
+                        }
+                    });
+        }
+    }
+    
+    /**
+     * Add the size codes to the style codes
+     * @param sizeByData
+     *          the data to size by
+     */
+    private void computeSizeCodes(NamedData<Number> sizeByData)
+    {
+        final int[] styleCodes = this.styleCodes;
+        final int sizeCodeCount = this.sizeCodeCount;
+        NumericColumn column = NumericColumn.forData(sizeByData);
+        final double[] values = column.getValues();
+        final double minimum = column.getMinimum();
+        double range = column.getMaximum() - minimum;
+        final double scale = range > 0.0 ? (sizeCodeCount - 1) / range : 0.0;
+        ParallelChunkExecutor.execute(
+                styleCodes.length,
+                MINIMUM_CHUNK_SIZE,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromIndex, int toIndex)
+                    {
+                        for(int i = fromIndex; i < toIndex; i++)
+                        {
+                            // missing sizes get the smallest width
+                            double value = values[i];
+                            if(!Double.isNaN(value))
+                            {
+                                styleCodes[i] += (int)((value - minimum) * scale + 0.5);
+                            }
+                        }
+                    }
+                });
+    }
+    
+    /**
+     * Getter for the number of points
+     * @return
+     *          the point count
+     */
+    public int getPointCount()
+    {
+        return this.styleCodes.length;
+    }
+    
+    /**
+     * Getter for the style code of every point. Don't modify this
+     * @return
+     *          the style codes
+     */
+    public int[] getStyleCodes()
+    {
+        return this.styleCodes;
+    }
+    
+    /**
+     * Getter for the number of different styles
+     * @return
+     *          the style count
+     */
+    public int getStyleCount()
+    {
+        return this.colorCodeCount * this.sizeCodeCount;
+    }
+    
+    /**
+     * Getter for the number of different sizes
+     * @return
+     *          the size code count
+     */
+    public int getSizeCodeCount()
+    {
+        return this.sizeCodeCount;
+    }
+    
+    /**
+     * Get the size code part of a style code
+     * @param style
+     *          the style code
+     * @return
+     *          the size code
+     */
+    public int getSizeCode(int style)
+    {
+        return style % this.sizeCodeCount;
+    }
+    
+    /**
+     * Get the color for the given style
+     * @param style
+     *          the style code
+     * @param defaultColor
+     *          the color to use if we aren't coloring by data
+     * @return
+     *          the color
+     */
+    public Color getColor(int style, Color defaultColor)
+    {
+        if(this.palette == null)
+        {
+            return defaultColor;
+        }
+        
+        int colorCode = style / this.sizeCodeCount;
+        return colorCode == this.palette.getColorCount() ?
+               this.palette.getMissingColor() :
+               this.palette.getColor(colorCode);
+    }
+    
+    /**
+     * Get the point width for the given size code
+     * @param sizeCode
+     *          the size code
+     * @param defaultWidth
+     *          the width to use if we aren't sizing by data
+     * @return
+     *          the width
+     */
+    public int getWidth(int sizeCode, int defaultWidth)
+    {
+        return this.sizedByData ? this.minPointWidth + sizeCode : defaultWidth;
+    }
+    
+    /**
+     * Get the widest point we draw
+     * @param defaultWidth
+     *          the width to use if we aren't sizing by data
+     * @return
+     *          the width
+     */
+    public int getMaxWidth(int defaultWidth)
+    {
+        return this.getWidth(this.sizeCodeCount - 1, defaultWidth);
+    }
+    
+    /**
+     * Determine if points can have different sizes
+     * @return
+     *          true if we're sizing by data
+     */
+    public boolean isSizedByData()
+    {
+        return this.sizedByData;
+    }
+    
+    /**
+     * Group the given points by style
+     * @param pointIndices
+     *          the points to draw or null to draw all of them
+     * @return
+     *          the batches
+     */
+    public PointBatches createBatches(int[] pointIndices)
+    {
+        if(pointIndices != null)
+        {
+            return new PointBatches(
+                    pointIndices,
+                    pointIndices.length,
+                    this.styleCodes,
+                    this.getStyleCount());
+        }
+        
+        // drawing everything is common enough that it's worth holding on
+        // to the sort
+        synchronized(this)
+        {
+            if(this.allPointBatches == null)
+            {
+                this.allPointBatches = new PointBatches(
+                        null,
+                        this.styleCodes.length,
+                        this.styleCodes,
+                        this.getStyleCount());
+            }
+            return this.allPointBatches;
+        }
+    }
+}
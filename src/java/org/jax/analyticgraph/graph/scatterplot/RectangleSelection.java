@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+/**
+ * A selection rectangle that the user is dragging out over a
+ * {@link ScatterPlot}. When the rectangle changes only the strips between
+ * the old and new rectangles can change state, so those are the only parts
+ * of the index that we look at to keep the preview up to date. Like
+ * {@link PointSpatialIndex#findPointsInRectangle(double, double, double, double)}
+ * points have to be strictly inside the rectangle to be selected.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class RectangleSelection extends SelectionPreview
+{
+    /**
+     * @see #getJava2DRectangle()
+     */
+    private final Rectangle java2DRectangle;
+    
+    /**
+     * true once we have graph bounds
+     */
+    private boolean hasGraphBounds = false;
+    
+    /**
+     * the left edge in graph coordinates
+     */
+    private double left;
+    
+    /**
+     * the bottom edge in graph coordinates
+     */
+    private double bottom;
+    
+    /**
+     * the right edge in graph coordinates
+     */
+    private double right;
+    
+    /**
+     * the top edge in graph coordinates
+     */
+    private double top;
+    
+    /**
+     * Constructor
+     * @param pointIndex
+     *          the index of the points we're selecting
+     * @param java2DStartPoint
+     *          where the drag started in Java2D coordinates
+     */
+    public RectangleSelection(
+            PointSpatialIndex pointIndex,
+            Point java2DStartPoint)
+    {
+        super(pointIndex);
+        this.java2DRectangle = new Rectangle(java2DStartPoint);
+    }
+    
+    /**
+     * Getter for the rectangle in Java2D coordinates. The width and height
+     * are negative if the drag went up or left of the start point
+     * @return
+     *          the rectangle. don't modify this
+     */
+    public Rectangle getJava2DRectangle()
+    {
+        return this.java2DRectangle;
+    }
+    
+    /**
+     * Move the corner opposite the start point and update the preview
+     * @param java2DDragPoint
+     *          the new corner in Java2D coordinates
+     * @param left
+     *          the left edge of the rectangle in graph coordinates
+     * @param bottom
+     *          the bottom edge of the rectangle in graph coordinates
+     * @param right
+     *          the right edge of the rectangle in graph coordinates
+     * @param top
+     *          the top edge of the rectangle in graph coordinates
+     */
+    public void update(
+            Point java2DDragPoint,
+            double left,
+            double bottom,
+            double right,
+            double top)
+    {
+        this.java2DRectangle.width =
+            java2DDragPoint.x - this.java2DRectangle.x;
+        this.java2DRectangle.height =
+            java2DDragPoint.y - this.java2DRectangle.y;
+        
+        double oldLeft = this.left;
+        double oldBottom = this.bottom;
+        double oldRight = this.right;
+        double oldTop = this.top;
+        this.left = left;
+        this.bottom = bottom;
+        this.right = right;
+        this.top = top;
+        
+        if(!this.hasGraphBounds)
+        {
+            this.hasGraphBounds = true;
+            this.updateStrip(left, bottom, right, top);
+            return;
+        }
+        
+        double innerLeft = Math.max(oldLeft, left);
+        double innerBottom = Math.max(oldBottom, bottom);
+        double innerRight = Math.min(oldRight, right);
+        double innerTop = Math.min(oldTop, top);
+        if(innerLeft >= innerRight || innerBottom >= innerTop)
+        {
+            // nothing in common so anything in either one can change
+            this.updateStrip(oldLeft, oldBottom, oldRight, oldTop);
+            this.updateStrip(left, bottom, right, top);
+        }
+        else
+        {
+            // points inside of both rectangles stay put, so we only have
+            // to look at the strips around the intersection
+            double outerLeft = Math.min(oldLeft, left);
+            double outerBottom = Math.min(oldBottom, bottom);
+            double outerRight = Math.max(oldRight, right);
+            double outerTop = Math.max(oldTop, top);
+            this.updateStrip(outerLeft, outerBottom, innerLeft, outerTop);
+            this.updateStrip(innerRight, outerBottom, outerRight, outerTop);
+            this.updateStrip(innerLeft, outerBottom, innerRight, innerBottom);
+            this.updateStrip(innerLeft, innerTop, innerRight, outerTop);
+        }
+    }
+    
+    /**
+     * Bring the preview up to date for the points in the given strip
+     * @param stripLeft
+     *          the strip's left edge
+     * @param stripBottom
+     *          the strip's bottom edge
+     * @param stripRight
+     *          the strip's right edge
+     * @param stripTop
+     *          the strip's top edge
+     */
+    private void updateStrip(
+            double stripLeft,
+            double stripBottom,
+            double stripRight,
+            double stripTop)
+    {
+        // an empty strip means that the old and new edges are the same
+        // so none of the points along it can have changed
+        if(!(stripLeft < stripRight && stripBottom < stripTop))
+        {
+            return;
+        }
+        
+        PointSpatialIndex pointIndex = this.getPointIndex();
+        double[] xValues = pointIndex.getXValues();
+        double[] yValues = pointIndex.getYValues();
+        int[] candidates = pointIndex.getPointsInOverlappingCells(
+                stripLeft,
+                stripBottom,
+                stripRight,
+                stripTop);
+        for(int point: candidates)
+        {
+            double x = xValues[point];
+            double y = yValues[point];
+            boolean inside =
+                x > this.left && x < this.right &&
+                y > this.bottom && y < this.top;
+            if(inside != this.getPreview().get(point))
+            {
+                this.flip(point);
+            }
+        }
+    }
+}
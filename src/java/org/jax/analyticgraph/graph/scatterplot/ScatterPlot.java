@@ -24,30 +24,50 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
+import org.jax.analyticgraph.data.IndexBitmap;
+import org.jax.analyticgraph.data.NamedCategoricalData;
 import org.jax.analyticgraph.data.NamedData;
 import org.jax.analyticgraph.data.NamedDataMatrix;
+import org.jax.analyticgraph.data.NumericColumn;
 import org.jax.analyticgraph.data.SelectableData;
 import org.jax.analyticgraph.data.SelectableDataListener;
 import org.jax.analyticgraph.framework.AbstractGraph2DWithAxes;
+import org.jax.analyticgraph.framework.AsynchronousDataLoader;
+import org.jax.analyticgraph.framework.DataLoadMonitor;
+import org.jax.analyticgraph.framework.DataLoadProgressListener;
 import org.jax.analyticgraph.framework.GraphCoordinateConverter;
+import org.jax.analyticgraph.framework.PointOccupancyMask;
+import org.jax.analyticgraph.framework.PointRaster;
+import org.jax.analyticgraph.framework.PointStamp;
 import org.jax.analyticgraph.graph.AxisDescription;
 import org.jax.analyticgraph.graph.RegularIntervalAxisDescription;
 import org.jax.analyticgraph.graph.AxisDescription.AxisType;
-import org.jax.util.datastructure.SequenceUtilities;
-import org.jax.util.math.NumberComparator;
+import org.jax.util.ObjectUtil;
 
 /**
  * The interior part of the scatter plot (this is basically everything
@@ -60,6 +80,107 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
     
     private static final int DEFAULT_NUMBER_OF_TICKS = 10;
     
+    /**
+     * in {@link ScatterPlotRenderMode#DENSITY_RASTER},
+     * {@link ScatterPlotRenderMode#HEXBIN} and
+     * {@link ScatterPlotRenderMode#ACCUMULATION} mode we draw the
+     * selection as point markers as long as there aren't more than this
+     * many selected points. after that we draw it as a raster too
+     */
+    private static final int MAX_SELECTION_OVERLAY_MARKERS = 100000;
+    
+    /**
+     * plots with more points than this are rendered progressively when
+     * {@link #isProgressiveRenderingEnabled()} is true
+     */
+    private static final int PROGRESSIVE_RENDER_THRESHOLD = 200000;
+    
+    /**
+     * about how many points we draw before the first progressive frame
+     */
+    private static final int PROGRESSIVE_SAMPLE_SIZE = 50000;
+    
+    /**
+     * about how many points the progressive renderer draws between
+     * repaints
+     */
+    private static final int PROGRESSIVE_CHUNK_SIZE = 250000;
+    
+    /**
+     * the thread that does progressive rendering and builds point
+     * pyramids and density contours for all scatter plots
+     */
+    private static final ExecutorService BACKGROUND_RENDER_EXECUTOR =
+        Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(
+                        runnable,
+                        "scatter-plot-background-render");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    
+    /**
+     * we only bother building a {@link PointPyramid} for plots with more
+     * points than this
+     */
+    private static final int MIN_PYRAMID_POINT_COUNT = 200000;
+    
+    /**
+     * the default for {@link #getPointBudget()}
+     */
+    private static final int DEFAULT_POINT_BUDGET = 1000000;
+    
+    /**
+     * how much one notch of the mouse wheel zooms by
+     */
+    private static final double WHEEL_ZOOM_FACTOR_PER_NOTCH = 1.25;
+    
+    /**
+     * zoom rectangles smaller than this (in pixels) are ignored
+     */
+    private static final int MIN_ZOOM_RECTANGLE_SIZE = 3;
+    
+    /**
+     * the size of the tiles that the selection overlay is redrawn in when
+     * points drop out of the selection
+     */
+    private static final int SELECTION_OVERLAY_TILE_SIZE = 8;
+    
+    /**
+     * how close (in pixels) the mouse has to be to a point for us to show
+     * its tooltip
+     */
+    private static final double HOVER_RADIUS_PIXELS = 8.0;
+    
+    /**
+     * the least time between hover lookups. mouse moves that come in
+     * faster than this are coalesced so that we look up at most about
+     * one point per frame
+     */
+    private static final int HOVER_QUERY_INTERVAL_MILLIS = 16;
+    
+    /**
+     * the default hexagon radius in pixels for
+     * {@link ScatterPlotRenderMode#HEXBIN}
+     */
+    private static final int DEFAULT_HEX_BIN_RADIUS = 8;
+    
+    /**
+     * the default opacity of a single point in
+     * {@link ScatterPlotRenderMode#ACCUMULATION} mode
+     */
+    private static final double DEFAULT_ACCUMULATION_OPACITY = 0.1;
+    
+    private static final DensityColorRamp DEFAULT_DENSITY_COLOR_RAMP =
+        new DensityColorRamp(
+                new Color(198, 219, 239),
+                new Color(8, 48, 107),
+                DensityColorRamp.Scaling.LOG);
+    
     /**
      * our logger
      */
@@ -86,6 +207,97 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
      */
     private RegularIntervalAxisDescription yAxisDescription;
     
+    /**
+     * the x axis values as primitives (NaN means missing)
+     */
+    private double[] xValues;
+    
+    /**
+     * the y axis values as primitives (NaN means missing)
+     */
+    private double[] yValues;
+    
+    /**
+     * the spatial index over our points. this is built in
+     * {@link #plotData(NamedDataMatrix)}
+     */
+    private PointSpatialIndex pointIndex;
+    
+    /**
+     * incremented every time that {@link #plotData(NamedDataMatrix)} is
+     * called so that we know when the base layer is stale
+     */
+    private long dataVersion = 0L;
+    
+    /**
+     * the plotted data as of the last update. rendering reads this instead
+     * of the fields above so that it never has to take our lock, and
+     * updates never have to wait for a render to finish
+     */
+    private volatile RenderData renderData;
+    
+    /**
+     * guards the render caches (the layers, the binnings and the cached
+     * selection). it's separate from our own lock so that plotting new
+     * data or changing the selection doesn't wait on a render. we never
+     * take our own lock while holding this
+     */
+    private final Object renderLock = new Object();
+    
+    /**
+     * identifies what {@link #baseLayerImage} was drawn from
+     */
+    private BaseLayerKey baseLayerKey;
+    
+    /**
+     * everything that doesn't change when the selection changes (either
+     * unselected markers or the density raster) rendered offscreen. this
+     * can be null if there was nothing to draw
+     */
+    private BufferedImage baseLayerImage;
+    
+    /**
+     * the Java2D x position of {@link #baseLayerImage}
+     */
+    private int baseLayerXOffset;
+    
+    /**
+     * the Java2D y position of {@link #baseLayerImage}
+     */
+    private int baseLayerYOffset;
+    
+    /**
+     * the progressive render that's filling in the base layer or null if
+     * there isn't one running
+     */
+    private volatile ProgressiveRenderTask progressiveRenderTask;
+    
+    /**
+     * @see #isProgressiveRenderingEnabled()
+     */
+    private volatile boolean progressiveRenderingEnabled = true;
+    
+    /**
+     * @see #getRenderProgress()
+     */
+    private volatile double renderProgress = 1.0;
+    
+    /**
+     * @see #getTimeToFirstFrameMillis()
+     */
+    private volatile long timeToFirstFrameMillis = 0L;
+    
+    /**
+     * the level of detail pyramid over {@link #pointIndex}. this is built
+     * in the background so it's null until that's done
+     */
+    private volatile PointPyramid pointPyramid;
+    
+    /**
+     * @see #getPointBudget()
+     */
+    private volatile int pointBudget = DEFAULT_POINT_BUDGET;
+    
     /**
      * the minimum data point that we have on the x axis
      */
@@ -107,10 +319,216 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
     private double yAxisMax;
     
     /**
-     * the rectangle representing the overall area that the user is selecting.
-     * This selection rectangle uses Java2D color
+     * @see #getRenderMode()
+     */
+    private volatile ScatterPlotRenderMode renderMode =
+        ScatterPlotRenderMode.POINTS;
+    
+    /**
+     * @see #getDensityColorRamp()
+     */
+    private volatile DensityColorRamp densityColorRamp =
+        DEFAULT_DENSITY_COLOR_RAMP;
+    
+    /**
+     * @see #getAccumulationOpacity()
+     */
+    private volatile double accumulationOpacity =
+        DEFAULT_ACCUMULATION_OPACITY;
+    
+    /**
+     * draws the regression line and the smooth curve
+     */
+    private final TrendOverlay trendOverlay = new TrendOverlay();
+    
+    /**
+     * draws the density contours
+     */
+    private final ContourOverlay contourOverlay = new ContourOverlay(
+            BACKGROUND_RENDER_EXECUTOR,
+            new Runnable()
+            {
+                public void run()
+                {
+                    ScatterPlot.this.repaintContainerComponent();
+                }
+            });
+    
+    /**
+     * @see #getHexBinRadius()
+     */
+    private volatile int hexBinRadius = DEFAULT_HEX_BIN_RADIUS;
+    
+    /**
+     * the hexagonal binnings for {@link ScatterPlotRenderMode#HEXBIN} mode
+     */
+    private final HexBinOverlay hexBinOverlay = new HexBinOverlay();
+    
+    /**
+     * for plotting data in the background
+     */
+    private final AsynchronousDataLoader dataLoader =
+        new AsynchronousDataLoader(this);
+    
+    /**
+     * @see #getColorByData()
+     */
+    private NamedData<Number> colorByData;
+    
+    /**
+     * @see #getColorPalette()
+     */
+    private PointPalette colorPalette;
+    
+    /**
+     * @see #getSizeByData()
+     */
+    private NamedData<Number> sizeByData;
+    
+    /**
+     * the point width for the smallest size-by value
+     */
+    private int minSizeByPointWidth;
+    
+    /**
+     * the point width for the largest size-by value
+     */
+    private int maxSizeByPointWidth;
+    
+    /**
+     * the style of every point worked out from the color-by and size-by
+     * data or null if we're not mapping either one
+     */
+    private PointStyleMapping pointStyleMapping;
+    
+    /**
+     * the rectangle that the user is selecting with or null if there
+     * isn't one
+     */
+    private volatile RectangleSelection rectangleSelection;
+    
+    /**
+     * incremented every time that the selection changes. this is atomic
+     * since selection listeners can run on any thread
+     */
+    private final AtomicLong selectionVersion = new AtomicLong();
+    
+    /**
+     * the selected indices as of {@link #selectedIndicesVersion}
+     */
+    private IndexBitmap selectedIndices;
+    
+    /**
+     * the {@link #selectionVersion} that {@link #selectedIndices} is from
+     */
+    private long selectedIndicesVersion = -1L;
+    
+    /**
+     * the selectable data that {@link #selectedIndices} is from
+     */
+    private SelectableData selectedIndicesData;
+    
+    /**
+     * what the cached selection overlay depends on besides the selection
+     */
+    private BaseLayerKey selectionOverlayKey;
+    
+    /**
+     * the selected points (including any preview) drawn over the base
+     * layer
+     */
+    private PointRaster selectionOverlay;
+    
+    /**
+     * the points that are drawn in {@link #selectionOverlay}
+     */
+    private IndexBitmap selectionOverlayIndices;
+    
+    /**
+     * the {@link #selectionVersion} that {@link #selectionOverlay} was
+     * built from
+     */
+    private long selectionOverlayVersion;
+    
+    /**
+     * the preview whose flipped points are being applied to
+     * {@link #selectionOverlay} or null
+     */
+    private SelectionPreview selectionOverlayPreview;
+    
+    /**
+     * the lasso that the user is drawing or null if there isn't one
+     */
+    private volatile LassoSelection lassoSelection;
+    
+    /**
+     * the matrix that we're plotting. the hover tooltips show a row from
+     * every one of its columns
+     */
+    private NamedDataMatrix<Number> dataMatrix;
+    
+    /**
+     * @see #isMultiSeriesEnabled()
+     */
+    private boolean multiSeriesEnabled = false;
+    
+    /**
+     * draws the y series after the first one. this has no series unless
+     * we're in multi-series mode
+     */
+    private SeriesOverlay seriesOverlay = SeriesOverlay.NONE;
+    
+    /**
+     * whether the first y series is drawn
+     */
+    private volatile boolean primarySeriesVisible = true;
+    
+    /**
+     * @see #isHoverTooltipsEnabled()
+     */
+    private volatile boolean hoverTooltipsEnabled = false;
+    
+    /**
+     * the latest mouse position that hasn't been looked up yet or null
+     */
+    private Point hoverPoint;
+    
+    /**
+     * looks up {@link #hoverPoint} once the mouse has had a frame to move
+     */
+    private final Timer hoverTimer = new Timer(
+            HOVER_QUERY_INTERVAL_MILLIS,
+            new ActionListener()
+            {
+                public void actionPerformed(ActionEvent event)
+                {
+                    ScatterPlot.this.hoverTimerFired();
+                }
+            });
+    
+    /**
+     * the rectangle that the user is zooming in to or null if there isn't
+     * one
+     */
+    private volatile Rectangle zoomRectangle;
+    
+    /**
+     * where the current pan drag started or null if we aren't panning
+     */
+    private Point panStartPoint;
+    
+    /**
+     * how far the current pan drag has moved in pixels or null if we
+     * aren't panning. we just translate the cached layers until the drag
+     * is done
+     */
+    private volatile Point panOffset;
+    
+    /**
+     * @see #getInteractionMode()
      */
-    private Rectangle selectionRectangle;
+    private volatile ScatterPlotInteractionMode interactionMode =
+        ScatterPlotInteractionMode.SELECT;
     
     /**
      * our mouse motion listener
@@ -125,10 +543,22 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
     
             public void mouseMoved(MouseEvent event)
             {
-                
+                ScatterPlot.this.containerComponentMouseMoved(event);
             }
         };
 
+    /**
+     * our mouse wheel listener
+     */
+    private MouseWheelListener containerComponentWheelListener =
+        new MouseWheelListener()
+        {
+            public void mouseWheelMoved(MouseWheelEvent event)
+            {
+                ScatterPlot.this.containerComponentMouseWheelMoved(event);
+            }
+        };
+    
     /**
      * our mouse listener
      */
@@ -152,6 +582,12 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
             {
                 ScatterPlot.this.containerComponentMouseReleased(event);
             }
+            
+            @Override
+            public void mouseExited(MouseEvent event)
+            {
+                ScatterPlot.this.containerComponentMouseExited();
+            }
         };
     
     /**
@@ -162,7 +598,9 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
         {
             public void selectionChanged(SelectableData selectableData)
             {
-                // all we have to do is repaint
+                // the cached selection is stale now. we don't lock here
+                // since this can be called from any thread
+                ScatterPlot.this.selectionVersion.incrementAndGet();
                 ScatterPlot.this.repaintContainerComponent();
             }
         };
@@ -176,6 +614,7 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
     public ScatterPlot(GraphCoordinateConverter graphCoordinateConverter)
     {
         super(graphCoordinateConverter);
+        this.hoverTimer.setRepeats(false);
     }
     
     /**
@@ -207,7 +646,12 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
      */
     private synchronized void selectionRectangleStarted(Point startPoint)
     {
-        this.selectionRectangle = new Rectangle(startPoint);
+        if(this.pointIndex != null)
+        {
+            this.rectangleSelection = new RectangleSelection(
+                    this.pointIndex,
+                    startPoint);
+        }
     }
     
     /**
@@ -222,14 +666,14 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
         SelectableData selectableData = this.getSelectableData();
         if(selectableData != null)
         {
-            // add all the points in the selection rectangle
+            // add all the points in the selection rectangle. the preview
+            // is exact so there's nothing left to test
             selectableData.selectAllIndices(
-                    this.getIndicesOfBoundedPoints(
-                            this.selectionRectangle));
+                    this.rectangleSelection.getPreview().asSortedSet());
         }
         
         // kill the rectangle. we're done with it
-        this.selectionRectangle = null;
+        this.rectangleSelection = null;
         
         // repaint the component without the selection rectangle
         this.repaintContainerComponent();
@@ -242,10 +686,24 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
      */
     private synchronized void selectionRectangleDragged(Point dragPoint)
     {
-        this.selectionRectangle.width =
-            dragPoint.x - this.selectionRectangle.x;
-        this.selectionRectangle.height =
-            dragPoint.y - this.selectionRectangle.y;
+        Rectangle java2DBoundingRectangle = new Rectangle(
+                this.rectangleSelection.getJava2DRectangle().getLocation());
+        java2DBoundingRectangle.add(dragPoint);
+        
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        
+        // only the strips between the old and new rectangle get looked at
+        this.rectangleSelection.update(
+                dragPoint,
+                coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
+                        java2DBoundingRectangle.x),
+                coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
+                        java2DBoundingRectangle.y + java2DBoundingRectangle.height),
+                coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
+                        java2DBoundingRectangle.x + java2DBoundingRectangle.width),
+                coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
+                        java2DBoundingRectangle.y));
         
         // repaint the component for the updated selection
         this.repaintContainerComponent();
@@ -268,167 +726,283 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
     }
     
     /**
-     * Convenience function to get just the x axis values
-     * @return
-     *          the x axis values
+     * deal with mouse click events
+     * @param event
+     *          the event
      */
-    private List<Number> getXAxisValues()
+    private void containerComponentMouseClicked(MouseEvent event)
     {
-        return this.xAxisData.getData();
+        if(this.interactionMode != ScatterPlotInteractionMode.SELECT ||
+           !SwingUtilities.isLeftMouseButton(event))
+        {
+            return;
+        }
+        
+        // in hexagonal binning mode a click picks up the whole cell. the
+        // cell comes back as a bitmap so that it can be selected in one go
+        Collection<Integer> pointIndecies =
+            this.renderMode == ScatterPlotRenderMode.HEXBIN ?
+            this.hexBinOverlay.getPointIndicesAt(event.getPoint()).asSortedSet() :
+            this.getPointIndicesAtJava2DCoordinate(event.getPoint());
+        
+        // if shift is down we're adding to the selection, not replacing it
+        if(!event.isShiftDown())
+        {
+            this.clearSelection();
+        }
+        
+        this.selectPointsAtIndecies(pointIndecies);
     }
-    
+
     /**
-     * Convenience function to get just the y axis values
-     * @return
-     *          the y axis values
+     * @param pointIndecies
      */
-    private List<Number> getYAxisValues()
+    private void selectPointsAtIndecies(Collection<Integer> pointIndecies)
     {
-        return this.yAxisData.getData();
+        SelectableData selectableData = this.getSelectableData();
+        if(selectableData != null)
+        {
+            selectableData.selectAllIndices(pointIndecies);
+        }
     }
-    
+
     /**
-     * Get indices of bounded points
-     * @param java2DBoundingRectangle
-     *          the bounding rectangle (in Java2D coordinates)
+     * Get the points at the given Java2D coordinate.
+     * @param java2DCoordinate 
+     *          the java 2d coordinate
      * @return
-     *          the indices that fall within the bounding rectangle
+     *          the points at the given coordinate or empty if there
+     *          aren't any
      */
-    private synchronized List<Integer> getIndicesOfBoundedPoints(
-            Rectangle java2DBoundingRectangle)
+    private synchronized List<Integer> getPointIndicesAtJava2DCoordinate(
+            Point java2DCoordinate)
     {
-        java2DBoundingRectangle = ScatterPlot.toNonNegativeWidthHeightRectangle(
-                java2DBoundingRectangle);
-        
+        if(this.pointIndex == null)
+        {
+            return new ArrayList<Integer>();
+        }
+        
         GraphCoordinateConverter coordConverter =
             this.getGraphCoordinateConverter();
-
-        // change the bounding rectangle to graph coordinates
-        double graphLeftXBound =
-            coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
-                    java2DBoundingRectangle.x);
-        double graphRightXBound =
+        
+        // the index works in graph coordinates so we need to convert the
+        // point and the click radius
+        double pointWidth = this.getPointWidth();
+        double graphX =
             coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
-                    java2DBoundingRectangle.x + java2DBoundingRectangle.width);
-        double graphUpperYBound =
+                    java2DCoordinate.getX());
+        double graphY =
             coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
-                    java2DBoundingRectangle.y);
-        double graphLowerYBound =
-            coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
-                    java2DBoundingRectangle.y + java2DBoundingRectangle.height);
+                    java2DCoordinate.getY());
+        double graphXRadius = Math.abs(
+                coordConverter.convertJava2DWidthValueToGraphWidthValue(
+                        pointWidth));
+        double graphYRadius = Math.abs(
+                coordConverter.convertJava2DHeightValueToGraphHeightValue(
+                        pointWidth));
         
-        // grab the value lists
-        List<Number> xAxisValues = this.getXAxisValues();
-        List<Number> yAxisValues = this.getYAxisValues();
-        int listSizes = xAxisValues.size();
+        int[] pointIndices = this.pointIndex.findPointsNear(
+                graphX,
+                graphY,
+                graphXRadius,
+                graphYRadius);
+        List<Integer> clickedIndices =
+            new ArrayList<Integer>(pointIndices.length);
+        for(int currIndex: pointIndices)
+        {
+            clickedIndices.add(currIndex);
+        }
         
-        // find all the bound indices
-        List<Integer> selectionIndecies =
-            new ArrayList<Integer>(listSizes);
+        return clickedIndices;
+    }
+
+    /**
+     * Get the indices of the points nearest to the given Java2D coordinate.
+     * Distance is measured in pixels.
+     * @param java2DCoordinate
+     *          the java 2d coordinate
+     * @param pointCount
+     *          the number of points we want
+     * @return
+     *          up to pointCount indices, nearest first
+     */
+    public synchronized int[] getNearestPointIndices(
+            Point java2DCoordinate,
+            int pointCount)
+    {
+        if(this.pointIndex == null)
+        {
+            return new int[0];
+        }
         
-        for(int i = 0; i < listSizes; i++)
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        return this.pointIndex.findNearestPoints(
+                coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
+                        java2DCoordinate.getX()),
+                coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
+                        java2DCoordinate.getY()),
+                pointCount,
+                coordConverter.convertGraphWidthValueToJava2DWidthValue(1.0),
+                coordConverter.convertGraphHeightValueToJava2DHeightValue(1.0));
+    }
+
+    /**
+     * Get the index of the point nearest to the given Java2D coordinate
+     * @param java2DCoordinate
+     *          the java 2d coordinate
+     * @param pixelRadius
+     *          how far away (in pixels) the point can be
+     * @return
+     *          the point index or -1 if there aren't any points within
+     *          the radius
+     */
+    public synchronized int getPointIndexNear(
+            Point java2DCoordinate,
+            double pixelRadius)
+    {
+        if(this.pointIndex == null)
         {
-            Number currXValueObj = xAxisValues.get(i);
-            Number currYValueObj = yAxisValues.get(i);
-            
-            if(currXValueObj != null && currYValueObj != null)
+            return -1;
+        }
+        
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        return this.pointIndex.findNearestPointWithin(
+                coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
+                        java2DCoordinate.getX()),
+                coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
+                        java2DCoordinate.getY()),
+                pixelRadius,
+                coordConverter.convertGraphWidthValueToJava2DWidthValue(1.0),
+                coordConverter.convertGraphHeightValueToJava2DHeightValue(1.0));
+    }
+    
+    /**
+     * Get the tooltip that we show when the mouse is over the given point.
+     * It lists the point's row from every column of the plotted matrix
+     * @param pointIndex
+     *          the point index
+     * @return
+     *          the tooltip text or null if there isn't any data
+     */
+    protected synchronized String getPointToolTipText(int pointIndex)
+    {
+        if(this.dataMatrix == null)
+        {
+            return null;
+        }
+        
+        StringBuilder toolTipText = new StringBuilder("<html>");
+        for(NamedData<Number> currData: this.dataMatrix.getNamedDataList())
+        {
+            if(pointIndex < currData.getSize())
             {
-                double currXValue = currXValueObj.doubleValue();
-                double currYValue = currYValueObj.doubleValue();
-                
-                // if the x and y value is bound, add it to the index list
-                if(currXValue > graphLeftXBound && currXValue < graphRightXBound &&
-                   currYValue > graphLowerYBound && currYValue < graphUpperYBound)
-                {
-                    selectionIndecies.add(i);
-                }
+                toolTipText.append("<b>");
+                ScatterPlot.appendHtmlEscaped(
+                        toolTipText,
+                        currData.getNameOfData());
+                toolTipText.append(":</b> ");
+                ScatterPlot.appendHtmlEscaped(
+                        toolTipText,
+                        String.valueOf(currData.getData().get(pointIndex)));
+                toolTipText.append("<br>");
             }
         }
+        toolTipText.append("</html>");
         
-        return selectionIndecies;
+        return toolTipText.toString();
     }
     
     /**
-     * deal with mouse click events
+     * Append the given text with the HTML special characters escaped
+     * @param builder
+     *          the builder to append to
+     * @param text
+     *          the text
+     */
+    private static void appendHtmlEscaped(StringBuilder builder, String text)
+    {
+        for(int i = 0; i < text.length(); i++)
+        {
+            char currChar = text.charAt(i);
+            switch(currChar)
+            {
+                case '<': builder.append("&lt;"); break;
+                case '>': builder.append("&gt;"); break;
+                case '&': builder.append("&amp;"); break;
+                case '"': builder.append("&quot;"); break;
+                default: builder.append(currChar); break;
+            }
+        }
+    }
+    
+    /**
+     * deal with mouse move events
      * @param event
      *          the event
      */
-    private void containerComponentMouseClicked(MouseEvent event)
+    private void containerComponentMouseMoved(MouseEvent event)
     {
-        List<Integer> pointIndecies = this.getPointIndicesAtJava2DCoordinate(event.getPoint());
-        
-        // if shift is down we're adding to the selection, not replacing it
-        if(!event.isShiftDown())
+        if(this.hoverTooltipsEnabled)
         {
-            this.clearSelection();
+            // just remember where the mouse is. the timer does the lookup
+            // so that a burst of moves only costs one query
+            this.hoverPoint = event.getPoint();
+            if(!this.hoverTimer.isRunning())
+            {
+                this.hoverTimer.start();
+            }
         }
-        
-        this.selectPointsAtIndecies(pointIndecies);
     }
-
+    
     /**
-     * @param pointIndecies
+     * deal with the mouse leaving the container component
      */
-    private void selectPointsAtIndecies(List<Integer> pointIndecies)
+    private void containerComponentMouseExited()
     {
-        SelectableData selectableData = this.getSelectableData();
-        if(selectableData != null)
+        this.hoverTimer.stop();
+        this.hoverPoint = null;
+        this.updateHoverToolTip(-1);
+    }
+    
+    /**
+     * look up the point under the latest hover position
+     */
+    private void hoverTimerFired()
+    {
+        Point point = this.hoverPoint;
+        this.hoverPoint = null;
+        if(point != null && this.hoverTooltipsEnabled)
         {
-            selectableData.selectAllIndices(pointIndecies);
+            this.updateHoverToolTip(this.getPointIndexNear(
+                    point,
+                    HOVER_RADIUS_PIXELS));
         }
     }
-
+    
     /**
-     * Get the points at the given Java2D coordinate.
-     * @param java2DCoordinate 
-     *          the java 2d coordinate
-     * @return
-     *          the points at the given coordinate or empty if there
-     *          aren't any
+     * Show the tooltip for the given point
+     * @param pointIndex
+     *          the point or -1 to hide the tooltip
      */
-    private List<Integer> getPointIndicesAtJava2DCoordinate(Point java2DCoordinate)
+    private void updateHoverToolTip(int pointIndex)
     {
-        NamedData<Number> xData = this.getXAxisData();
-        NamedData<Number> yData = this.getYAxisData();
-        
-        Iterator<Number> xAxisIter = xData.getData().iterator();
-        Iterator<Number> yAxisIter = yData.getData().iterator();
-        
-        GraphCoordinateConverter coordConverter =
-            this.getGraphCoordinateConverter();
-        
-        List<Integer> clickedIndices = new ArrayList<Integer>();
-        for(int currIndex = 0; xAxisIter.hasNext() && yAxisIter.hasNext(); currIndex++)
+        JComponent containerComponent = this.getContainerComponent();
+        if(containerComponent != null)
         {
-            Number currXDatumObj = xAxisIter.next();
-            Number currYDatumObj = yAxisIter.next();
-            
-            if(currXDatumObj != null && currYDatumObj != null)
+            String toolTipText = pointIndex == -1 ?
+                                 null :
+                                 this.getPointToolTipText(pointIndex);
+            if(!ObjectUtil.areEqual(
+                    toolTipText,
+                    containerComponent.getToolTipText()))
             {
-                double currXDatum = currXDatumObj.doubleValue();
-                double currYDatum = currYDatumObj.doubleValue();
-                
-                double currJava2DXDatum =
-                    coordConverter.convertGraphXCoordinateToJava2DXCoordinate(
-                            currXDatum);
-                double currJava2DYDatum =
-                    coordConverter.convertGraphYCoordinateToJava2DYCoordinate(
-                            currYDatum);
-                
-                // test if the click is close enough to the point center
-                double distance = java2DCoordinate.distance(
-                        currJava2DXDatum,
-                        currJava2DYDatum);
-                if(distance <= this.getPointWidth())
-                {
-                    clickedIndices.add(currIndex);
-                }
+                containerComponent.setToolTipText(toolTipText);
             }
         }
-        
-        return clickedIndices;
     }
-
+    
     /**
      * deal with mouse press events
      * @param event
@@ -436,7 +1010,23 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
      */
     private void containerComponentMousePressed(MouseEvent event)
     {
-        this.selectionRectangleStarted(event.getPoint());
+        if(SwingUtilities.isMiddleMouseButton(event) ||
+           this.interactionMode == ScatterPlotInteractionMode.PAN)
+        {
+            this.panStarted(event.getPoint());
+        }
+        else if(this.interactionMode == ScatterPlotInteractionMode.ZOOM)
+        {
+            this.zoomRectangleStarted(event.getPoint());
+        }
+        else if(this.interactionMode == ScatterPlotInteractionMode.LASSO)
+        {
+            this.lassoStarted(event.getPoint());
+        }
+        else
+        {
+            this.selectionRectangleStarted(event.getPoint());
+        }
     }
 
     /**
@@ -446,6 +1036,26 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
      */
     private void containerComponentMouseReleased(MouseEvent event)
     {
+        if(this.isPanning())
+        {
+            this.panCompleted(event.getPoint());
+            return;
+        }
+        else if(this.isZooming())
+        {
+            this.zoomRectangleCompleted(event.getPoint());
+            return;
+        }
+        else if(this.isLassoing())
+        {
+            this.lassoCompleted(event.getPoint(), event.isShiftDown());
+            return;
+        }
+        else if(!this.isSelecting())
+        {
+            return;
+        }
+        
         if(!event.isShiftDown())
         {
             this.clearSelection();
@@ -461,245 +1071,2614 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
      */
     private void containerComponentMouseDragged(MouseEvent event)
     {
-        this.selectionRectangleDragged(event.getPoint());
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    public synchronized void renderGraph(Graphics2D graphics2D)
-    {
-        // "push" the graphics data the we need to restore
-        Color pushColor = graphics2D.getColor();
-        
-        boolean renderIntermediateSelection =
-            this.selectionRectangle != null &&
-            (this.selectionRectangle.getWidth() != 0.0 ||
-            this.selectionRectangle.getHeight() != 0.0);
-        
-        // build a set of selected indices to render composed of the
-        // intermediate selections and the current selections
-        HashSet<Integer> combinedSelectedIndices =
-            new HashSet<Integer>();
-        SelectableData selectableData = this.getSelectableData();
-        if(selectableData != null)
+        if(this.isPanning())
         {
-            combinedSelectedIndices.addAll(
-                    selectableData.getSelectedIndices());
-            
-            if(renderIntermediateSelection)
-            {
-                combinedSelectedIndices.addAll(
-                        this.getIndicesOfBoundedPoints(this.selectionRectangle));
-            }
+            this.panDragged(event.getPoint());
         }
-        
-        
-        Iterator<Number> xNumbersIter =
-            this.xAxisData.getData().iterator();
-        Iterator<Number> yNumbersIter =
-            this.yAxisData.getData().iterator();
-        for(int currDatumIndex = 0; xNumbersIter.hasNext() && yNumbersIter.hasNext(); currDatumIndex++)
+        else if(this.isZooming())
         {
-            Number nextXNumber = xNumbersIter.next();
-            Number nextYNumber = yNumbersIter.next();
-            
-            if(nextXNumber != null && nextYNumber != null)
-            {
-                this.renderPoint(
-                        graphics2D,
-                        combinedSelectedIndices.contains(currDatumIndex),
-                        nextXNumber.doubleValue(),
-                        nextYNumber.doubleValue());
-            }
-            else
-            {
-                if(LOG.isLoggable(Level.FINE))
-                {
-                    LOG.fine(
-                            "Not plotting scatter plot point for X Axis=" +
-                            this.xAxisData.getNameOfData() + ", Y Axis=" +
-                            this.yAxisData.getNameOfData() +
-                            ", index=" + currDatumIndex +
-                            " because at least one of the axis values is null: " +
-                            "x=" + nextXNumber + ", y=" + nextYNumber);
-                }
-            }
+            this.zoomRectangleDragged(event.getPoint());
         }
-        
-        if(renderIntermediateSelection)
+        else if(this.isLassoing())
         {
-            this.renderSelectionRectangle(
-                    graphics2D,
-                    this.selectionRectangle);
+            this.lassoDragged(event.getPoint());
+        }
+        else if(this.isSelecting())
+        {
+            this.selectionRectangleDragged(event.getPoint());
         }
-        
-        // "pop" the graphics data that we need to restore
-        graphics2D.setColor(pushColor);
     }
     
     /**
-     * Plot the given correlated data. The x axis is the first
-     * {@link NamedData} and the y axis is the second.
-     * @param dataMatrix
-     *          the data matrix to plot
-     * @throws IndexOutOfBoundsException
-     *          if there are less than 2 {@link NamedData}s
-     *          in the given matrix
+     * deal with mouse wheel events by zooming in or out around the cursor
+     * @param event
+     *          the event
      */
-    public synchronized void plotData(
-            NamedDataMatrix<Number> dataMatrix)
-            throws IndexOutOfBoundsException
+    private void containerComponentMouseWheelMoved(MouseWheelEvent event)
     {
-        // deregister for selection events on the old data
-        SelectableData selectableData = this.getSelectableData();
-        if(selectableData != null)
-        {
-            selectableData.removeSelectableDataListener(
-                    this.graphDataSelectionListener);
-        }
-        
-        this.xAxisData = dataMatrix.getNamedDataList().get(0);
-        this.yAxisData = dataMatrix.getNamedDataList().get(1);
-        
-        // initialize min/max values to extreme opposites
-        this.xAxisMin = Double.POSITIVE_INFINITY;
-        this.xAxisMax = Double.NEGATIVE_INFINITY;
-        this.yAxisMin = Double.POSITIVE_INFINITY;
-        this.yAxisMax = Double.NEGATIVE_INFINITY;
-        
-        // find x min/max
-        if(this.xAxisData.getData().size() >= 1)
-        {
-            Number xAxisMinNumber = SequenceUtilities.getMinDatum(
-                    NumberComparator.getInstance(),
-                    this.xAxisData.getData());
-            Number xAxisMaxNumber = SequenceUtilities.getMaxDatum(
-                    NumberComparator.getInstance(),
-                    this.xAxisData.getData());
-            this.xAxisMin = xAxisMinNumber.doubleValue();
-            this.xAxisMax = xAxisMaxNumber.doubleValue();
-        }
-        
-        // find y min/max
-        if(this.yAxisData.getData().size() >= 1)
+        if(this.xAxisDescription == null ||
+           !this.xAxisDescription.getAllowAxisScaling() ||
+           !this.yAxisDescription.getAllowAxisScaling())
         {
-            Number yAxisMinNumber = SequenceUtilities.getMinDatum(
-                    NumberComparator.getInstance(),
-                    this.yAxisData.getData());
-            Number yAxisMaxNumber = SequenceUtilities.getMaxDatum(
-                    NumberComparator.getInstance(),
-                    this.yAxisData.getData());
-            this.yAxisMin = yAxisMinNumber.doubleValue();
-            this.yAxisMax = yAxisMaxNumber.doubleValue();
+            return;
         }
         
-        // register for selection events on the new data
-        selectableData = this.getSelectableData();
-        if(selectableData != null)
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        if(!coordConverter.isPixelPointInBounds(event.getPoint()))
         {
-            selectableData.addSelectableDataListener(
-                    this.graphDataSelectionListener);
+            return;
         }
         
-        // use the min/max values to bound the graph's coordinate system
-        this.getGraphCoordinateConverter().updateGraphDimensions(
-                this.xAxisMin,
-                this.yAxisMin,
-                this.xAxisMax - this.xAxisMin,
-                this.yAxisMax - this.yAxisMin);
-        
-        // OK, now update the axis descriptions
-        this.xAxisDescription = new RegularIntervalAxisDescription(
-                this.getGraphCoordinateConverter(),
-                AxisType.X_AXIS,
-                this.xAxisData.getNameOfData(),
-                DEFAULT_NUMBER_OF_TICKS,
-                DEFAULT_TICK_SIGNIFICANT_DIGITS,
-                true);
-        this.yAxisDescription = new RegularIntervalAxisDescription(
-                this.getGraphCoordinateConverter(),
-                AxisType.Y_AXIS,
-                this.yAxisData.getNameOfData(),
-                DEFAULT_NUMBER_OF_TICKS,
-                DEFAULT_TICK_SIGNIFICANT_DIGITS,
-                true);
+        // keep the graph point under the cursor where it is
+        double zoomFactor = Math.pow(
+                WHEEL_ZOOM_FACTOR_PER_NOTCH,
+                event.getWheelRotation());
+        double graphX = coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
+                event.getX());
+        double graphY = coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
+                event.getY());
+        double originX = coordConverter.getGraphOriginX();
+        double originY = coordConverter.getGraphOriginY();
+        this.setViewport(
+                graphX - (graphX - originX) * zoomFactor,
+                graphY - (graphY - originY) * zoomFactor,
+                coordConverter.getGraphWidth() * zoomFactor,
+                coordConverter.getGraphHeight() * zoomFactor);
     }
-
+    
     /**
-     * @return the xAxisData
+     * Determine if a selection rectangle drag is in progress
+     * @return
+     *          true if it is
      */
-    public synchronized NamedData<Number> getXAxisData()
+    private synchronized boolean isSelecting()
     {
-        return this.xAxisData;
+        return this.rectangleSelection != null;
     }
-
+    
     /**
-     * @return the yAxisData
+     * Determine if a zoom rectangle drag is in progress
+     * @return
+     *          true if it is
      */
-    public synchronized NamedData<Number> getYAxisData()
+    private synchronized boolean isZooming()
     {
-        return this.yAxisData;
+        return this.zoomRectangle != null;
     }
     
     /**
-     * Gets the selectable data shared by x-axis data and y axis data or
-     * null if they're not selectable. This is basically a convenience function
-     * for casting.
+     * Determine if a lasso drag is in progress
      * @return
-     *          the selectable data
+     *          true if it is
      */
-    private SelectableData getSelectableData()
+    private synchronized boolean isLassoing()
     {
-        NamedData<Number> xAxisData = this.getXAxisData();
-        if(xAxisData instanceof SelectableData)
-        {
-            return (SelectableData)xAxisData;
-        }
-        else
-        {
-            return null;
-        }
+        return this.lassoSelection != null;
     }
     
     /**
-     * {@inheritDoc}
+     * The lasso has been started
+     * @param startPoint
+     *          the starting point
      */
-    @Override
-    public synchronized JComponent getContainerComponent()
+    private synchronized void lassoStarted(Point startPoint)
     {
-        return super.getContainerComponent();
+        if(this.pointIndex != null)
+        {
+            this.lassoSelection = new LassoSelection(this.pointIndex);
+            this.lassoDragged(startPoint);
+        }
     }
-
+    
     /**
-     * {@inheritDoc}
+     * The lasso has been dragged to a new point
+     * @param dragPoint
+     *          the location that it was dragged to
      */
-    @Override
-    public synchronized void setContainerComponent(
-            JComponent containerComponent)
+    private synchronized void lassoDragged(Point dragPoint)
     {
-        // stop listening to old component
-        JComponent currContainerComponent = this.getContainerComponent();
-        if(currContainerComponent != null)
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        boolean vertexAdded = this.lassoSelection.addVertex(
+                dragPoint,
+                coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
+                        dragPoint.x),
+                coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
+                        dragPoint.y));
+        if(vertexAdded)
         {
-            currContainerComponent.removeMouseListener(
-                    this.containerComponentMouseListener);
-            currContainerComponent.removeMouseMotionListener(
-                    this.containerComponentMotionListener);
+            this.repaintContainerComponent();
+        }
+    }
+    
+    /**
+     * We're finished with the lasso so select what's inside of it
+     * @param completionPoint
+     *          the point that the lasso ended at
+     * @param addToSelection
+     *          if true we add to the existing selection instead of
+     *          replacing it
+     */
+    private synchronized void lassoCompleted(
+            Point completionPoint,
+            boolean addToSelection)
+    {
+        this.lassoDragged(completionPoint);
+        LassoSelection completedLasso = this.lassoSelection;
+        this.lassoSelection = null;
+        
+        if(!addToSelection)
+        {
+            this.clearSelection();
+        }
+        
+        SelectableData selectableData = this.getSelectableData();
+        if(selectableData != null)
+        {
+            // the preview is built up incrementally so redo the full test
+            // against the finished polygon to get the final say
+            selectableData.selectAllIndices(
+                    completedLasso.findSelectedPoints().asSortedSet());
+        }
+        
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Determine if a pan drag is in progress
+     * @return
+     *          true if it is
+     */
+    private synchronized boolean isPanning()
+    {
+        return this.panStartPoint != null;
+    }
+    
+    /**
+     * A pan drag has been started
+     * @param startPoint
+     *          the starting point
+     */
+    private synchronized void panStarted(Point startPoint)
+    {
+        if(this.xAxisDescription != null &&
+           this.xAxisDescription.getAllowAxisTranslation() &&
+           this.yAxisDescription.getAllowAxisTranslation())
+        {
+            this.panStartPoint = startPoint;
+            this.panOffset = new Point(0, 0);
+        }
+    }
+    
+    /**
+     * The pan has been dragged
+     * @param dragPoint
+     *          the location that it was dragged to
+     */
+    private synchronized void panDragged(Point dragPoint)
+    {
+        this.panOffset = new Point(
+                dragPoint.x - this.panStartPoint.x,
+                dragPoint.y - this.panStartPoint.y);
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * The pan drag is done so move the viewport
+     * @param completionPoint
+     *          the point that the drag ended at
+     */
+    private synchronized void panCompleted(Point completionPoint)
+    {
+        int dx = completionPoint.x - this.panStartPoint.x;
+        int dy = completionPoint.y - this.panStartPoint.y;
+        this.panStartPoint = null;
+        this.panOffset = null;
+        
+        // dragging to the right moves the origin left and since Java2D's
+        // y axis is flipped dragging down moves the origin up
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        this.setViewport(
+                coordConverter.getGraphOriginX() -
+                coordConverter.convertJava2DWidthValueToGraphWidthValue(dx),
+                coordConverter.getGraphOriginY() +
+                coordConverter.convertJava2DHeightValueToGraphHeightValue(dy),
+                coordConverter.getGraphWidth(),
+                coordConverter.getGraphHeight());
+    }
+    
+    /**
+     * The zoom rectangle has been started
+     * @param startPoint
+     *          the starting point
+     */
+    private synchronized void zoomRectangleStarted(Point startPoint)
+    {
+        if(this.xAxisDescription != null &&
+           this.xAxisDescription.getAllowAxisScaling() &&
+           this.yAxisDescription.getAllowAxisScaling())
+        {
+            this.zoomRectangle = new Rectangle(startPoint);
+        }
+    }
+    
+    /**
+     * The zoom rectangle has been dragged
+     * @param dragPoint
+     *          the location that it was dragged to
+     */
+    private synchronized void zoomRectangleDragged(Point dragPoint)
+    {
+        this.zoomRectangle.width = dragPoint.x - this.zoomRectangle.x;
+        this.zoomRectangle.height = dragPoint.y - this.zoomRectangle.y;
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * We're finished with the zoom rectangle so zoom in to it
+     * @param completionPoint
+     *          the point that the rectangle ended at
+     */
+    private synchronized void zoomRectangleCompleted(Point completionPoint)
+    {
+        this.zoomRectangleDragged(completionPoint);
+        Rectangle zoomBounds = ScatterPlot.toNonNegativeWidthHeightRectangle(
+                this.zoomRectangle);
+        this.zoomRectangle = null;
+        
+        // ignore tiny rectangles. they're almost always accidental
+        if(zoomBounds.width < MIN_ZOOM_RECTANGLE_SIZE ||
+           zoomBounds.height < MIN_ZOOM_RECTANGLE_SIZE)
+        {
+            this.repaintContainerComponent();
+            return;
+        }
+        
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        double left = coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
+                zoomBounds.x);
+        double right = coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
+                zoomBounds.x + zoomBounds.width);
+        double top = coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
+                zoomBounds.y);
+        double bottom = coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
+                zoomBounds.y + zoomBounds.height);
+        this.setViewport(left, bottom, right - left, top - bottom);
+    }
+    
+    /**
+     * Change the part of the graph that we're looking at. This goes
+     * through the axis descriptions so that the axes follow along
+     * @param originX
+     *          the graph x origin
+     * @param originY
+     *          the graph y origin
+     * @param width
+     *          the graph width
+     * @param height
+     *          the graph height
+     * @throws IllegalArgumentException
+     *          if the width or height isn't a positive number
+     */
+    public synchronized void setViewport(
+            double originX,
+            double originY,
+            double width,
+            double height)
+    throws IllegalArgumentException
+    {
+        if(!(width > 0.0 && height > 0.0) ||
+           Double.isInfinite(width) || Double.isInfinite(height))
+        {
+            throw new IllegalArgumentException(
+                    "viewport size must be positive: " + width + "x" + height);
+        }
+        
+        if(this.xAxisDescription != null)
+        {
+            this.xAxisDescription.setAxisOrigin(originX);
+            this.xAxisDescription.setAxisExtent(width);
+            this.yAxisDescription.setAxisOrigin(originY);
+            this.yAxisDescription.setAxisExtent(height);
+        }
+        else
+        {
+            this.getGraphCoordinateConverter().updateGraphDimensions(
+                    originX,
+                    originY,
+                    width,
+                    height);
+        }
+        
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Zoom back out to show all of the data
+     */
+    public synchronized void resetViewport()
+    {
+        if(this.xAxisData != null)
+        {
+            this.setViewport(
+                    this.xAxisMin,
+                    this.yAxisMin,
+                    this.xAxisMax - this.xAxisMin,
+                    this.yAxisMax - this.yAxisMin);
+        }
+    }
+    
+    /**
+     * Getter for what dragging with the primary mouse button does
+     * @return
+     *          the interaction mode
+     */
+    public ScatterPlotInteractionMode getInteractionMode()
+    {
+        return this.interactionMode;
+    }
+    
+    /**
+     * Setter for what dragging with the primary mouse button does
+     * @param interactionMode
+     *          the interaction mode
+     */
+    public void setInteractionMode(ScatterPlotInteractionMode interactionMode)
+    {
+        this.interactionMode = interactionMode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void renderGraph(Graphics2D graphics2D)
+    {
+        // "push" the graphics data the we need to restore
+        Color pushColor = graphics2D.getColor();
+        
+        // we don't take our own lock here. the data comes from the latest
+        // render snapshot and the interaction state is only changed on the
+        // event dispatch thread that we're painting on
+        RectangleSelection rectangleSelection = this.rectangleSelection;
+        LassoSelection lassoSelection = this.lassoSelection;
+        Rectangle zoomRectangle = this.zoomRectangle;
+        Point panOffset = this.panOffset;
+        
+        synchronized(this.renderLock)
+        {
+            // read the snapshot under the render lock so that renders
+            // never see the data go backwards
+            RenderData renderData = this.renderData;
+            if(renderData != null)
+            {
+                this.renderLayers(
+                        graphics2D,
+                        renderData,
+                        rectangleSelection != null ?
+                        rectangleSelection :
+                        lassoSelection,
+                        panOffset);
+            }
+        }
+        
+        if(zoomRectangle != null)
+        {
+            this.renderSelectionRectangle(graphics2D, zoomRectangle);
+        }
+        
+        if(lassoSelection != null)
+        {
+            this.renderSelectionPolygon(
+                    graphics2D,
+                    lassoSelection.getOutline());
+        }
+        
+        if(rectangleSelection != null)
+        {
+            Rectangle selectionRectangle =
+                rectangleSelection.getJava2DRectangle();
+            if(selectionRectangle.width != 0 || selectionRectangle.height != 0)
+            {
+                this.renderSelectionRectangle(graphics2D, selectionRectangle);
+            }
+        }
+        
+        // "pop" the graphics data that we need to restore
+        graphics2D.setColor(pushColor);
+    }
+    
+    /**
+     * Draw the cached layers, rebuilding any that are stale. The caller
+     * must hold {@link #renderLock}
+     * @param graphics2D
+     *          the graphics context to render to
+     * @param renderData
+     *          the data to render
+     * @param selectionPreview
+     *          the selection being dragged out or null
+     * @param panOffset
+     *          the offset of the pan drag in progress or null
+     */
+    private void renderLayers(
+            Graphics2D graphics2D,
+            RenderData renderData,
+            SelectionPreview selectionPreview,
+            Point panOffset)
+    {
+        // any selection that's being dragged out gets previewed along
+        // with the current selection
+        if(renderData.getSelectableData() == null)
+        {
+            selectionPreview = null;
+        }
+        
+        // while a pan drag is in progress we just slide the layers that we
+        // already have over (clipped to the graph) instead of redrawing
+        Graphics2D layerGraphics = graphics2D;
+        if(panOffset != null)
+        {
+            GraphCoordinateConverter coordConverter =
+                this.getGraphCoordinateConverter();
+            layerGraphics = (Graphics2D)graphics2D.create();
+            layerGraphics.clip(new Rectangle2D.Double(
+                    coordConverter.getAbsoluteXOffsetInPixels(),
+                    coordConverter.getAbsoluteYOffsetInPixels(),
+                    coordConverter.getAbsoluteWidthInPixels(),
+                    coordConverter.getAbsoluteHeightInPixels()));
+            layerGraphics.translate(panOffset.x, panOffset.y);
+        }
+        
+        // the base layer only has to be redrawn when the data, viewport or
+        // point style change. selection changes just redraw the overlay
+        ScatterPlotRenderMode renderMode = this.renderMode;
+        boolean primarySeriesVisible = this.primarySeriesVisible;
+        if(primarySeriesVisible)
+        {
+            this.renderBaseLayer(layerGraphics, renderData, renderMode);
+        }
+        renderData.seriesOverlay.render(
+                layerGraphics,
+                this.getGraphCoordinateConverter(),
+                this.getPointShape(),
+                this.getPointWidth());
+        if(primarySeriesVisible)
+        {
+            this.renderSelectionOverlay(
+                    layerGraphics,
+                    renderData,
+                    renderMode,
+                    selectionPreview);
+            this.trendOverlay.render(
+                    layerGraphics,
+                    this.getGraphCoordinateConverter(),
+                    renderData.xAxisData,
+                    renderData.yAxisData);
+            this.contourOverlay.render(
+                    layerGraphics,
+                    this.getGraphCoordinateConverter(),
+                    renderData.xAxisData,
+                    renderData.yAxisData);
+        }
+        
+        if(layerGraphics != graphics2D)
+        {
+            layerGraphics.dispose();
+        }
+    }
+    
+    /**
+     * Draw the cached base layer, rebuilding it first if the data, viewport
+     * or point style have changed since it was last built
+     * @param graphics2D
+     *          the graphics context to render to
+     * @param renderData
+     *          the data to render
+     * @param renderMode
+     *          the render mode
+     */
+    private void renderBaseLayer(
+            Graphics2D graphics2D,
+            RenderData renderData,
+            ScatterPlotRenderMode renderMode)
+    {
+        BaseLayerKey key = new BaseLayerKey(
+                renderData.dataVersion,
+                this.getGraphCoordinateConverter(),
+                renderMode,
+                this.getPointColor(),
+                this.getPointWidth(),
+                this.getPointShape(),
+                PointStamp.isAntialiased(graphics2D),
+                renderData.pointPyramid,
+                this.pointBudget,
+                this.densityColorRamp,
+                renderMode == ScatterPlotRenderMode.DENSITY_RASTER ?
+                null :
+                renderData.pointStyleMapping,
+                renderMode == ScatterPlotRenderMode.HEXBIN ?
+                this.hexBinRadius :
+                0,
+                renderMode == ScatterPlotRenderMode.ACCUMULATION ?
+                this.accumulationOpacity :
+                0.0);
+        if(!key.equals(this.baseLayerKey))
+        {
+            // anything still being drawn for the old layer is stale now
+            this.cancelProgressiveRender();
+            this.hexBinOverlay.clearCurrentBinning();
+            if(renderMode == ScatterPlotRenderMode.DENSITY_RASTER)
+            {
+                this.buildDensityBaseLayer(renderData);
+            }
+            else if(renderMode == ScatterPlotRenderMode.HEXBIN)
+            {
+                this.buildHexBinBaseLayer(renderData);
+            }
+            else if(renderMode == ScatterPlotRenderMode.ACCUMULATION)
+            {
+                this.buildAccumulationBaseLayer(
+                        renderData,
+                        PointStamp.isAntialiased(graphics2D));
+            }
+            else
+            {
+                this.buildPointBaseLayer(graphics2D, renderData);
+            }
+            this.baseLayerKey = key;
+        }
+        
+        if(this.baseLayerImage != null)
+        {
+            graphics2D.drawImage(
+                    this.baseLayerImage,
+                    this.baseLayerXOffset,
+                    this.baseLayerYOffset,
+                    null);
+        }
+    }
+    
+    /**
+     * Build a base layer with every point drawn as an unselected marker
+     * @param graphics2D
+     *          the graphics context that the layer will be drawn to. we
+     *          match its antialiasing so that the layer looks the same
+     *          as drawing the points directly
+     * @param renderData
+     *          the data to render
+     */
+    private void buildPointBaseLayer(
+            Graphics2D graphics2D,
+            RenderData renderData)
+    {
+        // stamp the points straight into the layer's pixels rather than
+        // going through Graphics2D for each one
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        PointStyleMapping styleMapping = renderData.pointStyleMapping;
+        PointRaster pointRaster = this.createLayerRaster(styleMapping);
+        this.baseLayerXOffset = pointRaster.getXOffset();
+        this.baseLayerYOffset = pointRaster.getYOffset();
+        double[] xValues = renderData.xValues;
+        double[] yValues = renderData.yValues;
+        
+        // when points can differ in color or size one point can't stand
+        // in for another one on the same pixel
+        PointOccupancyMask occupancyMask = styleMapping == null ?
+                new PointOccupancyMask(this.getGraphCoordinateConverter()) :
+                null;
+        
+        long startNanos = System.nanoTime();
+        
+        // once the pyramid is ready we only look at the visible cells, and
+        // only at as much detail as the point budget allows
+        int[] pointIndices = null;
+        int pointCount = xValues.length;
+        PointPyramid pyramid = renderData.pointPyramid;
+        double left = coordConverter.getGraphOriginX();
+        double bottom = coordConverter.getGraphOriginY();
+        double right = left + coordConverter.getGraphWidth();
+        double top = bottom + coordConverter.getGraphHeight();
+        if(pyramid != null)
+        {
+            int level = pyramid.chooseLevel(
+                    left,
+                    bottom,
+                    right,
+                    top,
+                    this.pointBudget);
+            pointIndices = pyramid.getPointsInRectangle(
+                    left,
+                    bottom,
+                    right,
+                    top,
+                    level);
+            pointCount = pointIndices.length;
+            
+            if(LOG.isLoggable(Level.FINE))
+            {
+                LOG.fine(
+                        "Drawing " + pointCount + " points from level " +
+                        level + " of " + pyramid.getLevelCount());
+            }
+        }
+        else if(!renderData.pointIndex.isCoveredBy(left, bottom, right, top))
+        {
+            // we're zoomed in so use the index to cull what isn't visible
+            pointIndices = renderData.pointIndex.getPointsInOverlappingCells(
+                    left,
+                    bottom,
+                    right,
+                    top);
+            pointCount = pointIndices.length;
+        }
+        
+        // group the points by style so that each batch is drawn with one
+        // glyph
+        PointBatches pointBatches = styleMapping == null ?
+                new PointBatches(pointIndices, pointCount) :
+                styleMapping.createBatches(pointIndices);
+        PointStamp[] batchStamps = this.getBatchStamps(
+                pointBatches,
+                styleMapping,
+                PointStamp.isAntialiased(graphics2D));
+        
+        if(this.progressiveRenderingEnabled &&
+           pointCount > PROGRESSIVE_RENDER_THRESHOLD)
+        {
+            // draw a random sample right away, show a snapshot of that and
+            // let the background thread fill in the rest of the points
+            int stride = (pointCount + PROGRESSIVE_SAMPLE_SIZE - 1) /
+                         PROGRESSIVE_SAMPLE_SIZE;
+            int sampleMissingCount = this.renderPointStride(
+                    pointRaster,
+                    pointBatches,
+                    batchStamps,
+                    occupancyMask,
+                    xValues,
+                    yValues,
+                    0,
+                    stride);
+            this.baseLayerImage = pointRaster.copy().getImage();
+            this.renderProgress = 1.0 / stride;
+            
+            this.progressiveRenderTask = new ProgressiveRenderTask(
+                    pointRaster,
+                    pointBatches,
+                    batchStamps,
+                    occupancyMask,
+                    xValues,
+                    yValues,
+                    stride,
+                    sampleMissingCount,
+                    startNanos);
+            BACKGROUND_RENDER_EXECUTOR.execute(this.progressiveRenderTask);
+        }
+        else
+        {
+            int missingCount = this.renderPointStride(
+                    pointRaster,
+                    pointBatches,
+                    batchStamps,
+                    occupancyMask,
+                    xValues,
+                    yValues,
+                    0,
+                    1);
+            this.baseLayerImage = pointRaster.getImage();
+            this.renderProgress = 1.0;
+            
+            if(LOG.isLoggable(Level.FINE))
+            {
+                LOG.fine(
+                        "Not plotting " + missingCount + " scatter plot " +
+                        "points for X Axis=" + renderData.xAxisData.getNameOfData() +
+                        ", Y Axis=" + renderData.yAxisData.getNameOfData() +
+                        " because at least one of the axis values is " +
+                        "missing. Skipped " +
+                        (occupancyMask == null ? 0 : occupancyMask.getSkippedCount()) +
+                        " draws of points landing on an occupied pixel");
+            }
+        }
+        this.timeToFirstFrameMillis =
+            (System.nanoTime() - startNanos) / 1000000L;
+    }
+    
+    /**
+     * Get the glyph for each batch of points. Without a style mapping
+     * every batch uses the plain point glyph
+     * @param pointBatches
+     *          the batches
+     * @param styleMapping
+     *          the style mapping or null
+     * @param antialiased
+     *          whether the glyph edges should be antialiased
+     * @return
+     *          the glyphs indexed by batch
+     */
+    private PointStamp[] getBatchStamps(
+            PointBatches pointBatches,
+            PointStyleMapping styleMapping,
+            boolean antialiased)
+    {
+        PointStamp[] batchStamps = new PointStamp[pointBatches.getBatchCount()];
+        for(int batch = 0; batch < batchStamps.length; batch++)
+        {
+            if(styleMapping == null)
+            {
+                batchStamps[batch] = this.getPointStamp(
+                        this.getPointColor(),
+                        antialiased);
+            }
+            else
+            {
+                int style = pointBatches.getBatchStyle(batch);
+                batchStamps[batch] = PointStamp.getInstance(
+                        this.getPointShape(),
+                        styleMapping.getWidth(
+                                styleMapping.getSizeCode(style),
+                                this.getPointWidth()),
+                        styleMapping.getColor(style, this.getPointColor()),
+                        antialiased);
+            }
+        }
+        
+        return batchStamps;
+    }
+    
+    /**
+     * Draw one pass of points. The point positions are split into blocks
+     * of stride positions and each pass draws one position from every
+     * block, so the stride passes between them draw every point once. The
+     * position that a pass takes from a block is shuffled from block to
+     * block which makes each pass a random sample that can't line up with
+     * any pattern in how the points are ordered
+     * @param pointRaster
+     *          the raster to draw into
+     * @param pointBatches
+     *          the points to draw grouped by style
+     * @param batchStamps
+     *          the glyph for each batch
+     * @param occupancyMask
+     *          the occupancy mask for the pass or null to draw every point
+     * @param xValues
+     *          the x values
+     * @param yValues
+     *          the y values
+     * @param pass
+     *          the pass to draw (0 through stride - 1)
+     * @param stride
+     *          the block size which is also the number of passes
+     * @return
+     *          the number of points that couldn't be drawn because they
+     *          have a missing value
+     */
+    private int renderPointStride(
+            PointRaster pointRaster,
+            PointBatches pointBatches,
+            PointStamp[] batchStamps,
+            PointOccupancyMask occupancyMask,
+            double[] xValues,
+            double[] yValues,
+            int pass,
+            int stride)
+    {
+        int missingCount = 0;
+        int pointCount = pointBatches.getPointCount();
+        int batch = -1;
+        int batchEnd = 0;
+        for(int blockStart = 0, block = 0;
+            blockStart < pointCount;
+            blockStart += stride, block++)
+        {
+            int position =
+                blockStart +
+                (int)((pass + ScatterPlot.getBlockShift(block)) % stride);
+            if(position >= pointCount)
+            {
+                // the last block can come up short
+                continue;
+            }
+            
+            while(position >= batchEnd)
+            {
+                batch++;
+                batchEnd = pointBatches.getBatchStart(batch + 1);
+            }
+            
+            int currDatumIndex = pointBatches.getPointIndex(position);
+            double currXValue = xValues[currDatumIndex];
+            double currYValue = yValues[currDatumIndex];
+            
+            if(!Double.isNaN(currXValue) && !Double.isNaN(currYValue))
+            {
+                this.renderPoint(
+                        pointRaster,
+                        batchStamps[batch],
+                        currXValue,
+                        currYValue,
+                        occupancyMask);
+            }
+            else
+            {
+                missingCount++;
+            }
+        }
+        
+        return missingCount;
+    }
+    
+    /**
+     * Build a level of detail pyramid over the given index in the
+     * background and start using it once it's done
+     * @param index
+     *          the index
+     */
+    private void buildPointPyramid(final PointSpatialIndex index)
+    {
+        BACKGROUND_RENDER_EXECUTOR.execute(new Runnable()
+        {
+            public void run()
+            {
+                PointPyramid pyramid = new PointPyramid(index);
+                synchronized(ScatterPlot.this)
+                {
+                    // the data may have changed while we were building
+                    if(ScatterPlot.this.pointIndex != index)
+                    {
+                        return;
+                    }
+                    ScatterPlot.this.pointPyramid = pyramid;
+                    ScatterPlot.this.publishRenderData();
+                }
+                ScatterPlot.this.repaintContainerComponent();
+            }
+        });
+    }
+    
+    /**
+     * Get a pseudo random but repeatable shift for a block of points so
+     * that the same view always draws the same sample
+     * @param block
+     *          the block number
+     * @return
+     *          the non-negative shift
+     */
+    private static long getBlockShift(int block)
+    {
+        // the murmur3 finalizer
+        long hash = block;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash >>> 1;
+    }
+    
+    /**
+     * Stop any progressive render that's in progress. The partly drawn
+     * layer stays where it is until the caller replaces it. This doesn't
+     * need the render lock since a cancelled task never publishes again
+     */
+    private void cancelProgressiveRender()
+    {
+        ProgressiveRenderTask task = this.progressiveRenderTask;
+        if(task != null)
+        {
+            task.cancel();
+        }
+    }
+    
+    /**
+     * Publish a new snapshot from a progressive render
+     * @param task
+     *          the task publishing the snapshot
+     * @param snapshot
+     *          the snapshot
+     * @param progress
+     *          how much of the layer is done
+     * @return
+     *          true if the snapshot was taken. false means that the task
+     *          is stale and should stop
+     */
+    private boolean publishProgressiveSnapshot(
+            ProgressiveRenderTask task,
+            BufferedImage snapshot,
+            double progress)
+    {
+        synchronized(this.renderLock)
+        {
+            if(task != this.progressiveRenderTask || task.isCancelled())
+            {
+                return false;
+            }
+            
+            this.baseLayerImage = snapshot;
+            this.renderProgress = progress;
+            if(progress >= 1.0)
+            {
+                this.progressiveRenderTask = null;
+            }
+        }
+        
+        this.repaintContainerComponent();
+        return true;
+    }
+    
+    /**
+     * Build a base layer that shows the point density
+     * @param renderData
+     *          the data to render
+     */
+    private void buildDensityBaseLayer(RenderData renderData)
+    {
+        DensityRaster raster = new DensityRaster(
+                this.getGraphCoordinateConverter());
+        this.baseLayerXOffset = raster.getXOffset();
+        this.baseLayerYOffset = raster.getYOffset();
+        this.baseLayerImage = raster.toImage(
+                raster.countPoints(renderData.xValues, renderData.yValues, null),
+                this.densityColorRamp);
+    }
+    
+    /**
+     * Build a base layer by adding every point's glyph into a per-pixel
+     * accumulation buffer and tone mapping the result. Points keep their
+     * color-by colors and size-by sizes
+     * @param renderData
+     *          the data to render
+     * @param antialiased
+     *          whether glyph edges are antialiased
+     */
+    private void buildAccumulationBaseLayer(
+            RenderData renderData,
+            boolean antialiased)
+    {
+        PointStyleMapping styleMapping = renderData.pointStyleMapping;
+        int[] styleCodes = null;
+        PointStamp[] styleStamps;
+        if(styleMapping == null)
+        {
+            styleStamps = new PointStamp[] {
+                    this.getPointStamp(this.getPointColor(), antialiased)};
+        }
+        else
+        {
+            styleCodes = styleMapping.getStyleCodes();
+            styleStamps = new PointStamp[styleMapping.getStyleCount()];
+            for(int style = 0; style < styleStamps.length; style++)
+            {
+                styleStamps[style] = PointStamp.getInstance(
+                        this.getPointShape(),
+                        styleMapping.getWidth(
+                                styleMapping.getSizeCode(style),
+                                this.getPointWidth()),
+                        styleMapping.getColor(style, this.getPointColor()),
+                        antialiased);
+            }
+        }
+        
+        long startNanos = System.nanoTime();
+        DensityRaster raster = new DensityRaster(
+                this.getGraphCoordinateConverter());
+        this.baseLayerXOffset = raster.getXOffset();
+        this.baseLayerYOffset = raster.getYOffset();
+        this.baseLayerImage = raster.toAccumulationImage(
+                raster.accumulatePoints(
+                        renderData.xValues,
+                        renderData.yValues,
+                        styleCodes,
+                        styleStamps),
+                this.accumulationOpacity,
+                this.getPointColor());
+        
+        if(LOG.isLoggable(Level.FINE))
+        {
+            LOG.fine(
+                    "Accumulated " + renderData.xValues.length + " points in " +
+                    ((System.nanoTime() - startNanos) / 1000000L) + " ms");
+        }
+    }
+    
+    /**
+     * Build a base layer of hexagonal cells. Cells are colored by the mean
+     * of the color-by data if there is any or else by their counts
+     * @param renderData
+     *          the data to render
+     */
+    private void buildHexBinBaseLayer(RenderData renderData)
+    {
+        HexBinning binning = this.hexBinOverlay.bin(
+                renderData.dataVersion,
+                this.getGraphCoordinateConverter(),
+                this.hexBinRadius,
+                renderData.xValues,
+                renderData.yValues,
+                renderData.colorByData,
+                renderData.pointStyleMapping);
+        this.baseLayerXOffset = binning.getXOffset();
+        this.baseLayerYOffset = binning.getYOffset();
+        this.baseLayerImage = renderData.colorByData == null ?
+                binning.toCountImage(this.densityColorRamp) :
+                binning.toMeanImage(renderData.colorPalette);
+    }
+    
+    /**
+     * Get the current selection, building it from the selectable data only
+     * if it has changed since the last time we looked
+     * @param renderData
+     *          the data being rendered
+     * @return
+     *          the selected indices. don't modify this
+     */
+    private IndexBitmap getSelectedIndices(RenderData renderData)
+    {
+        long version = this.selectionVersion.get();
+        SelectableData selectableData = renderData.getSelectableData();
+        if(this.selectedIndices == null ||
+           this.selectedIndicesVersion != version ||
+           this.selectedIndicesData != selectableData)
+        {
+            this.selectedIndices = selectableData == null ?
+                    new IndexBitmap() :
+                    IndexBitmap.fromIndices(selectableData.getSelectedIndices());
+            this.selectedIndicesVersion = version;
+            this.selectedIndicesData = selectableData;
+        }
+        
+        return this.selectedIndices;
+    }
+    
+    /**
+     * Create an empty raster covering the graph area. We leave a margin so
+     * that points on the edge of the graph don't get clipped
+     * @param styleMapping
+     *          the point style mapping or null
+     * @return
+     *          the raster
+     */
+    private PointRaster createLayerRaster(PointStyleMapping styleMapping)
+    {
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        int pointWidth = styleMapping == null ?
+                         this.getPointWidth() :
+                         styleMapping.getMaxWidth(this.getPointWidth());
+        int margin = pointWidth / 2 + 1;
+        return new PointRaster(
+                (int)Math.floor(coordConverter.getAbsoluteXOffsetInPixels()) - margin,
+                (int)Math.floor(coordConverter.getAbsoluteYOffsetInPixels()) - margin,
+                (int)Math.ceil(coordConverter.getAbsoluteWidthInPixels()) + 2 * margin,
+                (int)Math.ceil(coordConverter.getAbsoluteHeightInPixels()) + 2 * margin);
+    }
+    
+    /**
+     * Render the selected points (and any selection preview) on top of
+     * the base layer. The overlay is cached, and while a selection is
+     * being dragged out only the points whose preview state flipped get
+     * redrawn
+     * @param graphics2D
+     *          the graphics context to render to
+     * @param renderData
+     *          the data to render
+     * @param renderMode
+     *          the render mode
+     * @param selectionPreview
+     *          the selection being dragged out or null
+     */
+    private void renderSelectionOverlay(
+            Graphics2D graphics2D,
+            RenderData renderData,
+            ScatterPlotRenderMode renderMode,
+            SelectionPreview selectionPreview)
+    {
+        IndexBitmap selectedIndices = this.getSelectedIndices(renderData);
+        int[] flippedPoints = selectionPreview == null ?
+                              null :
+                              selectionPreview.takeFlippedPoints();
+        
+        if(renderMode != ScatterPlotRenderMode.POINTS)
+        {
+            int selectedCount = selectionPreview == null ?
+                    selectedIndices.cardinality() :
+                    IndexBitmap.orCardinality(
+                            selectedIndices,
+                            selectionPreview.getPreview());
+            if(selectedCount > MAX_SELECTION_OVERLAY_MARKERS)
+            {
+                // too many markers to draw quickly, so rasterize the
+                // selection instead
+                IndexBitmap combinedSelectedIndices =
+                    new IndexBitmap(selectedIndices);
+                if(selectionPreview != null)
+                {
+                    combinedSelectedIndices.or(selectionPreview.getPreview());
+                }
+                this.renderSelectionRaster(
+                        graphics2D,
+                        renderData,
+                        combinedSelectedIndices);
+                this.selectionOverlayKey = null;
+                return;
+            }
+        }
+        
+        PointStyleMapping styleMapping =
+            renderMode == ScatterPlotRenderMode.POINTS ?
+            renderData.pointStyleMapping :
+            null;
+        PointStamp[] selectedStamps = this.getSelectedStamps(
+                styleMapping,
+                PointStamp.isAntialiased(graphics2D));
+        BaseLayerKey key = new BaseLayerKey(
+                renderData.dataVersion,
+                this.getGraphCoordinateConverter(),
+                renderMode,
+                this.getSelectedPointColor(),
+                this.getPointWidth(),
+                this.getPointShape(),
+                PointStamp.isAntialiased(graphics2D),
+                null,
+                0,
+                null,
+                styleMapping,
+                0,
+                0.0);
+        if(key.equals(this.selectionOverlayKey) &&
+           this.selectionOverlayVersion == this.selectedIndicesVersion &&
+           this.selectionOverlayPreview == selectionPreview)
+        {
+            if(flippedPoints != null)
+            {
+                this.updateSelectionOverlay(
+                        renderData,
+                        selectedStamps,
+                        styleMapping,
+                        selectedIndices,
+                        selectionPreview.getPreview(),
+                        flippedPoints);
+            }
+        }
+        else
+        {
+            IndexBitmap overlayIndices = new IndexBitmap(selectedIndices);
+            if(selectionPreview != null)
+            {
+                overlayIndices.or(selectionPreview.getPreview());
+            }
+            
+            // when a drag finishes the preview usually becomes the
+            // selection as-is so there's nothing to redraw
+            if(!key.equals(this.selectionOverlayKey) ||
+               !overlayIndices.equals(this.selectionOverlayIndices))
+            {
+                this.buildSelectionOverlay(
+                        renderData,
+                        selectedStamps,
+                        styleMapping,
+                        overlayIndices);
+            }
+            this.selectionOverlayIndices = overlayIndices;
+            this.selectionOverlayKey = key;
+            this.selectionOverlayVersion = this.selectedIndicesVersion;
+            this.selectionOverlayPreview = selectionPreview;
+        }
+        
+        graphics2D.drawImage(
+                this.selectionOverlay.getImage(),
+                this.selectionOverlay.getXOffset(),
+                this.selectionOverlay.getYOffset(),
+                null);
+    }
+    
+    /**
+     * Get the selected point glyphs. Selected points are all drawn in the
+     * selected color but they keep their size if we're sizing by data
+     * @param styleMapping
+     *          the style mapping or null
+     * @param antialiased
+     *          whether the glyph edges should be antialiased
+     * @return
+     *          the glyphs indexed by size code
+     */
+    private PointStamp[] getSelectedStamps(
+            PointStyleMapping styleMapping,
+            boolean antialiased)
+    {
+        if(styleMapping == null || !styleMapping.isSizedByData())
+        {
+            return new PointStamp[] {
+                    this.getPointStamp(this.getSelectedPointColor(), antialiased)};
+        }
+        
+        PointStamp[] selectedStamps =
+            new PointStamp[styleMapping.getSizeCodeCount()];
+        for(int sizeCode = 0; sizeCode < selectedStamps.length; sizeCode++)
+        {
+            selectedStamps[sizeCode] = PointStamp.getInstance(
+                    this.getPointShape(),
+                    styleMapping.getWidth(sizeCode, this.getPointWidth()),
+                    this.getSelectedPointColor(),
+                    antialiased);
+        }
+        
+        return selectedStamps;
+    }
+    
+    /**
+     * Get the selected glyph for the given point
+     * @param selectedStamps
+     *          the glyphs from {@link #getSelectedStamps(PointStyleMapping, boolean)}
+     * @param styleMapping
+     *          the style mapping or null
+     * @param point
+     *          the point index
+     * @return
+     *          the glyph
+     */
+    private static PointStamp getSelectedStamp(
+            PointStamp[] selectedStamps,
+            PointStyleMapping styleMapping,
+            int point)
+    {
+        return selectedStamps.length == 1 ?
+               selectedStamps[0] :
+               selectedStamps[styleMapping.getSizeCode(
+                       styleMapping.getStyleCodes()[point])];
+    }
+    
+    /**
+     * Draw the given points into a new selection overlay
+     * @param renderData
+     *          the data to render
+     * @param selectedStamps
+     *          the selected point glyphs
+     * @param styleMapping
+     *          the style mapping or null
+     * @param overlayIndices
+     *          the points to draw
+     */
+    private void buildSelectionOverlay(
+            RenderData renderData,
+            PointStamp[] selectedStamps,
+            PointStyleMapping styleMapping,
+            IndexBitmap overlayIndices)
+    {
+        PointRaster pointRaster = this.createLayerRaster(
+                renderData.pointStyleMapping);
+        double[] xValues = renderData.xValues;
+        double[] yValues = renderData.yValues;
+        if(xValues != null)
+        {
+            for(int i = overlayIndices.nextSetBit(0);
+                i >= 0 && i < xValues.length;
+                i = overlayIndices.nextSetBit(i + 1))
+            {
+                this.renderPoint(
+                        pointRaster,
+                        ScatterPlot.getSelectedStamp(
+                                selectedStamps,
+                                styleMapping,
+                                i),
+                        xValues[i],
+                        yValues[i],
+                        null);
+            }
+        }
+        
+        this.selectionOverlay = pointRaster;
+    }
+    
+    /**
+     * Bring the selection overlay up to date after some points flipped in
+     * or out of the selection preview. New points are just drawn on top.
+     * Points that dropped out can't be erased on their own since they
+     * overlap their neighbors, so the tiles under them are cleared and
+     * redrawn from the points that are still drawn
+     * @param renderData
+     *          the data to render
+     * @param selectedStamps
+     *          the selected point glyphs
+     * @param styleMapping
+     *          the style mapping or null
+     * @param selectedIndices
+     *          the selection
+     * @param previewIndices
+     *          the selection preview
+     * @param flippedPoints
+     *          the points whose preview state flipped
+     */
+    private void updateSelectionOverlay(
+            RenderData renderData,
+            PointStamp[] selectedStamps,
+            PointStyleMapping styleMapping,
+            IndexBitmap selectedIndices,
+            IndexBitmap previewIndices,
+            int[] flippedPoints)
+    {
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        PointRaster pointRaster = this.selectionOverlay;
+        IndexBitmap overlayIndices = this.selectionOverlayIndices;
+        double[] xValues = renderData.xValues;
+        double[] yValues = renderData.yValues;
+        int tileColumnCount =
+            (pointRaster.getWidth() + SELECTION_OVERLAY_TILE_SIZE - 1) /
+            SELECTION_OVERLAY_TILE_SIZE;
+        int tileRowCount =
+            (pointRaster.getHeight() + SELECTION_OVERLAY_TILE_SIZE - 1) /
+            SELECTION_OVERLAY_TILE_SIZE;
+        int reach = selectedStamps[selectedStamps.length - 1].getSize() / 2 + 1;
+        IndexBitmap dirtyTiles = new IndexBitmap();
+        for(int point: flippedPoints)
+        {
+            boolean drawPoint =
+                selectedIndices.get(point) || previewIndices.get(point);
+            if(drawPoint == overlayIndices.get(point))
+            {
+                // flipped back to where it started
+                continue;
+            }
+            
+            if(drawPoint)
+            {
+                overlayIndices.set(point);
+                this.renderPoint(
+                        pointRaster,
+                        ScatterPlot.getSelectedStamp(
+                                selectedStamps,
+                                styleMapping,
+                                point),
+                        xValues[point],
+                        yValues[point],
+                        null);
+            }
+            else
+            {
+                overlayIndices.clear(point);
+                if(coordConverter.isGraphPointInBounds(
+                        xValues[point],
+                        yValues[point]))
+                {
+                    int rasterX = (int)Math.round(
+                            coordConverter.convertGraphXCoordinateToJava2DXCoordinate(
+                                    xValues[point])) - pointRaster.getXOffset();
+                    int rasterY = (int)Math.round(
+                            coordConverter.convertGraphYCoordinateToJava2DYCoordinate(
+                                    yValues[point])) - pointRaster.getYOffset();
+                    int fromColumn = Math.max(0, (rasterX - reach) / SELECTION_OVERLAY_TILE_SIZE);
+                    int toColumn = Math.min(
+                            tileColumnCount - 1,
+                            (rasterX + reach) / SELECTION_OVERLAY_TILE_SIZE);
+                    int fromRow = Math.max(0, (rasterY - reach) / SELECTION_OVERLAY_TILE_SIZE);
+                    int toRow = Math.min(
+                            tileRowCount - 1,
+                            (rasterY + reach) / SELECTION_OVERLAY_TILE_SIZE);
+                    for(int row = fromRow; row <= toRow; row++)
+                    {
+                        for(int column = fromColumn; column <= toColumn; column++)
+                        {
+                            dirtyTiles.set(row * tileColumnCount + column);
+                        }
+                    }
+                }
+            }
+        }
+        
+        for(int tile = dirtyTiles.nextSetBit(0);
+            tile >= 0;
+            tile = dirtyTiles.nextSetBit(tile + 1))
+        {
+            Rectangle tileArea = new Rectangle(
+                    pointRaster.getXOffset() +
+                    (tile % tileColumnCount) * SELECTION_OVERLAY_TILE_SIZE,
+                    pointRaster.getYOffset() +
+                    (tile / tileColumnCount) * SELECTION_OVERLAY_TILE_SIZE,
+                    SELECTION_OVERLAY_TILE_SIZE,
+                    SELECTION_OVERLAY_TILE_SIZE);
+            pointRaster.clear(tileArea);
+            
+            // redraw every point whose glyph reaches into the tile
+            int[] candidates = renderData.pointIndex.getPointsInOverlappingCells(
+                    coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
+                            tileArea.x - reach),
+                    coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
+                            tileArea.y + tileArea.height + reach),
+                    coordConverter.convertJava2DXCoordinateToGraphXCoordinate(
+                            tileArea.x + tileArea.width + reach),
+                    coordConverter.convertJava2DYCoordinateToGraphYCoordinate(
+                            tileArea.y - reach));
+            for(int point: candidates)
+            {
+                if(overlayIndices.get(point) &&
+                   coordConverter.isGraphPointInBounds(
+                           xValues[point],
+                           yValues[point]))
+                {
+                    pointRaster.stamp(
+                            ScatterPlot.getSelectedStamp(
+                                    selectedStamps,
+                                    styleMapping,
+                                    point),
+                            coordConverter.convertGraphXCoordinateToJava2DXCoordinate(
+                                    xValues[point]),
+                            coordConverter.convertGraphYCoordinateToJava2DYCoordinate(
+                                    yValues[point]),
+                            tileArea);
+                }
+            }
+        }
+        
+        if(LOG.isLoggable(Level.FINE))
+        {
+            LOG.fine(
+                    "Applied " + flippedPoints.length +
+                    " selection preview flips redrawing " +
+                    dirtyTiles.cardinality() + " tiles");
+        }
+    }
+    
+    /**
+     * Render a large selection on top of a density base layer as a raster
+     * @param graphics2D
+     *          the graphics context to render to
+     * @param renderData
+     *          the data to render
+     * @param selectedIndices
+     *          the indices to render as selected
+     */
+    private void renderSelectionRaster(
+            Graphics2D graphics2D,
+            RenderData renderData,
+            IndexBitmap selectedIndices)
+    {
+        DensityRaster raster = new DensityRaster(
+                this.getGraphCoordinateConverter());
+        BufferedImage selectionImage = raster.toMaskImage(
+                raster.countPoints(
+                        renderData.xValues,
+                        renderData.yValues,
+                        selectedIndices),
+                this.getSelectedPointColor().getRGB());
+        if(selectionImage != null)
+        {
+            graphics2D.drawImage(
+                    selectionImage,
+                    raster.getXOffset(),
+                    raster.getYOffset(),
+                    null);
+        }
+    }
+    
+    /**
+     * Plot the given correlated data. The x axis is the first
+     * {@link NamedData} and the y axis is the second. In multi-series
+     * mode every later {@link NamedData} is plotted against the x axis
+     * too (see {@link #setMultiSeriesEnabled(boolean)}).
+     * @param dataMatrix
+     *          the data matrix to plot
+     * @throws IndexOutOfBoundsException
+     *          if there are less than 2 {@link NamedData}s
+     *          in the given matrix
+     * @throws IllegalArgumentException
+     *          if we're in multi-series mode and the columns aren't all
+     *          the same size
+     */
+    public synchronized void plotData(
+            NamedDataMatrix<Number> dataMatrix)
+            throws IndexOutOfBoundsException, IllegalArgumentException
+    {
+        // anything still loading in the background is out of date now
+        this.dataLoader.supersede();
+        this.installData(ScatterPlot.prepareData(
+                dataMatrix,
+                this.multiSeriesEnabled,
+                DataLoadMonitor.NONE));
+    }
+    
+    /**
+     * Plot the given data like {@link #plotData(NamedDataMatrix)} but do
+     * the expensive work (converting the columns, indexing the points and
+     * finding the axis bounds) on a background thread. The current data
+     * stays on screen until the new data is ready, and then it's swapped
+     * in all at once on the event dispatch thread. Plotting newer data
+     * before this finishes cancels it. Don't block on the returned future
+     * from the EDT since it can't complete until the EDT installs the data
+     * @param dataMatrix
+     *          the data matrix to plot
+     * @param progressListener
+     *          the listener to tell about progress or null
+     * @return
+     *          the future for the load. getting it throws an
+     *          {@link java.util.concurrent.ExecutionException} for the
+     *          same problems that {@link #plotData(NamedDataMatrix)}
+     *          throws for, or a
+     *          {@link java.util.concurrent.CancellationException} if the
+     *          load was cancelled
+     */
+    public Future<Void> plotDataAsynchronously(
+            final NamedDataMatrix<Number> dataMatrix,
+            DataLoadProgressListener progressListener)
+    {
+        final boolean multiSeriesEnabled = this.isMultiSeriesEnabled();
+        return this.dataLoader.load(
+                new AsynchronousDataLoader.DataLoad<PlotModel>()
+                {
+                    public PlotModel prepare(DataLoadMonitor monitor)
+                    {
+                        return ScatterPlot.prepareData(
+                                dataMatrix,
+                                multiSeriesEnabled,
+                                monitor);
+                    }
+                    
+                    public void install(PlotModel model)
+                    {
+                        ScatterPlot.this.installData(model);
+                        ScatterPlot.this.repaintContainerComponent();
+                    }
+                },
+                progressListener);
+    }
+    
+    /**
+     * Do the expensive part of plotting new data without touching the
+     * plot, so that it's safe to do on any thread
+     * @param dataMatrix
+     *          the data matrix to plot
+     * @param multiSeriesEnabled
+     *          true if we're in multi-series mode
+     * @param monitor
+     *          for reporting progress and checking for cancellation
+     * @return
+     *          the prepared model
+     * @throws IndexOutOfBoundsException
+     *          see {@link #plotData(NamedDataMatrix)}
+     * @throws IllegalArgumentException
+     *          see {@link #plotData(NamedDataMatrix)}
+     */
+    private static PlotModel prepareData(
+            NamedDataMatrix<Number> dataMatrix,
+            boolean multiSeriesEnabled,
+            DataLoadMonitor monitor)
+            throws IndexOutOfBoundsException, IllegalArgumentException
+    {
+        // check the extra series before we do any real work
+        SeriesOverlay seriesOverlay = SeriesOverlay.create(
+                dataMatrix,
+                multiSeriesEnabled);
+        NamedData<Number> xAxisData = dataMatrix.getNamedDataList().get(0);
+        NamedData<Number> yAxisData = dataMatrix.getNamedDataList().get(1);
+        
+        // pull out primitive copies of the data and index them. we only
+        // have to do this when the data changes
+        monitor.checkCancelled();
+        NumericColumn xColumn = NumericColumn.forData(xAxisData);
+        double[] xValues = xColumn.getValues();
+        monitor.setProgress(0.2);
+        monitor.checkCancelled();
+        NumericColumn yColumn = NumericColumn.forData(yAxisData);
+        double[] yValues = yColumn.getValues();
+        monitor.setProgress(0.4);
+        monitor.checkCancelled();
+        PointSpatialIndex pointIndex = new PointSpatialIndex(xValues, yValues);
+        monitor.setProgress(0.7);
+        
+        // the columns already know their min/max values (ignoring missing
+        // values). start at extreme opposites so that columns with nothing
+        // but missing values don't count
+        double xAxisMin = Double.POSITIVE_INFINITY;
+        double xAxisMax = Double.NEGATIVE_INFINITY;
+        double yAxisMin = Double.POSITIVE_INFINITY;
+        double yAxisMax = Double.NEGATIVE_INFINITY;
+        if(xColumn.getMissingCount() < xColumn.getSize())
+        {
+            xAxisMin = xColumn.getMinimum();
+            xAxisMax = xColumn.getMaximum();
+        }
+        if(yColumn.getMissingCount() < yColumn.getSize())
+        {
+            yAxisMin = yColumn.getMinimum();
+            yAxisMax = yColumn.getMaximum();
+        }
+        
+        // the extra series share the y axis
+        for(ScatterPlotSeries currSeries: seriesOverlay.getSeries())
+        {
+            monitor.checkCancelled();
+            NumericColumn seriesColumn =
+                NumericColumn.forData(currSeries.getYAxisData());
+            if(seriesColumn.getMissingCount() < seriesColumn.getSize())
+            {
+                yAxisMin = Math.min(yAxisMin, seriesColumn.getMinimum());
+                yAxisMax = Math.max(yAxisMax, seriesColumn.getMaximum());
+            }
+        }
+        
+        // with nothing to plot on an axis we fall back on a unit range
+        // rather than an infinite one
+        if(xAxisMin > xAxisMax)
+        {
+            xAxisMin = 0.0;
+            xAxisMax = 1.0;
+        }
+        if(yAxisMin > yAxisMax)
+        {
+            yAxisMin = 0.0;
+            yAxisMax = 1.0;
+        }
+        monitor.setProgress(0.9);
+        
+        return new PlotModel(
+                dataMatrix,
+                xAxisData,
+                yAxisData,
+                xValues,
+                yValues,
+                pointIndex,
+                seriesOverlay,
+                xAxisMin,
+                xAxisMax,
+                yAxisMin,
+                yAxisMax);
+    }
+    
+    /**
+     * Swap a prepared model in as the plotted data
+     * @param model
+     *          the model
+     */
+    private synchronized void installData(PlotModel model)
+    {
+        // deregister for selection events on the old data
+        SelectableData selectableData = this.getSelectableData();
+        if(selectableData != null)
+        {
+            selectableData.removeSelectableDataListener(
+                    this.graphDataSelectionListener);
+        }
+        
+        this.dataMatrix = model.dataMatrix;
+        this.xAxisData = model.xAxisData;
+        this.yAxisData = model.yAxisData;
+        this.xValues = model.xValues;
+        this.yValues = model.yValues;
+        this.pointIndex = model.pointIndex;
+        this.pointPyramid = null;
+        this.seriesOverlay = model.seriesOverlay;
+        this.primarySeriesVisible = true;
+        this.updatePointStyleMappingForNewData();
+        this.dataVersion++;
+        this.selectionVersion.incrementAndGet();
+        this.cancelProgressiveRender();
+        if(this.pointIndex.getPointCount() > MIN_PYRAMID_POINT_COUNT)
+        {
+            this.buildPointPyramid(this.pointIndex);
+        }
+        
+        this.xAxisMin = model.xAxisMin;
+        this.xAxisMax = model.xAxisMax;
+        this.yAxisMin = model.yAxisMin;
+        this.yAxisMax = model.yAxisMax;
+        
+        // register for selection events on the new data
+        selectableData = this.getSelectableData();
+        if(selectableData != null)
+        {
+            selectableData.addSelectableDataListener(
+                    this.graphDataSelectionListener);
+        }
+        
+        // use the min/max values to bound the graph's coordinate system
+        this.getGraphCoordinateConverter().updateGraphDimensions(
+                this.xAxisMin,
+                this.yAxisMin,
+                this.xAxisMax - this.xAxisMin,
+                this.yAxisMax - this.yAxisMin);
+        
+        // OK, now update the axis descriptions
+        this.xAxisDescription = new RegularIntervalAxisDescription(
+                this.getGraphCoordinateConverter(),
+                AxisType.X_AXIS,
+                this.xAxisData.getNameOfData(),
+                DEFAULT_NUMBER_OF_TICKS,
+                DEFAULT_TICK_SIGNIFICANT_DIGITS,
+                true);
+        this.yAxisDescription = new RegularIntervalAxisDescription(
+                this.getGraphCoordinateConverter(),
+                AxisType.Y_AXIS,
+                this.yAxisData.getNameOfData(),
+                DEFAULT_NUMBER_OF_TICKS,
+                DEFAULT_TICK_SIGNIFICANT_DIGITS,
+                true);
+        
+        this.publishRenderData();
+    }
+    
+    /**
+     * Publish what we're plotting now for rendering. This has to be called
+     * (holding our lock) after any change to the data that rendering
+     * depends on
+     */
+    private void publishRenderData()
+    {
+        this.renderData = new RenderData(
+                this.dataVersion,
+                this.xAxisData,
+                this.yAxisData,
+                this.xValues,
+                this.yValues,
+                this.pointIndex,
+                this.pointPyramid,
+                this.seriesOverlay,
+                this.pointStyleMapping,
+                this.colorByData,
+                this.colorPalette);
+    }
+
+    /**
+     * Determine if we plot every column of the data matrix after the
+     * first against the x axis. Only the first y series takes part in
+     * selection, hover tooltips, the level of detail pyramid and the
+     * color-by and size-by mappings. The others are drawn with their own
+     * color in their own cached layers
+     * @return
+     *          true if we're in multi-series mode
+     */
+    public synchronized boolean isMultiSeriesEnabled()
+    {
+        return this.multiSeriesEnabled;
+    }
+    
+    /**
+     * Turn multi-series mode on or off. Any data that's already plotted
+     * gets replotted
+     * @see #isMultiSeriesEnabled()
+     * @param multiSeriesEnabled
+     *          true to turn on multi-series mode
+     * @throws IllegalArgumentException
+     *          see {@link #plotData(NamedDataMatrix)}
+     */
+    public synchronized void setMultiSeriesEnabled(boolean multiSeriesEnabled)
+    throws IllegalArgumentException
+    {
+        if(this.multiSeriesEnabled != multiSeriesEnabled)
+        {
+            this.multiSeriesEnabled = multiSeriesEnabled;
+            if(this.dataMatrix != null)
+            {
+                this.plotData(this.dataMatrix);
+                this.repaintContainerComponent();
+            }
+        }
+    }
+    
+    /**
+     * Getter for the number of y series that we're plotting
+     * @return
+     *          the series count (0 if there's no data)
+     */
+    public synchronized int getSeriesCount()
+    {
+        return this.yAxisData == null ?
+               0 :
+               this.seriesOverlay.getSeries().size() + 1;
+    }
+    
+    /**
+     * Get the y data for a series
+     * @param series
+     *          the series index. series 0 is the y axis data
+     * @return
+     *          the data
+     * @throws IndexOutOfBoundsException
+     *          if there's no such series
+     */
+    public synchronized NamedData<Number> getSeriesData(int series)
+    throws IndexOutOfBoundsException
+    {
+        return series == 0 && this.yAxisData != null ?
+               this.yAxisData :
+               this.seriesOverlay.getSeries().get(series - 1).getYAxisData();
+    }
+    
+    /**
+     * Get the color that a series is drawn with
+     * @param series
+     *          the series index. series 0 uses the point color
+     * @return
+     *          the color
+     * @throws IndexOutOfBoundsException
+     *          if there's no such series
+     */
+    public synchronized Color getSeriesColor(int series)
+    throws IndexOutOfBoundsException
+    {
+        return series == 0 ?
+               this.getPointColor() :
+               this.seriesOverlay.getSeries().get(series - 1).getColor();
+    }
+    
+    /**
+     * Set the color that a series is drawn with. Only that series gets
+     * redrawn
+     * @param series
+     *          the series index. series 0 uses the point color
+     * @param color
+     *          the color
+     * @throws IndexOutOfBoundsException
+     *          if there's no such series
+     */
+    public synchronized void setSeriesColor(int series, Color color)
+    throws IndexOutOfBoundsException
+    {
+        if(series == 0)
+        {
+            this.setPointColor(color);
+        }
+        else
+        {
+            this.seriesOverlay.getSeries().get(series - 1).setColor(color);
+        }
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Determine if a series is drawn
+     * @param series
+     *          the series index
+     * @return
+     *          true if it's visible
+     * @throws IndexOutOfBoundsException
+     *          if there's no such series
+     */
+    public synchronized boolean isSeriesVisible(int series)
+    throws IndexOutOfBoundsException
+    {
+        return series == 0 ?
+               this.primarySeriesVisible :
+               this.seriesOverlay.getSeries().get(series - 1).isVisible();
+    }
+    
+    /**
+     * Show or hide a series. The other series keep their cached layers so
+     * this doesn't redraw any of them
+     * @param series
+     *          the series index
+     * @param visible
+     *          true to show the series
+     * @throws IndexOutOfBoundsException
+     *          if there's no such series
+     */
+    public synchronized void setSeriesVisible(int series, boolean visible)
+    throws IndexOutOfBoundsException
+    {
+        if(series == 0)
+        {
+            this.primarySeriesVisible = visible;
+        }
+        else
+        {
+            this.seriesOverlay.getSeries().get(series - 1).setVisible(visible);
+        }
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * @return the xAxisData
+     */
+    public synchronized NamedData<Number> getXAxisData()
+    {
+        return this.xAxisData;
+    }
+
+    /**
+     * @return the yAxisData
+     */
+    public synchronized NamedData<Number> getYAxisData()
+    {
+        return this.yAxisData;
+    }
+    
+    /**
+     * Gets the selectable data shared by x-axis data and y axis data or
+     * null if they're not selectable. This is basically a convenience function
+     * for casting.
+     * @return
+     *          the selectable data
+     */
+    private SelectableData getSelectableData()
+    {
+        NamedData<Number> xAxisData = this.getXAxisData();
+        if(xAxisData instanceof SelectableData)
+        {
+            return (SelectableData)xAxisData;
+        }
+        else
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized JComponent getContainerComponent()
+    {
+        return super.getContainerComponent();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setContainerComponent(
+            JComponent containerComponent)
+    {
+        // stop listening to old component
+        JComponent currContainerComponent = this.getContainerComponent();
+        if(currContainerComponent != null)
+        {
+            currContainerComponent.removeMouseListener(
+                    this.containerComponentMouseListener);
+            currContainerComponent.removeMouseMotionListener(
+                    this.containerComponentMotionListener);
+            currContainerComponent.removeMouseWheelListener(
+                    this.containerComponentWheelListener);
+            currContainerComponent.setToolTipText(null);
+        }
+        
+        super.setContainerComponent(containerComponent);
+        
+        // start listening to new component
+        if(containerComponent != null)
+        {
+            containerComponent.addMouseListener(
+                    this.containerComponentMouseListener);
+            containerComponent.addMouseMotionListener(
+                    this.containerComponentMotionListener);
+            containerComponent.addMouseWheelListener(
+                    this.containerComponentWheelListener);
+        }
+    }
+
+    /**
+     * Determine if hovering over a point shows a tooltip with the point's
+     * row from every column of the plotted data
+     * @return
+     *          true if hover tooltips are enabled
+     */
+    public boolean isHoverTooltipsEnabled()
+    {
+        return this.hoverTooltipsEnabled;
+    }
+    
+    /**
+     * Setter for hover tooltips
+     * @see #isHoverTooltipsEnabled()
+     * @param hoverTooltipsEnabled
+     *          true to enable hover tooltips
+     */
+    public void setHoverTooltipsEnabled(boolean hoverTooltipsEnabled)
+    {
+        this.hoverTooltipsEnabled = hoverTooltipsEnabled;
+        if(!hoverTooltipsEnabled)
+        {
+            this.hoverTimer.stop();
+            this.hoverPoint = null;
+            this.updateHoverToolTip(-1);
+        }
+    }
+    
+    /**
+     * Determine if large plots are rendered progressively. If they are, a
+     * random sample of the points is drawn right away and the rest
+     * are drawn in the background with a repaint after every chunk
+     * @return
+     *          true if progressive rendering is enabled
+     */
+    public boolean isProgressiveRenderingEnabled()
+    {
+        return this.progressiveRenderingEnabled;
+    }
+    
+    /**
+     * Setter for progressive rendering
+     * @see #isProgressiveRenderingEnabled()
+     * @param progressiveRenderingEnabled
+     *          true to enable progressive rendering
+     */
+    public void setProgressiveRenderingEnabled(
+            boolean progressiveRenderingEnabled)
+    {
+        this.progressiveRenderingEnabled = progressiveRenderingEnabled;
+    }
+    
+    /**
+     * Getter for roughly the most points we want to draw at once. When
+     * there are more points than this in view we draw a stratified sample
+     * of them instead (see {@link PointPyramid}) that is as detailed as
+     * the budget allows without going over it. Zoom in far enough and
+     * every point gets drawn
+     * @return
+     *          the point budget
+     */
+    public int getPointBudget()
+    {
+        return this.pointBudget;
+    }
+    
+    /**
+     * Setter for the point budget
+     * @see #getPointBudget()
+     * @param pointBudget
+     *          the point budget
+     */
+    public void setPointBudget(int pointBudget)
+    {
+        this.pointBudget = pointBudget;
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Getter for how far along the current point layer is
+     * @return
+     *          the fraction of points that have been drawn (1.0 when
+     *          nothing is being rendered in the background)
+     */
+    public double getRenderProgress()
+    {
+        return this.renderProgress;
+    }
+    
+    /**
+     * Getter for how long the last point layer rebuild took to get
+     * something on screen. For progressive renders this only covers the
+     * sample, otherwise it covers the whole layer
+     * @return
+     *          the time in milliseconds
+     */
+    public long getTimeToFirstFrameMillis()
+    {
+        return this.timeToFirstFrameMillis;
+    }
+    
+    /**
+     * Getter for how we draw our points
+     * @return
+     *          the render mode
+     */
+    public ScatterPlotRenderMode getRenderMode()
+    {
+        return this.renderMode;
+    }
+    
+    /**
+     * Setter for how we draw our points
+     * @param renderMode
+     *          the render mode
+     */
+    public void setRenderMode(ScatterPlotRenderMode renderMode)
+    {
+        this.renderMode = renderMode;
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Getter for the color ramp used in
+     * {@link ScatterPlotRenderMode#DENSITY_RASTER} mode (and for cell
+     * counts in {@link ScatterPlotRenderMode#HEXBIN} mode)
+     * @return
+     *          the color ramp
+     */
+    public DensityColorRamp getDensityColorRamp()
+    {
+        return this.densityColorRamp;
+    }
+    
+    /**
+     * Setter for the density color ramp
+     * @see #getDensityColorRamp()
+     * @param densityColorRamp
+     *          the color ramp
+     */
+    public void setDensityColorRamp(DensityColorRamp densityColorRamp)
+    {
+        this.densityColorRamp = densityColorRamp;
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Getter for the opacity of a single point in
+     * {@link ScatterPlotRenderMode#ACCUMULATION} mode. A pixel covered by
+     * n points ends up with an opacity of 1 - (1 - opacity)^n
+     * @return
+     *          the opacity between 0 and 1
+     */
+    public double getAccumulationOpacity()
+    {
+        return this.accumulationOpacity;
+    }
+    
+    /**
+     * Setter for the single point opacity
+     * @see #getAccumulationOpacity()
+     * @param accumulationOpacity
+     *          the opacity
+     * @throws IllegalArgumentException
+     *          if the opacity isn't greater than 0 and at most 1
+     */
+    public void setAccumulationOpacity(double accumulationOpacity)
+    throws IllegalArgumentException
+    {
+        if(!(accumulationOpacity > 0.0 && accumulationOpacity <= 1.0))
+        {
+            throw new IllegalArgumentException(
+                    "the accumulation opacity must be in (0, 1]: " +
+                    accumulationOpacity);
+        }
+        
+        this.accumulationOpacity = accumulationOpacity;
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Determine if we draw the least squares line through the points
+     * @return
+     *          true if the regression line is drawn
+     */
+    public boolean isRegressionLineVisible()
+    {
+        return this.trendOverlay.isRegressionLineVisible();
+    }
+    
+    /**
+     * Turn the least squares line on or off
+     * @param regressionLineVisible
+     *          true to draw the line
+     */
+    public void setRegressionLineVisible(boolean regressionLineVisible)
+    {
+        this.trendOverlay.setRegressionLineVisible(regressionLineVisible);
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Get the least squares fit through the plotted points. The fit is
+     * cached and extended rather than redone when rows are appended to
+     * the data
+     * @return
+     *          a copy of the fit or null if there's no data
+     */
+    public StreamingRegression getRegression()
+    {
+        RenderData renderData = this.renderData;
+        if(renderData == null)
+        {
+            return null;
         }
         
-        super.setContainerComponent(containerComponent);
+        return this.trendOverlay.getRegression(
+                renderData.xAxisData,
+                renderData.yAxisData);
+    }
+    
+    /**
+     * Determine if we draw a smooth curve through the points
+     * @return
+     *          true if the smoother is drawn
+     */
+    public boolean isSmootherVisible()
+    {
+        return this.trendOverlay.isSmootherVisible();
+    }
+    
+    /**
+     * Turn the smooth curve on or off
+     * @param smootherVisible
+     *          true to draw the curve
+     */
+    public void setSmootherVisible(boolean smootherVisible)
+    {
+        this.trendOverlay.setSmootherVisible(smootherVisible);
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Getter for how much of the x range each local smoother fit looks at.
+     * Bigger spans give smoother curves
+     * @return
+     *          the span as a fraction of the x range
+     */
+    public double getSmootherSpan()
+    {
+        return this.trendOverlay.getSmootherSpan();
+    }
+    
+    /**
+     * Setter for the smoother span
+     * @see #getSmootherSpan()
+     * @param smootherSpan
+     *          the span
+     * @throws IllegalArgumentException
+     *          if the span isn't positive
+     */
+    public void setSmootherSpan(double smootherSpan)
+    throws IllegalArgumentException
+    {
+        this.trendOverlay.setSmootherSpan(smootherSpan);
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Getter for the color of the regression line and smooth curve
+     * @return
+     *          the color
+     */
+    public Color getTrendLineColor()
+    {
+        return this.trendOverlay.getTrendLineColor();
+    }
+    
+    /**
+     * Setter for the trend line color
+     * @param trendLineColor
+     *          the color
+     */
+    public void setTrendLineColor(Color trendLineColor)
+    {
+        this.trendOverlay.setTrendLineColor(trendLineColor);
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Determine if we draw density contours over the points
+     * @return
+     *          true if the contours are drawn
+     */
+    public boolean isContoursVisible()
+    {
+        return this.contourOverlay.isVisible();
+    }
+    
+    /**
+     * Turn the density contours on or off. The contours are worked out in
+     * the background the first time that they're needed and then cached
+     * until the data changes. If building them fails we don't try again
+     * until the data or the contour settings change
+     * @param contoursVisible
+     *          true to draw the contours
+     */
+    public void setContoursVisible(boolean contoursVisible)
+    {
+        this.contourOverlay.setVisible(contoursVisible);
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Getter for the number of rows and columns in the grid that the
+     * density is estimated on
+     * @return
+     *          the grid size
+     */
+    public int getContourGridSize()
+    {
+        return this.contourOverlay.getGridSize();
+    }
+    
+    /**
+     * Setter for the contour grid size
+     * @see #getContourGridSize()
+     * @param contourGridSize
+     *          the grid size
+     * @throws IllegalArgumentException
+     *          if the size is less than 2 or more than
+     *          {@link DensityContours#MAX_GRID_SIZE}
+     */
+    public void setContourGridSize(int contourGridSize)
+    throws IllegalArgumentException
+    {
+        this.contourOverlay.setGridSize(contourGridSize);
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Getter for the standard deviation of the density smoothing kernel
+     * as a fraction of the x and y data ranges. Bigger bandwidths give
+     * smoother contours
+     * @return
+     *          the bandwidth
+     */
+    public double getContourBandwidth()
+    {
+        return this.contourOverlay.getBandwidth();
+    }
+    
+    /**
+     * Setter for the contour bandwidth
+     * @see #getContourBandwidth()
+     * @param contourBandwidth
+     *          the bandwidth
+     * @throws IllegalArgumentException
+     *          if the bandwidth isn't positive
+     */
+    public void setContourBandwidth(double contourBandwidth)
+    throws IllegalArgumentException
+    {
+        this.contourOverlay.setBandwidth(contourBandwidth);
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Getter for the number of contour levels. The levels are spread
+     * evenly between zero and the peak density
+     * @return
+     *          the level count
+     */
+    public int getContourLevelCount()
+    {
+        return this.contourOverlay.getLevelCount();
+    }
+    
+    /**
+     * Setter for the number of contour levels
+     * @param contourLevelCount
+     *          the level count
+     * @throws IllegalArgumentException
+     *          if the count is less than 1
+     */
+    public void setContourLevelCount(int contourLevelCount)
+    throws IllegalArgumentException
+    {
+        this.contourOverlay.setLevelCount(contourLevelCount);
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Getter for the contour line color
+     * @return
+     *          the color
+     */
+    public Color getContourColor()
+    {
+        return this.contourOverlay.getColor();
+    }
+    
+    /**
+     * Setter for the contour line color
+     * @param contourColor
+     *          the color
+     */
+    public void setContourColor(Color contourColor)
+    {
+        this.contourOverlay.setColor(contourColor);
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Getter for the hexagon size used in
+     * {@link ScatterPlotRenderMode#HEXBIN} mode
+     * @return
+     *          the distance from a cell's center to its corners in pixels
+     */
+    public int getHexBinRadius()
+    {
+        return this.hexBinRadius;
+    }
+    
+    /**
+     * Setter for the hexagon size
+     * @see #getHexBinRadius()
+     * @param hexBinRadius
+     *          the radius in pixels
+     * @throws IllegalArgumentException
+     *          if the radius isn't positive
+     */
+    public void setHexBinRadius(int hexBinRadius)
+    throws IllegalArgumentException
+    {
+        if(hexBinRadius <= 0)
+        {
+            throw new IllegalArgumentException(
+                    "the hexagon radius must be positive: " + hexBinRadius);
+        }
         
-        // start listening to new component
-        if(containerComponent != null)
+        this.hexBinRadius = hexBinRadius;
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Getter for the data that points are colored by
+     * @return
+     *          the color-by data or null if all points are drawn with the
+     *          point color
+     */
+    public synchronized NamedData<Number> getColorByData()
+    {
+        return this.colorByData;
+    }
+    
+    /**
+     * Getter for the palette that points are colored from
+     * @see #getColorByData()
+     * @return
+     *          the palette or null if we aren't coloring by data
+     */
+    public synchronized PointPalette getColorPalette()
+    {
+        return this.colorPalette;
+    }
+    
+    /**
+     * Color the points by the given data. The category codes of
+     * {@link NamedCategoricalData} index into the palette (wrapping
+     * around if there are more categories than colors). Any other data is
+     * scaled from its minimum to its maximum across the palette. Missing
+     * values get the palette's missing color. This applies in
+     * {@link ScatterPlotRenderMode#POINTS} mode and in
+     * {@link ScatterPlotRenderMode#HEXBIN} mode, where the cells are
+     * colored by their mean value
+     * @param colorByData
+     *          the data to color by (with a value for every point) or null
+     *          to go back to drawing every point with the point color
+     * @param palette
+     *          the palette or null for
+     *          {@link PointPalette#DEFAULT_CATEGORICAL} or
+     *          {@link PointPalette#DEFAULT_NUMERIC} depending on the data
+     * @throws IllegalArgumentException
+     *          if the data doesn't have a value for every plotted point
+     */
+    public synchronized void setColorBy(
+            NamedData<Number> colorByData,
+            PointPalette palette)
+    throws IllegalArgumentException
+    {
+        if(colorByData == null)
         {
-            containerComponent.addMouseListener(
-                    this.containerComponentMouseListener);
-            containerComponent.addMouseMotionListener(
-                    this.containerComponentMotionListener);
+            palette = null;
+        }
+        else if(palette == null)
+        {
+            palette = colorByData instanceof NamedCategoricalData ?
+                      PointPalette.DEFAULT_CATEGORICAL :
+                      PointPalette.DEFAULT_NUMERIC;
         }
+        
+        this.pointStyleMapping = this.createPointStyleMapping(
+                colorByData,
+                palette,
+                this.sizeByData,
+                this.minSizeByPointWidth,
+                this.maxSizeByPointWidth);
+        this.colorByData = colorByData;
+        this.colorPalette = palette;
+        this.publishRenderData();
+        this.repaintContainerComponent();
     }
-
+    
+    /**
+     * Getter for the data that points are sized by
+     * @return
+     *          the size-by data or null if all points are drawn with the
+     *          point width
+     */
+    public synchronized NamedData<Number> getSizeByData()
+    {
+        return this.sizeByData;
+    }
+    
+    /**
+     * Size the points by the given data. The data is scaled from its
+     * minimum to its maximum across the width range and points with a
+     * missing value get the smallest width. This only applies in
+     * {@link ScatterPlotRenderMode#POINTS} mode
+     * @param sizeByData
+     *          the data to size by (with a value for every point) or null
+     *          to go back to drawing every point with the point width
+     * @param minPointWidth
+     *          the width for the smallest value
+     * @param maxPointWidth
+     *          the width for the largest value
+     * @throws IllegalArgumentException
+     *          if the data doesn't have a value for every plotted point or
+     *          the widths don't make sense
+     */
+    public synchronized void setSizeBy(
+            NamedData<Number> sizeByData,
+            int minPointWidth,
+            int maxPointWidth)
+    throws IllegalArgumentException
+    {
+        this.pointStyleMapping = this.createPointStyleMapping(
+                this.colorByData,
+                this.colorPalette,
+                sizeByData,
+                minPointWidth,
+                maxPointWidth);
+        this.sizeByData = sizeByData;
+        this.minSizeByPointWidth = minPointWidth;
+        this.maxSizeByPointWidth = maxPointWidth;
+        this.publishRenderData();
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Work out the style of every plotted point
+     * @param colorByData
+     *          the data to color by or null
+     * @param palette
+     *          the palette to color with
+     * @param sizeByData
+     *          the data to size by or null
+     * @param minPointWidth
+     *          the width for the smallest size-by value
+     * @param maxPointWidth
+     *          the width for the largest size-by value
+     * @return
+     *          the mapping or null if there's nothing to map (or no data
+     *          plotted yet)
+     * @throws IllegalArgumentException
+     *          see {@link PointStyleMapping}
+     */
+    private PointStyleMapping createPointStyleMapping(
+            NamedData<Number> colorByData,
+            PointPalette palette,
+            NamedData<Number> sizeByData,
+            int minPointWidth,
+            int maxPointWidth)
+    throws IllegalArgumentException
+    {
+        if(this.xValues == null || (colorByData == null && sizeByData == null))
+        {
+            return null;
+        }
+        else
+        {
+            return new PointStyleMapping(
+                    this.xValues.length,
+                    colorByData,
+                    palette,
+                    sizeByData,
+                    minPointWidth,
+                    maxPointWidth);
+        }
+    }
+    
+    /**
+     * Rebuild the point style mapping for newly plotted data, dropping
+     * any color-by or size-by data that doesn't line up with it
+     */
+    private void updatePointStyleMappingForNewData()
+    {
+        int pointCount = this.xValues.length;
+        if(this.colorByData != null && this.colorByData.getSize() != pointCount)
+        {
+            LOG.warning(
+                    "no longer coloring by " + this.colorByData.getNameOfData() +
+                    " since it doesn't match the size of the plotted data");
+            this.colorByData = null;
+            this.colorPalette = null;
+        }
+        if(this.sizeByData != null && this.sizeByData.getSize() != pointCount)
+        {
+            LOG.warning(
+                    "no longer sizing by " + this.sizeByData.getNameOfData() +
+                    " since it doesn't match the size of the plotted data");
+            this.sizeByData = null;
+        }
+        
+        this.pointStyleMapping = this.createPointStyleMapping(
+                this.colorByData,
+                this.colorPalette,
+                this.sizeByData,
+                this.minSizeByPointWidth,
+                this.maxSizeByPointWidth);
+    }
+    
     /**
      * {@inheritDoc}
      */
@@ -715,4 +3694,338 @@ public class ScatterPlot extends AbstractGraph2DWithAxes
     {
         return this.yAxisDescription;
     }
+    
+    /**
+     * An immutable snapshot of the plotted data, as much of it as
+     * rendering needs
+     */
+    private static final class RenderData
+    {
+        private final long dataVersion;
+        
+        private final NamedData<Number> xAxisData;
+        
+        private final NamedData<Number> yAxisData;
+        
+        private final double[] xValues;
+        
+        private final double[] yValues;
+        
+        private final PointSpatialIndex pointIndex;
+        
+        private final PointPyramid pointPyramid;
+        
+        private final SeriesOverlay seriesOverlay;
+        
+        private final PointStyleMapping pointStyleMapping;
+        
+        private final NamedData<Number> colorByData;
+        
+        private final PointPalette colorPalette;
+        
+        /**
+         * Constructor
+         * @param dataVersion
+         *          the data version
+         * @param xAxisData
+         *          the x axis column
+         * @param yAxisData
+         *          the y axis column
+         * @param xValues
+         *          the x values
+         * @param yValues
+         *          the y values
+         * @param pointIndex
+         *          the spatial index over the points
+         * @param pointPyramid
+         *          the level of detail pyramid or null
+         * @param seriesOverlay
+         *          the extra series
+         * @param pointStyleMapping
+         *          the point style mapping or null
+         * @param colorByData
+         *          the color-by data or null
+         * @param colorPalette
+         *          the color-by palette or null
+         */
+        public RenderData(
+                long dataVersion,
+                NamedData<Number> xAxisData,
+                NamedData<Number> yAxisData,
+                double[] xValues,
+                double[] yValues,
+                PointSpatialIndex pointIndex,
+                PointPyramid pointPyramid,
+                SeriesOverlay seriesOverlay,
+                PointStyleMapping pointStyleMapping,
+                NamedData<Number> colorByData,
+                PointPalette colorPalette)
+        {
+            this.dataVersion = dataVersion;
+            this.xAxisData = xAxisData;
+            this.yAxisData = yAxisData;
+            this.xValues = xValues;
+            this.yValues = yValues;
+            this.pointIndex = pointIndex;
+            this.pointPyramid = pointPyramid;
+            this.seriesOverlay = seriesOverlay;
+            this.pointStyleMapping = pointStyleMapping;
+            this.colorByData = colorByData;
+            this.colorPalette = colorPalette;
+        }
+        
+        /**
+         * Get the x axis data as {@link SelectableData} if it is one
+         * @return
+         *          the selectable data or null
+         */
+        public SelectableData getSelectableData()
+        {
+            if(this.xAxisData instanceof SelectableData)
+            {
+                return (SelectableData)this.xAxisData;
+            }
+            else
+            {
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * Everything that {@link ScatterPlot#plotData(NamedDataMatrix)} works
+     * out from the data before it touches the plot
+     */
+    private static final class PlotModel
+    {
+        private final NamedDataMatrix<Number> dataMatrix;
+        
+        private final NamedData<Number> xAxisData;
+        
+        private final NamedData<Number> yAxisData;
+        
+        private final double[] xValues;
+        
+        private final double[] yValues;
+        
+        private final PointSpatialIndex pointIndex;
+        
+        private final SeriesOverlay seriesOverlay;
+        
+        private final double xAxisMin;
+        
+        private final double xAxisMax;
+        
+        private final double yAxisMin;
+        
+        private final double yAxisMax;
+        
+        /**
+         * Constructor
+         * @param dataMatrix
+         *          the data matrix
+         * @param xAxisData
+         *          the x axis column
+         * @param yAxisData
+         *          the y axis column
+         * @param xValues
+         *          the x values
+         * @param yValues
+         *          the y values
+         * @param pointIndex
+         *          the spatial index over the points
+         * @param seriesOverlay
+         *          the extra series
+         * @param xAxisMin
+         *          the smallest x value
+         * @param xAxisMax
+         *          the largest x value
+         * @param yAxisMin
+         *          the smallest y value (over every series)
+         * @param yAxisMax
+         *          the largest y value (over every series)
+         */
+        public PlotModel(
+                NamedDataMatrix<Number> dataMatrix,
+                NamedData<Number> xAxisData,
+                NamedData<Number> yAxisData,
+                double[] xValues,
+                double[] yValues,
+                PointSpatialIndex pointIndex,
+                SeriesOverlay seriesOverlay,
+                double xAxisMin,
+                double xAxisMax,
+                double yAxisMin,
+                double yAxisMax)
+        {
+            this.dataMatrix = dataMatrix;
+            this.xAxisData = xAxisData;
+            this.yAxisData = yAxisData;
+            this.xValues = xValues;
+            this.yValues = yValues;
+            this.pointIndex = pointIndex;
+            this.seriesOverlay = seriesOverlay;
+            this.xAxisMin = xAxisMin;
+            this.xAxisMax = xAxisMax;
+            this.yAxisMin = yAxisMin;
+            this.yAxisMax = yAxisMax;
+        }
+    }
+    
+    /**
+     * Draws the points left over after the progressive sample into the
+     * back buffer a chunk at a time, publishing a snapshot after each
+     * chunk
+     */
+    private class ProgressiveRenderTask implements Runnable
+    {
+        private final PointRaster pointRaster;
+        
+        private final PointBatches pointBatches;
+        
+        private final PointStamp[] batchStamps;
+        
+        private final PointOccupancyMask occupancyMask;
+        
+        private final double[] xValues;
+        
+        private final double[] yValues;
+        
+        private final int stride;
+        
+        private final int sampleMissingCount;
+        
+        private final long startNanos;
+        
+        /**
+         * set when the layer that we're drawing has gone stale
+         */
+        private volatile boolean cancelled = false;
+        
+        /**
+         * Constructor
+         * @param pointRaster
+         *          the back buffer. the sample pass (offset 0) must already
+         *          be drawn
+         * @param pointBatches
+         *          the points to draw grouped by style
+         * @param batchStamps
+         *          the glyph for each batch
+         * @param occupancyMask
+         *          the occupancy mask used for the sample or null
+         * @param xValues
+         *          the x values
+         * @param yValues
+         *          the y values
+         * @param stride
+         *          the stride that the sample was drawn with
+         * @param sampleMissingCount
+         *          the number of missing points in the sample
+         * @param startNanos
+         *          when the layer rebuild started
+         */
+        public ProgressiveRenderTask(
+                PointRaster pointRaster,
+                PointBatches pointBatches,
+                PointStamp[] batchStamps,
+                PointOccupancyMask occupancyMask,
+                double[] xValues,
+                double[] yValues,
+                int stride,
+                int sampleMissingCount,
+                long startNanos)
+        {
+            this.pointRaster = pointRaster;
+            this.pointBatches = pointBatches;
+            this.batchStamps = batchStamps;
+            this.occupancyMask = occupancyMask;
+            this.xValues = xValues;
+            this.yValues = yValues;
+            this.stride = stride;
+            this.sampleMissingCount = sampleMissingCount;
+            this.startNanos = startNanos;
+        }
+        
+        /**
+         * Stop drawing as soon as possible
+         */
+        public void cancel()
+        {
+            this.cancelled = true;
+        }
+        
+        /**
+         * Determine if this task has been cancelled
+         * @return
+         *          true if it has
+         */
+        public boolean isCancelled()
+        {
+            return this.cancelled;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        public void run()
+        {
+            int missingCount = this.sampleMissingCount;
+            int pointCount = this.pointBatches.getPointCount();
+            int pointsPerOffset = Math.max(1, pointCount / this.stride);
+            int pointsSincePublish = 0;
+            for(int offset = 1; offset < this.stride; offset++)
+            {
+                if(this.cancelled)
+                {
+                    return;
+                }
+                
+                missingCount += ScatterPlot.this.renderPointStride(
+                        this.pointRaster,
+                        this.pointBatches,
+                        this.batchStamps,
+                        this.occupancyMask,
+                        this.xValues,
+                        this.yValues,
+                        offset,
+                        this.stride);
+                pointsSincePublish += pointsPerOffset;
+                
+                boolean lastOffset = offset == this.stride - 1;
+                if(lastOffset || pointsSincePublish >= PROGRESSIVE_CHUNK_SIZE)
+                {
+                    // the last snapshot doesn't need copying since nobody
+                    // is going to draw to it again
+                    BufferedImage snapshot = lastOffset ?
+                            this.pointRaster.getImage() :
+                            this.pointRaster.copy().getImage();
+                    double progress = lastOffset ?
+                            1.0 :
+                            (offset + 1) / (double)this.stride;
+                    if(!ScatterPlot.this.publishProgressiveSnapshot(
+                            this,
+                            snapshot,
+                            progress))
+                    {
+                        return;
+                    }
+                    pointsSincePublish = 0;
+                }
+            }
+            
+            if(LOG.isLoggable(Level.FINE))
+            {
+                LOG.fine(
+                        "Finished progressive render of " +
+                        pointCount + " points in " +
+                        ((System.nanoTime() - this.startNanos) / 1000000L) +
+                        " ms. Skipped " + missingCount + " points with " +
+                        "missing values and " +
+                        (this.occupancyMask == null ?
+                         0 :
+                         this.occupancyMask.getSkippedCount()) +
+                        " draws of points landing on an occupied pixel");
+            }
+        }
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+/**
+ * What dragging with the primary mouse button does in a
+ * {@link ScatterPlot}. Independent of the mode the mouse wheel always
+ * zooms and dragging with the middle button always pans.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public enum ScatterPlotInteractionMode
+{
+    /**
+     * dragging selects the points inside of a rectangle and clicking
+     * selects the points under the cursor
+     */
+    SELECT,
+    
+    /**
+     * dragging draws a freeform lasso and the points inside of it get
+     * selected
+     */
+    LASSO,
+    
+    /**
+     * dragging pans the view
+     */
+    PAN,
+    
+    /**
+     * dragging zooms the view in to a rectangle
+     */
+    ZOOM
+}
@@ -0,0 +1,1152 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionAdapter;
+import java.awt.event.MouseMotionListener;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.JComponent;
+
+import org.jax.analyticgraph.data.IndexBitmap;
+import org.jax.analyticgraph.data.NamedData;
+import org.jax.analyticgraph.data.NamedDataMatrix;
+import org.jax.analyticgraph.data.NumericColumn;
+import org.jax.analyticgraph.data.ParallelChunkExecutor;
+import org.jax.analyticgraph.data.SelectableData;
+import org.jax.analyticgraph.data.SelectableDataListener;
+import org.jax.analyticgraph.framework.AbstractGraph2D;
+import org.jax.analyticgraph.framework.GraphCoordinateConverter;
+import org.jax.analyticgraph.framework.PointOccupancyMask;
+import org.jax.analyticgraph.framework.PointRaster;
+import org.jax.analyticgraph.framework.PointStamp;
+
+/**
+ * A scatter plot matrix (SPLOM) that plots every column of a
+ * {@link NamedDataMatrix} against every other column in a grid of tiles.
+ * The tile in row r and column c plots column c on the x axis against
+ * column r on the y axis, and the diagonal tiles show the column names.
+ * All of the tiles share one normalized copy of each column and are drawn
+ * in parallel into cached layers, so a matrix with hundreds of tiles
+ * doesn't need hundreds of {@link ScatterPlot}s. The layers are drawn in
+ * the background and rendering never locks the matrix, so painting stays
+ * responsive while new data or a new selection is being drawn. Dragging
+ * out a rectangle
+ * in any tile selects the points inside it and the selection is shown in
+ * every tile.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class ScatterPlotMatrix extends AbstractGraph2D
+{
+    /**
+     * the space between tiles in pixels
+     */
+    private static final int TILE_GAP_PIXELS = 4;
+    
+    /**
+     * the color of the tile borders
+     */
+    private static final Color TILE_BORDER_COLOR = Color.LIGHT_GRAY;
+    
+    /**
+     * the color of the column names on the diagonal
+     */
+    private static final Color LABEL_COLOR = Color.BLACK;
+    
+    /**
+     * our logger
+     */
+    private static final Logger LOG =
+        Logger.getLogger(ScatterPlotMatrix.class.getName());
+    
+    /**
+     * the thread that draws the tile layers for all scatter plot matrices
+     */
+    private static final ExecutorService TILE_RENDER_EXECUTOR =
+        Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(
+                        runnable,
+                        "scatter-plot-matrix-render");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    
+    /**
+     * the plotted data. this is replaced all at once so rendering and
+     * brushing can read it without locking
+     */
+    private volatile MatrixData matrixData = MatrixData.EMPTY;
+    
+    /**
+     * incremented every time the selection changes. this is atomic since
+     * the selection listener doesn't lock
+     */
+    private final AtomicLong selectionVersion = new AtomicLong();
+    
+    /**
+     * the unselected point layers
+     */
+    private final TileLayerCache tileLayerCache = new TileLayerCache(false);
+    
+    /**
+     * the selected point layers
+     */
+    private final TileLayerCache selectionLayerCache = new TileLayerCache(true);
+    
+    /**
+     * the tile that a brushing rectangle is being dragged out in
+     */
+    private Rectangle brushTile;
+    
+    /**
+     * the row of the brushed tile
+     */
+    private int brushRow;
+    
+    /**
+     * the column of the brushed tile
+     */
+    private int brushColumn;
+    
+    /**
+     * the brushing rectangle or null if we aren't brushing. this is
+     * replaced rather than changed so that rendering can read it without
+     * locking
+     */
+    private volatile Rectangle brushRectangle;
+    
+    /**
+     * our mouse listener
+     */
+    private final MouseListener containerComponentMouseListener =
+        new MouseAdapter()
+        {
+            @Override
+            public void mousePressed(MouseEvent event)
+            {
+                ScatterPlotMatrix.this.brushStarted(event.getPoint());
+            }
+            
+            @Override
+            public void mouseReleased(MouseEvent event)
+            {
+                ScatterPlotMatrix.this.brushCompleted(
+                        event.getPoint(),
+                        event.isShiftDown());
+            }
+        };
+    
+    /**
+     * our mouse motion listener
+     */
+    private final MouseMotionListener containerComponentMotionListener =
+        new MouseMotionAdapter()
+        {
+            @Override
+            public void mouseDragged(MouseEvent event)
+            {
+                ScatterPlotMatrix.this.brushDragged(event.getPoint());
+            }
+        };
+    
+    /**
+     * our selection listener
+     */
+    private final SelectableDataListener selectionListener =
+        new SelectableDataListener()
+        {
+            public void selectionChanged(SelectableData selectableData)
+            {
+                // we don't lock here since this can be called from any
+                // thread
+                ScatterPlotMatrix.this.selectionVersion.incrementAndGet();
+                ScatterPlotMatrix.this.repaintContainerComponent();
+            }
+        };
+    
+    /**
+     * Constructor
+     * @param graphCoordinateConverter
+     *          the coordinate converter. only its absolute pixel area is
+     *          used since every tile has its own scale
+     */
+    public ScatterPlotMatrix(GraphCoordinateConverter graphCoordinateConverter)
+    {
+        super(graphCoordinateConverter);
+    }
+    
+    /**
+     * Plot every column of the given matrix against every other column
+     * @param dataMatrix
+     *          the matrix
+     * @throws IllegalArgumentException
+     *          if a column holds something that isn't a number or the
+     *          columns aren't all the same size
+     */
+    public void plotData(NamedDataMatrix<Number> dataMatrix)
+    throws IllegalArgumentException
+    {
+        // check the columns before we change anything. the tiles are
+        // built on worker threads where a ragged column would fail
+        // without telling anyone why
+        final List<NamedData<Number>> columns = dataMatrix.getNamedDataList();
+        if(!columns.isEmpty())
+        {
+            int pointCount = columns.get(0).getSize();
+            for(NamedData<Number> currColumn: columns)
+            {
+                if(currColumn.getSize() != pointCount)
+                {
+                    throw new IllegalArgumentException(
+                            "column \"" + currColumn.getNameOfData() +
+                            "\" has " + currColumn.getSize() + " values " +
+                            "but column \"" +
+                            columns.get(0).getNameOfData() + "\" has " +
+                            pointCount);
+                }
+            }
+        }
+        
+        // normalize the columns in parallel. the statistics come from the
+        // cached numeric columns so this doesn't rescan anything we've
+        // already looked at. we don't need our lock for this since
+        // nothing is published until it's done
+        final String[] columnNames = new String[columns.size()];
+        final float[][] normalizedColumns = new float[columns.size()][];
+        ParallelChunkExecutor.execute(
+                columns.size(),
+                1,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromIndex, int toIndex)
+                    {
+                        for(int i = fromIndex; i < toIndex; i++)
+                        {
+                            columnNames[i] = columns.get(i).getNameOfData();
+                            normalizedColumns[i] = ScatterPlotMatrix.normalize(
+                                    NumericColumn.forData(columns.get(i)));
+                        }
+                    }
+                });
+        
+        synchronized(this)
+        {
+            MatrixData oldMatrixData = this.matrixData;
+            SelectableData selectableData = oldMatrixData.getSelectableData();
+            if(selectableData != null)
+            {
+                selectableData.removeSelectableDataListener(
+                        this.selectionListener);
+            }
+            
+            MatrixData newMatrixData = new MatrixData(
+                    oldMatrixData.dataVersion + 1,
+                    dataMatrix,
+                    columnNames,
+                    normalizedColumns);
+            this.matrixData = newMatrixData;
+            this.selectionVersion.incrementAndGet();
+            this.brushRectangle = null;
+            
+            selectableData = newMatrixData.getSelectableData();
+            if(selectableData != null)
+            {
+                selectableData.addSelectableDataListener(
+                        this.selectionListener);
+            }
+        }
+        
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * Scale a column from its minimum to its maximum
+     * @param column
+     *          the column
+     * @return
+     *          the normalized values. NaN stays NaN and a column with only
+     *          one value is put in the middle
+     */
+    private static float[] normalize(NumericColumn column)
+    {
+        double[] values = column.getValues();
+        double minimum = column.getMinimum();
+        double range = column.getMaximum() - minimum;
+        float[] normalizedValues = new float[values.length];
+        for(int i = 0; i < values.length; i++)
+        {
+            double value = values[i];
+            if(Double.isNaN(value))
+            {
+                normalizedValues[i] = Float.NaN;
+            }
+            else
+            {
+                normalizedValues[i] = range > 0.0 ?
+                        (float)((value - minimum) / range) :
+                        0.5F;
+            }
+        }
+        
+        return normalizedValues;
+    }
+    
+    /**
+     * Getter for the plotted matrix
+     * @return
+     *          the matrix or null if nothing has been plotted
+     */
+    public NamedDataMatrix<Number> getDataMatrix()
+    {
+        return this.matrixData.dataMatrix;
+    }
+    
+    /**
+     * Get the Java2D area of a tile
+     * @param tileCount
+     *          the number of tiles across (and down) the matrix
+     * @param row
+     *          the tile row
+     * @param column
+     *          the tile column
+     * @return
+     *          the area
+     */
+    private Rectangle getTileArea(int tileCount, int row, int column)
+    {
+        GraphCoordinateConverter coordConverter =
+            this.getGraphCoordinateConverter();
+        int gapTotal = TILE_GAP_PIXELS * Math.max(0, tileCount - 1);
+        int tileWidth = Math.max(
+                1,
+                ((int)coordConverter.getAbsoluteWidthInPixels() - gapTotal) /
+                Math.max(1, tileCount));
+        int tileHeight = Math.max(
+                1,
+                ((int)coordConverter.getAbsoluteHeightInPixels() - gapTotal) /
+                Math.max(1, tileCount));
+        return new Rectangle(
+                (int)coordConverter.getAbsoluteXOffsetInPixels() +
+                column * (tileWidth + TILE_GAP_PIXELS),
+                (int)coordConverter.getAbsoluteYOffsetInPixels() +
+                row * (tileHeight + TILE_GAP_PIXELS),
+                tileWidth,
+                tileHeight);
+    }
+    
+    /**
+     * Find the tile under the given point
+     * @param tileCount
+     *          the number of tiles across (and down) the matrix
+     * @param point
+     *          the Java2D point
+     * @return
+     *          the tile index in row major order or -1 if the point isn't
+     *          in a tile
+     */
+    private int getTileAt(int tileCount, Point point)
+    {
+        for(int row = 0; row < tileCount; row++)
+        {
+            for(int column = 0; column < tileCount; column++)
+            {
+                if(this.getTileArea(tileCount, row, column).contains(point))
+                {
+                    return row * tileCount + column;
+                }
+            }
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    public void renderGraph(Graphics2D graphics2D)
+    {
+        Color pushColor = graphics2D.getColor();
+        
+        // we don't lock here. the data comes from the latest snapshot and
+        // the layers are drawn in the background, so until the layers for
+        // the current snapshot are ready we draw what we have
+        MatrixData matrixData = this.matrixData;
+        int tileCount = matrixData.columnNames.length;
+        Rectangle[] tileAreas = new Rectangle[tileCount * tileCount];
+        for(int row = 0; row < tileCount; row++)
+        {
+            for(int column = 0; column < tileCount; column++)
+            {
+                tileAreas[row * tileCount + column] =
+                    this.getTileArea(tileCount, row, column);
+            }
+        }
+        Rectangle firstTileArea = this.getTileArea(tileCount, 0, 0);
+        boolean antialiased = PointStamp.isAntialiased(graphics2D);
+        int inset = this.getPointWidth() / 2 + 1;
+        
+        // the tile layers only depend on the data, the layout and the
+        // point style so they survive selection changes
+        PointStamp pointStamp = this.getPointStamp(
+                this.getPointColor(),
+                antialiased);
+        TileLayers tileLayers = this.tileLayerCache.getLayers(
+                new TileLayerKey(
+                        matrixData.dataVersion,
+                        0L,
+                        firstTileArea,
+                        pointStamp),
+                matrixData,
+                tileAreas,
+                inset);
+        
+        PointStamp selectedStamp = this.getPointStamp(
+                this.getSelectedPointColor(),
+                antialiased);
+        TileLayers selectionLayers = this.selectionLayerCache.getLayers(
+                new TileLayerKey(
+                        matrixData.dataVersion,
+                        this.selectionVersion.get(),
+                        firstTileArea,
+                        selectedStamp),
+                matrixData,
+                tileAreas,
+                inset);
+        
+        FontMetrics fontMetrics = graphics2D.getFontMetrics();
+        for(int row = 0; row < tileCount; row++)
+        {
+            for(int column = 0; column < tileCount; column++)
+            {
+                int tile = row * tileCount + column;
+                Rectangle tileArea = tileAreas[tile];
+                if(row == column)
+                {
+                    // the diagonal just names the column
+                    String name = matrixData.columnNames[row];
+                    graphics2D.setColor(LABEL_COLOR);
+                    graphics2D.drawString(
+                            name,
+                            tileArea.x +
+                            (tileArea.width - fontMetrics.stringWidth(name)) / 2,
+                            tileArea.y +
+                            (tileArea.height + fontMetrics.getAscent()) / 2);
+                }
+                else
+                {
+                    if(tileLayers != null && tileLayers.layers != null)
+                    {
+                        this.drawLayer(graphics2D, tileLayers.layers[tile]);
+                    }
+                    if(selectionLayers != null && selectionLayers.layers != null)
+                    {
+                        this.drawLayer(graphics2D, selectionLayers.layers[tile]);
+                    }
+                }
+                
+                graphics2D.setColor(TILE_BORDER_COLOR);
+                graphics2D.drawRect(
+                        tileArea.x,
+                        tileArea.y,
+                        tileArea.width - 1,
+                        tileArea.height - 1);
+            }
+        }
+        
+        Rectangle brushRectangle = this.brushRectangle;
+        if(brushRectangle != null)
+        {
+            this.renderSelectionRectangle(graphics2D, brushRectangle);
+        }
+        
+        graphics2D.setColor(pushColor);
+    }
+    
+    /**
+     * Draw a cached layer
+     * @param graphics2D
+     *          the graphics context
+     * @param layer
+     *          the layer
+     */
+    private void drawLayer(Graphics2D graphics2D, PointRaster layer)
+    {
+        graphics2D.drawImage(
+                layer.getImage(),
+                layer.getXOffset(),
+                layer.getYOffset(),
+                null);
+    }
+    
+    /**
+     * Draw a layer for every tile off of the diagonal. The tiles are
+     * independent so they're drawn in parallel
+     * @param matrixData
+     *          the data to draw
+     * @param tileAreas
+     *          the Java2D area of each tile in row major order
+     * @param inset
+     *          how far the plotting area is inset from the tile edges
+     * @param pointStamp
+     *          the glyph to draw with
+     * @param pointIndices
+     *          the points to draw or null to draw all of them
+     * @return
+     *          the layers in row major order (null on the diagonal)
+     */
+    private static PointRaster[] buildTileLayers(
+            MatrixData matrixData,
+            final Rectangle[] tileAreas,
+            final int inset,
+            final PointStamp pointStamp,
+            final IndexBitmap pointIndices)
+    {
+        long startNanos = System.nanoTime();
+        final int tileCount = matrixData.columnNames.length;
+        
+        // the workers only touch their own tiles and the shared (read
+        // only) columns
+        final float[][] normalizedColumns = matrixData.normalizedColumns;
+        final PointRaster[] layers = new PointRaster[tileAreas.length];
+        ParallelChunkExecutor.execute(
+                tileAreas.length,
+                1,
+                new ParallelChunkExecutor.ChunkTask()
+                {
+                    public void processChunk(int fromIndex, int toIndex)
+                    {
+                        for(int tile = fromIndex; tile < toIndex; tile++)
+                        {
+                            int row = tile / tileCount;
+                            int column = tile % tileCount;
+                            if(row != column)
+                            {
+                                layers[tile] = ScatterPlotMatrix.buildTileLayer(
+                                        tileAreas[tile],
+                                        inset,
+                                        pointStamp,
+                                        normalizedColumns[column],
+                                        normalizedColumns[row],
+                                        pointIndices);
+                            }
+                        }
+                    }
+                });
+        
+        if(LOG.isLoggable(Level.FINE))
+        {
+            LOG.fine(
+                    "Drew " + (tileCount * (tileCount - 1)) + " " +
+                    (pointIndices == null ? "" : "selection ") +
+                    "tiles in " +
+                    ((System.nanoTime() - startNanos) / 1000000L) + " ms");
+        }
+        
+        return layers;
+    }
+    
+    /**
+     * Draw a single tile
+     * @param tileArea
+     *          the Java2D area of the tile
+     * @param inset
+     *          how far the plotting area is inset from the tile edges so
+     *          that points on the edge aren't clipped
+     * @param pointStamp
+     *          the glyph
+     * @param xValues
+     *          the normalized x values
+     * @param yValues
+     *          the normalized y values
+     * @param pointIndices
+     *          the points to draw or null to draw all of them
+     * @return
+     *          the tile layer
+     */
+    private static PointRaster buildTileLayer(
+            Rectangle tileArea,
+            int inset,
+            PointStamp pointStamp,
+            float[] xValues,
+            float[] yValues,
+            IndexBitmap pointIndices)
+    {
+        PointRaster pointRaster = new PointRaster(
+                tileArea.x,
+                tileArea.y,
+                tileArea.width,
+                tileArea.height);
+        PointOccupancyMask occupancyMask = new PointOccupancyMask(
+                tileArea.x,
+                tileArea.y,
+                tileArea.width,
+                tileArea.height);
+        double left = tileArea.x + inset;
+        double bottom = tileArea.y + tileArea.height - inset;
+        double plotWidth = Math.max(0, tileArea.width - 2 * inset);
+        double plotHeight = Math.max(0, tileArea.height - 2 * inset);
+        int pointCount = xValues.length;
+        for(int i = pointIndices == null ? 0 : pointIndices.nextSetBit(0);
+            i >= 0 && i < pointCount;
+            i = pointIndices == null ? i + 1 : pointIndices.nextSetBit(i + 1))
+        {
+            float x = xValues[i];
+            float y = yValues[i];
+            if(!Float.isNaN(x) && !Float.isNaN(y))
+            {
+                double java2DX = left + x * plotWidth;
+                double java2DY = bottom - y * plotHeight;
+                if(occupancyMask.occupy(pointStamp, java2DX, java2DY))
+                {
+                    pointRaster.stamp(pointStamp, java2DX, java2DY);
+                }
+            }
+        }
+        
+        return pointRaster;
+    }
+    
+    /**
+     * Start brushing if the point is in a tile off of the diagonal
+     * @param startPoint
+     *          where the drag started
+     */
+    private synchronized void brushStarted(Point startPoint)
+    {
+        int tileCount = this.matrixData.columnNames.length;
+        int tile = this.getTileAt(tileCount, startPoint);
+        if(tile >= 0 && tile / tileCount != tile % tileCount)
+        {
+            this.brushRow = tile / tileCount;
+            this.brushColumn = tile % tileCount;
+            this.brushTile = this.getTileArea(
+                    tileCount,
+                    this.brushRow,
+                    this.brushColumn);
+            this.brushRectangle = new Rectangle(startPoint);
+        }
+    }
+    
+    /**
+     * Stretch the brushing rectangle (clipped to its tile)
+     * @param dragPoint
+     *          the drag point
+     */
+    private synchronized void brushDragged(Point dragPoint)
+    {
+        Rectangle brushRectangle = this.brushRectangle;
+        if(brushRectangle != null)
+        {
+            Rectangle tile = this.brushTile;
+            this.brushRectangle = new Rectangle(
+                    brushRectangle.x,
+                    brushRectangle.y,
+                    Math.max(
+                            tile.x,
+                            Math.min(tile.x + tile.width - 1, dragPoint.x)) -
+                    brushRectangle.x,
+                    Math.max(
+                            tile.y,
+                            Math.min(tile.y + tile.height - 1, dragPoint.y)) -
+                    brushRectangle.y);
+            this.repaintContainerComponent();
+        }
+    }
+    
+    /**
+     * Select the points under the brushing rectangle. Every tile shares
+     * the selection so they all show the brushed points
+     * @param completionPoint
+     *          where the drag finished
+     * @param addToSelection
+     *          true to add to the selection rather than replacing it
+     */
+    private synchronized void brushCompleted(
+            Point completionPoint,
+            boolean addToSelection)
+    {
+        if(this.brushRectangle == null)
+        {
+            return;
+        }
+        
+        this.brushDragged(completionPoint);
+        Rectangle brush = AbstractGraph2D.toNonNegativeWidthHeightRectangle(
+                this.brushRectangle);
+        this.brushRectangle = null;
+        
+        // work out the brush in normalized coordinates
+        Rectangle tile = this.brushTile;
+        int inset = this.getPointWidth() / 2 + 1;
+        double plotWidth = Math.max(1, tile.width - 2 * inset);
+        double plotHeight = Math.max(1, tile.height - 2 * inset);
+        double left = (brush.x - tile.x - inset) / plotWidth;
+        double right = (brush.x + brush.width - tile.x - inset) / plotWidth;
+        double top = (tile.y + tile.height - inset - brush.y) / plotHeight;
+        double bottom =
+            (tile.y + tile.height - inset - brush.y - brush.height) / plotHeight;
+        MatrixData matrixData = this.matrixData;
+        float[] xValues = matrixData.normalizedColumns[this.brushColumn];
+        float[] yValues = matrixData.normalizedColumns[this.brushRow];
+        IndexBitmap brushedIndices = new IndexBitmap(xValues.length);
+        for(int i = 0; i < xValues.length; i++)
+        {
+            float x = xValues[i];
+            float y = yValues[i];
+            if(x >= left && x <= right && y >= bottom && y <= top)
+            {
+                brushedIndices.set(i);
+            }
+        }
+        
+        SelectableData selectableData = matrixData.getSelectableData();
+        if(selectableData != null)
+        {
+            // replacing the selection in one go means that listeners
+            // (and the selection history) only see a single change
+            if(addToSelection)
+            {
+                selectableData.selectAllIndices(brushedIndices.asSortedSet());
+            }
+            else
+            {
+                selectableData.setSelectedIndices(
+                        brushedIndices.asSortedSet());
+            }
+        }
+        
+        this.repaintContainerComponent();
+    }
+    
+    /**
+     * call repaint on the container component
+     */
+    private void repaintContainerComponent()
+    {
+        JComponent containerComponent = this.getContainerComponent();
+        if(containerComponent != null)
+        {
+            containerComponent.repaint();
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized JComponent getContainerComponent()
+    {
+        return super.getContainerComponent();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setContainerComponent(
+            JComponent containerComponent)
+    {
+        JComponent currContainerComponent = this.getContainerComponent();
+        if(currContainerComponent != null)
+        {
+            currContainerComponent.removeMouseListener(
+                    this.containerComponentMouseListener);
+            currContainerComponent.removeMouseMotionListener(
+                    this.containerComponentMotionListener);
+        }
+        
+        super.setContainerComponent(containerComponent);
+        
+        if(containerComponent != null)
+        {
+            containerComponent.addMouseListener(
+                    this.containerComponentMouseListener);
+            containerComponent.addMouseMotionListener(
+                    this.containerComponentMotionListener);
+        }
+    }
+    
+    /**
+     * The cached layers of one kind (unselected or selected points) for
+     * every tile. Layers are built in the background the first time that
+     * they're asked for and the last finished ones are handed out until
+     * then
+     */
+    private final class TileLayerCache
+    {
+        /**
+         * true if we draw just the selected points
+         */
+        private final boolean selectedOnly;
+        
+        /**
+         * the last layers that were finished or null
+         */
+        private volatile TileLayers layers;
+        
+        /**
+         * the key that's being built or null. guarded by this cache
+         */
+        private TileLayerKey pendingKey;
+        
+        /**
+         * Constructor
+         * @param selectedOnly
+         *          true to draw just the selected points
+         */
+        public TileLayerCache(boolean selectedOnly)
+        {
+            this.selectedOnly = selectedOnly;
+        }
+        
+        /**
+         * Get the layers to draw, starting a background build if the ones
+         * that we have aren't for the given key
+         * @param key
+         *          what the layers should be drawn for
+         * @param matrixData
+         *          the data that the key's data version belongs to
+         * @param tileAreas
+         *          the Java2D area of each tile in row major order
+         * @param inset
+         *          how far the plotting area is inset from the tile edges
+         * @return
+         *          the layers for the key if they're ready, otherwise the
+         *          last layers drawn for the same data and layout or null
+         */
+        public TileLayers getLayers(
+                final TileLayerKey key,
+                final MatrixData matrixData,
+                final Rectangle[] tileAreas,
+                final int inset)
+        {
+            TileLayers layers = this.layers;
+            if(layers != null && layers.key.equals(key))
+            {
+                return layers;
+            }
+            
+            synchronized(this)
+            {
+                if(!key.equals(this.pendingKey))
+                {
+                    this.pendingKey = key;
+                    TILE_RENDER_EXECUTOR.execute(new Runnable()
+                    {
+                        public void run()
+                        {
+                            TileLayerCache.this.buildLayers(
+                                    key,
+                                    matrixData,
+                                    tileAreas,
+                                    inset);
+                        }
+                    });
+                }
+            }
+            
+            // layers drawn for other data or another layout would land
+            // in the wrong places
+            return layers != null && layers.key.hasSameLayout(key) ?
+                   layers :
+                   null;
+        }
+        
+        /**
+         * Build the layers for a key and publish them unless a newer key
+         * was asked for in the meantime
+         * @param key
+         *          what the layers are drawn for
+         * @param matrixData
+         *          the data to draw
+         * @param tileAreas
+         *          the Java2D area of each tile in row major order
+         * @param inset
+         *          how far the plotting area is inset from the tile edges
+         */
+        private void buildLayers(
+                TileLayerKey key,
+                MatrixData matrixData,
+                Rectangle[] tileAreas,
+                int inset)
+        {
+            // skip builds that were superseded while they were queued
+            synchronized(this)
+            {
+                if(!key.equals(this.pendingKey))
+                {
+                    return;
+                }
+            }
+            
+            PointRaster[] layers;
+            try
+            {
+                IndexBitmap pointIndices = null;
+                if(this.selectedOnly)
+                {
+                    SelectableData selectableData =
+                        matrixData.getSelectableData();
+                    pointIndices = selectableData == null ?
+                            new IndexBitmap() :
+                            IndexBitmap.fromIndices(
+                                    selectableData.getSelectedIndices());
+                }
+                
+                layers = pointIndices != null && pointIndices.isEmpty() ?
+                         null :
+                         ScatterPlotMatrix.buildTileLayers(
+                                 matrixData,
+                                 tileAreas,
+                                 inset,
+                                 key.pointStamp,
+                                 pointIndices);
+            }
+            catch(RuntimeException ex)
+            {
+                // we leave the key pending so that we don't keep retrying
+                // a build that fails
+                LOG.log(Level.SEVERE,
+                        "failed to draw the scatter plot matrix tiles",
+                        ex);
+                return;
+            }
+            
+            synchronized(this)
+            {
+                if(!key.equals(this.pendingKey))
+                {
+                    return;
+                }
+                this.layers = new TileLayers(key, layers);
+                this.pendingKey = null;
+            }
+            
+            ScatterPlotMatrix.this.repaintContainerComponent();
+        }
+    }
+    
+    /**
+     * Finished layers along with the key that they were drawn for
+     */
+    private static final class TileLayers
+    {
+        private final TileLayerKey key;
+        
+        private final PointRaster[] layers;
+        
+        /**
+         * Constructor
+         * @param key
+         *          what the layers were drawn for
+         * @param layers
+         *          the layers in row major order (null on the diagonal) or
+         *          null if there's nothing to draw
+         */
+        public TileLayers(TileLayerKey key, PointRaster[] layers)
+        {
+            this.key = key;
+            this.layers = layers;
+        }
+    }
+    
+    /**
+     * An immutable snapshot of the plotted data
+     */
+    private static final class MatrixData
+    {
+        /**
+         * the snapshot before anything has been plotted
+         */
+        public static final MatrixData EMPTY = new MatrixData(
+                0L,
+                null,
+                new String[0],
+                new float[0][]);
+        
+        /**
+         * incremented every time that
+         * {@link ScatterPlotMatrix#plotData(NamedDataMatrix)} is called
+         */
+        private final long dataVersion;
+        
+        private final NamedDataMatrix<Number> dataMatrix;
+        
+        private final String[] columnNames;
+        
+        /**
+         * every column scaled from its minimum (0) to its maximum (1) with
+         * NaN for missing values. these are shared by all of the tiles
+         */
+        private final float[][] normalizedColumns;
+        
+        /**
+         * Constructor
+         * @param dataVersion
+         *          the data version
+         * @param dataMatrix
+         *          the plotted matrix or null
+         * @param columnNames
+         *          the column names
+         * @param normalizedColumns
+         *          the normalized columns
+         */
+        public MatrixData(
+                long dataVersion,
+                NamedDataMatrix<Number> dataMatrix,
+                String[] columnNames,
+                float[][] normalizedColumns)
+        {
+            this.dataVersion = dataVersion;
+            this.dataMatrix = dataMatrix;
+            this.columnNames = columnNames;
+            this.normalizedColumns = normalizedColumns;
+        }
+        
+        /**
+         * Get the selection model that is shared by every tile. This is
+         * the matrix itself if it's selectable or else its first column
+         * @return
+         *          the selection model or null if the data isn't
+         *          selectable
+         */
+        public SelectableData getSelectableData()
+        {
+            NamedDataMatrix<Number> dataMatrix = this.dataMatrix;
+            if(dataMatrix instanceof SelectableData)
+            {
+                return (SelectableData)dataMatrix;
+            }
+            else if(dataMatrix != null &&
+                    !dataMatrix.getNamedDataList().isEmpty() &&
+                    dataMatrix.getNamedDataList().get(0) instanceof SelectableData)
+            {
+                return (SelectableData)dataMatrix.getNamedDataList().get(0);
+            }
+            else
+            {
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * Identifies what a set of cached tile layers was drawn for
+     */
+    private static final class TileLayerKey
+    {
+        private final long dataVersion;
+        
+        private final long selectionVersion;
+        
+        private final Rectangle firstTileArea;
+        
+        private final PointStamp pointStamp;
+        
+        /**
+         * Constructor
+         * @param dataVersion
+         *          the data version
+         * @param selectionVersion
+         *          the selection version (0 for the unselected layers)
+         * @param firstTileArea
+         *          the area of the first tile which pins down the layout
+         * @param pointStamp
+         *          the glyph
+         */
+        public TileLayerKey(
+                long dataVersion,
+                long selectionVersion,
+                Rectangle firstTileArea,
+                PointStamp pointStamp)
+        {
+            this.dataVersion = dataVersion;
+            this.selectionVersion = selectionVersion;
+            this.firstTileArea = firstTileArea;
+            this.pointStamp = pointStamp;
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object otherObject)
+        {
+            if(otherObject instanceof TileLayerKey)
+            {
+                TileLayerKey otherKey = (TileLayerKey)otherObject;
+                return
+                        this.dataVersion == otherKey.dataVersion &&
+                        this.selectionVersion == otherKey.selectionVersion &&
+                        this.firstTileArea.equals(otherKey.firstTileArea) &&
+                        this.pointStamp == otherKey.pointStamp;
+            }
+            else
+            {
+                return false;
+            }
+        }
+        
+        /**
+         * Determine if layers drawn for the other key fit the tiles of
+         * this one
+         * @param otherKey
+         *          the other key
+         * @return
+         *          true if both are for the same data and tile layout
+         */
+        public boolean hasSameLayout(TileLayerKey otherKey)
+        {
+            return
+                    this.dataVersion == otherKey.dataVersion &&
+                    this.firstTileArea.equals(otherKey.firstTileArea);
+        }
+        
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode()
+        {
+            long bits = 31 * this.dataVersion + this.selectionVersion;
+            return (int)(bits ^ (bits >>> 32)) + this.firstTileArea.hashCode();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+/**
+ * The different ways that a {@link ScatterPlot} can draw its points
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public enum ScatterPlotRenderMode
+{
+    /**
+     * every point is drawn as a marker. this is the default and is fine
+     * up to a few hundred thousand points
+     */
+    POINTS,
+    
+    /**
+     * points are counted per pixel and the counts are drawn through a
+     * {@link DensityColorRamp}. selected points are drawn on top
+     */
+    DENSITY_RASTER,
+    
+    /**
+     * points are aggregated into hexagonal cells which are colored by
+     * their counts through a {@link DensityColorRamp} or by the mean of
+     * the color-by data. clicking a cell selects its points and selected
+     * points are drawn on top
+     */
+    HEXBIN,
+    
+    /**
+     * every point's glyph is added into a per-pixel accumulation buffer
+     * which is then tone mapped so that overlapping points build up
+     * opacity gradually instead of saturating. selected points are drawn
+     * on top
+     */
+    ACCUMULATION
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Color;
+
+import org.jax.analyticgraph.data.NamedData;
+import org.jax.analyticgraph.data.NumericColumn;
+import org.jax.analyticgraph.framework.PointRaster;
+
+/**
+ * One of the extra y series that a multi-series {@link ScatterPlot} draws
+ * against the shared x axis. Each series keeps its own cached layer so
+ * that changing one series (or hiding it) doesn't touch the others.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class ScatterPlotSeries
+{
+    /**
+     * @see #getYAxisData()
+     */
+    private final NamedData<Number> yAxisData;
+    
+    /**
+     * @see #getYValues()
+     */
+    private final double[] yValues;
+    
+    /**
+     * @see #getColor()
+     */
+    private volatile Color color;
+    
+    /**
+     * @see #isVisible()
+     */
+    private volatile boolean visible = true;
+    
+    /**
+     * @see #getLayerKey()
+     */
+    private BaseLayerKey layerKey;
+    
+    /**
+     * @see #getLayer()
+     */
+    private PointRaster layer;
+    
+    /**
+     * Constructor
+     * @param yAxisData
+     *          the y data for the series
+     * @param color
+     *          the series point color
+     */
+    public ScatterPlotSeries(NamedData<Number> yAxisData, Color color)
+    {
+        this.yAxisData = yAxisData;
+        this.yValues = NumericColumn.forData(yAxisData).getValues();
+        this.color = color;
+    }
+    
+    /**
+     * Getter for the y data of this series
+     * @return
+     *          the y data
+     */
+    public NamedData<Number> getYAxisData()
+    {
+        return this.yAxisData;
+    }
+    
+    /**
+     * Getter for the primitive y values. Don't modify these
+     * @return
+     *          the y values (NaN where missing)
+     */
+    public double[] getYValues()
+    {
+        return this.yValues;
+    }
+    
+    /**
+     * Getter for the series point color
+     * @return
+     *          the color
+     */
+    public Color getColor()
+    {
+        return this.color;
+    }
+    
+    /**
+     * Setter for the series point color
+     * @param color
+     *          the color
+     */
+    public void setColor(Color color)
+    {
+        this.color = color;
+    }
+    
+    /**
+     * Determine if the series is drawn
+     * @return
+     *          true if it's visible
+     */
+    public boolean isVisible()
+    {
+        return this.visible;
+    }
+    
+    /**
+     * Setter for whether the series is drawn
+     * @param visible
+     *          true if it should be visible
+     */
+    public void setVisible(boolean visible)
+    {
+        this.visible = visible;
+    }
+    
+    /**
+     * Getter for the key that the cached layer was built for
+     * @return
+     *          the key or null if there's no layer yet
+     */
+    public BaseLayerKey getLayerKey()
+    {
+        return this.layerKey;
+    }
+    
+    /**
+     * Getter for the cached layer
+     * @return
+     *          the layer or null if there's no layer yet
+     */
+    public PointRaster getLayer()
+    {
+        return this.layer;
+    }
+    
+    /**
+     * Hold on to a newly built layer
+     * @param layerKey
+     *          the key that the layer was built for
+     * @param layer
+     *          the layer
+     */
+    public void setLayer(BaseLayerKey layerKey, PointRaster layer)
+    {
+        this.layerKey = layerKey;
+        this.layer = layer;
+    }
+}
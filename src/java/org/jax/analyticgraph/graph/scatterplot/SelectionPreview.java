@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.util.Arrays;
+
+import org.jax.analyticgraph.data.IndexBitmap;
+
+/**
+ * The points that a selection gesture in progress would select. Every
+ * point whose preview state changes is remembered until the next call to
+ * {@link #takeFlippedPoints()} so that whoever draws the preview only has
+ * to redraw what changed.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+abstract class SelectionPreview
+{
+    /**
+     * the index of the points being selected
+     */
+    private final PointSpatialIndex pointIndex;
+    
+    /**
+     * @see #getPreview()
+     */
+    private final IndexBitmap preview;
+    
+    /**
+     * the points flipped since the last {@link #takeFlippedPoints()}
+     */
+    private int[] flippedPoints = new int[64];
+    
+    /**
+     * the number of flipped points
+     */
+    private int flippedCount = 0;
+    
+    /**
+     * Constructor
+     * @param pointIndex
+     *          the index of the points being selected
+     */
+    public SelectionPreview(PointSpatialIndex pointIndex)
+    {
+        this.pointIndex = pointIndex;
+        this.preview = new IndexBitmap(pointIndex.getPointCount());
+    }
+    
+    /**
+     * Getter for the index of the points being selected
+     * @return
+     *          the index
+     */
+    protected PointSpatialIndex getPointIndex()
+    {
+        return this.pointIndex;
+    }
+    
+    /**
+     * Getter for the points that are in the preview
+     * @return
+     *          the preview. don't modify this
+     */
+    public IndexBitmap getPreview()
+    {
+        return this.preview;
+    }
+    
+    /**
+     * Toggle whether the given point is in the preview
+     * @param point
+     *          the point index
+     */
+    protected void flip(int point)
+    {
+        if(!this.preview.clear(point))
+        {
+            this.preview.set(point);
+        }
+        
+        if(this.flippedCount == this.flippedPoints.length)
+        {
+            this.flippedPoints = Arrays.copyOf(
+                    this.flippedPoints,
+                    this.flippedCount * 2);
+        }
+        this.flippedPoints[this.flippedCount++] = point;
+    }
+    
+    /**
+     * Get the points that were flipped since the last time that this was
+     * called. A point that was flipped more than once can show up more
+     * than once
+     * @return
+     *          the flipped points
+     */
+    public int[] takeFlippedPoints()
+    {
+        int[] flipped = Arrays.copyOf(this.flippedPoints, this.flippedCount);
+        this.flippedCount = 0;
+        return flipped;
+    }
+}
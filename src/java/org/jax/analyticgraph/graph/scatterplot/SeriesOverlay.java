@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jax.analyticgraph.data.NamedData;
+import org.jax.analyticgraph.data.NamedDataMatrix;
+import org.jax.analyticgraph.data.NumericColumn;
+import org.jax.analyticgraph.data.ParallelChunkExecutor;
+import org.jax.analyticgraph.framework.GraphCoordinateConverter;
+import org.jax.analyticgraph.framework.PointOccupancyMask;
+import org.jax.analyticgraph.framework.PointRaster;
+import org.jax.analyticgraph.framework.PointShape;
+import org.jax.analyticgraph.framework.PointStamp;
+
+/**
+ * Draws the extra y series of a multi-series {@link ScatterPlot} against
+ * the shared x axis. The overlay is built for one data matrix and is
+ * replaced along with the data, so the only thing that can make a series
+ * layer go stale is a change to the viewport, the point style or the
+ * series itself. Hidden series keep their layers so showing or hiding a
+ * series never redraws the others.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class SeriesOverlay
+{
+    /**
+     * our logger
+     */
+    private static final Logger LOG =
+        Logger.getLogger(SeriesOverlay.class.getName());
+    
+    /**
+     * an overlay with no series
+     */
+    public static final SeriesOverlay NONE = new SeriesOverlay(
+            new double[0],
+            Collections.<ScatterPlotSeries>emptyList());
+    
+    /**
+     * the shared x values
+     */
+    private final double[] xValues;
+    
+    /**
+     * @see #getSeries()
+     */
+    private final List<ScatterPlotSeries> series;
+    
+    /**
+     * Constructor
+     * @param xValues
+     *          the shared x values (NaN where missing)
+     * @param series
+     *          the series
+     */
+    private SeriesOverlay(double[] xValues, List<ScatterPlotSeries> series)
+    {
+        this.xValues = xValues;
+        this.series = Collections.unmodifiableList(series);
+    }
+    
+    /**
+     * Create the overlay for the given matrix
+     * @param dataMatrix
+     *          the matrix. the first column is the x axis and the second
+     *          is the plot's own y series
+     * @param multiSeriesEnabled
+     *          true if we're in multi-series mode
+     * @return
+     *          the overlay for the columns after the second one or
+     *          {@link #NONE} if we're not in multi-series mode
+     * @throws IllegalArgumentException
+     *          if the extra columns don't match the x column's size
+     */
+    public static SeriesOverlay create(
+            NamedDataMatrix<Number> dataMatrix,
+            boolean multiSeriesEnabled)
+    throws IllegalArgumentException
+    {
+        List<NamedData<Number>> columns = dataMatrix.getNamedDataList();
+        if(!multiSeriesEnabled || columns.size() <= 2)
+        {
+            return NONE;
+        }
+        
+        List<ScatterPlotSeries> series = new ArrayList<ScatterPlotSeries>();
+        int pointCount = columns.get(0).getSize();
+        PointPalette palette = PointPalette.DEFAULT_CATEGORICAL;
+        for(int i = 2; i < columns.size(); i++)
+        {
+            NamedData<Number> currColumn = columns.get(i);
+            if(currColumn.getSize() != pointCount)
+            {
+                throw new IllegalArgumentException(
+                        "series \"" + currColumn.getNameOfData() +
+                        "\" has " + currColumn.getSize() + " values " +
+                        "but the x axis has " + pointCount);
+            }
+            
+            // the first series uses the point color so the extra
+            // ones start from the second palette color
+            series.add(new ScatterPlotSeries(
+                    currColumn,
+                    palette.getColor((i - 1) % palette.getColorCount())));
+        }
+        
+        return new SeriesOverlay(
+                NumericColumn.forData(columns.get(0)).getValues(),
+                series);
+    }
+    
+    /**
+     * Getter for the series
+     * @return
+     *          the series (unmodifiable)
+     */
+    public List<ScatterPlotSeries> getSeries()
+    {
+        return this.series;
+    }
+    
+    /**
+     * Draw the visible series layers. Any layers that have gone stale are
+     * rebuilt in parallel first. This only touches the overlay and the
+     * coordinate converter so the workers never need the plot's lock
+     * @param graphics2D
+     *          the graphics context to render to
+     * @param coordConverter
+     *          the plot's coordinate converter
+     * @param pointShape
+     *          the point shape
+     * @param pointWidth
+     *          the point width
+     */
+    public void render(
+            Graphics2D graphics2D,
+            final GraphCoordinateConverter coordConverter,
+            PointShape pointShape,
+            int pointWidth)
+    {
+        if(this.series.isEmpty())
+        {
+            return;
+        }
+        
+        // work out the stamps and rasters up front so that the workers
+        // only have to draw
+        boolean antialiased = PointStamp.isAntialiased(graphics2D);
+        final List<ScatterPlotSeries> staleSeries =
+            new ArrayList<ScatterPlotSeries>();
+        final List<BaseLayerKey> staleKeys = new ArrayList<BaseLayerKey>();
+        final List<PointStamp> staleStamps = new ArrayList<PointStamp>();
+        final List<PointRaster> staleRasters = new ArrayList<PointRaster>();
+        for(ScatterPlotSeries currSeries: this.series)
+        {
+            if(currSeries.isVisible())
+            {
+                // the overlay only lives as long as its data so the data
+                // version doesn't matter here
+                Color seriesColor = currSeries.getColor();
+                BaseLayerKey key = new BaseLayerKey(
+                        0L,
+                        coordConverter,
+                        ScatterPlotRenderMode.POINTS,
+                        seriesColor,
+                        pointWidth,
+                        pointShape,
+                        antialiased,
+                        null,
+                        0,
+                        null,
+                        null,
+                        0,
+                        0.0);
+                if(!key.equals(currSeries.getLayerKey()))
+                {
+                    staleSeries.add(currSeries);
+                    staleKeys.add(key);
+                    staleStamps.add(PointStamp.getInstance(
+                            pointShape,
+                            pointWidth,
+                            seriesColor,
+                            antialiased));
+                    staleRasters.add(SeriesOverlay.createLayerRaster(
+                            coordConverter,
+                            pointWidth));
+                }
+            }
+        }
+        
+        if(!staleSeries.isEmpty())
+        {
+            ParallelChunkExecutor.execute(
+                    staleSeries.size(),
+                    1,
+                    new ParallelChunkExecutor.ChunkTask()
+                    {
+                        public void processChunk(int fromIndex, int toIndex)
+                        {
+                            for(int i = fromIndex; i < toIndex; i++)
+                            {
+                                SeriesOverlay.this.buildLayer(
+                                        staleRasters.get(i),
+                                        staleStamps.get(i),
+                                        coordConverter,
+                                        staleSeries.get(i).getYValues());
+                                staleSeries.get(i).setLayer(
+                                        staleKeys.get(i),
+                                        staleRasters.get(i));
+                            }
+                        }
+                    });
+            
+            if(LOG.isLoggable(Level.FINE))
+            {
+                LOG.fine(
+                        "Rebuilt " + staleSeries.size() + " of " +
+                        this.series.size() + " extra series layers");
+            }
+        }
+        
+        for(ScatterPlotSeries currSeries: this.series)
+        {
+            PointRaster layer = currSeries.getLayer();
+            if(currSeries.isVisible() && layer != null)
+            {
+                graphics2D.drawImage(
+                        layer.getImage(),
+                        layer.getXOffset(),
+                        layer.getYOffset(),
+                        null);
+            }
+        }
+    }
+    
+    /**
+     * Create an empty raster covering the graph area with enough of a
+     * margin that points on the edge of the graph don't get clipped
+     * @param coordConverter
+     *          the coordinate converter
+     * @param pointWidth
+     *          the point width
+     * @return
+     *          the raster
+     */
+    private static PointRaster createLayerRaster(
+            GraphCoordinateConverter coordConverter,
+            int pointWidth)
+    {
+        int margin = pointWidth / 2 + 1;
+        return new PointRaster(
+                (int)Math.floor(coordConverter.getAbsoluteXOffsetInPixels()) - margin,
+                (int)Math.floor(coordConverter.getAbsoluteYOffsetInPixels()) - margin,
+                (int)Math.ceil(coordConverter.getAbsoluteWidthInPixels()) + 2 * margin,
+                (int)Math.ceil(coordConverter.getAbsoluteHeightInPixels()) + 2 * margin);
+    }
+    
+    /**
+     * Draw a series into its layer
+     * @param pointRaster
+     *          the layer to draw into
+     * @param pointStamp
+     *          the series glyph
+     * @param coordConverter
+     *          the coordinate converter
+     * @param yValues
+     *          the series y values
+     */
+    private void buildLayer(
+            PointRaster pointRaster,
+            PointStamp pointStamp,
+            GraphCoordinateConverter coordConverter,
+            double[] yValues)
+    {
+        double[] xValues = this.xValues;
+        PointOccupancyMask occupancyMask = new PointOccupancyMask(
+                coordConverter);
+        for(int i = 0; i < xValues.length; i++)
+        {
+            double currXValue = xValues[i];
+            double currYValue = yValues[i];
+            if(!Double.isNaN(currXValue) &&
+               !Double.isNaN(currYValue) &&
+               coordConverter.isGraphPointInBounds(currXValue, currYValue))
+            {
+                double java2DX =
+                    coordConverter.convertGraphXCoordinateToJava2DXCoordinate(
+                            currXValue);
+                double java2DY =
+                    coordConverter.convertGraphYCoordinateToJava2DYCoordinate(
+                            currYValue);
+                if(occupancyMask.occupy(pointStamp, java2DX, java2DY))
+                {
+                    pointRaster.stamp(pointStamp, java2DX, java2DY);
+                }
+            }
+        }
+    }
+}
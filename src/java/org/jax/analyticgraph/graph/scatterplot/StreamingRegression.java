@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+/**
+ * An ordinary least squares line fit that's built up in a single pass
+ * over the points and can be extended with more points later on. The
+ * sums are Kahan compensated and taken relative to the first point so
+ * that millions of points (or points far from the origin) don't lose
+ * precision.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+public class StreamingRegression
+{
+    /**
+     * @see #getCount()
+     */
+    private long count = 0L;
+    
+    /**
+     * the x value that every x is taken relative to
+     */
+    private double xShift = Double.NaN;
+    
+    /**
+     * the y value that every y is taken relative to
+     */
+    private double yShift = Double.NaN;
+    
+    /**
+     * the sums of x, y, x*x, x*y and y*y
+     */
+    private final double[] sums = new double[5];
+    
+    /**
+     * the running compensation for each of the sums
+     */
+    private final double[] compensations = new double[5];
+    
+    /**
+     * Constructor for an empty fit
+     */
+    public StreamingRegression()
+    {
+    }
+    
+    /**
+     * Copy constructor
+     * @param regressionToCopy
+     *          the fit to copy
+     */
+    public StreamingRegression(StreamingRegression regressionToCopy)
+    {
+        this.count = regressionToCopy.count;
+        this.xShift = regressionToCopy.xShift;
+        this.yShift = regressionToCopy.yShift;
+        System.arraycopy(regressionToCopy.sums, 0, this.sums, 0, this.sums.length);
+        System.arraycopy(
+                regressionToCopy.compensations,
+                0,
+                this.compensations,
+                0,
+                this.compensations.length);
+    }
+    
+    /**
+     * Add points to the fit. Points with a missing coordinate are skipped
+     * @param xValues
+     *          the x values
+     * @param yValues
+     *          the y values
+     * @param fromIndex
+     *          the first point to add
+     * @param toIndex
+     *          the index after the last point to add
+     */
+    public void accumulate(
+            double[] xValues,
+            double[] yValues,
+            int fromIndex,
+            int toIndex)
+    {
+        // keep the sums in locals through the loop
+        double[] sums = this.sums;
+        double[] compensations = this.compensations;
+        double sumX = sums[0];
+        double sumY = sums[1];
+        double sumXX = sums[2];
+        double sumXY = sums[3];
+        double sumYY = sums[4];
+        double compX = compensations[0];
+        double compY = compensations[1];
+        double compXX = compensations[2];
+        double compXY = compensations[3];
+        double compYY = compensations[4];
+        long count = this.count;
+        double xShift = this.xShift;
+        double yShift = this.yShift;
+        for(int i = fromIndex; i < toIndex; i++)
+        {
+            double x = xValues[i];
+            double y = yValues[i];
+            if(Double.isNaN(x) || Double.isNaN(y))
+            {
+                continue;
+            }
+            
+            if(count == 0L)
+            {
+                xShift = x;
+                yShift = y;
+            }
+            count++;
+            
+            double dx = x - xShift;
+            double dy = y - yShift;
+            
+            double term = dx - compX;
+            double sum = sumX + term;
+            compX = (sum - sumX) - term;
+            sumX = sum;
+            
+            term = dy - compY;
+            sum = sumY + term;
+            compY = (sum - sumY) - term;
+            sumY = sum;
+            
+            term = dx * dx - compXX;
+            sum = sumXX + term;
+            compXX = (sum - sumXX) - term;
+            sumXX = sum;
+            
+            term = dx * dy - compXY;
+            sum = sumXY + term;
+            compXY = (sum - sumXY) - term;
+            sumXY = sum;
+            
+            term = dy * dy - compYY;
+            sum = sumYY + term;
+            compYY = (sum - sumYY) - term;
+            sumYY = sum;
+        }
+        
+        sums[0] = sumX;
+        sums[1] = sumY;
+        sums[2] = sumXX;
+        sums[3] = sumXY;
+        sums[4] = sumYY;
+        compensations[0] = compX;
+        compensations[1] = compY;
+        compensations[2] = compXX;
+        compensations[3] = compXY;
+        compensations[4] = compYY;
+        this.count = count;
+        this.xShift = xShift;
+        this.yShift = yShift;
+    }
+    
+    /**
+     * Getter for the number of points in the fit
+     * @return
+     *          the count
+     */
+    public long getCount()
+    {
+        return this.count;
+    }
+    
+    /**
+     * Get the sum of squared x deviations from the mean
+     * @return
+     *          the sum
+     */
+    private double getXXDeviation()
+    {
+        return this.sums[2] - this.sums[0] * this.sums[0] / this.count;
+    }
+    
+    /**
+     * Get the sum of x deviation times y deviation
+     * @return
+     *          the sum
+     */
+    private double getXYDeviation()
+    {
+        return this.sums[3] - this.sums[0] * this.sums[1] / this.count;
+    }
+    
+    /**
+     * Getter for the slope of the fitted line
+     * @return
+     *          the slope or NaN if there aren't at least two distinct x
+     *          values
+     */
+    public double getSlope()
+    {
+        if(this.count < 2L)
+        {
+            return Double.NaN;
+        }
+        
+        double xxDeviation = this.getXXDeviation();
+        return xxDeviation > 0.0 ?
+               this.getXYDeviation() / xxDeviation :
+               Double.NaN;
+    }
+    
+    /**
+     * Getter for the intercept of the fitted line
+     * @return
+     *          the y value where the line crosses x = 0 or NaN if there's
+     *          no line
+     */
+    public double getIntercept()
+    {
+        double slope = this.getSlope();
+        double meanX = this.xShift + this.sums[0] / this.count;
+        double meanY = this.yShift + this.sums[1] / this.count;
+        return meanY - slope * meanX;
+    }
+    
+    /**
+     * Getter for the coefficient of determination
+     * @return
+     *          R squared or NaN if there's no line or y is constant
+     */
+    public double getRSquared()
+    {
+        double slope = this.getSlope();
+        double yyDeviation = this.sums[4] - this.sums[1] * this.sums[1] / this.count;
+        if(Double.isNaN(slope) || yyDeviation <= 0.0)
+        {
+            return Double.NaN;
+        }
+        
+        return slope * this.getXYDeviation() / yyDeviation;
+    }
+    
+    /**
+     * Get the fitted y value for the given x
+     * @param x
+     *          the x value
+     * @return
+     *          the fitted y value or NaN if there's no line
+     */
+    public double predict(double x)
+    {
+        return this.getIntercept() + this.getSlope() * x;
+    }
+}
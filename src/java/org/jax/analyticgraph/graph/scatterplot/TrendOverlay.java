@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2009 The Jackson Laboratory
+ * 
+ * This software was developed by Gary Churchill's Lab at The Jackson
+ * Laboratory (see http://research.jax.org/faculty/churchill).
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.jax.analyticgraph.graph.scatterplot;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jax.analyticgraph.data.NamedData;
+import org.jax.analyticgraph.data.NumericColumn;
+import org.jax.analyticgraph.framework.GraphCoordinateConverter;
+
+/**
+ * Draws a least squares line and a smooth curve over a
+ * {@link ScatterPlot}. The fits are cached along with the values that
+ * they were worked out for. When the plot's new data just has rows
+ * appended to those values the new rows are added to the fits instead of
+ * refitting everything.
+ * @author <A HREF="mailto:keith.sheppard@jax.org">Keith Sheppard</A>
+ */
+class TrendOverlay
+{
+    /**
+     * our logger
+     */
+    private static final Logger LOG =
+        Logger.getLogger(TrendOverlay.class.getName());
+    
+    /**
+     * the number of x bins that the smoother uses
+     */
+    private static final int SMOOTHER_BIN_COUNT = 200;
+    
+    /**
+     * the default fraction of the x range that each local smoother fit
+     * looks at
+     */
+    private static final double DEFAULT_SMOOTHER_SPAN = 0.3;
+    
+    /**
+     * the stroke for the trend lines
+     */
+    private static final Stroke TREND_LINE_STROKE = new BasicStroke(2.0F);
+    
+    /**
+     * @see #isRegressionLineVisible()
+     */
+    private volatile boolean regressionLineVisible = false;
+    
+    /**
+     * @see #isSmootherVisible()
+     */
+    private volatile boolean smootherVisible = false;
+    
+    /**
+     * @see #getSmootherSpan()
+     */
+    private volatile double smootherSpan = DEFAULT_SMOOTHER_SPAN;
+    
+    /**
+     * @see #getTrendLineColor()
+     */
+    private volatile Color trendLineColor = Color.DARK_GRAY;
+    
+    /**
+     * the x values that the fits were worked out for or null
+     */
+    private double[] xValues;
+    
+    /**
+     * the y values that the fits were worked out for or null
+     */
+    private double[] yValues;
+    
+    /**
+     * the least squares fit or null if we haven't needed it
+     */
+    private StreamingRegression regression;
+    
+    /**
+     * the smoother or null if we haven't needed it
+     */
+    private BinnedSmoother smoother;
+    
+    /**
+     * Determine if we draw the least squares line
+     * @return
+     *          true if the regression line is drawn
+     */
+    public boolean isRegressionLineVisible()
+    {
+        return this.regressionLineVisible;
+    }
+    
+    /**
+     * Turn the least squares line on or off
+     * @param regressionLineVisible
+     *          true to draw the line
+     */
+    public void setRegressionLineVisible(boolean regressionLineVisible)
+    {
+        this.regressionLineVisible = regressionLineVisible;
+    }
+    
+    /**
+     * Determine if we draw the smooth curve
+     * @return
+     *          true if the smoother is drawn
+     */
+    public boolean isSmootherVisible()
+    {
+        return this.smootherVisible;
+    }
+    
+    /**
+     * Turn the smooth curve on or off
+     * @param smootherVisible
+     *          true to draw the curve
+     */
+    public void setSmootherVisible(boolean smootherVisible)
+    {
+        this.smootherVisible = smootherVisible;
+    }
+    
+    /**
+     * Getter for how much of the x range each local smoother fit looks at
+     * @return
+     *          the span as a fraction of the x range
+     */
+    public double getSmootherSpan()
+    {
+        return this.smootherSpan;
+    }
+    
+    /**
+     * Setter for the smoother span
+     * @param smootherSpan
+     *          the span
+     * @throws IllegalArgumentException
+     *          if the span isn't positive
+     */
+    public void setSmootherSpan(double smootherSpan)
+    throws IllegalArgumentException
+    {
+        if(!(smootherSpan > 0.0))
+        {
+            throw new IllegalArgumentException(
+                    "the smoother span must be positive: " + smootherSpan);
+        }
+        
+        this.smootherSpan = smootherSpan;
+    }
+    
+    /**
+     * Getter for the color of the regression line and smooth curve
+     * @return
+     *          the color
+     */
+    public Color getTrendLineColor()
+    {
+        return this.trendLineColor;
+    }
+    
+    /**
+     * Setter for the trend line color
+     * @param trendLineColor
+     *          the color
+     */
+    public void setTrendLineColor(Color trendLineColor)
+    {
+        this.trendLineColor = trendLineColor;
+    }
+    
+    /**
+     * Get the least squares fit through the given data
+     * @param xAxisData
+     *          the x data
+     * @param yAxisData
+     *          the y data
+     * @return
+     *          a copy of the fit
+     */
+    public synchronized StreamingRegression getRegression(
+            NamedData<Number> xAxisData,
+            NamedData<Number> yAxisData)
+    {
+        this.updateFits(xAxisData, yAxisData);
+        return new StreamingRegression(this.regression);
+    }
+    
+    /**
+     * Bring the regression and the smoother up to date with the given
+     * data. If the data just has rows appended to the values that we
+     * fit last time we only add the new rows
+     * @param xAxisData
+     *          the x data
+     * @param yAxisData
+     *          the y data
+     */
+    private void updateFits(
+            NamedData<Number> xAxisData,
+            NamedData<Number> yAxisData)
+    {
+        NumericColumn xColumn = NumericColumn.forData(xAxisData);
+        double[] xValues = xColumn.getValues();
+        double[] yValues = NumericColumn.forData(yAxisData).getValues();
+        if(xValues == this.xValues && yValues == this.yValues)
+        {
+            return;
+        }
+        
+        // checking for appended rows is a lot cheaper than refitting
+        int fromIndex = 0;
+        if(this.regression != null &&
+           TrendOverlay.startsWith(xValues, this.xValues) &&
+           TrendOverlay.startsWith(yValues, this.yValues))
+        {
+            fromIndex = this.xValues.length;
+        }
+        else
+        {
+            this.regression = new StreamingRegression();
+            this.smoother = null;
+        }
+        int toIndex = xValues.length;
+        
+        long startNanos = System.nanoTime();
+        this.regression.accumulate(xValues, yValues, fromIndex, toIndex);
+        
+        // the smoother grid is fixed so if new points fall off of it we
+        // have to start over with a wider one
+        if(this.smoother == null ||
+           !this.smoother.accumulate(xValues, yValues, fromIndex, toIndex))
+        {
+            this.smoother = new BinnedSmoother(
+                    xColumn.getMinimum(),
+                    xColumn.getMaximum(),
+                    SMOOTHER_BIN_COUNT);
+            this.smoother.accumulate(xValues, yValues, 0, toIndex);
+        }
+        this.xValues = xValues;
+        this.yValues = yValues;
+        
+        if(LOG.isLoggable(Level.FINE))
+        {
+            LOG.fine(
+                    "Added " + (toIndex - fromIndex) + " points to the " +
+                    "trend fits in " +
+                    ((System.nanoTime() - startNanos) / 1000000L) + " ms");
+        }
+    }
+    
+    /**
+     * Determine if the given values start with the given prefix
+     * @param values
+     *          the values
+     * @param prefix
+     *          the prefix
+     * @return
+     *          true if they do (with NaNs matching each other)
+     */
+    private static boolean startsWith(double[] values, double[] prefix)
+    {
+        if(prefix == null || values.length < prefix.length)
+        {
+            return false;
+        }
+        
+        for(int i = 0; i < prefix.length; i++)
+        {
+            if(Double.doubleToLongBits(values[i]) !=
+               Double.doubleToLongBits(prefix[i]))
+            {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Draw the regression line and the smooth curve if they're turned on
+     * @param graphics2D
+     *          the graphics context to draw to
+     * @param coordConverter
+     *          the plot's coordinate converter
+     * @param xAxisData
+     *          the x data or null if nothing is plotted
+     * @param yAxisData
+     *          the y data or null if nothing is plotted
+     */
+    public synchronized void render(
+            Graphics2D graphics2D,
+            GraphCoordinateConverter coordConverter,
+            NamedData<Number> xAxisData,
+            NamedData<Number> yAxisData)
+    {
+        boolean regressionLineVisible = this.regressionLineVisible;
+        boolean smootherVisible = this.smootherVisible;
+        if((!regressionLineVisible && !smootherVisible) || xAxisData == null)
+        {
+            return;
+        }
+        
+        this.updateFits(xAxisData, yAxisData);
+        
+        Shape pushClip = graphics2D.getClip();
+        Stroke pushStroke = graphics2D.getStroke();
+        graphics2D.clip(new Rectangle2D.Double(
+                coordConverter.getAbsoluteXOffsetInPixels(),
+                coordConverter.getAbsoluteYOffsetInPixels(),
+                coordConverter.getAbsoluteWidthInPixels(),
+                coordConverter.getAbsoluteHeightInPixels()));
+        graphics2D.setStroke(TREND_LINE_STROKE);
+        graphics2D.setColor(this.trendLineColor);
+        
+        if(regressionLineVisible && !Double.isNaN(this.regression.getSlope()))
+        {
+            double left = coordConverter.getGraphOriginX();
+            double right = left + coordConverter.getGraphWidth();
+            Path2D.Double line = new Path2D.Double();
+            line.moveTo(
+                    coordConverter.convertGraphXCoordinateToJava2DXCoordinate(left),
+                    coordConverter.convertGraphYCoordinateToJava2DYCoordinate(
+                            this.regression.predict(left)));
+            line.lineTo(
+                    coordConverter.convertGraphXCoordinateToJava2DXCoordinate(right),
+                    coordConverter.convertGraphYCoordinateToJava2DYCoordinate(
+                            this.regression.predict(right)));
+            graphics2D.draw(line);
+        }
+        
+        if(smootherVisible)
+        {
+            // break the curve wherever there's no data to smooth
+            double[] curve = this.smoother.smooth(this.smootherSpan);
+            Path2D.Double path = new Path2D.Double();
+            boolean penDown = false;
+            for(int bin = 0; bin < curve.length; bin++)
+            {
+                if(Double.isNaN(curve[bin]))
+                {
+                    penDown = false;
+                    continue;
+                }
+                
+                double java2DX = coordConverter.convertGraphXCoordinateToJava2DXCoordinate(
+                        this.smoother.getBinCenter(bin));
+                double java2DY = coordConverter.convertGraphYCoordinateToJava2DYCoordinate(
+                        curve[bin]);
+                if(penDown)
+                {
+                    path.lineTo(java2DX, java2DY);
+                }
+                else
+                {
+                    path.moveTo(java2DX, java2DY);
+                    penDown = true;
+                }
+            }
+            graphics2D.draw(path);
+        }
+        
+        graphics2D.setStroke(pushStroke);
+        graphics2D.setClip(pushClip);
+    }
+}